@@ -0,0 +1,108 @@
+package us.abstracta.jmeter.javadsl.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+
+/**
+ * Compares two JMH JSON results files (as generated with {@code -rf json}), printing the score
+ * change of each benchmark and failing (exit code 1) if any benchmark regressed more than a
+ * given percentage.
+ * <p>
+ * Usage: {@code BenchmarkComparison <baseline.json> <current.json> [maxRegressionPercent]}. When
+ * not specified, max regression percent is 10.
+ */
+public class BenchmarkComparison {
+
+  private static final double DEFAULT_MAX_REGRESSION_PERCENT = 10;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println(
+          "Usage: BenchmarkComparison <baseline.json> <current.json> [maxRegressionPercent]");
+      System.exit(2);
+    }
+    Map<String, Score> baseline = readScores(new File(args[0]));
+    Map<String, Score> current = readScores(new File(args[1]));
+    double maxRegression = args.length > 2 ? Double.parseDouble(args[2])
+        : DEFAULT_MAX_REGRESSION_PERCENT;
+    boolean regressed = false;
+    System.out.printf(Locale.US, "%-70s %12s %12s %10s %10s%n", "Benchmark", "Baseline",
+        "Current", "Units", "Change");
+    for (Entry<String, Score> entry : current.entrySet()) {
+      Score currentScore = entry.getValue();
+      Score baselineScore = baseline.get(entry.getKey());
+      if (baselineScore == null) {
+        System.out.printf(Locale.US, "%-70s %12s %12.3f %10s %10s%n", entry.getKey(), "-",
+            currentScore.value, currentScore.unit, "new");
+        continue;
+      }
+      /*
+       positive improvement means better score, no matter the benchmark mode. Adding 0.0 avoids
+       printing -0.0.
+       */
+      double improvement = (currentScore.value - baselineScore.value) / baselineScore.value * 100
+          * (currentScore.higherIsBetter ? 1 : -1) + 0.0;
+      boolean isRegression = improvement < -maxRegression;
+      regressed |= isRegression;
+      System.out.printf(Locale.US, "%-70s %12.3f %12.3f %10s %+9.1f%%%s%n", entry.getKey(),
+          baselineScore.value, currentScore.value, currentScore.unit, improvement,
+          isRegression ? " REGRESSION" : "");
+    }
+    if (regressed) {
+      System.out.printf(Locale.US, "Some benchmarks regressed more than %.1f%%%n", maxRegression);
+      System.exit(1);
+    }
+  }
+
+  private static Map<String, Score> readScores(File file) throws IOException {
+    Map<String, Score> ret = new LinkedHashMap<>();
+    for (JsonNode result : new ObjectMapper().readTree(file)) {
+      JsonNode metric = result.get("primaryMetric");
+      ret.put(buildBenchmarkId(result),
+          new Score(metric.get("score").asDouble(), metric.get("scoreUnit").asText(),
+              "thrpt".equals(result.get("mode").asText())));
+    }
+    return ret;
+  }
+
+  private static String buildBenchmarkId(JsonNode result) {
+    String benchmark = result.get("benchmark").asText();
+    benchmark = benchmark.substring(BenchmarkComparison.class.getPackage().getName().length() + 1);
+    JsonNode params = result.get("params");
+    if (params == null) {
+      return benchmark;
+    }
+    Map<String, String> paramValues = new LinkedHashMap<>();
+    Iterator<Entry<String, JsonNode>> fields = params.fields();
+    while (fields.hasNext()) {
+      Entry<String, JsonNode> field = fields.next();
+      paramValues.put(field.getKey(), field.getValue().asText());
+    }
+    return benchmark + paramValues.entrySet().stream()
+        .map(e -> e.getKey() + "=" + e.getValue())
+        .collect(Collectors.joining(",", "(", ")"));
+  }
+
+  private static class Score {
+
+    private final double value;
+    private final String unit;
+    private final boolean higherIsBetter;
+
+    private Score(double value, String unit, boolean higherIsBetter) {
+      this.value = value;
+      this.unit = unit;
+      this.higherIsBetter = higherIsBetter;
+    }
+
+  }
+
+}
@@ -0,0 +1,107 @@
+package us.abstracta.jmeter.javadsl.benchmarks;
+
+import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.http.DslHttpSampler.HttpClientImpl;
+
+/**
+ * Measures the time and memory taken by concurrent uploads of a file with
+ * {@code httpSampler(...).bodyFile(...)}, with JMeter HttpClient 4 implementation and with the
+ * non-blocking implementation which streams files from off-heap buffers.
+ * <p>
+ * Each operation is an upload, and all uploads of a test plan run concurrently. Use JMH gc
+ * profiler ({@code -prof gc}) to get memory allocated per concurrent upload
+ * ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Uploads are sent to a local server which just discards received bodies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BodyFileUploadBenchmark {
+
+  private static final int CONCURRENT_UPLOADS = 20;
+
+  @Param({"1", "50"})
+  public int fileSizeMb;
+
+  @Param({"HTTP_CLIENT", "ASYNC"})
+  public HttpClientImpl clientImpl;
+
+  private Path file;
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+
+  @Setup
+  public void setup() throws IOException {
+    file = Files.createTempFile("upload", ".bin");
+    try (RandomAccessFile f = new RandomAccessFile(file.toFile(), "rw")) {
+      f.setLength(fileSizeMb * 1024L * 1024L);
+    }
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), CONCURRENT_UPLOADS);
+    server.createContext("/", exchange -> {
+      try (InputStream body = exchange.getRequestBody()) {
+        byte[] buffer = new byte[8192];
+        while (body.read(buffer) >= 0) {
+          // just discard the body
+        }
+      }
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    });
+    serverExecutor = Executors.newFixedThreadPool(CONCURRENT_UPLOADS);
+    server.setExecutor(serverExecutor);
+    server.start();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    server.stop(0);
+    serverExecutor.shutdownNow();
+    Files.delete(file);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CONCURRENT_UPLOADS)
+  public TestPlanStats run() throws IOException {
+    return testPlan(
+        threadGroup(CONCURRENT_UPLOADS, 1,
+            httpSampler("http://localhost:" + server.getAddress().getPort())
+                .method(HTTPConstants.POST)
+                .bodyFile(file.toString())
+                .clientImpl(clientImpl)
+        )
+    ).run();
+  }
+
+}
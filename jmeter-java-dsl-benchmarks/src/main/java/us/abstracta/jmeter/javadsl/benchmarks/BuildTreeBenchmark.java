@@ -0,0 +1,77 @@
+package us.abstracta.jmeter.javadsl.benchmarks;
+
+import static us.abstracta.jmeter.javadsl.JmeterDsl.dummySampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.responseAssertion;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
+import us.abstracta.jmeter.javadsl.core.DslTestPlan;
+import us.abstracta.jmeter.javadsl.core.engines.JmeterEnvironment;
+import us.abstracta.jmeter.javadsl.core.threadgroups.DslDefaultThreadGroup;
+
+/**
+ * Measures the time taken by {@link BuildTreeContext#buildTreeFor} to build the JMeter tree of
+ * test plans with different number of samplers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BuildTreeBenchmark {
+
+  private static final int SAMPLERS_PER_THREAD_GROUP = 100;
+
+  @Param({"100", "1000", "10000"})
+  public int samplersCount;
+  private DslTestPlan testPlan;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    new JmeterEnvironment();
+    int threadGroupsCount = Math.max(samplersCount / SAMPLERS_PER_THREAD_GROUP, 1);
+    DslDefaultThreadGroup[] threadGroups = new DslDefaultThreadGroup[threadGroupsCount];
+    for (int i = 0; i < threadGroupsCount; i++) {
+      DslDefaultThreadGroup threadGroup = threadGroup(1, 1);
+      for (int j = 0; j < SAMPLERS_PER_THREAD_GROUP; j++) {
+        int samplerId = i * SAMPLERS_PER_THREAD_GROUP + j;
+        threadGroup.children(samplerId % 2 == 0
+            ? httpSampler("sampler" + samplerId, "http://localhost/" + samplerId)
+            .header("Accept", "application/json")
+            .children(
+                responseAssertion().containsSubstrings("OK")
+            )
+            : dummySampler("sampler" + samplerId, "OK"));
+      }
+      threadGroups[i] = threadGroup;
+    }
+    testPlan = testPlan(threadGroups);
+  }
+
+  @Benchmark
+  public HashTree buildTree() {
+    HashTree ret = new ListedHashTree();
+    new BuildTreeContext().buildTreeFor(testPlan, ret);
+    return ret;
+  }
+
+}
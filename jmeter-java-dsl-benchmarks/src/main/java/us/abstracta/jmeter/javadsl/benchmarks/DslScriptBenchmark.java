@@ -0,0 +1,77 @@
+package us.abstracta.jmeter.javadsl.benchmarks;
+
+import static us.abstracta.jmeter.javadsl.JmeterDsl.jsr223PostProcessor;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.jmeter.extractor.JSR223PostProcessor;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
+import us.abstracta.jmeter.javadsl.core.engines.JmeterEnvironment;
+import us.abstracta.jmeter.javadsl.core.postprocessors.DslJsr223PostProcessor.PostProcessorScript;
+import us.abstracta.jmeter.javadsl.core.postprocessors.DslJsr223PostProcessor.PostProcessorVars;
+
+/**
+ * Measures the overhead of running a JSR223 element defined with a Java lambda.
+ * <p>
+ * Such elements are executed through a groovy script which gets the lambda from JMeter properties
+ * and invokes it with a new vars instance ({@code props.get('groovyScriptN').run(...)}). This
+ * benchmark compares such path with directly invoking the lambda.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DslScriptBenchmark {
+
+  private static final PostProcessorScript SCRIPT = s -> s.vars.put("key", s.prev.getSampleLabel());
+
+  private JSR223PostProcessor postProcessor;
+  private JMeterContext context;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    new JmeterEnvironment();
+    HashTree tree = new ListedHashTree();
+    new BuildTreeContext().buildTreeFor(jsr223PostProcessor(SCRIPT), tree);
+    postProcessor = (JSR223PostProcessor) tree.getArray()[0];
+    context = JMeterContextService.getContext();
+    context.setVariables(new JMeterVariables());
+    SampleResult prev = new SampleResult();
+    prev.setSampleLabel("label");
+    context.setPreviousResult(prev);
+  }
+
+  @Benchmark
+  public void scriptEngine() {
+    postProcessor.process();
+  }
+
+  @Benchmark
+  public void directLambda() throws Exception {
+    SCRIPT.run(new PostProcessorVars(postProcessor.getName(), context.getPreviousResult(),
+        context, context.getVariables(), JMeterUtils.getJMeterProperties(),
+        context.getCurrentSampler(), LoggerFactory.getLogger(DslScriptBenchmark.class)));
+  }
+
+}
@@ -0,0 +1,53 @@
+package us.abstracta.jmeter.javadsl.benchmarks;
+
+import static us.abstracta.jmeter.javadsl.JmeterDsl.dummySampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+
+/**
+ * Measures the throughput (samples per millisecond) of the embedded engine running a test plan
+ * with a dummy sampler, which helps to identify the per sample overhead of the DSL and JMeter
+ * engine.
+ * <p>
+ * Each operation is a sample, so reported scores already take into consideration the test plan
+ * start and stop overhead.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DummySamplerPlanBenchmark {
+
+  private static final int SAMPLES_COUNT = 100_000;
+
+  @Param({"1", "10"})
+  public int threads;
+
+  @Benchmark
+  @OperationsPerInvocation(SAMPLES_COUNT)
+  public TestPlanStats run() throws IOException {
+    return testPlan(
+        threadGroup(threads, SAMPLES_COUNT / threads,
+            dummySampler("OK")
+        )
+    ).run();
+  }
+
+}
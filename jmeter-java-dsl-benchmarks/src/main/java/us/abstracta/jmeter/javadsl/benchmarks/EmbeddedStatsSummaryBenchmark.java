@@ -0,0 +1,69 @@
+package us.abstracta.jmeter.javadsl.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.apache.jmeter.samplers.SampleResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import us.abstracta.jmeter.javadsl.core.engines.EmbeddedStatsSummary;
+
+/**
+ * Measures throughput of {@link EmbeddedStatsSummary#add(SampleResult)}, with and without
+ * timeline, for sample results with different sample times.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EmbeddedStatsSummaryBenchmark {
+
+  private static final int RESULTS_COUNT = 1024;
+
+  @Param({"false", "true"})
+  public boolean timeline;
+  private EmbeddedStatsSummary summary;
+  private SampleResult[] results;
+  private int index;
+
+  @Setup(Level.Trial)
+  public void setupResults() {
+    results = new SampleResult[RESULTS_COUNT];
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < results.length; i++) {
+      SampleResult result = new SampleResult();
+      result.setSampleLabel("label");
+      // spread sample times and start times to use different histogram and timeline buckets
+      long elapsed = (i * 37L) % 5000;
+      result.setStampAndTime(startTime + i * 100L + elapsed, elapsed);
+      result.setSuccessful(i % 10 != 0);
+      result.setBytes(1024L);
+      result.setSentBytes(256L);
+      results[i] = result;
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setupSummary() {
+    summary = timeline ? new EmbeddedStatsSummary(Duration.ofSeconds(1), 3600)
+        : new EmbeddedStatsSummary();
+  }
+
+  @Benchmark
+  public void add() {
+    index = (index + 1) % results.length;
+    summary.add(results[index]);
+  }
+
+}
@@ -0,0 +1,102 @@
+package us.abstracta.jmeter.javadsl.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.jmeter.samplers.SampleResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.core.engines.EmbeddedStatsSummary;
+import us.abstracta.jmeter.javadsl.core.engines.JmeterEnvironment;
+
+/**
+ * Measures throughput of {@link TestPlanStats#addSampleResult(SampleResult)} with different
+ * number of threads concurrently collecting sample results, with and without striped collection.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestPlanStatsBenchmark {
+
+  private static final int LABELS_COUNT = 10;
+
+  @State(Scope.Benchmark)
+  public static class StatsState {
+
+    @Param({"false", "true"})
+    public boolean striped;
+    public TestPlanStats stats;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+      new JmeterEnvironment();
+      stats = new TestPlanStats(EmbeddedStatsSummary::new, striped);
+    }
+
+  }
+
+  @State(Scope.Thread)
+  public static class SampleState {
+
+    public SampleResult[] results;
+    public int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      results = new SampleResult[LABELS_COUNT];
+      for (int i = 0; i < results.length; i++) {
+        SampleResult result = new SampleResult();
+        result.setSampleLabel("label" + i);
+        result.setStampAndTime(System.currentTimeMillis(), i * 10L);
+        result.setSuccessful(i % 5 != 0);
+        result.setBytes(1024L);
+        result.setSentBytes(256L);
+        results[i] = result;
+      }
+    }
+
+    public SampleResult next() {
+      index = (index + 1) % results.length;
+      return results[index];
+    }
+
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void addSampleResult1Thread(StatsState stats, SampleState sample) {
+    stats.stats.addSampleResult(sample.next());
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void addSampleResult8Threads(StatsState stats, SampleState sample) {
+    stats.stats.addSampleResult(sample.next());
+  }
+
+  @Benchmark
+  @Threads(64)
+  public void addSampleResult64Threads(StatsState stats, SampleState sample) {
+    stats.stats.addSampleResult(sample.next());
+  }
+
+  @Benchmark
+  @Threads(512)
+  public void addSampleResult512Threads(StatsState stats, SampleState sample) {
+    stats.stats.addSampleResult(sample.next());
+  }
+
+}
@@ -0,0 +1,63 @@
+package us.abstracta.jmeter.javadsl.benchmarks;
+
+import static us.abstracta.jmeter.javadsl.JmeterDsl.dummySampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+
+/**
+ * Compares the time taken by the embedded engine to run a test plan with platform threads and
+ * with virtual threads, for different number of threads.
+ * <p>
+ * Each thread runs a few iterations of a dummy sampler which blocks the thread simulating a
+ * response time, like HTTP or JDBC samplers do while waiting for responses. Use JMH gc profiler
+ * ({@code -prof gc}) to compare memory allocation as well.
+ * <p>
+ * Virtual threads require Java 21 or later. In previous Java versions both modes use platform
+ * threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadGroupBenchmark {
+
+  private static final int ITERATIONS = 10;
+  private static final Duration RESPONSE_TIME = Duration.ofMillis(10);
+
+  @Param({"100", "1000", "5000"})
+  public int threads;
+
+  @Param({"false", "true"})
+  public boolean virtualThreads;
+
+  @Benchmark
+  public TestPlanStats run() throws IOException {
+    return testPlan(
+        threadGroup(threads, ITERATIONS)
+            .virtualThreads(virtualThreads)
+            .children(
+                dummySampler("OK")
+                    .responseTime(RESPONSE_TIME)
+                    .simulateResponseTime(true)
+            )
+    ).run();
+  }
+
+}
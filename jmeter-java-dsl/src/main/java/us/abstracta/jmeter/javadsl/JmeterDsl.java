@@ -19,6 +19,8 @@ import us.abstracta.jmeter.javadsl.core.controllers.DslWeightedSwitchController;
 import us.abstracta.jmeter.javadsl.core.controllers.DslWhileController;
 import us.abstracta.jmeter.javadsl.core.controllers.ForLoopController;
 import us.abstracta.jmeter.javadsl.core.controllers.PercentController;
+import us.abstracta.jmeter.javadsl.core.listeners.AutoStopCondition;
+import us.abstracta.jmeter.javadsl.core.listeners.DslAutoStop;
 import us.abstracta.jmeter.javadsl.core.listeners.DslViewResultsTree;
 import us.abstracta.jmeter.javadsl.core.listeners.HtmlReporter;
 import us.abstracta.jmeter.javadsl.core.listeners.InfluxDbBackendListener;
@@ -35,6 +37,7 @@ import us.abstracta.jmeter.javadsl.core.preprocessors.DslJsr223PreProcessor.PreP
 import us.abstracta.jmeter.javadsl.core.preprocessors.DslJsr223PreProcessor.PreProcessorVars;
 import us.abstracta.jmeter.javadsl.core.samplers.DslDummySampler;
 import us.abstracta.jmeter.javadsl.core.threadgroups.BaseThreadGroup.ThreadGroupChild;
+import us.abstracta.jmeter.javadsl.core.threadgroups.DslArrivalsThreadGroup;
 import us.abstracta.jmeter.javadsl.core.threadgroups.DslDefaultThreadGroup;
 import us.abstracta.jmeter.javadsl.core.threadgroups.DslSetupThreadGroup;
 import us.abstracta.jmeter.javadsl.core.threadgroups.DslTeardownThreadGroup;
@@ -337,6 +340,43 @@ public class JmeterDsl {
     return new RpsThreadGroup(name);
   }
 
+  /**
+   * Builds a thread group that starts iterations at a given rate (arrivals per second),
+   * independently of how long previous iterations take.
+   * <p>
+   * Use this thread group to simulate an open model, where users arrive to the service under test
+   * at a given rate, no matter if the service is slowed down.
+   * <p>
+   * Eg:
+   * <pre>{@code
+   *  arrivalsThreadGroup()
+   *    .maxThreads(500)
+   *    .rampTo(20, Duration.ofSeconds(10))
+   *    .rampToAndHold(50, Duration.ofSeconds(5), Duration.ofSeconds(10))
+   *    .rampTo(0, Duration.ofSeconds(5))
+   *    .children(...)
+   * }</pre>
+   *
+   * @return the thread group instance.
+   * @see DslArrivalsThreadGroup
+   * @since 1.4
+   */
+  public static DslArrivalsThreadGroup arrivalsThreadGroup() {
+    return new DslArrivalsThreadGroup(null);
+  }
+
+  /**
+   * Same as {@link #arrivalsThreadGroup()} but allowing to set a name on the thread group.
+   * <p>
+   * Setting a proper name allows to properly identify the requests generated in each thread group.
+   *
+   * @see #arrivalsThreadGroup()
+   * @since 1.4
+   */
+  public static DslArrivalsThreadGroup arrivalsThreadGroup(String name) {
+    return new DslArrivalsThreadGroup(name);
+  }
+
   /**
    * Builds a new transaction controller with the given name.
    *
@@ -1333,6 +1373,39 @@ public class JmeterDsl {
     return new DslViewResultsTree();
   }
 
+  /**
+   * Builds an element which stops the test plan when some condition on collected statistics is met.
+   * <p>
+   * This is helpful to avoid wasting time and resources running a test plan which is already not
+   * meeting expected service levels. Eg:
+   * <pre>{@code
+   * autoStop()
+   *     .when(sampleTime().perc99().greaterThan(Duration.ofSeconds(5))
+   *         .forLast(Duration.ofSeconds(30)))
+   * }</pre>
+   *
+   * @return the auto stop element for further configuration or usage.
+   * @see DslAutoStop
+   * @see AutoStopCondition
+   * @since 1.4
+   */
+  public static DslAutoStop autoStop() {
+    return new DslAutoStop(null);
+  }
+
+  /**
+   * Same as {@link #autoStop()} but allowing to set a name, which is included in logs when the
+   * test plan is stopped.
+   *
+   * @param name specifies the name of the auto stop element.
+   * @return the auto stop element for further configuration or usage.
+   * @see #autoStop()
+   * @since 1.4
+   */
+  public static DslAutoStop autoStop(String name) {
+    return new DslAutoStop(name);
+  }
+
   /**
    * Builds a Constant Timer which pauses the thread with for a given duration.
    *
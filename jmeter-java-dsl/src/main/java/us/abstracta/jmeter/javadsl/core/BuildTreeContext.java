@@ -23,6 +23,7 @@ public class BuildTreeContext {
   private final Map<String, Object> entries = new HashMap<>();
   private final List<TreeContextEndListener> endListeners = new ArrayList<>();
   private final Map<DslVisualizer, Supplier<Component>> visualizers;
+  private boolean localExecution;
 
   public BuildTreeContext() {
     this(null, new LinkedHashMap<>());
@@ -46,6 +47,33 @@ public class BuildTreeContext {
     return parent == null;
   }
 
+  /**
+   * Specifies whether the tree is built to be executed in current JVM (eg: by
+   * {@link us.abstracta.jmeter.javadsl.core.engines.EmbeddedJmeterEngine}), or to be saved, shown
+   * or executed elsewhere.
+   * <p>
+   * Elements may use this information to build test elements which are more efficient but can't be
+   * serialized (eg: test elements which directly invoke Java lambdas).
+   *
+   * @param localExecution specifies whether the tree is built for local execution or not. By
+   *                       default, it is false.
+   * @since 1.4
+   */
+  public void setLocalExecution(boolean localExecution) {
+    getRoot().localExecution = localExecution;
+  }
+
+  /**
+   * Allows checking if the tree is built to be executed in current JVM.
+   *
+   * @return true if the tree is built to be executed in current JVM, false otherwise.
+   * @see #setLocalExecution(boolean)
+   * @since 1.4
+   */
+  public boolean isLocalExecution() {
+    return getRoot().localExecution;
+  }
+
   public Object getEntry(String key) {
     return entries.get(key);
   }
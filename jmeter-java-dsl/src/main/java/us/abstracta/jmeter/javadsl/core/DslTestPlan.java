@@ -29,6 +29,7 @@ import us.abstracta.jmeter.javadsl.core.engines.JmeterEnvironment;
 import us.abstracta.jmeter.javadsl.core.engines.JmeterGui;
 import us.abstracta.jmeter.javadsl.core.testelements.TestElementContainer;
 import us.abstracta.jmeter.javadsl.core.threadgroups.DslDefaultThreadGroup;
+import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.ThreadsPool;
 
 /**
  * Represents a JMeter test plan, with associated thread groups and other children elements.
@@ -40,6 +41,7 @@ public class DslTestPlan extends TestElementContainer<DslTestPlan, TestPlanChild
   private static final String DEFAULT_NAME = "Test Plan";
   protected boolean serializeThreadGroups = false;
   protected boolean tearDownOnlyAfterMainThreadsDone = false;
+  protected boolean reuseThreads = false;
 
   public DslTestPlan(List<TestPlanChild> children) {
     super(DEFAULT_NAME, TestPlanGui.class, children);
@@ -71,6 +73,50 @@ public class DslTestPlan extends TestElementContainer<DslTestPlan, TestPlanChild
     return this;
   }
 
+  /**
+   * Specifies to start threads when the test plan starts and reuse them across default thread
+   * groups, instead of each thread group creating and destroying its own threads.
+   * <p>
+   * This is mainly useful in combination with {@link #sequentialThreadGroups()} in multi-phase test
+   * plans (eg: warmup, then steady load, then spike), avoiding spawning all the threads again at
+   * the beginning of each phase. Threads are pre-started when each thread group starts, reusing
+   * threads released by previous thread groups, so the pool keeps as many threads as the biggest
+   * thread group (or the sum of all thread groups when they run in parallel).
+   * <p>
+   * Take into consideration that JMeter elements state (like cookies, cache or HTTP connections) is
+   * still kept per JMeter thread (virtual user), so it is not shared across thread groups. In
+   * particular, JMeter HTTP samplers close the connections of each JMeter thread when it ends. If
+   * you need to keep connections across thread groups (eg: to avoid a burst of TLS handshakes at
+   * the beginning of each phase), use
+   * {@link us.abstracta.jmeter.javadsl.http.DslHttpDefaults#sharedConnectionPool(int, int)}.
+   * <p>
+   * This setting only applies to {@link DslDefaultThreadGroup}s without virtual threads, and only
+   * when the test plan runs in current JVM (eg: with {@link EmbeddedJmeterEngine}). Thread groups
+   * with profiles that can't be mapped to JMeter default thread group use
+   * {@link DslDefaultThreadGroup#precomputedSchedule()}.
+   *
+   * @return the test plan for further configuration or usage.
+   * @see us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.ThreadsPool
+   * @since 1.4
+   */
+  public DslTestPlan reuseThreads() {
+    return reuseThreads(true);
+  }
+
+  /**
+   * Same as {@link #reuseThreads()} but allowing to enable or disable the setting.
+   *
+   * @param enable specifies to reuse threads across thread groups when set to true. By default, it
+   *               is set to false.
+   * @return the test plan for further configuration or usage.
+   * @see #reuseThreads()
+   * @since 1.4
+   */
+  public DslTestPlan reuseThreads(boolean enable) {
+    this.reuseThreads = enable;
+    return this;
+  }
+
   /**
    * Allows running tear down thread groups only after main thread groups ends cleanly (due to
    * iterations or time limit).
@@ -115,6 +161,18 @@ public class DslTestPlan extends TestElementContainer<DslTestPlan, TestPlanChild
     return ret;
   }
 
+  @Override
+  public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
+    if (!reuseThreads || !context.isLocalExecution()) {
+      return super.buildTreeUnder(parent, context);
+    }
+    ThreadsPool threadsPool = new ThreadsPool();
+    context.getRoot().setEntry(ThreadsPool.class.getName(), threadsPool);
+    HashTree ret = super.buildTreeUnder(parent, context);
+    ret.add(threadsPool);
+    return ret;
+  }
+
   /**
    * Uses {@link EmbeddedJmeterEngine} to run the test plan.
    *
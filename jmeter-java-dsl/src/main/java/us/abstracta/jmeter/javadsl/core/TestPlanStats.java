@@ -1,12 +1,19 @@
 package us.abstracta.jmeter.javadsl.core;
 
+import java.lang.ref.WeakReference;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Supplier;
 import org.apache.jmeter.samplers.SampleResult;
+import us.abstracta.jmeter.javadsl.core.stats.ComponentStatsProvider;
+import us.abstracta.jmeter.javadsl.core.stats.SampleResultsCollector;
 import us.abstracta.jmeter.javadsl.core.stats.StatsSummary;
 
 /**
@@ -17,32 +24,159 @@ import us.abstracta.jmeter.javadsl.core.stats.StatsSummary;
  *
  * @since 0.1
  */
-public class TestPlanStats {
+public class TestPlanStats implements SampleResultsCollector {
 
   protected final Supplier<StatsSummary> statsSummaryBuilder;
   protected StatsSummary overallStats;
   protected final Map<String, StatsSummary> labeledStats = new ConcurrentHashMap<>();
+  private final Queue<StatsShard> shards;
+  private final ThreadLocal<StatsShard> threadShard;
+  private StatsSummary retiredOverall;
+  private Map<String, StatsSummary> retiredLabeled;
+  private long retiredVersion;
+  private long mergedVersion;
+  private final Map<Class<?>, Object> componentStats = new ConcurrentHashMap<>();
   private Instant start;
   private Instant end;
 
   public TestPlanStats(Supplier<StatsSummary> statsSummaryBuilder) {
+    this(statsSummaryBuilder, false);
+  }
+
+  /**
+   * Creates an instance with optional striped collection of sample results.
+   * <p>
+   * When striped collection is enabled, each thread collects statistics in its own summaries
+   * without contending with other threads, and summaries of all threads are merged when
+   * statistics are read. This avoids all sampler threads synchronizing on each sample result, which
+   * is relevant when running thousands of threads in the same JVM.
+   * <p>
+   * Merged summaries are reused by following reads until new sample results are collected, and
+   * summaries of finished threads are merged once and released.
+   * <p>
+   * Striped collection requires summaries supporting {@link StatsSummary#merge(StatsSummary)}.
+   *
+   * @param statsSummaryBuilder specifies the supplier used to create each {@link StatsSummary}.
+   * @param striped             specifies to use striped collection when true, or synchronize each
+   *                            sample result collection when false.
+   * @since 1.4
+   */
+  public TestPlanStats(Supplier<StatsSummary> statsSummaryBuilder, boolean striped) {
     this.statsSummaryBuilder = statsSummaryBuilder;
     overallStats = statsSummaryBuilder.get();
+    if (striped) {
+      shards = new ConcurrentLinkedQueue<>();
+      threadShard = ThreadLocal.withInitial(() -> {
+        StatsShard ret = new StatsShard(statsSummaryBuilder);
+        shards.add(ret);
+        return ret;
+      });
+      retiredOverall = statsSummaryBuilder.get();
+      retiredLabeled = new HashMap<>();
+    } else {
+      shards = null;
+      threadShard = null;
+    }
+  }
+
+  @Override
+  public void addSampleResult(SampleResult result) {
+    if (threadShard != null) {
+      // shards are released when the test plan ends, and a new one is required for late results
+      if (!threadShard.get().add(result)) {
+        threadShard.remove();
+        threadShard.get().add(result);
+      }
+    } else {
+      synchronized (this) {
+        addToSummaries(result, overallStats, labeledStats);
+      }
+    }
+  }
+
+  private void addToSummaries(SampleResult result, StatsSummary overall,
+      Map<String, StatsSummary> labeled) {
+    addToSummaries(result, overall, labeled, statsSummaryBuilder);
   }
 
-  public synchronized void addSampleResult(SampleResult result) {
-    overallStats.add(result);
-    StatsSummary labelStats = labeledStats.computeIfAbsent(
+  private static void addToSummaries(SampleResult result, StatsSummary overall,
+      Map<String, StatsSummary> labeled, Supplier<StatsSummary> statsSummaryBuilder) {
+    overall.add(result);
+    StatsSummary labelStats = labeled.computeIfAbsent(
         result.getSampleLabel(), label -> statsSummaryBuilder.get());
     labelStats.add(result);
   }
 
+  /*
+   Summaries are only rebuilt when shards collected new sample results since last read, so shards
+   keep collecting statistics and following reads include them. Shards of finished threads are
+   merged once into retired summaries, and removed, to avoid keeping one shard per thread that ever
+   run (eg: when using virtual threads or threads pools).
+   */
+  private synchronized void mergeShards() {
+    if (shards == null) {
+      return;
+    }
+    long version = retireFinishedShards(false);
+    for (StatsShard shard : shards) {
+      version += shard.version();
+    }
+    if (version == mergedVersion) {
+      return;
+    }
+    StatsSummary overall = statsSummaryBuilder.get();
+    Map<String, StatsSummary> labeled = new HashMap<>();
+    mergeSummaries(retiredOverall, retiredLabeled, overall, labeled, statsSummaryBuilder);
+    for (StatsShard shard : shards) {
+      shard.mergeInto(overall, labeled);
+    }
+    overallStats = overall;
+    labeledStats.keySet().retainAll(labeled.keySet());
+    labeledStats.putAll(labeled);
+    mergedVersion = version;
+  }
+
+  private long retireFinishedShards(boolean all) {
+    Iterator<StatsShard> it = shards.iterator();
+    while (it.hasNext()) {
+      StatsShard shard = it.next();
+      if (all || shard.isOwnerFinished()) {
+        retiredVersion += shard.retireInto(retiredOverall, retiredLabeled);
+        it.remove();
+      }
+    }
+    return retiredVersion;
+  }
+
+  private static void mergeSummaries(StatsSummary fromOverall,
+      Map<String, StatsSummary> fromLabeled, StatsSummary toOverall,
+      Map<String, StatsSummary> toLabeled, Supplier<StatsSummary> statsSummaryBuilder) {
+    toOverall.merge(fromOverall);
+    fromLabeled.forEach((label, stats) -> toLabeled.computeIfAbsent(label,
+        l -> statsSummaryBuilder.get()).merge(stats));
+  }
+
   public void setStart(Instant start) {
     this.start = start;
   }
 
+  /**
+   * Sets the time when the test plan ended.
+   * <p>
+   * When using striped collection, this merges and releases all threads summaries, since no more
+   * sample results are expected.
+   *
+   * @param end specifies the test plan end time.
+   */
   public void setEnd(Instant end) {
     this.end = end;
+    if (shards != null) {
+      synchronized (this) {
+        retireFinishedShards(true);
+      }
+      mergeShards();
+      threadShard.remove();
+    }
   }
 
   /**
@@ -56,6 +190,7 @@ public class TestPlanStats {
    * Provides statistics for the entire test plan.
    */
   public StatsSummary overall() {
+    mergeShards();
     return overallStats;
   }
 
@@ -63,6 +198,7 @@ public class TestPlanStats {
    * Provides statistics for a specific label (usually a sampler label).
    */
   public StatsSummary byLabel(String label) {
+    mergeShards();
     return labeledStats.get(label);
   }
 
@@ -70,7 +206,90 @@ public class TestPlanStats {
    * Provides a set of collected labels (usually samplers labels).
    */
   public Set<String> labels() {
+    mergeShards();
     return labeledStats.keySet();
   }
 
+  /**
+   * Adds statistics collected by some test plan component.
+   * <p>
+   * Only the first statistics of each class are kept.
+   *
+   * @param stats specifies the statistics to add.
+   * @see #component(Class)
+   * @since 1.4
+   */
+  public void addComponentStats(Object stats) {
+    componentStats.putIfAbsent(stats.getClass(), stats);
+  }
+
+  /**
+   * Provides statistics collected by some test plan component, besides the ones collected from
+   * sample results (eg: HTTP/2 connections statistics).
+   *
+   * @param statsClass specifies the class of the statistics to get.
+   * @param <T>        is the type of the statistics to get.
+   * @return the statistics or null if no component in the test plan collected such statistics.
+   * @see ComponentStatsProvider
+   * @since 1.4
+   */
+  public <T> T component(Class<T> statsClass) {
+    return statsClass.cast(componentStats.get(statsClass));
+  }
+
+  /*
+   Only the owning thread adds results to a shard, so its monitor is only contended when stats are
+   read while the test plan is running.
+
+   Shards don't reference TestPlanStats nor their owner thread, and drop their summaries when
+   retired, so thread locals of threads which outlive the test plan (eg: pooled threads) don't keep
+   collected statistics in memory.
+   */
+  private static final class StatsShard {
+
+    private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+    private Supplier<StatsSummary> statsSummaryBuilder;
+    private StatsSummary overall;
+    private Map<String, StatsSummary> labeled = new HashMap<>();
+    private long version;
+
+    private StatsShard(Supplier<StatsSummary> statsSummaryBuilder) {
+      this.statsSummaryBuilder = statsSummaryBuilder;
+      this.overall = statsSummaryBuilder.get();
+    }
+
+    private synchronized boolean add(SampleResult result) {
+      if (overall == null) {
+        return false;
+      }
+      addToSummaries(result, overall, labeled, statsSummaryBuilder);
+      version++;
+      return true;
+    }
+
+    private synchronized long version() {
+      return version;
+    }
+
+    private boolean isOwnerFinished() {
+      Thread thread = owner.get();
+      return thread == null || !thread.isAlive();
+    }
+
+    private synchronized void mergeInto(StatsSummary overall,
+        Map<String, StatsSummary> labeled) {
+      mergeSummaries(this.overall, this.labeled, overall, labeled, statsSummaryBuilder);
+    }
+
+    private synchronized long retireInto(StatsSummary overall,
+        Map<String, StatsSummary> labeled) {
+      mergeInto(overall, labeled);
+      this.overall = null;
+      this.labeled = null;
+      this.statsSummaryBuilder = null;
+      return version;
+    }
+
+  }
+
 }
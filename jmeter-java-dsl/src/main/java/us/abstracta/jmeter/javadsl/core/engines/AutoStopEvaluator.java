@@ -0,0 +1,120 @@
+package us.abstracta.jmeter.javadsl.core.engines;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.core.engines.EmbeddedJmeterEngine.TestRunner;
+import us.abstracta.jmeter.javadsl.core.listeners.AutoStopCondition;
+import us.abstracta.jmeter.javadsl.core.listeners.DslAutoStop;
+
+/**
+ * Checks {@link DslAutoStop} conditions with statistics of each second of test plan execution, and
+ * stops the test plan when any of them is met.
+ * <p>
+ * Only statistics of each elapsed second are kept (up to the longest condition window), and
+ * statistics of each condition window are kept updated by merging the statistics of each new second
+ * and subtracting the ones of the second leaving the window. This way, checking conditions does not
+ * depend on the number of samples nor the window length.
+ */
+class AutoStopEvaluator implements Consumer<TestPlanStats> {
+
+  public static final Duration CHECK_INTERVAL = Duration.ofSeconds(1);
+  private static final Logger LOG = LoggerFactory.getLogger(AutoStopEvaluator.class);
+
+  private final List<DslAutoStop> autoStops;
+  private final EmbeddedStatsSummary[] intervals;
+  private final long[] intervalsFirstTimes;
+  private final Map<Integer, EmbeddedStatsSummary> windows = new LinkedHashMap<>();
+  private final EmbeddedStatsSummary accumulated = new EmbeddedStatsSummary();
+  private long intervalsCount;
+  private TestRunner testRunner;
+  private boolean stopped;
+
+  AutoStopEvaluator(List<DslAutoStop> autoStops) {
+    this.autoStops = autoStops;
+    autoStops.stream()
+        .flatMap(a -> a.getConditions().stream())
+        .map(AutoStopCondition::getWindow)
+        .filter(w -> w != null)
+        .map(AutoStopEvaluator::windowIntervals)
+        .forEach(w -> windows.computeIfAbsent(w, k -> new EmbeddedStatsSummary()));
+    int maxWindowIntervals = windows.keySet().stream()
+        .mapToInt(Integer::intValue)
+        .max()
+        .orElse(0);
+    // one additional slot is required to keep the interval leaving the longest window
+    intervals = new EmbeddedStatsSummary[maxWindowIntervals + 1];
+    intervalsFirstTimes = new long[maxWindowIntervals + 1];
+  }
+
+  private static int windowIntervals(Duration window) {
+    return (int) Math.max(1,
+        (window.toMillis() + CHECK_INTERVAL.toMillis() - 1) / CHECK_INTERVAL.toMillis());
+  }
+
+  public void setTestRunner(TestRunner testRunner) {
+    this.testRunner = testRunner;
+  }
+
+  @Override
+  public void accept(TestPlanStats intervalStats) {
+    if (stopped) {
+      return;
+    }
+    EmbeddedStatsSummary interval = (EmbeddedStatsSummary) intervalStats.overall();
+    accumulated.merge(interval);
+    if (!windows.isEmpty()) {
+      addToWindows(interval);
+    }
+    for (DslAutoStop autoStop : autoStops) {
+      for (AutoStopCondition condition : autoStop.getConditions()) {
+        EmbeddedStatsSummary stats = condition.getWindow() == null ? accumulated
+            : findWindowStats(windowIntervals(condition.getWindow()));
+        if (stats != null && stats.samples().total() > 0 && condition.eval(stats)) {
+          LOG.warn("Stopping test plan since {} condition '{}' was met", autoStop.getName(),
+              condition);
+          stopped = true;
+          testRunner.stop();
+          return;
+        }
+      }
+    }
+  }
+
+  private void addToWindows(EmbeddedStatsSummary interval) {
+    int slot = slot(intervalsCount);
+    intervals[slot] = interval;
+    intervalsFirstTimes[slot] = interval.samples().total() > 0
+        ? interval.firstTime().toEpochMilli() : Long.MAX_VALUE;
+    intervalsCount++;
+    windows.forEach((windowIntervals, stats) -> {
+      stats.merge(interval);
+      if (intervalsCount > windowIntervals) {
+        EmbeddedStatsSummary expired = intervals[slot(intervalsCount - windowIntervals - 1)];
+        stats.subtract(expired, findFirstTime(windowIntervals));
+      }
+    });
+  }
+
+  private int slot(long intervalIndex) {
+    return (int) (intervalIndex % intervals.length);
+  }
+
+  private long findFirstTime(int windowIntervals) {
+    long ret = Long.MAX_VALUE;
+    for (long i = intervalsCount - windowIntervals; i < intervalsCount; i++) {
+      ret = Math.min(ret, intervalsFirstTimes[slot(i)]);
+    }
+    return ret;
+  }
+
+  private EmbeddedStatsSummary findWindowStats(int windowIntervals) {
+    return intervalsCount < windowIntervals ? null : windows.get(windowIntervals);
+  }
+
+}
@@ -18,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import us.abstracta.jmeter.javadsl.core.DslTestPlan;
 import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.core.stats.SampleResultsCollector;
 
 /**
  * Allows running a JMeter test plan distributed across multiple machines.
@@ -76,6 +77,28 @@ public class DistributedJmeterEngine extends EmbeddedJmeterEngine {
     return this;
   }
 
+  /**
+   * Coordinated omission correction is not supported by this engine.
+   * <p>
+   * Start lag is recorded in variables of the JMeter thread running each sample by elements which
+   * only run in current JVM, and this engine collects sample results from remote engines in RMI
+   * threads, so corrected values would always be equal to raw ones.
+   *
+   * @param enable specifies to enable or disable the setting. Only false is supported.
+   * @return the engine instance for further configuration or usage.
+   * @throws UnsupportedOperationException when enable is true.
+   * @since 1.4
+   */
+  @Override
+  public EmbeddedJmeterEngine correctCoordinatedOmission(boolean enable) {
+    if (enable) {
+      throw new UnsupportedOperationException(
+          "Coordinated omission correction is only supported when running test plans in current "
+              + "JVM (eg: with EmbeddedJmeterEngine).");
+    }
+    return super.correctCoordinatedOmission(false);
+  }
+
   @VisibleForTesting
   protected DistributedJmeterEngine localJMeterEnv(JmeterEnvironment env) {
     this.jmeterEnv = env;
@@ -91,16 +114,16 @@ public class DistributedJmeterEngine extends EmbeddedJmeterEngine {
     }
   }
 
-  protected void addStatsCollector(HashTree testPlanTree, TestPlanStats stats) {
+  protected void addStatsCollector(HashTree testPlanTree, SampleResultsCollector stats) {
     testPlanTree.add(new StatsCollector(stats));
   }
 
   private static class StatsCollector implements SampleListener,
       Remoteable {
 
-    private final TestPlanStats stats;
+    private final SampleResultsCollector stats;
 
-    private StatsCollector(TestPlanStats stats) {
+    private StatsCollector(SampleResultsCollector stats) {
       this.stats = stats;
     }
 
@@ -119,6 +142,11 @@ public class DistributedJmeterEngine extends EmbeddedJmeterEngine {
 
   }
 
+  @Override
+  protected boolean isLocalExecution() {
+    return false;
+  }
+
   @Override
   protected TestRunner buildTestRunner(HashTree testPlanTree,
       HashTree rootTree) {
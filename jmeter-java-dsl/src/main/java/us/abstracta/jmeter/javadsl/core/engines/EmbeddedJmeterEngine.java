@@ -5,6 +5,7 @@ import java.awt.Component;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URL;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -15,6 +16,7 @@ import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.swing.ImageIcon;
@@ -26,16 +28,26 @@ import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.reporters.Summariser;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jmeter.util.JSR223TestElement;
 import org.apache.jmeter.visualizers.Visualizer;
 import org.apache.jorphan.collections.HashTree;
 import org.apache.jorphan.collections.ListedHashTree;
+import org.apache.jorphan.collections.SearchByClass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
 import us.abstracta.jmeter.javadsl.core.DslJmeterEngine;
 import us.abstracta.jmeter.javadsl.core.DslTestPlan;
 import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.core.listeners.DslAutoStop;
 import us.abstracta.jmeter.javadsl.core.listeners.DslVisualizer;
+import us.abstracta.jmeter.javadsl.core.stats.ComponentStatsProvider;
+import us.abstracta.jmeter.javadsl.core.stats.SampleResultsCollector;
+import us.abstracta.jmeter.javadsl.core.stats.StartLag;
+import us.abstracta.jmeter.javadsl.core.stats.StatsSummary;
+import us.abstracta.jmeter.javadsl.core.stats.StatsTimeline;
+import us.abstracta.jmeter.javadsl.core.stats.TimeMetricSummary;
+import us.abstracta.jmeter.javadsl.core.util.SharedGroovyScriptEngineFactory;
 
 /**
  * Allows running test plans in an embedded JMeter instance.
@@ -47,6 +59,14 @@ public class EmbeddedJmeterEngine implements DslJmeterEngine {
   private static final Logger LOG = LoggerFactory.getLogger(EmbeddedJmeterEngine.class);
   private final Map<String, Object> props = new HashMap<>();
   private String propsFile;
+  private boolean stripedStats;
+  private Duration timelineBucketWidth;
+  private int timelineMaxBuckets;
+  private boolean sharedGroovyScripts;
+  private boolean correctCoordinatedOmission;
+  // collectors are built for each run, since they keep per thread state of the run
+  private final List<Supplier<IntervalStatsCollector>> intervalStatsCollectors =
+      new ArrayList<>();
 
   /**
    * Allows setting properties to be used during test plan execution.
@@ -88,6 +108,182 @@ public class EmbeddedJmeterEngine implements DslJmeterEngine {
     return this;
   }
 
+  /**
+   * Specifies to collect statistics in per thread summaries instead of synchronizing all threads
+   * on each sample result.
+   * <p>
+   * By default, every sample result is added to collected statistics while holding a lock shared by
+   * all threads in the test plan. This is fine for most scenarios, but when running thousands of
+   * threads with short samples in the same JVM, such lock becomes a contention point which reduces
+   * the generated load. Enabling this setting avoids such contention by collecting statistics in
+   * separate summaries for each thread, which are merged when statistics are requested.
+   *
+   * @return the engine instance for further configuration or usage.
+   * @see TestPlanStats#TestPlanStats(Supplier, boolean)
+   * @since 1.4
+   */
+  public EmbeddedJmeterEngine stripedStats() {
+    return stripedStats(true);
+  }
+
+  /**
+   * Same as {@link #stripedStats()} but allowing to enable or disable it.
+   *
+   * @param enable specifies to enable or disable the setting. By default, it is set to false.
+   * @return the engine instance for further configuration or usage.
+   * @see #stripedStats()
+   * @since 1.4
+   */
+  public EmbeddedJmeterEngine stripedStats(boolean enable) {
+    this.stripedStats = enable;
+    return this;
+  }
+
+  /**
+   * Specifies to collect, in addition to whole test plan statistics, statistics split in fixed
+   * width time buckets.
+   * <p>
+   * This allows checking how metrics evolved during test plan execution (eg: detect response times
+   * degradation) through {@link StatsSummary#timeline()} of overall and per label statistics,
+   * without having to write and process a JTL file. Eg:
+   * <pre>{@code
+   * stats.byLabel("login").timeline().buckets()
+   * }</pre>
+   * <p>
+   * Each timeline keeps at most the given number of buckets, discarding the oldest ones when more
+   * are needed, so memory usage does not depend on the number of samples or test plan duration.
+   * <p>
+   * When combined with {@link #stripedStats()}, each running thread keeps its own timelines
+   * (overall and per label), which are merged when statistics are read. So timelines memory usage
+   * grows with the number of concurrently running threads. Consider using fewer buckets in such
+   * case.
+   *
+   * @param bucketWidth specifies the duration of each bucket. Eg: 1 or 10 seconds.
+   * @param maxBuckets  specifies the maximum number of buckets to keep for overall statistics and
+   *                    each label.
+   * @return the engine instance for further configuration or usage.
+   * @see StatsTimeline
+   * @since 1.4
+   */
+  public EmbeddedJmeterEngine timeline(Duration bucketWidth, int maxBuckets) {
+    this.timelineBucketWidth = bucketWidth;
+    this.timelineMaxBuckets = maxBuckets;
+    return this;
+  }
+
+  /**
+   * Specifies to compile each groovy script only once, sharing compiled classes among all JSR223
+   * elements and {@code __groovy} functions using the same script.
+   * <p>
+   * By default, each JSR223 element and each {@code __groovy} function gets its own groovy engine,
+   * and {@code __groovy} functions compile their scripts in each engine. When a test plan has the
+   * same script in many elements (eg: a property expression used in hundreds of samplers), this
+   * increases test plan startup time and metaspace usage. Enabling this setting makes groovy
+   * engines share a bounded cache of compiled script classes while the test plan runs.
+   * <p>
+   * Take into consideration that groovy engines are registered JVM wide by JMeter, so while a test
+   * plan with this setting runs, other test plans running in parallel in the same JVM also share
+   * compiled groovy scripts.
+   *
+   * @return the engine instance for further configuration or usage.
+   * @see SharedGroovyScriptEngineFactory
+   * @since 1.4
+   */
+  public EmbeddedJmeterEngine sharedGroovyScripts() {
+    return sharedGroovyScripts(true);
+  }
+
+  /**
+   * Same as {@link #sharedGroovyScripts()} but allowing to enable or disable it.
+   *
+   * @param enable specifies to enable or disable the setting. By default, it is set to false.
+   * @return the engine instance for further configuration or usage.
+   * @see #sharedGroovyScripts()
+   * @since 1.4
+   */
+  public EmbeddedJmeterEngine sharedGroovyScripts(boolean enable) {
+    this.sharedGroovyScripts = enable;
+    return this;
+  }
+
+  /**
+   * Specifies to collect, in addition to raw sample times, sample times corrected for coordinated
+   * omission.
+   * <p>
+   * When load is paced according to a schedule and the service under test stalls, requests that
+   * should have been sent during the stall are delayed, and raw sample times don't include such
+   * delay, hiding latency that users would actually experience. When this setting is enabled,
+   * each sample time is additionally recorded adding the time elapsed between the instant its
+   * iteration or request was scheduled to start and the instant it actually started. Corrected
+   * values are available through {@link TimeMetricSummary#corrected()} of sample times. Eg:
+   * <pre>{@code
+   * stats.overall().sampleTime().corrected().perc99()
+   * }</pre>
+   * <p>
+   * Scheduled start instants are provided by
+   * {@link us.abstracta.jmeter.javadsl.JmeterDsl#arrivalsThreadGroup()} and
+   * {@link us.abstracta.jmeter.javadsl.JmeterDsl#rpsThreadGroup()}. Samples generated by other
+   * thread groups get the same corrected and raw values.
+   * <p>
+   * This setting is only supported when the test plan runs in current JVM, since start lag is read
+   * from the variables of the JMeter thread generating each sample.
+   * {@link DistributedJmeterEngine} rejects it.
+   *
+   * @return the engine instance for further configuration or usage.
+   * @see StartLag
+   * @since 1.4
+   */
+  public EmbeddedJmeterEngine correctCoordinatedOmission() {
+    return correctCoordinatedOmission(true);
+  }
+
+  /**
+   * Same as {@link #correctCoordinatedOmission()} but allowing to enable or disable it.
+   *
+   * @param enable specifies to enable or disable the setting. By default, it is set to false.
+   * @return the engine instance for further configuration or usage.
+   * @see #correctCoordinatedOmission()
+   * @since 1.4
+   */
+  public EmbeddedJmeterEngine correctCoordinatedOmission(boolean enable) {
+    this.correctCoordinatedOmission = enable;
+    return this;
+  }
+
+  /**
+   * Allows getting statistics for each given time interval while the test plan runs.
+   * <p>
+   * This is helpful to get some feedback while running long tests (like soak tests), feed a
+   * dashboard or custom monitoring solution, or to decide stopping a test plan early.
+   * <p>
+   * Each time the interval elapses, the consumer is invoked with a {@link TestPlanStats} instance
+   * which contains only statistics (overall and per label) for samples collected in such interval.
+   * {@link TestPlanStats#duration()} of each instance provides the actual duration of the
+   * interval. When the test plan ends, the consumer is invoked one last time with statistics of
+   * the last (incomplete) interval.
+   * <p>
+   * Statistics for each interval are collected incrementally as samples are generated, so
+   * providing them to the consumer does not require processing collected samples. Take into
+   * consideration that the consumer is invoked in a separate thread, and it should take less time
+   * than the interval to avoid delaying next invocations.
+   * <p>
+   * You can invoke this method multiple times to register several consumers with potentially
+   * different intervals.
+   *
+   * @param interval specifies the duration of each interval. Has to be at least 1 millisecond.
+   * @param consumer specifies the logic to execute with the statistics of each interval.
+   * @return the engine instance for further configuration or usage.
+   * @since 1.4
+   */
+  public EmbeddedJmeterEngine intervalStats(Duration interval, Consumer<TestPlanStats> consumer) {
+    if (interval.toMillis() <= 0) {
+      throw new IllegalArgumentException("Interval must be at least 1 millisecond");
+    }
+    intervalStatsCollectors.add(
+        () -> new IntervalStatsCollector(interval, consumer, this::buildIntervalStatsSummary));
+    return this;
+  }
+
   @Override
   public TestPlanStats run(DslTestPlan testPlan) throws IOException {
     return runInEnv(testPlan, new JmeterEnvironment());
@@ -103,15 +299,31 @@ public class EmbeddedJmeterEngine implements DslJmeterEngine {
     jmeterProps.putAll(props);
     HashTree rootTree = new ListedHashTree();
     BuildTreeContext buildContext = new BuildTreeContext();
+    buildContext.setLocalExecution(isLocalExecution());
     HashTree testPlanTree = buildContext.buildTreeFor(testPlan, rootTree);
     env.updateSearchPath(testPlanTree);
 
-    TestPlanStats stats = new TestPlanStats(EmbeddedStatsSummary::new);
+    TestPlanStats stats = buildTestPlanStats();
     addStatsCollector(testPlanTree, stats);
+    addComponentStats(testPlanTree, stats);
+    List<IntervalStatsCollector> runIntervalCollectors = intervalStatsCollectors.stream()
+        .map(Supplier::get)
+        .collect(Collectors.toList());
+    List<DslAutoStop> autoStops = DslAutoStop.findInContext(buildContext);
+    AutoStopEvaluator autoStopEvaluator = null;
+    if (!autoStops.isEmpty()) {
+      autoStopEvaluator = new AutoStopEvaluator(autoStops);
+      runIntervalCollectors.add(new IntervalStatsCollector(AutoStopEvaluator.CHECK_INTERVAL,
+          autoStopEvaluator, this::buildIntervalStatsSummary));
+    }
+    runIntervalCollectors.forEach(c -> addStatsCollector(testPlanTree, c));
     testPlanTree.add(new ResultCollector(new Summariser()));
 
     List<Future<Void>> closedVisualizers = Collections.emptyList();
     TestRunner testRunner = buildTestRunner(testPlanTree, rootTree);
+    if (autoStopEvaluator != null) {
+      autoStopEvaluator.setTestRunner(testRunner);
+    }
     Map<DslVisualizer, Supplier<Component>> visualizers = buildContext.getVisualizers();
     if (!visualizers.isEmpty()) {
       // this is required for proper visualization of labels and messages from resources bundle
@@ -126,13 +338,43 @@ public class EmbeddedJmeterEngine implements DslJmeterEngine {
      we only use sample results times).
      */
     stats.setStart(Instant.now());
-    testRunner.run();
+    runIntervalCollectors.forEach(IntervalStatsCollector::start);
+    if (sharedGroovyScripts) {
+      SharedGroovyScriptEngineFactory.register(JSR223TestElement.getInstance());
+    }
+    try {
+      testRunner.run();
+    } finally {
+      if (sharedGroovyScripts) {
+        SharedGroovyScriptEngineFactory.unregister(JSR223TestElement.getInstance());
+      }
+      runIntervalCollectors.forEach(IntervalStatsCollector::stop);
+    }
     stats.setEnd(Instant.now());
     awaitAllClosedVisualizers(closedVisualizers);
     return stats;
   }
 
-  protected void addStatsCollector(HashTree testPlanTree, TestPlanStats stats) {
+  /**
+   * Specifies if test plan elements are executed in current JVM.
+   * <p>
+   * Engines which execute test plan elements in other JVMs should return false to avoid usage of
+   * non-serializable test elements.
+   */
+  protected boolean isLocalExecution() {
+    return true;
+  }
+
+  protected TestPlanStats buildTestPlanStats() {
+    return new TestPlanStats(() -> new EmbeddedStatsSummary(timelineBucketWidth,
+        timelineMaxBuckets, correctCoordinatedOmission), stripedStats);
+  }
+
+  private StatsSummary buildIntervalStatsSummary() {
+    return new EmbeddedStatsSummary(correctCoordinatedOmission);
+  }
+
+  protected void addStatsCollector(HashTree testPlanTree, SampleResultsCollector stats) {
     ResultCollector collector = new ResultCollector();
     Visualizer statsVisualizer = new Visualizer() {
 
@@ -152,6 +394,13 @@ public class EmbeddedJmeterEngine implements DslJmeterEngine {
     testPlanTree.add(statsVisualizer);
   }
 
+  private void addComponentStats(HashTree testPlanTree, TestPlanStats stats) {
+    SearchByClass<ComponentStatsProvider> search =
+        new SearchByClass<>(ComponentStatsProvider.class);
+    testPlanTree.traverse(search);
+    search.getSearchResults().forEach(p -> stats.addComponentStats(p.componentStats()));
+  }
+
   protected TestRunner buildTestRunner(HashTree testPlanTree, HashTree rootTree) {
     StandardJMeterEngine engine = new StandardJMeterEngine();
     engine.configure(rootTree);
@@ -2,11 +2,12 @@ package us.abstracta.jmeter.javadsl.core.engines;
 
 import java.time.Duration;
 import java.time.Instant;
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
-import org.apache.commons.math3.stat.descriptive.rank.PSquarePercentile;
 import org.apache.jmeter.samplers.SampleResult;
 import us.abstracta.jmeter.javadsl.core.stats.CountMetricSummary;
+import us.abstracta.jmeter.javadsl.core.stats.HistogramTimeMetricSummary;
+import us.abstracta.jmeter.javadsl.core.stats.StartLag;
 import us.abstracta.jmeter.javadsl.core.stats.StatsSummary;
+import us.abstracta.jmeter.javadsl.core.stats.StatsTimeline;
 import us.abstracta.jmeter.javadsl.core.stats.TimeMetricSummary;
 
 /**
@@ -25,7 +26,73 @@ public class EmbeddedStatsSummary implements StatsSummary {
   private final CountMetricSummary errors = new CountMetricSummary();
   private final CountMetricSummary receivedBytes = new CountMetricSummary();
   private final CountMetricSummary sentBytes = new CountMetricSummary();
-  private final EmbeddedTimeMetricSummary sampleTime = new EmbeddedTimeMetricSummary();
+  private final EmbeddedTimeMetricSummary sampleTime;
+  private final StatsTimeline timeline;
+  private final boolean correctedSampleTime;
+
+  public EmbeddedStatsSummary() {
+    this(HistogramTimeMetricSummary.DEFAULT_SIGNIFICANT_DIGITS);
+  }
+
+  /**
+   * Creates a summary with a given precision for sample times percentiles.
+   *
+   * @param timeSignificantDigits specifies the number of significant digits kept for sample times.
+   * @see HistogramTimeMetricSummary#HistogramTimeMetricSummary(int)
+   * @since 1.4
+   */
+  public EmbeddedStatsSummary(int timeSignificantDigits) {
+    sampleTime = new EmbeddedTimeMetricSummary(timeSignificantDigits);
+    timeline = null;
+    correctedSampleTime = false;
+  }
+
+  /**
+   * Creates a summary which additionally collects sample times corrected for coordinated omission.
+   *
+   * @param correctedSampleTime specifies to collect corrected sample times, which are available
+   *                            through {@link TimeMetricSummary#corrected()} of
+   *                            {@link #sampleTime()}.
+   * @see StartLag
+   * @since 1.4
+   */
+  public EmbeddedStatsSummary(boolean correctedSampleTime) {
+    this(null, 0, correctedSampleTime);
+  }
+
+  /**
+   * Creates a summary which additionally collects statistics in fixed width time buckets.
+   *
+   * @param timelineBucketWidth specifies the duration of each timeline bucket.
+   * @param timelineMaxBuckets  specifies the maximum number of buckets to keep in the timeline.
+   * @see StatsTimeline#StatsTimeline(Duration, int)
+   * @since 1.4
+   */
+  public EmbeddedStatsSummary(Duration timelineBucketWidth, int timelineMaxBuckets) {
+    this(timelineBucketWidth, timelineMaxBuckets, false);
+  }
+
+  /**
+   * Creates a summary which optionally collects statistics in fixed width time buckets and sample
+   * times corrected for coordinated omission.
+   *
+   * @param timelineBucketWidth specifies the duration of each timeline bucket. When null, no
+   *                            timeline is collected.
+   * @param timelineMaxBuckets  specifies the maximum number of buckets to keep in the timeline.
+   * @param correctedSampleTime specifies to collect corrected sample times.
+   * @see #EmbeddedStatsSummary(Duration, int)
+   * @see #EmbeddedStatsSummary(boolean)
+   * @since 1.4
+   */
+  public EmbeddedStatsSummary(Duration timelineBucketWidth, int timelineMaxBuckets,
+      boolean correctedSampleTime) {
+    sampleTime = new EmbeddedTimeMetricSummary(
+        HistogramTimeMetricSummary.DEFAULT_SIGNIFICANT_DIGITS, correctedSampleTime);
+    timeline = timelineBucketWidth != null
+        ? new StatsTimeline(timelineBucketWidth, timelineMaxBuckets)
+        : null;
+    this.correctedSampleTime = correctedSampleTime;
+  }
 
   public void add(SampleResult result) {
     firstTime = Math.min(firstTime, result.getStartTime());
@@ -37,7 +104,46 @@ public class EmbeddedStatsSummary implements StatsSummary {
     }
     receivedBytes.increment(result.getBytesAsLong(), elapsedTimeMillis);
     sentBytes.increment(result.getSentBytes(), elapsedTimeMillis);
-    sampleTime.add(result.getTime());
+    if (correctedSampleTime) {
+      // this is invoked in the thread which generated the sample, so we can get its variables
+      sampleTime.add(result.getTime(), StartLag.current());
+    } else {
+      sampleTime.add(result.getTime());
+    }
+    if (timeline != null) {
+      timeline.add(result);
+    }
+  }
+
+  @Override
+  public void merge(StatsSummary summary) {
+    EmbeddedStatsSummary other = (EmbeddedStatsSummary) summary;
+    firstTime = Math.min(firstTime, other.firstTime);
+    endTime = Math.max(endTime, other.endTime);
+    long elapsedTimeMillis = endTime - firstTime;
+    samples.increment(other.samples.total(), elapsedTimeMillis);
+    errors.increment(other.errors.total(), elapsedTimeMillis);
+    receivedBytes.increment(other.receivedBytes.total(), elapsedTimeMillis);
+    sentBytes.increment(other.sentBytes.total(), elapsedTimeMillis);
+    sampleTime.merge(other.sampleTime);
+    if (timeline != null && other.timeline != null) {
+      timeline.merge(other.timeline);
+    }
+  }
+
+  /*
+   Removes statistics of a summary previously merged into this one. The first time can't be
+   calculated from remaining statistics, so it has to be provided. Timeline is not updated, since
+   this is only used to keep statistics of sliding windows, which don't collect timelines.
+   */
+  void subtract(EmbeddedStatsSummary other, long firstTime) {
+    this.firstTime = firstTime;
+    long elapsedTimeMillis = endTime - firstTime;
+    samples.increment(-other.samples.total(), elapsedTimeMillis);
+    errors.increment(-other.errors.total(), elapsedTimeMillis);
+    receivedBytes.increment(-other.receivedBytes.total(), elapsedTimeMillis);
+    sentBytes.increment(-other.sentBytes.total(), elapsedTimeMillis);
+    sampleTime.subtract(other.sampleTime);
   }
 
   @Override
@@ -75,63 +181,85 @@ public class EmbeddedStatsSummary implements StatsSummary {
     return sentBytes;
   }
 
-  public static class EmbeddedTimeMetricSummary implements TimeMetricSummary {
+  @Override
+  public StatsTimeline timeline() {
+    return timeline;
+  }
 
-    private final PSquarePercentile median = new PSquarePercentile(50);
-    private final PSquarePercentile percentile90 = new PSquarePercentile(90);
-    private final PSquarePercentile percentile95 = new PSquarePercentile(95);
-    private final PSquarePercentile percentile99 = new PSquarePercentile(99);
-    private long min = Long.MAX_VALUE;
-    private long max = Long.MIN_VALUE;
-    private final Mean mean = new Mean();
+  /**
+   * Time metric summary used by {@link EmbeddedStatsSummary}.
+   * <p>
+   * Since 1.4 this is backed by a {@link HistogramTimeMetricSummary}, which allows getting any
+   * percentile and merging summaries, and optionally keeps an additional histogram with values
+   * corrected for coordinated omission.
+   */
+  public static class EmbeddedTimeMetricSummary extends HistogramTimeMetricSummary {
 
-    public void add(long val) {
-      min = Math.min(min, val);
-      max = Math.max(max, val);
-      median.increment(val);
-      percentile90.increment(val);
-      percentile95.increment(val);
-      percentile99.increment(val);
-      mean.increment(val);
-    }
+    private final HistogramTimeMetricSummary corrected;
 
-    @Override
-    public Duration min() {
-      return Duration.ofMillis(min);
+    public EmbeddedTimeMetricSummary() {
+      super();
+      corrected = null;
     }
 
-    @Override
-    public Duration max() {
-      return Duration.ofMillis(max);
+    public EmbeddedTimeMetricSummary(int significantDigits) {
+      this(significantDigits, false);
     }
 
-    @Override
-    public Duration mean() {
-      return double2Duration(mean.getResult());
+    /**
+     * Creates a summary with given precision which optionally keeps corrected values.
+     *
+     * @param significantDigits specifies the number of significant digits kept for values.
+     * @param corrected         specifies to keep values corrected for coordinated omission.
+     * @since 1.4
+     */
+    public EmbeddedTimeMetricSummary(int significantDigits, boolean corrected) {
+      super(significantDigits);
+      this.corrected = corrected ? new HistogramTimeMetricSummary(significantDigits) : null;
     }
 
-    private Duration double2Duration(double millis) {
-      return Duration.ofMillis(Math.round(millis));
+    @Override
+    public void add(long val) {
+      add(val, 0);
     }
 
-    @Override
-    public Duration median() {
-      return double2Duration(median.getResult());
+    /**
+     * Records a new value and the start lag of the associated sample.
+     *
+     * @param val      specifies the value, in milliseconds, to record.
+     * @param startLag specifies the milliseconds the sample started after its scheduled start. This
+     *                 is only used when corrected values are kept.
+     * @see StartLag
+     * @since 1.4
+     */
+    public void add(long val, long startLag) {
+      super.add(val);
+      if (corrected != null) {
+        corrected.add(val + Math.max(0, startLag));
+      }
     }
 
     @Override
-    public Duration perc90() {
-      return double2Duration(percentile90.getResult());
+    public void merge(HistogramTimeMetricSummary other) {
+      super.merge(other);
+      TimeMetricSummary otherCorrected = other.corrected();
+      if (corrected != null && otherCorrected instanceof HistogramTimeMetricSummary) {
+        corrected.merge((HistogramTimeMetricSummary) otherCorrected);
+      }
     }
 
     @Override
-    public Duration perc95() {
-      return double2Duration(percentile95.getResult());
+    public void subtract(HistogramTimeMetricSummary other) {
+      super.subtract(other);
+      TimeMetricSummary otherCorrected = other.corrected();
+      if (corrected != null && otherCorrected instanceof HistogramTimeMetricSummary) {
+        corrected.subtract((HistogramTimeMetricSummary) otherCorrected);
+      }
     }
 
     @Override
-    public Duration perc99() {
-      return double2Duration(percentile99.getResult());
+    public HistogramTimeMetricSummary corrected() {
+      return corrected;
     }
 
   }
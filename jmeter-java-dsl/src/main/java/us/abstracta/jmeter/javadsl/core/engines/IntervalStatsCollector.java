@@ -0,0 +1,165 @@
+package us.abstracta.jmeter.javadsl.core.engines;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.apache.jmeter.samplers.SampleResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.core.stats.SampleResultsCollector;
+import us.abstracta.jmeter.javadsl.core.stats.StatsSummary;
+
+/**
+ * Collects statistics for fixed time intervals and periodically publishes them to a consumer.
+ * <p>
+ * Each thread collects statistics of current interval in its own shard, so sampler threads don't
+ * contend with each other. When an interval ends, the summaries of each shard are swapped with
+ * empty ones and merged into a fresh {@link TestPlanStats} which is handed to the consumer. This
+ * way, publishing a snapshot has a cost proportional to the number of threads and labels and not
+ * to the number of collected samples, every sample result is included in exactly one interval, and
+ * published statistics are not modified after they are handed to the consumer. Shards of finished
+ * threads are removed once drained, to avoid keeping one shard per thread that ever collected a
+ * sample result (eg: with virtual threads or a thread per arrival).
+ */
+class IntervalStatsCollector implements SampleResultsCollector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IntervalStatsCollector.class);
+
+  private final Duration interval;
+  private final Consumer<TestPlanStats> consumer;
+  private final Supplier<StatsSummary> summaryBuilder;
+  private final Queue<IntervalShard> shards = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<IntervalShard> threadShard = ThreadLocal.withInitial(() -> {
+    IntervalShard ret = new IntervalShard();
+    shards.add(ret);
+    return ret;
+  });
+  private Instant intervalStart;
+  private ScheduledExecutorService executor;
+
+  IntervalStatsCollector(Duration interval, Consumer<TestPlanStats> consumer,
+      Supplier<StatsSummary> summaryBuilder) {
+    this.interval = interval;
+    this.consumer = consumer;
+    this.summaryBuilder = summaryBuilder;
+  }
+
+  public synchronized void start() {
+    intervalStart = Instant.now();
+    executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread ret = new Thread(r, "interval-stats-" + interval);
+      ret.setDaemon(true);
+      return ret;
+    });
+    long intervalMillis = interval.toMillis();
+    executor.scheduleAtFixedRate(this::publish, intervalMillis, intervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void addSampleResult(SampleResult result) {
+    threadShard.get().add(result);
+  }
+
+  private synchronized void publish() {
+    Instant now = Instant.now();
+    IntervalStats published = new IntervalStats(summaryBuilder);
+    published.setStart(intervalStart);
+    Iterator<IntervalShard> it = shards.iterator();
+    while (it.hasNext()) {
+      IntervalShard shard = it.next();
+      // owner is checked before draining, so no results are added to the shard once it is removed
+      boolean ownerFinished = shard.isOwnerFinished();
+      shard.drainInto(published);
+      if (ownerFinished) {
+        it.remove();
+      }
+    }
+    published.setEnd(now);
+    intervalStart = now;
+    try {
+      consumer.accept(published);
+    } catch (RuntimeException e) {
+      LOG.warn("Problem publishing interval statistics", e);
+    }
+  }
+
+  public void stop() {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(interval.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    publish();
+    shards.clear();
+  }
+
+  /*
+   Only the owning thread adds results to a shard, so its monitor is only contended while the shard
+   summaries are swapped when an interval ends.
+   */
+  private final class IntervalShard {
+
+    private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+    private StatsSummary overall;
+    private Map<String, StatsSummary> labeled = new HashMap<>();
+
+    private synchronized void add(SampleResult result) {
+      if (overall == null) {
+        overall = summaryBuilder.get();
+      }
+      overall.add(result);
+      labeled.computeIfAbsent(result.getSampleLabel(), label -> summaryBuilder.get())
+          .add(result);
+    }
+
+    private boolean isOwnerFinished() {
+      Thread thread = owner.get();
+      return thread == null || !thread.isAlive();
+    }
+
+    private void drainInto(IntervalStats stats) {
+      StatsSummary drainedOverall;
+      Map<String, StatsSummary> drainedLabeled;
+      synchronized (this) {
+        if (overall == null) {
+          return;
+        }
+        drainedOverall = overall;
+        drainedLabeled = labeled;
+        overall = null;
+        labeled = new HashMap<>();
+      }
+      // merging is done outside the shard monitor to avoid blocking the owning thread
+      stats.merge(drainedOverall, drainedLabeled);
+    }
+
+  }
+
+  private static final class IntervalStats extends TestPlanStats {
+
+    private IntervalStats(Supplier<StatsSummary> statsSummaryBuilder) {
+      super(statsSummaryBuilder);
+    }
+
+    private void merge(StatsSummary overall, Map<String, StatsSummary> labeled) {
+      overallStats.merge(overall);
+      labeled.forEach((label, stats) -> labeledStats.computeIfAbsent(label,
+          l -> statsSummaryBuilder.get()).merge(stats));
+    }
+
+  }
+
+}
@@ -0,0 +1,250 @@
+package us.abstracta.jmeter.javadsl.core.listeners;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import us.abstracta.jmeter.javadsl.core.stats.CountMetricSummary;
+import us.abstracta.jmeter.javadsl.core.stats.StatsSummary;
+import us.abstracta.jmeter.javadsl.core.stats.TimeMetricSummary;
+
+/**
+ * Specifies a condition on collected statistics which, when met, stops the test plan execution.
+ * <p>
+ * Use provided static methods to create conditions. Eg:
+ * <pre>{@code
+ * sampleTime().perc99().greaterThan(Duration.ofSeconds(5)).forLast(Duration.ofSeconds(30))
+ * }</pre>
+ *
+ * @see DslAutoStop
+ * @since 1.4
+ */
+public class AutoStopCondition {
+
+  private final String description;
+  private final Predicate<StatsSummary> predicate;
+  private Duration window;
+
+  private AutoStopCondition(String description, Predicate<StatsSummary> predicate) {
+    this.description = description;
+    this.predicate = predicate;
+  }
+
+  /**
+   * Allows checking conditions on samples times.
+   *
+   * @return the builder to specify which sample time metric to check.
+   */
+  public static TimeMetricCondition sampleTime() {
+    return new TimeMetricCondition("sampleTime", StatsSummary::sampleTime);
+  }
+
+  /**
+   * Allows checking conditions on number of samples, both failing and passing.
+   *
+   * @return the builder to specify which samples metric to check.
+   */
+  public static CountMetricCondition samples() {
+    return new CountMetricCondition("samples", StatsSummary::samples);
+  }
+
+  /**
+   * Allows checking conditions on number of failing samples.
+   *
+   * @return the builder to specify which errors metric to check.
+   */
+  public static CountMetricCondition errors() {
+    return new CountMetricCondition("errors", StatsSummary::errors);
+  }
+
+  /**
+   * Specifies to only check the condition against samples collected in the given period of time
+   * right before the check.
+   * <p>
+   * The condition is checked every second, and is only checked once the test plan has run for at
+   * least the given period of time. This avoids stopping the test plan due to initial warmup
+   * samples, or due to a spike in a short period of time.
+   * <p>
+   * When not specified, the condition is checked against all samples collected since the test
+   * plan started.
+   *
+   * @param window specifies the period of time to collect samples for checking the condition. This
+   *               value is rounded up to seconds.
+   * @return the condition for further configuration or usage.
+   */
+  public AutoStopCondition forLast(Duration window) {
+    this.window = window;
+    return this;
+  }
+
+  public Duration getWindow() {
+    return window;
+  }
+
+  public boolean eval(StatsSummary stats) {
+    return predicate.test(stats);
+  }
+
+  @Override
+  public String toString() {
+    return description + (window != null ? " for last " + window : "");
+  }
+
+  /**
+   * Allows specifying the threshold of a time metric.
+   */
+  public static class DurationMetricCondition {
+
+    private final String name;
+    private final Function<StatsSummary, Duration> metric;
+
+    private DurationMetricCondition(String name, Function<StatsSummary, Duration> metric) {
+      this.name = name;
+      this.metric = metric;
+    }
+
+    /**
+     * Specifies to stop the test plan when the metric is greater than the given value.
+     *
+     * @param threshold specifies the value to compare the metric with.
+     * @return the condition for further configuration or usage.
+     */
+    public AutoStopCondition greaterThan(Duration threshold) {
+      return new AutoStopCondition(name + " > " + threshold,
+          s -> metric.apply(s).compareTo(threshold) > 0);
+    }
+
+    /**
+     * Specifies to stop the test plan when the metric is less than the given value.
+     *
+     * @param threshold specifies the value to compare the metric with.
+     * @return the condition for further configuration or usage.
+     */
+    public AutoStopCondition lessThan(Duration threshold) {
+      return new AutoStopCondition(name + " < " + threshold,
+          s -> metric.apply(s).compareTo(threshold) < 0);
+    }
+
+  }
+
+  /**
+   * Allows specifying the threshold of a count metric.
+   */
+  public static class NumberMetricCondition {
+
+    private final String name;
+    private final Function<StatsSummary, Double> metric;
+
+    private NumberMetricCondition(String name, Function<StatsSummary, Double> metric) {
+      this.name = name;
+      this.metric = metric;
+    }
+
+    /**
+     * Specifies to stop the test plan when the metric is greater than the given value.
+     *
+     * @param threshold specifies the value to compare the metric with.
+     * @return the condition for further configuration or usage.
+     */
+    public AutoStopCondition greaterThan(double threshold) {
+      return new AutoStopCondition(name + " > " + threshold,
+          s -> metric.apply(s).compareTo(threshold) > 0);
+    }
+
+    /**
+     * Specifies to stop the test plan when the metric is less than the given value.
+     *
+     * @param threshold specifies the value to compare the metric with.
+     * @return the condition for further configuration or usage.
+     */
+    public AutoStopCondition lessThan(double threshold) {
+      return new AutoStopCondition(name + " < " + threshold,
+          s -> metric.apply(s).compareTo(threshold) < 0);
+    }
+
+  }
+
+  /**
+   * Allows selecting a time metric to check.
+   */
+  public static class TimeMetricCondition {
+
+    private final String name;
+    private final Function<StatsSummary, TimeMetricSummary> summary;
+
+    private TimeMetricCondition(String name, Function<StatsSummary, TimeMetricSummary> summary) {
+      this.name = name;
+      this.summary = summary;
+    }
+
+    private DurationMetricCondition metric(String metricName,
+        Function<TimeMetricSummary, Duration> metric) {
+      return new DurationMetricCondition(name + "." + metricName, summary.andThen(metric));
+    }
+
+    public DurationMetricCondition min() {
+      return metric("min", TimeMetricSummary::min);
+    }
+
+    public DurationMetricCondition max() {
+      return metric("max", TimeMetricSummary::max);
+    }
+
+    public DurationMetricCondition mean() {
+      return metric("mean", TimeMetricSummary::mean);
+    }
+
+    public DurationMetricCondition median() {
+      return metric("median", TimeMetricSummary::median);
+    }
+
+    public DurationMetricCondition perc90() {
+      return metric("perc90", TimeMetricSummary::perc90);
+    }
+
+    public DurationMetricCondition perc95() {
+      return metric("perc95", TimeMetricSummary::perc95);
+    }
+
+    public DurationMetricCondition perc99() {
+      return metric("perc99", TimeMetricSummary::perc99);
+    }
+
+    /**
+     * Allows checking an arbitrary percentile.
+     *
+     * @param percentile specifies the percentile to check, from 0 to 100.
+     * @return the builder to specify the threshold.
+     * @see TimeMetricSummary#percentile(double)
+     */
+    public DurationMetricCondition percentile(double percentile) {
+      return metric("percentile(" + percentile + ")", s -> s.percentile(percentile));
+    }
+
+  }
+
+  /**
+   * Allows selecting a count metric to check.
+   */
+  public static class CountMetricCondition {
+
+    private final String name;
+    private final Function<StatsSummary, CountMetricSummary> summary;
+
+    private CountMetricCondition(String name, Function<StatsSummary, CountMetricSummary> summary) {
+      this.name = name;
+      this.summary = summary;
+    }
+
+    public NumberMetricCondition total() {
+      return new NumberMetricCondition(name + ".total",
+          summary.andThen(s -> (double) s.total()));
+    }
+
+    public NumberMetricCondition perSecond() {
+      return new NumberMetricCondition(name + ".perSecond",
+          summary.andThen(CountMetricSummary::perSecond));
+    }
+
+  }
+
+}
@@ -0,0 +1,85 @@
+package us.abstracta.jmeter.javadsl.core.listeners;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.jorphan.collections.HashTree;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
+import us.abstracta.jmeter.javadsl.core.DslTestPlan.TestPlanChild;
+import us.abstracta.jmeter.javadsl.core.engines.EmbeddedJmeterEngine;
+
+/**
+ * Allows stopping a test plan execution when collected statistics meet some condition.
+ * <p>
+ * This is helpful to avoid wasting time and resources running a test plan once it is clear that it
+ * is not meeting expected service levels (eg: response times too high or too many errors).
+ * <p>
+ * Conditions are checked every second against statistics collected while the test plan runs, and
+ * when any of them is met, the test plan is stopped, in the same way it would be stopped by
+ * reaching its configured duration or iterations.
+ * <p>
+ * This element is only supported by {@link EmbeddedJmeterEngine} and
+ * {@link us.abstracta.jmeter.javadsl.core.engines.DistributedJmeterEngine}, and is not included
+ * when saving the test plan as JMX.
+ *
+ * @since 1.4
+ */
+public class DslAutoStop implements TestPlanChild {
+
+  private static final String CONTEXT_KEY = DslAutoStop.class.getName();
+
+  private final String name;
+  private final List<AutoStopCondition> conditions = new ArrayList<>();
+
+  public DslAutoStop(String name) {
+    this.name = name == null ? "autoStop" : name;
+  }
+
+  /**
+   * Adds a condition which stops the test plan when met.
+   * <p>
+   * You can invoke this method multiple times to add several conditions. The test plan is stopped
+   * when any of them is met.
+   *
+   * @param condition specifies the condition to check. Use static methods in
+   *                  {@link AutoStopCondition} to create it.
+   * @return the element for further configuration or usage.
+   */
+  public DslAutoStop when(AutoStopCondition condition) {
+    conditions.add(condition);
+    return this;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<AutoStopCondition> getConditions() {
+    return conditions;
+  }
+
+  @Override
+  public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
+    context.getRoot().<List<DslAutoStop>>getOrCreateEntry(CONTEXT_KEY, ArrayList::new).add(this);
+    return parent;
+  }
+
+  /**
+   * Gets all auto stop elements included in a test plan.
+   *
+   * @param context is the root context used to build the test plan tree.
+   * @return the list of auto stop elements included in the test plan.
+   */
+  @SuppressWarnings("unchecked")
+  public static List<DslAutoStop> findInContext(BuildTreeContext context) {
+    List<DslAutoStop> ret = (List<DslAutoStop>) context.getRoot().getEntry(CONTEXT_KEY);
+    return ret != null ? ret : Collections.emptyList();
+  }
+
+  @Override
+  public void showInGui() {
+    throw new UnsupportedOperationException(
+        "autoStop has no JMeter GUI since it is evaluated by the DSL engine.");
+  }
+
+}
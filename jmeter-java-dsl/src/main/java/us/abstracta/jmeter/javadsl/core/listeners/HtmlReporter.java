@@ -34,6 +34,7 @@ import org.apache.jmeter.visualizers.SimpleDataWriter;
 public class HtmlReporter extends BaseListener {
 
   protected File reportDirectory;
+  protected boolean incremental;
   protected final ApdexThresholds apdexThresholds = new ApdexThresholds();
   protected final Map<String, ApdexThresholds> labelApdexThresholds = new HashMap<>();
 
@@ -78,6 +79,11 @@ public class HtmlReporter extends BaseListener {
     if (!reportDirectory.exists()) {
       reportDirectory.mkdirs();
     }
+    if (incremental) {
+      // no file is set in the collector, since no JTL is needed to generate the report
+      return new ResultCollector(new IncrementalHtmlReportSummariser(reportDirectory,
+          apdexThresholds, labelApdexThresholds));
+    }
     File resultsFile = new File(reportDirectory, "report.jtl");
     HtmlReportSummariser reporter = new HtmlReportSummariser(resultsFile, apdexThresholds,
         labelApdexThresholds);
@@ -169,6 +175,51 @@ public class HtmlReporter extends BaseListener {
 
   }
 
+  /**
+   * Allows to generate the report incrementally, while the test plan runs, instead of parsing a JTL
+   * file after test plan execution.
+   * <p>
+   * This is just a shorter way of using {@link #incremental(boolean)} with true setting.
+   *
+   * @return the HtmlReporter for further configuration and usage.
+   * @see #incremental(boolean)
+   * @since 1.4
+   */
+  public HtmlReporter incremental() {
+    return incremental(true);
+  }
+
+  /**
+   * Allows to generate the report incrementally, while the test plan runs, instead of parsing a JTL
+   * file after test plan execution.
+   * <p>
+   * By default, the reporter writes all samples to a JTL file, and after test plan execution
+   * JMeter report generator parses it to generate the report. For test plans generating a big
+   * number of samples, this post-processing can take longer than the test plan itself and requires
+   * a lot of memory.
+   * <p>
+   * When enabled, each sample is aggregated into per label statistics (including Apdex) and an
+   * overall timeline as soon as it is generated, and no JTL file is written. At the end of test
+   * plan execution a single page HTML report (index.html) is generated from aggregated data, which
+   * only takes time proportional to the number of labels and timeline buckets. The timeline
+   * granularity is taken from {@code jmeter.reportgenerator.overall_granularity} JMeter property,
+   * as in JMeter report.
+   * <p>
+   * Take into consideration that the generated report is simpler than JMeter report (it only
+   * includes statistics, throughput, response times and errors over time), and that test plans
+   * saved as JMX with this setting can only be run with the DSL in the classpath. If you need
+   * JMeter report, you can still generate it later on from a JTL with JMeter report generator.
+   *
+   * @param enabled specifies whether to generate the report incrementally or not. By default, it
+   *                is set to false.
+   * @return the HtmlReporter for further configuration and usage.
+   * @since 1.4
+   */
+  public HtmlReporter incremental(boolean enabled) {
+    this.incremental = enabled;
+    return this;
+  }
+
   /**
    * Allows to configure general Apdex thresholds for all requests.
    * <p>
@@ -0,0 +1,343 @@
+package us.abstracta.jmeter.javadsl.core.listeners;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.jmeter.reporters.Summariser;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import us.abstracta.jmeter.javadsl.core.engines.EmbeddedStatsSummary;
+import us.abstracta.jmeter.javadsl.core.listeners.HtmlReporter.ApdexThresholds;
+import us.abstracta.jmeter.javadsl.core.stats.StatsSummary;
+import us.abstracta.jmeter.javadsl.core.stats.StatsTimeline;
+import us.abstracta.jmeter.javadsl.core.stats.TimeMetricSummary;
+import us.abstracta.jmeter.javadsl.core.util.StringTemplate;
+
+/*
+ Folds each sample into per label statistics and an overall timeline while the test plan runs, and
+ just renders them when the test plan ends. This way report generation time and memory only depend
+ on the number of labels and time buckets, and not on the number of samples.
+
+ Sampler threads collect statistics in a fixed number of stripes, each one with its own monitor,
+ to avoid all threads contending on a single lock. A stripe is assigned to each thread in round
+ robin, and stripes are merged when generating the report. Using stripes instead of one summary per
+ thread keeps memory bounded, since each timeline preallocates all its buckets.
+ */
+class IncrementalHtmlReportSummariser extends Summariser {
+
+  private static final String GRANULARITY_PROP = "jmeter.reportgenerator.overall_granularity";
+  private static final long DEFAULT_GRANULARITY_MILLIS = 60000;
+  // with default granularity this allows keeping the timeline of tests lasting up to a week
+  private static final int MAX_TIMELINE_BUCKETS = 10080;
+  private static final Duration DEFAULT_SATISFIED_THRESHOLD = Duration.ofMillis(1500);
+  private static final Duration DEFAULT_TOLERATED_THRESHOLD = Duration.ofMillis(3000);
+  private static final String TOTAL_LABEL = "Total";
+  private static final int CHART_WIDTH = 900;
+  private static final int CHART_HEIGHT = 200;
+  private static final int STRIPES_COUNT = Runtime.getRuntime().availableProcessors();
+  private static final Logger LOG = LoggerFactory.getLogger(IncrementalHtmlReportSummariser.class);
+  private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern(
+      "yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+  private final File reportDirectory;
+  private final ApdexThresholds apdexThresholds;
+  private final Map<String, ApdexThresholds> labelApdexThresholds;
+  private final AtomicInteger hostsCount = new AtomicInteger(0);
+  private final AtomicInteger nextStripe = new AtomicInteger();
+  private Duration granularity;
+  private volatile StatsStripe[] stripes;
+  private final ThreadLocal<StatsStripe> threadStripe = ThreadLocal.withInitial(
+      () -> stripes[Math.floorMod(nextStripe.getAndIncrement(), stripes.length)]);
+  private Instant start;
+
+  IncrementalHtmlReportSummariser(File reportDirectory, ApdexThresholds apdexThresholds,
+      Map<String, ApdexThresholds> labelApdexThresholds) {
+    this.reportDirectory = reportDirectory;
+    this.apdexThresholds = apdexThresholds;
+    this.labelApdexThresholds = labelApdexThresholds;
+  }
+
+  @Override
+  public void testStarted(String host) {
+    super.testStarted(host);
+    if (hostsCount.getAndIncrement() == 0) {
+      synchronized (this) {
+        granularity = Duration.ofMillis(
+            JMeterUtils.getPropDefault(GRANULARITY_PROP, DEFAULT_GRANULARITY_MILLIS));
+        StatsStripe[] stripes = new StatsStripe[STRIPES_COUNT];
+        for (int i = 0; i < stripes.length; i++) {
+          stripes[i] = new StatsStripe();
+        }
+        this.stripes = stripes;
+        start = Instant.now();
+      }
+    }
+  }
+
+  @Override
+  public void sampleOccurred(SampleEvent e) {
+    threadStripe.get().add(e.getResult());
+  }
+
+  private LabelStats buildLabelStats(String label) {
+    ApdexThresholds thresholds = labelApdexThresholds.entrySet().stream()
+        .filter(e -> Pattern.matches(e.getKey(), label))
+        .map(Map.Entry::getValue)
+        .findFirst()
+        .orElse(apdexThresholds);
+    return new LabelStats(
+        thresholdMillis(thresholds.satisfied, apdexThresholds.satisfied,
+            DEFAULT_SATISFIED_THRESHOLD),
+        thresholdMillis(thresholds.tolerated, apdexThresholds.tolerated,
+            DEFAULT_TOLERATED_THRESHOLD));
+  }
+
+  private static long thresholdMillis(Duration threshold, Duration generalThreshold,
+      Duration defaultThreshold) {
+    if (threshold != null) {
+      return threshold.toMillis();
+    }
+    return generalThreshold != null ? generalThreshold.toMillis() : defaultThreshold.toMillis();
+  }
+
+  @Override
+  public void testEnded(String host) {
+    // verify that all remote hosts have ended before generating report
+    if (hostsCount.decrementAndGet() <= 0) {
+      synchronized (this) {
+        writeReport(Instant.now());
+      }
+    }
+  }
+
+  private void writeReport(Instant end) {
+    EmbeddedStatsSummary overall = new EmbeddedStatsSummary(granularity, MAX_TIMELINE_BUCKETS);
+    Map<String, LabelStats> labels = new HashMap<>();
+    for (StatsStripe stripe : stripes) {
+      stripe.mergeInto(overall, labels);
+    }
+    List<StatsTimeline.Bucket> buckets = overall.timeline().buckets();
+    long timelineSamples = buckets.stream()
+        .mapToLong(StatsTimeline.Bucket::samples)
+        .sum();
+    if (timelineSamples < overall.samplesCount()) {
+      LOG.warn("HTML report timeline only includes last {} buckets, so it does not include {} "
+              + "samples. You can use a bigger granularity by setting {} property.",
+          MAX_TIMELINE_BUCKETS, overall.samplesCount() - timelineSamples, GRANULARITY_PROP);
+    }
+    String report = new StringTemplate(resourceContents("/IncrementalHtmlReport.template.html"))
+        .bind("name", escapeHtml(reportDirectory.getName()))
+        .bind("start", TIME_FORMATTER.format(start))
+        .bind("end", TIME_FORMATTER.format(end))
+        .bind("duration", formatDuration(Duration.between(start, end)))
+        .bind("statsRows", buildStatsRows(overall, labels))
+        .bind("throughputChart", buildChart(buckets, b -> b.samples() / bucketSeconds()))
+        .bind("responseTimeChart", buildChart(buckets,
+            b -> b.samples() > 0 ? b.sampleTime().perc90().toMillis() : 0))
+        .bind("errorsChart", buildChart(buckets, StatsTimeline.Bucket::errors))
+        .bind("granularity", formatDuration(granularity))
+        .bind("timelineRows", buildTimelineRows(buckets))
+        .solve();
+    try {
+      Files.write(reportDirectory.toPath().resolve("index.html"),
+          report.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private String resourceContents(String resource) {
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(getClass().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+      return reader.lines()
+          .collect(Collectors.joining("\n"));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String escapeHtml(String val) {
+    return val.replace("&", "&amp;")
+        .replace("<", "&lt;")
+        .replace(">", "&gt;")
+        .replace("\"", "&quot;");
+  }
+
+  private static String formatDuration(Duration duration) {
+    return duration.toString().substring(2).toLowerCase(Locale.US);
+  }
+
+  private String buildStatsRows(EmbeddedStatsSummary overall, Map<String, LabelStats> labels) {
+    StringBuilder ret = new StringBuilder();
+    new TreeMap<>(labels).forEach((label, stats) -> appendStatsRow(label, stats.summary,
+        stats.apdex(), "", ret));
+    double overallApdex = labels.values().stream()
+        .mapToDouble(s -> s.apdex() * s.summary.samplesCount())
+        .sum() / Math.max(overall.samplesCount(), 1);
+    appendStatsRow(TOTAL_LABEL, overall, overallApdex, " class=\"total\"", ret);
+    return ret.toString();
+  }
+
+  private void appendStatsRow(String label, StatsSummary stats, double apdex, String rowAttrs,
+      StringBuilder ret) {
+    TimeMetricSummary sampleTime = stats.sampleTime();
+    long samples = stats.samplesCount();
+    ret.append("  <tr").append(rowAttrs).append(">")
+        .append(cell(escapeHtml(label)))
+        .append(cell(samples))
+        .append(cell(stats.errorsCount()))
+        .append(cell(formatDecimal(samples > 0 ? stats.errorsCount() * 100.0 / samples : 0)))
+        .append(cell(formatDecimal(apdex)))
+        .append(cell(sampleTime.min().toMillis()))
+        .append(cell(sampleTime.mean().toMillis()))
+        .append(cell(sampleTime.median().toMillis()))
+        .append(cell(sampleTime.perc90().toMillis()))
+        .append(cell(sampleTime.perc95().toMillis()))
+        .append(cell(sampleTime.perc99().toMillis()))
+        .append(cell(sampleTime.max().toMillis()))
+        .append(cell(formatDecimal(stats.samples().perSecond())))
+        .append(cell(formatDecimal(stats.receivedBytes().perSecond() / 1024)))
+        .append(cell(formatDecimal(stats.sentBytes().perSecond() / 1024)))
+        .append("</tr>\n");
+  }
+
+  private static String cell(Object value) {
+    return "<td>" + value + "</td>";
+  }
+
+  private static String formatDecimal(double value) {
+    return String.format(Locale.US, "%.2f", value);
+  }
+
+  private double bucketSeconds() {
+    return granularity.toMillis() / 1000.0;
+  }
+
+  private String buildChart(List<StatsTimeline.Bucket> buckets,
+      ToDoubleFunction<StatsTimeline.Bucket> metric) {
+    double[] values = buckets.stream()
+        .mapToDouble(metric)
+        .toArray();
+    double max = 0;
+    for (double value : values) {
+      max = Math.max(max, value);
+    }
+    StringBuilder points = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      double x = values.length > 1 ? (double) i * CHART_WIDTH / (values.length - 1) : 0;
+      double y = max > 0 ? CHART_HEIGHT - values[i] * CHART_HEIGHT / max : CHART_HEIGHT;
+      if (i > 0) {
+        points.append(' ');
+      }
+      points.append(String.format(Locale.US, "%.1f,%.1f", x, y));
+    }
+    return "<svg class=\"chart\" width=\"" + CHART_WIDTH + "\" height=\"" + CHART_HEIGHT
+        + "\" viewBox=\"0 0 " + CHART_WIDTH + " " + CHART_HEIGHT + "\">"
+        + "<polyline fill=\"none\" stroke=\"#1f77b4\" stroke-width=\"2\" points=\"" + points
+        + "\"/><text x=\"5\" y=\"15\" font-size=\"12\">max: " + formatDecimal(max)
+        + "</text></svg>";
+  }
+
+  private String buildTimelineRows(List<StatsTimeline.Bucket> buckets) {
+    StringBuilder ret = new StringBuilder();
+    double bucketSeconds = bucketSeconds();
+    for (StatsTimeline.Bucket bucket : buckets) {
+      boolean hasSamples = bucket.samples() > 0;
+      TimeMetricSummary sampleTime = bucket.sampleTime();
+      ret.append("  <tr>")
+          .append(cell(TIME_FORMATTER.format(bucket.start())))
+          .append(cell(bucket.samples()))
+          .append(cell(bucket.errors()))
+          .append(cell(formatDecimal(bucket.samples() / bucketSeconds)))
+          .append(cell(hasSamples ? sampleTime.mean().toMillis() : 0))
+          .append(cell(hasSamples ? sampleTime.perc90().toMillis() : 0))
+          .append(cell(hasSamples ? sampleTime.perc99().toMillis() : 0))
+          .append(cell(formatDecimal(bucket.receivedBytes() / 1024.0 / bucketSeconds)))
+          .append(cell(formatDecimal(bucket.sentBytes() / 1024.0 / bucketSeconds)))
+          .append("</tr>\n");
+    }
+    return ret.toString();
+  }
+
+  private class StatsStripe {
+
+    private final EmbeddedStatsSummary overall = new EmbeddedStatsSummary(granularity,
+        MAX_TIMELINE_BUCKETS);
+    private final Map<String, LabelStats> labels = new HashMap<>();
+
+    private synchronized void add(SampleResult result) {
+      overall.add(result);
+      labels.computeIfAbsent(result.getSampleLabel(), l -> buildLabelStats(l))
+          .add(result);
+    }
+
+    private synchronized void mergeInto(EmbeddedStatsSummary overall,
+        Map<String, LabelStats> labels) {
+      overall.merge(this.overall);
+      this.labels.forEach((label, stats) -> labels.computeIfAbsent(label,
+          l -> buildLabelStats(l)).merge(stats));
+    }
+
+  }
+
+  private static class LabelStats {
+
+    private final EmbeddedStatsSummary summary = new EmbeddedStatsSummary();
+    private final long satisfiedThresholdMillis;
+    private final long toleratedThresholdMillis;
+    private long satisfied;
+    private long tolerated;
+
+    private LabelStats(long satisfiedThresholdMillis, long toleratedThresholdMillis) {
+      this.satisfiedThresholdMillis = satisfiedThresholdMillis;
+      this.toleratedThresholdMillis = toleratedThresholdMillis;
+    }
+
+    private void add(SampleResult result) {
+      summary.add(result);
+      // as in JMeter report, failed samples are considered frustrated
+      if (!result.isSuccessful()) {
+        return;
+      }
+      long time = result.getTime();
+      if (time <= satisfiedThresholdMillis) {
+        satisfied++;
+      } else if (time <= toleratedThresholdMillis) {
+        tolerated++;
+      }
+    }
+
+    private void merge(LabelStats other) {
+      summary.merge(other.summary);
+      satisfied += other.satisfied;
+      tolerated += other.tolerated;
+    }
+
+    private double apdex() {
+      long samples = summary.samplesCount();
+      return samples > 0 ? (satisfied + tolerated / 2.0) / samples : 0;
+    }
+
+  }
+
+}
@@ -2,6 +2,7 @@ package us.abstracta.jmeter.javadsl.core.listeners;
 
 import java.io.File;
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -20,6 +21,13 @@ import us.abstracta.jmeter.javadsl.codegeneration.SingleTestElementCallBuilder;
 import us.abstracta.jmeter.javadsl.codegeneration.TestElementParamBuilder;
 import us.abstracta.jmeter.javadsl.codegeneration.params.BoolParam;
 import us.abstracta.jmeter.javadsl.codegeneration.params.StringParam;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.AsyncResultCollector;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.AsyncResultCollector.BackPressurePolicy;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.BinaryJtlReader;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.BinaryJtlResultCollector;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.CsvJtlResultCollector;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.JtlFiles;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.RollingResultCollector;
 
 /**
  * Allows to generate a result log file (JTL) with data for each sample for a test plan, thread
@@ -43,6 +51,13 @@ public class JtlWriter extends BaseListener {
 
   protected String jtlFile;
   protected boolean saveAsXml;
+  protected boolean binary;
+  protected boolean compressed;
+  protected long rollingMaxBytes;
+  protected Duration rollingPeriod = Duration.ZERO;
+  protected int asyncQueueCapacity;
+  protected BackPressurePolicy asyncBackPressurePolicy = BackPressurePolicy.BLOCK;
+  protected final AsyncResultCollector.Metrics asyncMetrics = new AsyncResultCollector.Metrics();
   protected boolean saveElapsedTime = true;
   protected boolean saveResponseMessage = true;
   protected boolean saveSuccess = true;
@@ -89,8 +104,21 @@ public class JtlWriter extends BaseListener {
 
   @Override
   public TestElement buildTestElement() {
-    ResultCollector logger = new ResultCollector();
-    logger.setFilename(jtlFile);
+    if (binary) {
+      return configureRolling(new BinaryJtlResultCollector(jtlFile, saveSubResults));
+    }
+    ResultCollector logger;
+    if (compressed || isRolling()) {
+      if (saveAsXml) {
+        throw new IllegalStateException(
+            "Compressed and rolling JTL files are only supported in CSV and binary formats");
+      }
+      logger = configureRolling(new CsvJtlResultCollector(jtlFile));
+    } else {
+      logger = asyncQueueCapacity > 0 ? configureAsync(new AsyncResultCollector())
+          : new ResultCollector();
+      logger.setFilename(jtlFile);
+    }
     SampleSaveConfiguration config = logger.getSaveConfig();
     config.setAsXml(saveAsXml);
     config.setTime(saveElapsedTime);
@@ -126,6 +154,25 @@ public class JtlWriter extends BaseListener {
     return logger;
   }
 
+  private boolean isRolling() {
+    return rollingMaxBytes > 0 || !rollingPeriod.isZero();
+  }
+
+  private RollingResultCollector configureRolling(RollingResultCollector collector) {
+    collector.setCompressed(compressed);
+    collector.setMaxSegmentBytes(rollingMaxBytes);
+    collector.setMaxSegmentMillis(rollingPeriod.toMillis());
+    configureAsync(collector);
+    return collector;
+  }
+
+  private AsyncResultCollector configureAsync(AsyncResultCollector collector) {
+    collector.setQueueCapacity(asyncQueueCapacity);
+    collector.setBackPressurePolicy(asyncBackPressurePolicy);
+    collector.setMetrics(asyncMetrics);
+    return collector;
+  }
+
   /**
    * Allows setting to include all fields in XML format.
    * <p>
@@ -206,6 +253,203 @@ public class JtlWriter extends BaseListener {
     return this;
   }
 
+  /**
+   * Allows specifying to save JTL in a compact binary columnar format instead of CSV or XML.
+   * <p>
+   * This is just a shorter way of using {@link #binary(boolean)} with true setting.
+   *
+   * @return the JtlWriter for further configuration or usage.
+   * @see #binary(boolean)
+   * @since 1.4
+   */
+  public JtlWriter binary() {
+    return binary(true);
+  }
+
+  /**
+   * Allows specifying to save JTL in a compact binary columnar format instead of CSV or XML.
+   * <p>
+   * Formatting and escaping CSV or XML values takes a considerable amount of CPU when generating
+   * a high number of samples per second, and generates big files. Binary format avoids such costs
+   * by writing, in blocks, each field values together, using variable length numbers and
+   * dictionary encoding strings (labels, thread names, response codes, etc.).
+   * <p>
+   * The binary format always includes same fields as default CSV format (plus sample and error
+   * counts), so fields settings (like {@link #withResponseHeaders(boolean)}) are ignored, with the
+   * exception of {@link #withSubResults(boolean)}.
+   * <p>
+   * Use {@link BinaryJtlReader} to read the generated file, get statistics from it, or convert it
+   * to CSV format (eg: to generate a JMeter HTML report).
+   * <p>
+   * Take into consideration that generated file can't be loaded in JMeter GUI, and that test plans
+   * saved as JMX with this setting can only be run with the DSL in the classpath.
+   *
+   * @param enabled specifies whether enable binary format or not. By default, it is set to false.
+   * @return the JtlWriter for further configuration or usage.
+   * @see BinaryJtlReader
+   * @since 1.4
+   */
+  public JtlWriter binary(boolean enabled) {
+    this.binary = enabled;
+    return this;
+  }
+
+  /**
+   * Allows specifying to compress the JTL file with gzip while it is written.
+   * <p>
+   * This is just a shorter way of using {@link #compressed(boolean)} with true setting.
+   *
+   * @return the JtlWriter for further configuration or usage.
+   * @see #compressed(boolean)
+   * @since 1.4
+   */
+  public JtlWriter compressed() {
+    return compressed(true);
+  }
+
+  /**
+   * Allows specifying to compress the JTL file with gzip while it is written.
+   * <p>
+   * JTL files of long tests (like soak tests) can be huge, and text formats are highly
+   * compressible. Compressing while writing avoids having to store the full uncompressed file and
+   * post-process it after test execution.
+   * <p>
+   * When enabled, ".gz" is appended to the JTL file name. Use
+   * {@link JtlFiles#toCsv(java.nio.file.Path, java.nio.file.Path)} to get a plain CSV file (eg: to
+   * generate a JMeter HTML report), or {@link BinaryJtlReader} if binary format is used.
+   * <p>
+   * Take into consideration that this setting is only supported with CSV and binary formats, and
+   * that test plans saved as JMX with this setting can only be run with the DSL in the classpath.
+   *
+   * @param enabled specifies whether to compress the JTL file or not. By default, it is set to
+   *                false.
+   * @return the JtlWriter for further configuration or usage.
+   * @see JtlFiles
+   * @since 1.4
+   */
+  public JtlWriter compressed(boolean enabled) {
+    this.compressed = enabled;
+    return this;
+  }
+
+  /**
+   * Allows specifying to split the JTL file in segments of a given size.
+   * <p>
+   * When a segment reaches the given size, a new segment file is started. This allows keeping
+   * files of manageable size, and processing, moving or archiving already completed segments while
+   * a long test (like a soak test) runs.
+   * <p>
+   * Each segment is named after the JTL file name with a 5 digits segment number (eg:
+   * "results-00000.jtl", "results-00001.jtl", etc.) and is a complete JTL on its own (includes
+   * field names header, if enabled). Use {@link JtlFiles} methods to process all segments as a
+   * single JTL, or {@link BinaryJtlReader} if binary format is used.
+   * <p>
+   * The size is checked after writing each sample result and considers the bytes already written
+   * to disk (after buffering and compression), so segments may be slightly bigger than
+   * specified. When using binary format, sample results are only written to disk in blocks of
+   * {@link us.abstracta.jmeter.javadsl.core.listeners.jtl.BinaryJtlWriter#BLOCK_SIZE} records, so
+   * segments are only split on block boundaries and may exceed the given size by up to a block.
+   * <p>
+   * Take into consideration that this setting is only supported with CSV and binary formats, and
+   * that test plans saved as JMX with this setting can only be run with the DSL in the classpath.
+   *
+   * @param maxBytes specifies the size of each segment in bytes. Has to be >0. By default, segments
+   *                 are not split by size.
+   * @return the JtlWriter for further configuration or usage.
+   * @throws IllegalArgumentException if the given size is not positive.
+   * @see #rollByTime(Duration)
+   * @see JtlFiles
+   * @since 1.4
+   */
+  public JtlWriter rollBySize(long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("Max segment bytes must be >0");
+    }
+    this.rollingMaxBytes = maxBytes;
+    return this;
+  }
+
+  /**
+   * Allows specifying to split the JTL file in segments, each one containing sample results of a
+   * given period of time.
+   * <p>
+   * This works as {@link #rollBySize(long)}, but starting a new segment when the given period of
+   * time has elapsed since current segment start. Both settings can be combined, in which case a
+   * new segment is started when any of the limits is reached.
+   *
+   * @param period specifies the period of time to write to each segment. Has to be at least 1
+   *               millisecond. By default, segments are not split by time.
+   * @return the JtlWriter for further configuration or usage.
+   * @throws IllegalArgumentException if the given period is shorter than 1 millisecond.
+   * @see #rollBySize(long)
+   * @since 1.4
+   */
+  public JtlWriter rollByTime(Duration period) {
+    if (period == null || period.toMillis() <= 0) {
+      throw new IllegalArgumentException("Segment period must be at least 1 millisecond");
+    }
+    this.rollingPeriod = period;
+    return this;
+  }
+
+  /**
+   * Allows specifying to write sample results in a separate thread, blocking sampler threads only
+   * when there are too many sample results pending to be written.
+   * <p>
+   * This is just a shorter way of using {@link #async(int, BackPressurePolicy)} with
+   * {@link AsyncResultCollector#DEFAULT_QUEUE_CAPACITY} and {@link BackPressurePolicy#BLOCK}.
+   *
+   * @return the JtlWriter for further configuration or usage.
+   * @see #async(int, BackPressurePolicy)
+   * @since 1.4
+   */
+  public JtlWriter async() {
+    return async(AsyncResultCollector.DEFAULT_QUEUE_CAPACITY, BackPressurePolicy.BLOCK);
+  }
+
+  /**
+   * Allows specifying to write sample results in a separate thread instead of sampler threads.
+   * <p>
+   * By default, each sampler thread writes its sample results to the JTL file, which means that
+   * any delay in writing (eg: due to a disk hiccup) directly affects the load generated by the
+   * thread. With this setting, sampler threads just add sample results to a bounded queue, and a
+   * single writer thread writes them to the file in batches.
+   * <p>
+   * When the queue is full, the given back-pressure policy is applied. You can check
+   * {@link #asyncMetrics()} after test plan execution to review the maximum queue depth and
+   * if there have been dropped or spilled sample results.
+   * <p>
+   * Take into consideration that test plans saved as JMX with this setting can only be run with
+   * the DSL in the classpath.
+   *
+   * @param queueCapacity      specifies the maximum number of sample results waiting to be
+   *                           written. When set to 0, async writing is disabled, which is the
+   *                           default setting.
+   * @param backPressurePolicy specifies what to do when the queue is full.
+   * @return the JtlWriter for further configuration or usage.
+   * @see BackPressurePolicy
+   * @since 1.4
+   */
+  public JtlWriter async(int queueCapacity, BackPressurePolicy backPressurePolicy) {
+    this.asyncQueueCapacity = queueCapacity;
+    this.asyncBackPressurePolicy = backPressurePolicy;
+    return this;
+  }
+
+  /**
+   * Gets metrics about async writing of sample results.
+   * <p>
+   * Metrics are updated while the test plan runs, and are only collected when async writing is
+   * enabled.
+   *
+   * @return the async writing metrics.
+   * @see #async(int, BackPressurePolicy)
+   * @since 1.4
+   */
+  public AsyncResultCollector.Metrics asyncMetrics() {
+    return asyncMetrics;
+  }
+
   /**
    * Allows setting whether or not to include elapsed time (milliseconds spent in each sample) in
    * generated JTL.
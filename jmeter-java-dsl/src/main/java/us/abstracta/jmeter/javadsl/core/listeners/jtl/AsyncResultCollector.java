@@ -0,0 +1,422 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.jmeter.reporters.ResultCollector;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Result collector which optionally writes sample results in a separate thread.
+ * <p>
+ * When async writing is enabled (with a queue capacity greater than 0), sampler threads just add
+ * sample events to a bounded queue, and a single writer thread takes them in batches and writes
+ * them. This way, disk hiccups or formatting costs don't directly affect sampler threads
+ * (and generated load). When the queue is full, the configured {@link BackPressurePolicy} is
+ * applied.
+ * <p>
+ * Sampler threads don't take any lock to add sample events to the queue, they only compete with
+ * a CAS on the queue producer index. Closing the queue is also recorded in such index, so no
+ * sample event is lost when the test plan ends while sampler threads are still adding events. If
+ * the writer thread ends abnormally, the queue is closed as well, so sampler threads write sample
+ * events themselves instead of waiting for room in the queue.
+ * <p>
+ * When async writing is disabled, sample events are written in sampler threads, as JMeter
+ * {@link ResultCollector} does.
+ * <p>
+ * Subclasses can override {@link #writeSample(SampleEvent)}, {@link #startWriting()} and
+ * {@link #endWriting()} to write in a different format.
+ *
+ * @since 1.4
+ */
+public class AsyncResultCollector extends ResultCollector {
+
+  /**
+   * Default maximum number of sample events waiting to be written.
+   * <p>
+   * This is kept small since each queued sample event keeps its sample result (including response
+   * data, when saved) in memory, and a few batches of pending events are enough to absorb disk
+   * hiccups.
+   */
+  public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncResultCollector.class);
+  private static final String QUEUE_CAPACITY_PROP = "AsyncResultCollector.queueCapacity";
+  private static final String BACK_PRESSURE_POLICY_PROP = "AsyncResultCollector.backPressure";
+  private static final int BATCH_SIZE = 1024;
+  private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private transient Metrics metrics = new Metrics();
+  private transient volatile BoundedMpscQueue<SampleEvent> queue;
+  private transient BackPressurePolicy backPressurePolicy;
+  private transient Thread writerThread;
+  private transient Object spillLock;
+  private transient Path spillFile;
+  private transient BinaryJtlWriter spillWriter;
+  private transient int runningHosts;
+
+  public AsyncResultCollector() {
+  }
+
+  public int getQueueCapacity() {
+    return getPropertyAsInt(QUEUE_CAPACITY_PROP);
+  }
+
+  /**
+   * Specifies the maximum number of sample events waiting to be written.
+   *
+   * @param queueCapacity specifies the queue capacity. When 0, async writing is disabled.
+   */
+  public void setQueueCapacity(int queueCapacity) {
+    setProperty(QUEUE_CAPACITY_PROP, queueCapacity);
+  }
+
+  public BackPressurePolicy getBackPressurePolicy() {
+    String policy = getPropertyAsString(BACK_PRESSURE_POLICY_PROP);
+    return policy.isEmpty() ? BackPressurePolicy.BLOCK : BackPressurePolicy.valueOf(policy);
+  }
+
+  public void setBackPressurePolicy(BackPressurePolicy policy) {
+    setProperty(BACK_PRESSURE_POLICY_PROP, policy.name());
+  }
+
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Specifies where to record async writing metrics.
+   * <p>
+   * This allows sharing metrics with the element which created the collector, since the collector
+   * itself is usually not accessible after test plan execution.
+   *
+   * @param metrics specifies the metrics instance to update.
+   */
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Object clone() {
+    AsyncResultCollector ret = (AsyncResultCollector) super.clone();
+    ret.metrics = metrics;
+    return ret;
+  }
+
+  @Override
+  public void testStarted(String host) {
+    super.testStarted(host);
+    synchronized (this) {
+      if (runningHosts++ == 0) {
+        startWriting();
+        if (getQueueCapacity() > 0) {
+          startWriterThread();
+        }
+      }
+    }
+  }
+
+  /**
+   * Allows subclasses to initialize resources required to write sample events.
+   * <p>
+   * This is invoked once, when the test plan starts, before any sample is written.
+   */
+  protected void startWriting() {
+  }
+
+  private void startWriterThread() {
+    metrics.reset();
+    backPressurePolicy = getBackPressurePolicy();
+    queue = new BoundedMpscQueue<>(getQueueCapacity());
+    spillLock = new Object();
+    writerThread = new Thread(this::writeQueuedSamples, "jtl-writer-" + getName());
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  private void writeQueuedSamples() {
+    List<SampleEvent> batch = new ArrayList<>(BATCH_SIZE);
+    BoundedMpscQueue<SampleEvent> queue = this.queue;
+    try {
+      while (!queue.isDrained()) {
+        if (queue.drainTo(batch, BATCH_SIZE) == 0) {
+          // parking avoids sampler threads having to wake up the writer on each sample event
+          LockSupport.parkNanos(WAIT_NANOS);
+          continue;
+        }
+        batch.forEach(this::writeSampleSafely);
+        batch.clear();
+        metrics.queueDepth.set(queue.size());
+      }
+    } catch (Throwable e) {
+      LOG.error("JTL writer thread of {} failed, sample results are now written by sampler "
+          + "threads", getName(), e);
+      throw e;
+    } finally {
+      // avoids sampler threads waiting forever for room in the queue when the writer dies
+      queue.close();
+    }
+  }
+
+  private void writeSampleSafely(SampleEvent event) {
+    try {
+      writeSample(event);
+    } catch (RuntimeException e) {
+      LOG.error("Problem writing sample result {}", event.getResult().getSampleLabel(), e);
+    }
+  }
+
+  @Override
+  public void sampleOccurred(SampleEvent event) {
+    if (queue == null || !enqueue(event)) {
+      writeSample(event);
+    }
+  }
+
+  /*
+   Returns false when the collector is closed, in which case the event has to be written by the
+   caller.
+   */
+  private boolean enqueue(SampleEvent event) {
+    BoundedMpscQueue<SampleEvent> queue = this.queue;
+    if (queue.offer(event)) {
+      updateMaxQueueDepth(queue);
+      return true;
+    }
+    if (queue.isClosed()) {
+      return false;
+    }
+    switch (backPressurePolicy) {
+      case DROP:
+        metrics.droppedSamples.incrementAndGet();
+        return true;
+      case SPILL:
+        spill(event);
+        return true;
+      default:
+        return putInterruptibly(event, queue);
+    }
+  }
+
+  private void updateMaxQueueDepth(BoundedMpscQueue<SampleEvent> queue) {
+    int depth = queue.size();
+    // max depth is usually only read, to avoid sampler threads contending on each sample event
+    if (depth > metrics.maxQueueDepth.get()) {
+      metrics.maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+  }
+
+  private boolean putInterruptibly(SampleEvent event, BoundedMpscQueue<SampleEvent> queue) {
+    while (!queue.offer(event)) {
+      if (queue.isClosed()) {
+        return false;
+      }
+      LockSupport.parkNanos(WAIT_NANOS);
+      if (Thread.currentThread().isInterrupted()) {
+        throw new IllegalStateException("Interrupted while waiting for room in JTL queue");
+      }
+    }
+    updateMaxQueueDepth(queue);
+    return true;
+  }
+
+  private void spill(SampleEvent event) {
+    synchronized (spillLock) {
+      try {
+        if (spillWriter == null) {
+          spillFile = Files.createTempFile("jtl-spill", ".jtl");
+          spillWriter = new BinaryJtlWriter(spillFile);
+        }
+        spillWriter.write(event.getResult());
+        metrics.spilledSamples.incrementAndGet();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Writes a sample event.
+   * <p>
+   * When async writing is enabled, this method is invoked from the writer thread, except when the
+   * writer thread ends abnormally or sample events occur after the test plan ends, in which cases
+   * it is invoked by sampler threads. Otherwise, it is invoked by each sampler thread.
+   *
+   * @param event specifies the sample event to write.
+   */
+  protected void writeSample(SampleEvent event) {
+    super.sampleOccurred(event);
+  }
+
+  @Override
+  public void testEnded(String host) {
+    boolean lastHost;
+    synchronized (this) {
+      lastHost = --runningHosts == 0;
+    }
+    if (lastHost) {
+      // monitor is not held while stopping writer thread since writing may require it
+      try {
+        if (queue != null) {
+          stopWriterThread();
+          writeSpilledSamples();
+          logMetrics();
+        }
+      } finally {
+        endWriting();
+      }
+    }
+    super.testEnded(host);
+  }
+
+  private void stopWriterThread() {
+    queue.close();
+    LockSupport.unpark(writerThread);
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // writer thread may have ended abnormally, so we make sure no queued event is lost
+    List<SampleEvent> pending = new ArrayList<>();
+    while (!queue.isDrained() && writerThread.getState() == Thread.State.TERMINATED) {
+      if (queue.drainTo(pending, Integer.MAX_VALUE) == 0) {
+        Thread.yield();
+      }
+      pending.forEach(this::writeSampleSafely);
+      pending.clear();
+    }
+    metrics.queueDepth.set(0);
+    queue = null;
+  }
+
+  private void writeSpilledSamples() {
+    synchronized (spillLock) {
+      if (spillWriter == null) {
+        return;
+      }
+      try {
+        spillWriter.close();
+        JMeterVariables vars = new JMeterVariables();
+        try (BinaryJtlReader reader = new BinaryJtlReader(spillFile)) {
+          reader.forEach(r -> writeSampleSafely(new SampleEvent(r, "", vars)));
+        }
+        Files.delete(spillFile);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        spillWriter = null;
+        spillFile = null;
+      }
+    }
+  }
+
+  private void logMetrics() {
+    if (metrics.droppedSamples() > 0) {
+      LOG.warn("{} dropped {} sample results since queue was full. Max queue depth: {}", getName(),
+          metrics.droppedSamples(), metrics.maxQueueDepth());
+    } else if (metrics.spilledSamples() > 0) {
+      LOG.info("{} spilled {} sample results to disk since queue was full. Max queue depth: {}",
+          getName(), metrics.spilledSamples(), metrics.maxQueueDepth());
+    }
+  }
+
+  /**
+   * Allows subclasses to release resources used to write sample events.
+   * <p>
+   * This is invoked once, when the test plan ends, after all samples have been written.
+   */
+  protected void endWriting() {
+  }
+
+  /**
+   * Specifies what to do with a sample result when the async writing queue is full.
+   */
+  public enum BackPressurePolicy {
+    /**
+     * Sampler threads wait until there is room in the queue.
+     * <p>
+     * No sample result is lost, but the load generated by sampler threads is affected.
+     */
+    BLOCK,
+    /**
+     * Sample results are discarded (and counted in {@link Metrics#droppedSamples()}).
+     * <p>
+     * Generated load is not affected, at the cost of missing sample results in the JTL.
+     */
+    DROP,
+    /**
+     * Sample results are written to a temporary file, and later on added to the JTL when the test
+     * plan ends.
+     * <p>
+     * No sample result is lost and generated load is only affected by writing the sample result
+     * as a binary JTL record (check {@link BinaryJtlWriter}), at the cost of additional disk usage
+     * and sample results not being in the JTL until test plan ends.
+     * <p>
+     * Take into consideration that spilled sample results only keep the fields stored by binary
+     * JTL files, so other information (like response bodies or sample variables) is not available
+     * when they are added to the JTL.
+     */
+    SPILL
+  }
+
+  /**
+   * Contains metrics about async writing of sample results.
+   */
+  public static class Metrics {
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private final AtomicLong spilledSamples = new AtomicLong();
+
+    private void reset() {
+      queueDepth.set(0);
+      maxQueueDepth.set(0);
+      droppedSamples.set(0);
+      spilledSamples.set(0);
+    }
+
+    /**
+     * Gets the current number of sample results waiting to be written.
+     */
+    public int queueDepth() {
+      return queueDepth.get();
+    }
+
+    /**
+     * Gets the maximum number of sample results that have been waiting to be written at the same
+     * time.
+     */
+    public int maxQueueDepth() {
+      return maxQueueDepth.get();
+    }
+
+    /**
+     * Gets the number of sample results discarded due to a full queue and
+     * {@link BackPressurePolicy#DROP} policy.
+     */
+    public long droppedSamples() {
+      return droppedSamples.get();
+    }
+
+    /**
+     * Gets the number of sample results written to a temporary file due to a full queue and
+     * {@link BackPressurePolicy#SPILL} policy.
+     */
+    public long spilledSamples() {
+      return spilledSamples.get();
+    }
+
+  }
+
+}
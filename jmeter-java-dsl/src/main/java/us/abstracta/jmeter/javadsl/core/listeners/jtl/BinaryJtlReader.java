@@ -0,0 +1,465 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.threads.JMeterVariables;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.core.engines.EmbeddedStatsSummary;
+
+/**
+ * Reads sample results from files generated by {@link BinaryJtlWriter}.
+ * <p>
+ * Files are streamed block by block, so memory usage does not depend on the size of the file.
+ * <p>
+ * When reading from a path, compressed files and files split in segments (as generated by
+ * {@link BinaryJtlResultCollector}) are transparently read as a single file.
+ * <p>
+ * Provided methods allow getting each sample result, statistics for all the samples, or
+ * converting the file to JMeter default CSV JTL format (eg: to generate an HTML report with JMeter
+ * report generator).
+ *
+ * @see BinaryJtlWriter
+ * @since 1.4
+ */
+public class BinaryJtlReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Iterator<Path> pendingSegments;
+  private ReadableByteChannel channel;
+  // buffer is accessed as Buffer when required to avoid NoSuchMethodError when running in Java 8
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final List<String> dictionary = new ArrayList<>();
+  // only URLs in the dictionary are cached, so the cache is bounded as the dictionary
+  private final Map<String, URL> urls = new HashMap<>();
+  private long[] startTimes = new long[0];
+  private long[] elapsedTimes = new long[0];
+  private String[] labels = new String[0];
+  private String[] responseCodes = new String[0];
+  private String[] responseMessages = new String[0];
+  private String[] threadNames = new String[0];
+  private String[] dataTypes = new String[0];
+  private boolean[] successes = new boolean[0];
+  private String[] failureMessages = new String[0];
+  private long[] receivedBytes = new long[0];
+  private long[] sentBytes = new long[0];
+  private long[] groupThreads = new long[0];
+  private long[] allThreads = new long[0];
+  private String[] urlValues = new String[0];
+  private long[] latencies = new long[0];
+  private long[] idleTimes = new long[0];
+  private long[] connectTimes = new long[0];
+  private long[] sampleCounts = new long[0];
+  private long[] errorCounts = new long[0];
+  private long lastStartTime;
+
+  /**
+   * Creates a reader which reads all the results of a binary JTL file.
+   *
+   * @param file specifies the path of the binary JTL, as configured in the JTL writer. If the JTL
+   *             has been compressed or split in segments, all associated files are read.
+   * @throws IOException if there is some problem reading the file or it does not contain a binary
+   *                     JTL.
+   * @see JtlFiles#findSegments(Path)
+   */
+  public BinaryJtlReader(Path file) throws IOException {
+    List<Path> segments = JtlFiles.findSegments(file);
+    if (segments.isEmpty()) {
+      throw new NoSuchFileException(file.toString());
+    }
+    pendingSegments = segments.iterator();
+    channel = openSegment(pendingSegments.next());
+    ((Buffer) buffer).limit(0);
+    readHeader();
+  }
+
+  /**
+   * Creates a reader which reads from a given channel.
+   *
+   * @param channel specifies the channel to read from. It is closed when the reader is closed.
+   * @throws IOException if there is some problem reading the channel or it does not contain a
+   *                     binary JTL.
+   */
+  public BinaryJtlReader(ReadableByteChannel channel) throws IOException {
+    this.pendingSegments = Collections.emptyIterator();
+    this.channel = channel;
+    ((Buffer) buffer).limit(0);
+    readHeader();
+  }
+
+  private static ReadableByteChannel openSegment(Path segment) throws IOException {
+    return segment.getFileName().toString().endsWith(JtlFiles.COMPRESSED_EXTENSION)
+        ? Channels.newChannel(JtlFiles.openSegment(segment))
+        : FileChannel.open(segment, StandardOpenOption.READ);
+  }
+
+  private void readHeader() throws IOException {
+    byte[] magic = new byte[BinaryJtlWriter.MAGIC.length];
+    for (int i = 0; i < magic.length; i++) {
+      magic[i] = getByte();
+    }
+    if (!Arrays.equals(magic, BinaryJtlWriter.MAGIC)) {
+      throw new IOException("Provided content is not a binary JTL");
+    }
+    byte version = getByte();
+    if (version != BinaryJtlWriter.VERSION) {
+      throw new IOException("Unsupported binary JTL version " + version);
+    }
+  }
+
+  /**
+   * Reads a binary JTL file and converts it to a CSV JTL file.
+   *
+   * @param binaryJtl specifies the path to the binary JTL file to read.
+   * @param csvJtl    specifies the path to the CSV JTL file to generate.
+   * @throws IOException if there is some problem reading or writing the files.
+   * @see #toCsv(Path)
+   */
+  public static void convertToCsv(Path binaryJtl, Path csvJtl) throws IOException {
+    try (BinaryJtlReader reader = new BinaryJtlReader(binaryJtl)) {
+      reader.toCsv(csvJtl);
+    }
+  }
+
+  /**
+   * Invokes the given consumer with each sample result in the file, in the same order they were
+   * written.
+   * <p>
+   * Obtained sample results contain same information as JMeter default CSV JTL files, plus sample
+   * and error counts.
+   *
+   * @param consumer specifies the logic to execute for each sample result.
+   * @throws IOException if there is some problem reading the file.
+   */
+  public void forEach(Consumer<SampleResult> consumer) throws IOException {
+    int blockSize;
+    while ((blockSize = readBlock()) > 0) {
+      for (int i = 0; i < blockSize; i++) {
+        consumer.accept(buildResult(i));
+      }
+    }
+  }
+
+  private int readBlock() throws IOException {
+    while (!hasMoreContent()) {
+      if (!pendingSegments.hasNext()) {
+        return 0;
+      }
+      startNextSegment();
+    }
+    int blockSize = (int) getVarLong();
+    ensureColumnsCapacity(blockSize);
+    for (int i = 0; i < blockSize; i++) {
+      lastStartTime += unZigZag(getVarLong());
+      startTimes[i] = lastStartTime;
+    }
+    getColumn(elapsedTimes, blockSize);
+    getColumn(labels, blockSize);
+    getColumn(responseCodes, blockSize);
+    getColumn(responseMessages, blockSize);
+    getColumn(threadNames, blockSize);
+    getColumn(dataTypes, blockSize);
+    getSuccesses(blockSize);
+    getColumn(failureMessages, blockSize);
+    getColumn(receivedBytes, blockSize);
+    getColumn(sentBytes, blockSize);
+    getColumn(groupThreads, blockSize);
+    getColumn(allThreads, blockSize);
+    getColumn(urlValues, blockSize);
+    getColumn(latencies, blockSize);
+    getColumn(idleTimes, blockSize);
+    getColumn(connectTimes, blockSize);
+    getColumn(sampleCounts, blockSize);
+    getColumn(errorCounts, blockSize);
+    return blockSize;
+  }
+
+  private void startNextSegment() throws IOException {
+    channel.close();
+    channel = openSegment(pendingSegments.next());
+    // each segment is a self-contained binary JTL
+    dictionary.clear();
+    urls.clear();
+    lastStartTime = 0;
+    ((Buffer) buffer).clear();
+    ((Buffer) buffer).limit(0);
+    readHeader();
+  }
+
+  private boolean hasMoreContent() throws IOException {
+    return buffer.hasRemaining() || fillBuffer();
+  }
+
+  private boolean fillBuffer() throws IOException {
+    buffer.compact();
+    int read;
+    do {
+      read = channel.read(buffer);
+    } while (read == 0);
+    ((Buffer) buffer).flip();
+    return read > 0;
+  }
+
+  private void ensureColumnsCapacity(int size) {
+    if (startTimes.length >= size) {
+      return;
+    }
+    startTimes = new long[size];
+    elapsedTimes = new long[size];
+    labels = new String[size];
+    responseCodes = new String[size];
+    responseMessages = new String[size];
+    threadNames = new String[size];
+    dataTypes = new String[size];
+    successes = new boolean[size];
+    failureMessages = new String[size];
+    receivedBytes = new long[size];
+    sentBytes = new long[size];
+    groupThreads = new long[size];
+    allThreads = new long[size];
+    urlValues = new String[size];
+    latencies = new long[size];
+    idleTimes = new long[size];
+    connectTimes = new long[size];
+    sampleCounts = new long[size];
+    errorCounts = new long[size];
+  }
+
+  private static long unZigZag(long val) {
+    return (val >>> 1) ^ -(val & 1);
+  }
+
+  private void getColumn(long[] column, int size) throws IOException {
+    for (int i = 0; i < size; i++) {
+      column[i] = getVarLong();
+    }
+  }
+
+  private void getColumn(String[] column, int size) throws IOException {
+    for (int i = 0; i < size; i++) {
+      int code = (int) getVarLong();
+      if (code == BinaryJtlWriter.NULL_STRING_CODE) {
+        column[i] = null;
+      } else if (code == BinaryJtlWriter.INLINE_STRING_CODE) {
+        column[i] = getString();
+      } else if (code == BinaryJtlWriter.NEW_DICTIONARY_ENTRY_CODE) {
+        column[i] = getString();
+        dictionary.add(column[i]);
+      } else {
+        column[i] = dictionary.get(code - BinaryJtlWriter.FIRST_DICTIONARY_ENTRY_CODE);
+      }
+    }
+  }
+
+  private void getSuccesses(int size) throws IOException {
+    for (int i = 0; i < size; i += 8) {
+      int bits = getByte();
+      for (int j = 0; j < 8 && i + j < size; j++) {
+        successes[i + j] = (bits & (1 << j)) != 0;
+      }
+    }
+  }
+
+  private byte getByte() throws IOException {
+    if (!hasMoreContent()) {
+      throw new EOFException("Unexpected end of binary JTL");
+    }
+    return buffer.get();
+  }
+
+  private long getVarLong() throws IOException {
+    long ret = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = getByte();
+      ret |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return ret;
+  }
+
+  private String getString() throws IOException {
+    byte[] bytes = new byte[(int) getVarLong()];
+    int pos = 0;
+    while (pos < bytes.length) {
+      if (!hasMoreContent()) {
+        throw new EOFException("Unexpected end of binary JTL");
+      }
+      int count = Math.min(buffer.remaining(), bytes.length - pos);
+      buffer.get(bytes, pos, count);
+      pos += count;
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private SampleResult buildResult(int i) {
+    ReadSampleResult ret = new ReadSampleResult(startTimes[i], elapsedTimes[i], idleTimes[i]);
+    ret.setSampleLabel(labels[i]);
+    ret.setResponseCode(responseCodes[i]);
+    ret.setResponseMessage(responseMessages[i]);
+    ret.setThreadName(threadNames[i]);
+    ret.setDataType(dataTypes[i]);
+    ret.setSuccessful(successes[i]);
+    String failureMessage = failureMessages[i];
+    if (failureMessage != null) {
+      AssertionResult assertion = new AssertionResult("");
+      assertion.setFailure(true);
+      assertion.setFailureMessage(failureMessage);
+      ret.addAssertionResult(assertion);
+    }
+    ret.setBytes(receivedBytes[i]);
+    ret.setSentBytes(sentBytes[i]);
+    ret.setGroupThreads((int) groupThreads[i]);
+    ret.setAllThreads((int) allThreads[i]);
+    ret.setURL(url(urlValues[i]));
+    ret.setLatency(latencies[i]);
+    ret.setConnectTime(connectTimes[i]);
+    ret.setSampleCount((int) sampleCounts[i]);
+    ret.setErrorCount((int) errorCounts[i]);
+    return ret;
+  }
+
+  private URL url(String url) {
+    if (url == null || url.isEmpty()) {
+      return null;
+    }
+    URL ret = urls.get(url);
+    if (ret != null) {
+      return ret;
+    }
+    try {
+      ret = new URL(url);
+    } catch (MalformedURLException e) {
+      return null;
+    }
+    if (urls.size() < BinaryJtlWriter.MAX_DICTIONARY_ENTRIES
+        && url.length() <= BinaryJtlWriter.MAX_DICTIONARY_VALUE_LENGTH) {
+      urls.put(url, ret);
+    }
+    return ret;
+  }
+
+  /**
+   * Reads all sample results in the file and collects statistics from them.
+   * <p>
+   * Test plan start and end are set to the first sample start and last sample end.
+   *
+   * @return the statistics of samples in the file.
+   * @throws IOException if there is some problem reading the file.
+   */
+  public TestPlanStats readStats() throws IOException {
+    TestPlanStats ret = new TestPlanStats(EmbeddedStatsSummary::new);
+    forEach(ret::addSampleResult);
+    if (ret.overall().samplesCount() > 0) {
+      ret.setStart(ret.overall().firstTime());
+      ret.setEnd(ret.overall().endTime());
+    } else {
+      ret.setStart(Instant.EPOCH);
+      ret.setEnd(Instant.EPOCH);
+    }
+    return ret;
+  }
+
+  /**
+   * Writes all sample results in the file to a CSV JTL file with JMeter default fields.
+   * <p>
+   * Generated file can be used with any tool that supports JMeter CSV JTL files (like JMeter HTML
+   * report generator).
+   *
+   * @param csvJtl specifies the path to the CSV file to generate.
+   * @throws IOException if there is some problem reading the file or writing the CSV file.
+   */
+  public void toCsv(Path csvJtl) throws IOException {
+    SampleSaveConfiguration config = buildCsvSaveConfig();
+    String delimiter = config.getDelimiter();
+    JMeterVariables vars = new JMeterVariables();
+    try (BufferedWriter writer = Files.newBufferedWriter(csvJtl, StandardCharsets.UTF_8)) {
+      writer.write(CSVSaveService.printableFieldNamesToString(config));
+      writer.newLine();
+      forEach(r -> {
+        try {
+          writer.write(CSVSaveService.resultToDelimitedString(new SampleEvent(r, "", vars), r,
+              config, delimiter));
+          writer.newLine();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static SampleSaveConfiguration buildCsvSaveConfig() {
+    SampleSaveConfiguration ret = new SampleSaveConfiguration(false);
+    ret.setDefaultDelimiter();
+    ret.setFieldNames(true);
+    ret.setTimestamp(true);
+    ret.setTime(true);
+    ret.setLabel(true);
+    ret.setCode(true);
+    ret.setMessage(true);
+    ret.setThreadName(true);
+    ret.setDataType(true);
+    ret.setSuccess(true);
+    ret.setAssertionResultsFailureMessage(true);
+    ret.setBytes(true);
+    ret.setSentBytes(true);
+    ret.setThreadCounts(true);
+    ret.setUrl(true);
+    ret.setLatency(true);
+    ret.setIdleTime(true);
+    ret.setConnectTime(true);
+    return ret;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /*
+   This class is required since SampleResult does not provide a public way to set start and end
+   times.
+   */
+  private static class ReadSampleResult extends SampleResult {
+
+    private ReadSampleResult(long startTime, long elapsedTime, long idleTime) {
+      setStartTime(startTime);
+      setIdleTime(idleTime);
+      setEndTime(startTime + elapsedTime + idleTime);
+    }
+
+  }
+
+}
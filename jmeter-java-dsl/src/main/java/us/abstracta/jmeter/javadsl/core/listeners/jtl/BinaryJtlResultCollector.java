@@ -0,0 +1,69 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Result collector which writes sample results in binary JTL format.
+ * <p>
+ * This extends {@link org.apache.jmeter.reporters.ResultCollector} to keep same behavior regarding
+ * test plan scope and remote execution as default JMeter JTL files, but writes results with
+ * {@link BinaryJtlWriter} instead of CSV or XML formats. Results may be written asynchronously as
+ * described in {@link AsyncResultCollector}, and compressed or split in segments as described in
+ * {@link RollingResultCollector}.
+ *
+ * @see BinaryJtlWriter
+ * @since 1.4
+ */
+public class BinaryJtlResultCollector extends RollingResultCollector {
+
+  private static final String SAVE_SUB_RESULTS_PROP = "BinaryJtlResultCollector.saveSubResults";
+
+  public BinaryJtlResultCollector() {
+  }
+
+  public BinaryJtlResultCollector(String fileName, boolean saveSubResults) {
+    super(fileName);
+    setSaveSubResults(saveSubResults);
+  }
+
+  public boolean getSaveSubResults() {
+    return getPropertyAsBoolean(SAVE_SUB_RESULTS_PROP);
+  }
+
+  public void setSaveSubResults(boolean saveSubResults) {
+    setProperty(SAVE_SUB_RESULTS_PROP, saveSubResults);
+  }
+
+  @Override
+  protected SegmentWriter createSegmentWriter(OutputStream output) throws IOException {
+    BinaryJtlWriter writer = new BinaryJtlWriter(Channels.newChannel(output));
+    boolean saveSubResults = getSaveSubResults();
+    return new SegmentWriter() {
+
+      @Override
+      public void write(SampleEvent event) throws IOException {
+        write(event.getResult());
+      }
+
+      private void write(SampleResult result) throws IOException {
+        writer.write(result);
+        if (saveSubResults) {
+          for (SampleResult subResult : result.getSubResults()) {
+            write(subResult);
+          }
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        writer.close();
+      }
+
+    };
+  }
+
+}
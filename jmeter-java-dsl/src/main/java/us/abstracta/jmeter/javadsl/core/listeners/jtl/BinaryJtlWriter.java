@@ -0,0 +1,276 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Writes sample results in a compact binary columnar format.
+ * <p>
+ * Sample results are buffered in blocks of up to {@link #BLOCK_SIZE} records, and each block is
+ * written column by column (all start times, then all elapsed times, etc.). Numeric values are
+ * written as variable length integers (start times as deltas from the previous one), and strings
+ * (labels, thread names, response codes, messages, etc.) are dictionary encoded: each distinct
+ * string is written only once in the entire file, and records just reference it by id.
+ * <p>
+ * To keep memory usage bounded when columns have many distinct values (eg: URLs with query
+ * parameters or failure messages including dynamic data), the dictionary keeps up to
+ * {@link #MAX_DICTIONARY_ENTRIES} strings of up to {@link #MAX_DICTIONARY_VALUE_LENGTH} chars.
+ * Strings not included in the dictionary are written inline in each record.
+ * <p>
+ * This avoids the formatting and escaping costs of CSV and XML JTL files, and generates
+ * considerably smaller files. Use {@link BinaryJtlReader} to read generated files.
+ * <p>
+ * The format stores the same fields as JMeter default CSV JTL files, plus sample and error counts.
+ * <p>
+ * This class is not thread safe. Writes should be externally synchronized.
+ *
+ * @see BinaryJtlReader
+ * @since 1.4
+ */
+public class BinaryJtlWriter implements Closeable {
+
+  public static final int BLOCK_SIZE = 4096;
+  public static final int MAX_DICTIONARY_ENTRIES = 16384;
+  public static final int MAX_DICTIONARY_VALUE_LENGTH = 256;
+  protected static final byte[] MAGIC = "JDSLJTL".getBytes(StandardCharsets.US_ASCII);
+  protected static final byte VERSION = 1;
+  // codes used in string columns. Bigger codes reference dictionary entries.
+  protected static final int NULL_STRING_CODE = 0;
+  protected static final int INLINE_STRING_CODE = 1;
+  protected static final int NEW_DICTIONARY_ENTRY_CODE = 2;
+  protected static final int FIRST_DICTIONARY_ENTRY_CODE = 3;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_VARINT_SIZE = 10;
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final Map<String, Integer> dictionary = new HashMap<>();
+  private final long[] startTimes = new long[BLOCK_SIZE];
+  private final long[] elapsedTimes = new long[BLOCK_SIZE];
+  private final String[] labels = new String[BLOCK_SIZE];
+  private final String[] responseCodes = new String[BLOCK_SIZE];
+  private final String[] responseMessages = new String[BLOCK_SIZE];
+  private final String[] threadNames = new String[BLOCK_SIZE];
+  private final String[] dataTypes = new String[BLOCK_SIZE];
+  private final boolean[] successes = new boolean[BLOCK_SIZE];
+  private final String[] failureMessages = new String[BLOCK_SIZE];
+  private final long[] receivedBytes = new long[BLOCK_SIZE];
+  private final long[] sentBytes = new long[BLOCK_SIZE];
+  private final long[] groupThreads = new long[BLOCK_SIZE];
+  private final long[] allThreads = new long[BLOCK_SIZE];
+  private final String[] urls = new String[BLOCK_SIZE];
+  private final long[] latencies = new long[BLOCK_SIZE];
+  private final long[] idleTimes = new long[BLOCK_SIZE];
+  private final long[] connectTimes = new long[BLOCK_SIZE];
+  private final long[] sampleCounts = new long[BLOCK_SIZE];
+  private final long[] errorCounts = new long[BLOCK_SIZE];
+  private int blockSize;
+  private long lastStartTime;
+
+  public BinaryJtlWriter(Path file) throws IOException {
+    this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING));
+  }
+
+  /**
+   * Creates a writer which writes to a given channel.
+   * <p>
+   * This is useful to write to something else than a plain file (eg: a compressed stream).
+   *
+   * @param channel specifies the channel to write to. It is closed when the writer is closed.
+   * @throws IOException if there is some problem writing the file header.
+   */
+  public BinaryJtlWriter(WritableByteChannel channel) throws IOException {
+    this.channel = channel;
+    buffer.put(MAGIC);
+    buffer.put(VERSION);
+  }
+
+  /**
+   * Adds a sample result to the file.
+   * <p>
+   * The sample result may not be written to the underlying channel until enough results are
+   * collected or the writer is flushed or closed.
+   *
+   * @param result specifies the sample result to write.
+   * @throws IOException if there is some problem writing a block of records.
+   */
+  public void write(SampleResult result) throws IOException {
+    int i = blockSize;
+    startTimes[i] = result.getStartTime();
+    elapsedTimes[i] = result.getTime();
+    labels[i] = result.getSampleLabel();
+    responseCodes[i] = result.getResponseCode();
+    responseMessages[i] = result.getResponseMessage();
+    threadNames[i] = result.getThreadName();
+    dataTypes[i] = result.getDataType();
+    successes[i] = result.isSuccessful();
+    failureMessages[i] = result.getFirstAssertionFailureMessage();
+    receivedBytes[i] = result.getBytesAsLong();
+    sentBytes[i] = result.getSentBytes();
+    groupThreads[i] = result.getGroupThreads();
+    allThreads[i] = result.getAllThreads();
+    urls[i] = result.getUrlAsString();
+    latencies[i] = result.getLatency();
+    idleTimes[i] = result.getIdleTime();
+    connectTimes[i] = result.getConnectTime();
+    sampleCounts[i] = result.getSampleCount();
+    errorCounts[i] = result.getErrorCount();
+    blockSize++;
+    if (blockSize == BLOCK_SIZE) {
+      writeBlock();
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    if (blockSize == 0) {
+      return;
+    }
+    putVarLong(blockSize);
+    for (int i = 0; i < blockSize; i++) {
+      putVarLong(zigZag(startTimes[i] - lastStartTime));
+      lastStartTime = startTimes[i];
+    }
+    putColumn(elapsedTimes);
+    putColumn(labels);
+    putColumn(responseCodes);
+    putColumn(responseMessages);
+    putColumn(threadNames);
+    putColumn(dataTypes);
+    putSuccesses();
+    putColumn(failureMessages);
+    putColumn(receivedBytes);
+    putColumn(sentBytes);
+    putColumn(groupThreads);
+    putColumn(allThreads);
+    putColumn(urls);
+    putColumn(latencies);
+    putColumn(idleTimes);
+    putColumn(connectTimes);
+    putColumn(sampleCounts);
+    putColumn(errorCounts);
+    blockSize = 0;
+  }
+
+  private static long zigZag(long val) {
+    return (val << 1) ^ (val >> 63);
+  }
+
+  private void putColumn(long[] column) throws IOException {
+    for (int i = 0; i < blockSize; i++) {
+      putVarLong(column[i]);
+    }
+  }
+
+  /*
+   Dictionary entries are defined the first time they are written, so readers can build the
+   dictionary in the same order as the writer.
+   */
+  private void putColumn(String[] column) throws IOException {
+    for (int i = 0; i < blockSize; i++) {
+      String value = column[i];
+      column[i] = null;
+      if (value == null) {
+        putVarLong(NULL_STRING_CODE);
+        continue;
+      }
+      Integer id = dictionary.get(value);
+      if (id != null) {
+        putVarLong(FIRST_DICTIONARY_ENTRY_CODE + id);
+      } else if (dictionary.size() < MAX_DICTIONARY_ENTRIES
+          && value.length() <= MAX_DICTIONARY_VALUE_LENGTH) {
+        dictionary.put(value, dictionary.size());
+        putVarLong(NEW_DICTIONARY_ENTRY_CODE);
+        putString(value);
+      } else {
+        putVarLong(INLINE_STRING_CODE);
+        putString(value);
+      }
+    }
+  }
+
+  private void putSuccesses() throws IOException {
+    for (int i = 0; i < blockSize; i += 8) {
+      int bits = 0;
+      for (int j = 0; j < 8 && i + j < blockSize; j++) {
+        if (successes[i + j]) {
+          bits |= 1 << j;
+        }
+      }
+      ensureRemaining(1);
+      buffer.put((byte) bits);
+    }
+  }
+
+  private void putVarLong(long val) throws IOException {
+    ensureRemaining(MAX_VARINT_SIZE);
+    while ((val & ~0x7FL) != 0) {
+      buffer.put((byte) ((val & 0x7F) | 0x80));
+      val >>>= 7;
+    }
+    buffer.put((byte) val);
+  }
+
+  private void putString(String val) throws IOException {
+    byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+    putVarLong(bytes.length);
+    if (bytes.length <= buffer.capacity()) {
+      ensureRemaining(bytes.length);
+      buffer.put(bytes);
+    } else {
+      flushBuffer();
+      ByteBuffer bytesBuffer = ByteBuffer.wrap(bytes);
+      while (bytesBuffer.hasRemaining()) {
+        channel.write(bytesBuffer);
+      }
+    }
+  }
+
+  private void ensureRemaining(int size) throws IOException {
+    if (buffer.remaining() < size) {
+      flushBuffer();
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    // casts are required to avoid NoSuchMethodError when running in Java 8
+    ((Buffer) buffer).flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    ((Buffer) buffer).clear();
+  }
+
+  /**
+   * Writes all buffered sample results to the underlying channel.
+   * <p>
+   * Take into consideration that each flush writes a new block, so flushing too often reduces
+   * the benefits of the columnar format.
+   *
+   * @throws IOException if there is some problem writing to the channel.
+   */
+  public void flush() throws IOException {
+    writeBlock();
+    flushBuffer();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+}
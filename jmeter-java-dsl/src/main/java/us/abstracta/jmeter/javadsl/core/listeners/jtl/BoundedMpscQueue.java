@@ -0,0 +1,133 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded queue for multiple producers and a single consumer.
+ * <p>
+ * Each slot has a sequence number which tells if the slot is free for the producer claiming a
+ * given position, or if it contains an element ready for the consumer (same approach as Dmitry
+ * Vyukov bounded queue). Producers only compete with a CAS on the producer index, and the consumer
+ * does not use any atomic read-modify-write operation.
+ * <p>
+ * A sequence number can't tell apart a free and a full slot when there is only one slot, so at
+ * least two slots are used, and in such case the queue size is also checked when adding elements.
+ * <p>
+ * The queue can be closed, which is recorded in the producer index. This way, every element is
+ * either added before closing the queue (and taken by the consumer) or rejected, without requiring
+ * producers to hold any lock while adding elements.
+ */
+class BoundedMpscQueue<E> {
+
+  private static final long CLOSED_FLAG = Long.MIN_VALUE;
+
+  private final int capacity;
+  private final int slots;
+  private final AtomicReferenceArray<E> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong producerIndex = new AtomicLong();
+  private final AtomicLong consumerIndex = new AtomicLong();
+
+  BoundedMpscQueue(int capacity) {
+    this.capacity = capacity;
+    slots = Math.max(capacity, 2);
+    elements = new AtomicReferenceArray<>(slots);
+    sequences = new AtomicLongArray(slots);
+    for (int i = 0; i < slots; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Adds an element to the queue.
+   *
+   * @param element the element to add.
+   * @return false when the queue is full or closed, and the element was not added.
+   */
+  public boolean offer(E element) {
+    long index = producerIndex.get();
+    while ((index & CLOSED_FLAG) == 0) {
+      int slot = (int) (index % slots);
+      long diff = sequences.get(slot) - index;
+      if (diff == 0) {
+        if (slots > capacity && index - consumerIndex.get() >= capacity) {
+          return false;
+        }
+        if (producerIndex.compareAndSet(index, index + 1)) {
+          elements.lazySet(slot, element);
+          sequences.set(slot, index + 1);
+          return true;
+        }
+      } else if (diff < 0) {
+        return false;
+      }
+      index = producerIndex.get();
+    }
+    return false;
+  }
+
+  /**
+   * Moves available elements to the given list.
+   * <p>
+   * This method must only be invoked by the consumer thread.
+   *
+   * @param list        the list to add elements to.
+   * @param maxElements the maximum number of elements to move.
+   * @return the number of moved elements.
+   */
+  public int drainTo(List<E> list, int maxElements) {
+    long index = consumerIndex.get();
+    int count = 0;
+    while (count < maxElements) {
+      int slot = (int) (index % slots);
+      if (sequences.get(slot) != index + 1) {
+        break;
+      }
+      list.add(elements.get(slot));
+      elements.lazySet(slot, null);
+      sequences.set(slot, index + slots);
+      index++;
+      count++;
+    }
+    consumerIndex.lazySet(index);
+    return count;
+  }
+
+  /**
+   * Rejects any further added element.
+   * <p>
+   * Elements added before closing the queue are still available to the consumer.
+   */
+  public void close() {
+    long index = producerIndex.get();
+    while ((index & CLOSED_FLAG) == 0 && !producerIndex.compareAndSet(index, index | CLOSED_FLAG)) {
+      index = producerIndex.get();
+    }
+  }
+
+  public boolean isClosed() {
+    return (producerIndex.get() & CLOSED_FLAG) != 0;
+  }
+
+  /**
+   * Checks if the queue is closed and the consumer has taken all elements added before closing
+   * it.
+   */
+  public boolean isDrained() {
+    long index = producerIndex.get();
+    return (index & CLOSED_FLAG) != 0 && (index & ~CLOSED_FLAG) == consumerIndex.get();
+  }
+
+  /**
+   * Gets the number of elements in the queue, including the ones which producers are adding.
+   */
+  public int size() {
+    // consumer index is read first, so it is never greater than the read producer index
+    long consumed = consumerIndex.get();
+    return (int) ((producerIndex.get() & ~CLOSED_FLAG) - consumed);
+  }
+
+}
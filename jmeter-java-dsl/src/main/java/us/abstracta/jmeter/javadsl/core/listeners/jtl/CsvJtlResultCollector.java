@@ -0,0 +1,58 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.CSVSaveService;
+
+/**
+ * Result collector which writes sample results in JMeter CSV JTL format, compressing them or
+ * splitting them in segments as described in {@link RollingResultCollector}.
+ * <p>
+ * Fields are saved according to the collector save configuration, as in JMeter
+ * {@link org.apache.jmeter.reporters.ResultCollector}. Each segment includes the fields names
+ * header (if enabled in save configuration).
+ *
+ * @since 1.4
+ */
+public class CsvJtlResultCollector extends RollingResultCollector {
+
+  public CsvJtlResultCollector() {
+  }
+
+  public CsvJtlResultCollector(String fileName) {
+    super(fileName);
+  }
+
+  @Override
+  protected SegmentWriter createSegmentWriter(OutputStream output) throws IOException {
+    SampleSaveConfiguration config = getSaveConfig();
+    String delimiter = config.getDelimiter();
+    BufferedWriter writer = new BufferedWriter(
+        new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    if (config.saveFieldNames()) {
+      writer.write(CSVSaveService.printableFieldNamesToString(config));
+      writer.newLine();
+    }
+    return new SegmentWriter() {
+
+      @Override
+      public void write(SampleEvent event) throws IOException {
+        writer.write(
+            CSVSaveService.resultToDelimitedString(event, event.getResult(), config, delimiter));
+        writer.newLine();
+      }
+
+      @Override
+      public void close() throws IOException {
+        writer.close();
+      }
+
+    };
+  }
+
+}
@@ -0,0 +1,165 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Provides utilities to handle JTL files which may be compressed or split in several segments.
+ * <p>
+ * When a JTL is compressed, ".gz" is appended to its file name. When it is split in segments (due
+ * to rolling by size or time), a 5 digits segment number is added before the file extension. Eg:
+ * for "results.jtl", compressed segments would be "results-00000.jtl.gz", "results-00001.jtl.gz",
+ * etc.
+ *
+ * @since 1.4
+ */
+public class JtlFiles {
+
+  public static final String COMPRESSED_EXTENSION = ".gz";
+  private static final int SEGMENT_DIGITS = 5;
+
+  private JtlFiles() {
+  }
+
+  static Path segmentPath(Path jtlFile, int index, boolean rolling,
+      boolean compressed) {
+    String fileName = jtlFile.getFileName().toString();
+    if (rolling) {
+      int extensionPos = extensionPosition(fileName);
+      fileName = fileName.substring(0, extensionPos) + "-"
+          + String.format("%0" + SEGMENT_DIGITS + "d", index) + fileName.substring(extensionPos);
+    }
+    return jtlFile.resolveSibling(compressed ? fileName + COMPRESSED_EXTENSION : fileName);
+  }
+
+  private static int extensionPosition(String fileName) {
+    int ret = fileName.lastIndexOf('.');
+    return ret > 0 ? ret : fileName.length();
+  }
+
+  /**
+   * Finds all files which contain the results of a JTL, in the order they were written.
+   *
+   * @param jtlFile specifies the JTL file path as configured in the JTL writer (without segment
+   *                numbers or compression extension).
+   * @return the list of files containing the JTL results. If the JTL was not compressed nor
+   * split, then just the given path is returned. If no file is found, an empty list is returned.
+   * @throws IOException if there is some problem listing the JTL directory.
+   */
+  public static List<Path> findSegments(Path jtlFile) throws IOException {
+    if (Files.exists(jtlFile)) {
+      return Collections.singletonList(jtlFile);
+    }
+    Path compressed = segmentPath(jtlFile, 0, false, true);
+    if (Files.exists(compressed)) {
+      return Collections.singletonList(compressed);
+    }
+    String fileName = jtlFile.getFileName().toString();
+    int extensionPos = extensionPosition(fileName);
+    Pattern segmentPattern = Pattern.compile(Pattern.quote(fileName.substring(0, extensionPos))
+        + "-(\\d{" + SEGMENT_DIGITS + ",})" + Pattern.quote(fileName.substring(extensionPos))
+        + "(" + Pattern.quote(COMPRESSED_EXTENSION) + ")?");
+    TreeMap<Integer, Path> segments = new TreeMap<>();
+    Path dir = jtlFile.toAbsolutePath().getParent();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        Matcher matcher = segmentPattern.matcher(file.getFileName().toString());
+        if (matcher.matches()) {
+          segments.put(Integer.parseInt(matcher.group(1)), file);
+        }
+      }
+    }
+    return new ArrayList<>(segments.values());
+  }
+
+  /**
+   * Opens a JTL segment, decompressing it if needed.
+   *
+   * @param segment specifies the path to the segment file.
+   * @return the stream to read segment contents from.
+   * @throws IOException if there is some problem opening the file.
+   */
+  public static InputStream openSegment(Path segment) throws IOException {
+    InputStream ret = Files.newInputStream(segment);
+    return segment.getFileName().toString().endsWith(COMPRESSED_EXTENSION)
+        ? new GZIPInputStream(ret, 64 * 1024)
+        : ret;
+  }
+
+  /**
+   * Generates a plain CSV JTL with all the results of a potentially compressed, split or binary
+   * JTL.
+   * <p>
+   * This is useful to process results with tools which only support plain CSV JTL files, like
+   * JMeter HTML report generator.
+   *
+   * @param jtlFile specifies the JTL file path as configured in the JTL writer (without segment
+   *                numbers or compression extension).
+   * @param csvFile specifies the path of the CSV file to generate.
+   * @throws IOException if there is some problem reading the JTL or writing the CSV file.
+   */
+  public static void toCsv(Path jtlFile, Path csvFile) throws IOException {
+    List<Path> segments = findSegments(jtlFile);
+    if (segments.isEmpty()) {
+      throw new NoSuchFileException(jtlFile.toString());
+    }
+    if (isBinary(segments.get(0))) {
+      BinaryJtlReader.convertToCsv(jtlFile, csvFile);
+    } else {
+      concatCsvSegments(segments, csvFile);
+    }
+  }
+
+  private static boolean isBinary(Path segment) throws IOException {
+    try (InputStream input = openSegment(segment)) {
+      byte[] header = new byte[BinaryJtlWriter.MAGIC.length];
+      int read = 0;
+      int count;
+      while (read < header.length
+          && (count = input.read(header, read, header.length - read)) > 0) {
+        read += count;
+      }
+      return Arrays.equals(header, BinaryJtlWriter.MAGIC);
+    }
+  }
+
+  private static void concatCsvSegments(List<Path> segments, Path csvFile) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+      String header = null;
+      for (Path segment : segments) {
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(openSegment(segment), StandardCharsets.UTF_8))) {
+          String line = reader.readLine();
+          if (header == null) {
+            header = line;
+          } else if (line != null && line.equals(header)) {
+            // each segment includes the header, so we avoid repeating it
+            line = reader.readLine();
+          }
+          while (line != null) {
+            writer.write(line);
+            writer.newLine();
+            line = reader.readLine();
+          }
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,207 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPOutputStream;
+import org.apache.jmeter.samplers.SampleEvent;
+
+/**
+ * Result collector which writes sample results to a file, optionally compressing it and splitting
+ * it in several segments (rolling) by size or time.
+ * <p>
+ * Compression is applied while writing (with gzip), avoiding the additional IO required to
+ * compress the file after test plan execution. Rolling allows limiting the size of each file, and
+ * easily process or move already completed segments while a long test (like a soak test) runs.
+ * Each segment is a complete JTL on its own (eg: includes headers), and {@link JtlFiles} provides
+ * methods to handle all segments as a single JTL.
+ * <p>
+ * Subclasses just need to implement {@link #createSegmentWriter(OutputStream)} to write in a
+ * particular format.
+ *
+ * @see JtlFiles
+ * @since 1.4
+ */
+public abstract class RollingResultCollector extends AsyncResultCollector {
+
+  private static final String FILENAME_PROP = "RollingResultCollector.filename";
+  private static final String COMPRESSED_PROP = "RollingResultCollector.compressed";
+  private static final String MAX_SEGMENT_BYTES_PROP = "RollingResultCollector.maxSegmentBytes";
+  private static final String MAX_SEGMENT_MILLIS_PROP = "RollingResultCollector.maxSegmentMillis";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private transient Path file;
+  private transient boolean compressed;
+  private transient long maxSegmentBytes;
+  private transient long maxSegmentMillis;
+  private transient int segmentIndex;
+  private transient CountingOutputStream segmentOutput;
+  private transient SegmentWriter segmentWriter;
+  private transient long segmentStartMillis;
+
+  protected RollingResultCollector() {
+  }
+
+  protected RollingResultCollector(String fileName) {
+    setJtlFilename(fileName);
+  }
+
+  public String getJtlFilename() {
+    return getPropertyAsString(FILENAME_PROP);
+  }
+
+  public void setJtlFilename(String fileName) {
+    setProperty(FILENAME_PROP, fileName);
+  }
+
+  public boolean isCompressed() {
+    return getPropertyAsBoolean(COMPRESSED_PROP);
+  }
+
+  public void setCompressed(boolean compressed) {
+    setProperty(COMPRESSED_PROP, compressed);
+  }
+
+  public long getMaxSegmentBytes() {
+    return getPropertyAsLong(MAX_SEGMENT_BYTES_PROP);
+  }
+
+  /**
+   * Specifies the size that, when reached, makes the collector start a new segment.
+   * <p>
+   * The size is checked after writing each sample result, and considers the bytes written to disk
+   * (after compression), so segments may be slightly bigger than specified.
+   *
+   * @param maxSegmentBytes specifies the max number of bytes of each segment. When 0, segments are
+   *                        not split by size.
+   */
+  public void setMaxSegmentBytes(long maxSegmentBytes) {
+    setProperty(MAX_SEGMENT_BYTES_PROP, maxSegmentBytes);
+  }
+
+  public long getMaxSegmentMillis() {
+    return getPropertyAsLong(MAX_SEGMENT_MILLIS_PROP);
+  }
+
+  /**
+   * Specifies the period of time that, when elapsed, makes the collector start a new segment.
+   *
+   * @param maxSegmentMillis specifies the max number of milliseconds to write to each segment.
+   *                         When 0, segments are not split by time.
+   */
+  public void setMaxSegmentMillis(long maxSegmentMillis) {
+    setProperty(MAX_SEGMENT_MILLIS_PROP, maxSegmentMillis);
+  }
+
+  private boolean isRolling() {
+    return maxSegmentBytes > 0 || maxSegmentMillis > 0;
+  }
+
+  @Override
+  protected void startWriting() {
+    file = Paths.get(getJtlFilename());
+    compressed = isCompressed();
+    maxSegmentBytes = getMaxSegmentBytes();
+    maxSegmentMillis = getMaxSegmentMillis();
+    segmentIndex = 0;
+    try {
+      startSegment();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void startSegment() throws IOException {
+    Path segment = JtlFiles.segmentPath(file, segmentIndex, isRolling(), compressed);
+    segmentOutput = new CountingOutputStream(Files.newOutputStream(segment));
+    OutputStream output = compressed
+        ? new GZIPOutputStream(segmentOutput, BUFFER_SIZE)
+        : new BufferedOutputStream(segmentOutput, BUFFER_SIZE);
+    segmentWriter = createSegmentWriter(output);
+    segmentStartMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Creates the writer for a new segment.
+   *
+   * @param output specifies the stream to write the segment to. This stream is already buffered.
+   * @return the writer to use for the segment. Closing the writer must close the given stream.
+   * @throws IOException if there is some problem writing to the stream.
+   */
+  protected abstract SegmentWriter createSegmentWriter(OutputStream output) throws IOException;
+
+  @Override
+  protected void writeSample(SampleEvent event) {
+    if (!isSampleWanted(event.getResult().isSuccessful())) {
+      return;
+    }
+    synchronized (this) {
+      try {
+        segmentWriter.write(event);
+        if (shouldRoll()) {
+          segmentWriter.close();
+          segmentIndex++;
+          startSegment();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private boolean shouldRoll() {
+    return maxSegmentBytes > 0 && segmentOutput.count >= maxSegmentBytes
+        || maxSegmentMillis > 0
+        && System.currentTimeMillis() - segmentStartMillis >= maxSegmentMillis;
+  }
+
+  @Override
+  protected void endWriting() {
+    try {
+      segmentWriter.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      segmentWriter = null;
+      segmentOutput = null;
+    }
+  }
+
+  /**
+   * Writes sample events of a segment in a particular format.
+   */
+  public interface SegmentWriter extends Closeable {
+
+    void write(SampleEvent event) throws IOException;
+
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+
+    private long count;
+
+    private CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+
+  }
+
+}
@@ -5,13 +5,17 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 import org.apache.jmeter.extractor.JSR223PostProcessor;
+import org.apache.jmeter.processor.PostProcessor;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.util.JSR223TestElement;
 import org.slf4j.Logger;
 import us.abstracta.jmeter.javadsl.core.testelements.DslJsr223TestElement;
+import us.abstracta.jmeter.javadsl.core.testelements.LambdaScriptTestElement;
 
 /**
  * Allows running custom logic after getting a sample result.
@@ -43,6 +47,13 @@ public class DslJsr223PostProcessor extends DslJsr223TestElement<DslJsr223PostPr
     return new JSR223PostProcessor();
   }
 
+  @Override
+  protected LambdaScriptTestElement<?> buildLambdaTestElement() {
+    LambdaPostProcessor ret = new LambdaPostProcessor();
+    ret.setScript((PostProcessorScript) lambdaScript);
+    return ret;
+  }
+
   /**
    * Allows to use any java code as script.
    *
@@ -62,6 +73,29 @@ public class DslJsr223PostProcessor extends DslJsr223TestElement<DslJsr223PostPr
 
   }
 
+  /**
+   * Test element which directly invokes the Java lambda, instead of using a JSR223 script engine.
+   *
+   * @since 1.4
+   */
+  public static class LambdaPostProcessor extends
+      LambdaScriptTestElement<PostProcessorVars> implements PostProcessor {
+
+    @Override
+    protected String getJsr223ClassName() {
+      return JSR223PostProcessor.class.getName();
+    }
+
+    @Override
+    public void process() {
+      JMeterContext ctx = JMeterContextService.getContext();
+      runScriptLoggingErrors(new PostProcessorVars(getName(), ctx.getPreviousResult(), ctx,
+          ctx.getVariables(), JMeterUtils.getJMeterProperties(), ctx.getCurrentSampler(),
+          getScriptLogger()));
+    }
+
+  }
+
   public static class CodeBuilder extends Jsr223TestElementCallBuilder<JSR223PostProcessor> {
 
     public CodeBuilder(List<Method> builderMethods) {
@@ -5,13 +5,17 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 import org.apache.jmeter.modifiers.JSR223PreProcessor;
+import org.apache.jmeter.processor.PreProcessor;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.util.JSR223TestElement;
 import org.slf4j.Logger;
 import us.abstracta.jmeter.javadsl.core.testelements.DslJsr223TestElement;
+import us.abstracta.jmeter.javadsl.core.testelements.LambdaScriptTestElement;
 
 /**
  * Allows running custom logic before executing a sampler.
@@ -44,6 +48,13 @@ public class DslJsr223PreProcessor extends DslJsr223TestElement<DslJsr223PreProc
     return new JSR223PreProcessor();
   }
 
+  @Override
+  protected LambdaScriptTestElement<?> buildLambdaTestElement() {
+    LambdaPreProcessor ret = new LambdaPreProcessor();
+    ret.setScript((PreProcessorScript) lambdaScript);
+    return ret;
+  }
+
   /**
    * Allows to use any java code as script.
    *
@@ -63,6 +74,29 @@ public class DslJsr223PreProcessor extends DslJsr223TestElement<DslJsr223PreProc
 
   }
 
+  /**
+   * Test element which directly invokes the Java lambda, instead of using a JSR223 script engine.
+   *
+   * @since 1.4
+   */
+  public static class LambdaPreProcessor extends
+      LambdaScriptTestElement<PreProcessorVars> implements PreProcessor {
+
+    @Override
+    protected String getJsr223ClassName() {
+      return JSR223PreProcessor.class.getName();
+    }
+
+    @Override
+    public void process() {
+      JMeterContext ctx = JMeterContextService.getContext();
+      runScriptLoggingErrors(new PreProcessorVars(getName(), ctx.getPreviousResult(), ctx,
+          ctx.getVariables(), JMeterUtils.getJMeterProperties(), ctx.getCurrentSampler(),
+          getScriptLogger()));
+    }
+
+  }
+
   public static class CodeBuilder extends Jsr223TestElementCallBuilder<JSR223PreProcessor> {
 
     public CodeBuilder(List<Method> builderMethods) {
@@ -0,0 +1,26 @@
+package us.abstracta.jmeter.javadsl.core.stats;
+
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+
+/**
+ * Implemented by test elements which collect statistics of their own (eg: connections or cache
+ * usage), besides the ones collected from sample results.
+ * <p>
+ * Engines running test plans in current JVM include such statistics in the returned
+ * {@link TestPlanStats}, which can be retrieved with {@link TestPlanStats#component(Class)}.
+ *
+ * @since 1.4
+ */
+public interface ComponentStatsProvider {
+
+  /**
+   * Gets the statistics collected by the test element.
+   * <p>
+   * The returned object should be updated while the test plan runs, since it is only requested
+   * once, before the test plan starts.
+   *
+   * @return the statistics collected by the test element.
+   */
+  Object componentStats();
+
+}
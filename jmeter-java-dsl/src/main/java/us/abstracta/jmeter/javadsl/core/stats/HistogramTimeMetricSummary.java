@@ -0,0 +1,236 @@
+package us.abstracta.jmeter.javadsl.core.stats;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Provides summary data for a set of timing values using a log-linear histogram (same approach as
+ * HdrHistogram).
+ * <p>
+ * Recording a value is a constant time operation that just increments a counter, and memory usage
+ * only depends on the configured precision and the maximum recorded value (not on the number of
+ * recorded values). Additionally, histograms can be merged, which allows collecting values in
+ * separate histograms (eg: one per thread or per engine) and then combine them.
+ * <p>
+ * Reported percentiles have a relative error bounded by the configured number of significant
+ * digits. Values are in milliseconds, so with default precision (2 significant digits) values up to
+ * 256 milliseconds are exact and greater values have less than 1% error.
+ * <p>
+ * This class is not thread safe. Updates should be externally synchronized.
+ *
+ * @since 1.4
+ */
+public class HistogramTimeMetricSummary implements TimeMetricSummary {
+
+  public static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+
+  private final int significantDigits;
+  private final int subBucketHalfCountMagnitude;
+  private final int subBucketHalfCount;
+  private final long subBucketMask;
+  private final int leadingZeroCountBase;
+  private long[] counts;
+  private long count;
+  private long sum;
+  private long min = Long.MAX_VALUE;
+  private long max = Long.MIN_VALUE;
+
+  public HistogramTimeMetricSummary() {
+    this(DEFAULT_SIGNIFICANT_DIGITS);
+  }
+
+  /**
+   * Creates a histogram with given precision.
+   *
+   * @param significantDigits specifies the number of significant decimal digits to keep for each
+   *                          value. Valid values are from 1 to 3. Each additional digit increases
+   *                          precision, but also memory usage (approximately 10 times).
+   */
+  public HistogramTimeMetricSummary(int significantDigits) {
+    if (significantDigits < 1 || significantDigits > 3) {
+      throw new IllegalArgumentException(
+          "Significant digits must be between 1 and 3, but " + significantDigits + " was used");
+    }
+    this.significantDigits = significantDigits;
+    long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+    int subBucketCountMagnitude = (int) Math.ceil(
+        Math.log(largestValueWithSingleUnitResolution) / Math.log(2));
+    subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+    subBucketHalfCount = 1 << subBucketHalfCountMagnitude;
+    subBucketMask = (1L << subBucketCountMagnitude) - 1;
+    leadingZeroCountBase = 64 - subBucketCountMagnitude;
+    counts = new long[2 * subBucketHalfCount];
+  }
+
+  /**
+   * Records a new value.
+   *
+   * @param val specifies the value, in milliseconds, to record. Negative values are recorded as 0.
+   */
+  public void add(long val) {
+    val = Math.max(val, 0);
+    int index = countsIndexFor(val);
+    if (index >= counts.length) {
+      counts = Arrays.copyOf(counts, index + subBucketHalfCount);
+    }
+    counts[index]++;
+    count++;
+    sum += val;
+    min = Math.min(min, val);
+    max = Math.max(max, val);
+  }
+
+  private int countsIndexFor(long val) {
+    int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(val | subBucketMask);
+    int subBucketIndex = (int) (val >>> bucketIndex);
+    return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex
+        - subBucketHalfCount);
+  }
+
+  private long highestEquivalentValueFor(int index) {
+    int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+    int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+    if (bucketIndex < 0) {
+      subBucketIndex -= subBucketHalfCount;
+      bucketIndex = 0;
+    }
+    return ((long) subBucketIndex << bucketIndex) + (1L << bucketIndex) - 1;
+  }
+
+  /**
+   * Adds all values recorded in another histogram to this one.
+   *
+   * @param other specifies the histogram to get values from. It must have the same precision as
+   *              this one.
+   */
+  public void merge(HistogramTimeMetricSummary other) {
+    if (other.significantDigits != significantDigits) {
+      throw new IllegalArgumentException("Can't merge histograms with different precision: "
+          + significantDigits + " and " + other.significantDigits);
+    }
+    if (other.counts.length > counts.length) {
+      counts = Arrays.copyOf(counts, other.counts.length);
+    }
+    for (int i = 0; i < other.counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    sum += other.sum;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Removes all values recorded in another histogram from this one.
+   * <p>
+   * This allows keeping statistics of a sliding window by merging new histograms and subtracting
+   * expired ones, without having to merge again all histograms in the window.
+   * <p>
+   * When the subtracted histogram holds the current min or max value, it is recalculated from
+   * remaining recorded values, so it has the same precision as reported percentiles.
+   *
+   * @param other specifies the histogram containing the values to remove. All its values must have
+   *              been previously recorded (or merged) in this histogram, and it must have the same
+   *              precision as this one.
+   */
+  public void subtract(HistogramTimeMetricSummary other) {
+    if (other.significantDigits != significantDigits) {
+      throw new IllegalArgumentException("Can't subtract histograms with different precision: "
+          + significantDigits + " and " + other.significantDigits);
+    }
+    if (other.count == 0) {
+      return;
+    }
+    for (int i = 0; i < other.counts.length; i++) {
+      counts[i] -= other.counts[i];
+    }
+    count -= other.count;
+    sum -= other.sum;
+    if (count == 0) {
+      min = Long.MAX_VALUE;
+      max = Long.MIN_VALUE;
+      return;
+    }
+    if (other.min <= min) {
+      int index = 0;
+      while (counts[index] == 0) {
+        index++;
+      }
+      min = lowestEquivalentValueFor(index);
+    }
+    if (other.max >= max) {
+      int index = counts.length - 1;
+      while (counts[index] == 0) {
+        index--;
+      }
+      max = highestEquivalentValueFor(index);
+    }
+  }
+
+  private long lowestEquivalentValueFor(int index) {
+    return index == 0 ? 0 : highestEquivalentValueFor(index - 1) + 1;
+  }
+
+  /**
+   * Gets the number of recorded values.
+   */
+  public long count() {
+    return count;
+  }
+
+  @Override
+  public Duration min() {
+    return Duration.ofMillis(min);
+  }
+
+  @Override
+  public Duration max() {
+    return Duration.ofMillis(max);
+  }
+
+  @Override
+  public Duration mean() {
+    return count == 0 ? Duration.ZERO : Duration.ofMillis(Math.round((double) sum / count));
+  }
+
+  @Override
+  public Duration median() {
+    return percentile(50);
+  }
+
+  @Override
+  public Duration perc90() {
+    return percentile(90);
+  }
+
+  @Override
+  public Duration perc95() {
+    return percentile(95);
+  }
+
+  @Override
+  public Duration perc99() {
+    return percentile(99);
+  }
+
+  @Override
+  public Duration percentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException(
+          "Percentile must be between 0 and 100, but " + percentile + " was used");
+    }
+    if (count == 0) {
+      return Duration.ZERO;
+    }
+    long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long accumulated = 0;
+    for (int i = 0; i < counts.length; i++) {
+      accumulated += counts[i];
+      if (accumulated >= countAtPercentile) {
+        return Duration.ofMillis(Math.max(min, Math.min(max, highestEquivalentValueFor(i))));
+      }
+    }
+    return Duration.ofMillis(max);
+  }
+
+}
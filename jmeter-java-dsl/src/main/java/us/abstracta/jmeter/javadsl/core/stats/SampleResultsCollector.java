@@ -0,0 +1,22 @@
+package us.abstracta.jmeter.javadsl.core.stats;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Collects sample results generated while a test plan runs.
+ * <p>
+ * Engines notify registered collectors of each generated sample result, in the thread which
+ * generated it.
+ *
+ * @since 1.4
+ */
+public interface SampleResultsCollector {
+
+  /**
+   * Adds a sample result to collected statistics.
+   *
+   * @param result specifies the sample result to add.
+   */
+  void addSampleResult(SampleResult result);
+
+}
@@ -0,0 +1,76 @@
+package us.abstracta.jmeter.javadsl.core.stats;
+
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+
+/**
+ * Keeps track, in JMeter variables, of the instant when current iteration or request was intended
+ * to start and how late it actually started.
+ * <p>
+ * Elements pacing the load according to a schedule (like arrivals or RPS thread groups) record
+ * this information, so collected statistics can be corrected for coordinated omission: when the
+ * service under test stalls, requests which should have been sent during the stall are delayed,
+ * and their raw sample times do not include the time they waited to be sent. Adding the start lag
+ * to the sample time gives the latency a user arriving at the intended instant would experience.
+ *
+ * @since 1.4
+ */
+public class StartLag {
+
+  /**
+   * Name of the JMeter variable which contains the instant, in epoch milliseconds, when current
+   * iteration or request was scheduled to start.
+   */
+  public static final String SCHEDULED_START_VAR = "arrivalScheduledStart";
+  /**
+   * Name of the JMeter variable which contains the milliseconds elapsed between the instant current
+   * iteration or request was scheduled to start and the instant it actually started.
+   */
+  public static final String START_LAG_VAR = "arrivalStartLag";
+
+  private StartLag() {
+  }
+
+  /**
+   * Records in given variables the scheduled and actual start instants.
+   *
+   * @param vars                 specifies the variables to record the information in.
+   * @param scheduledStartMillis specifies the epoch milliseconds when the iteration or request was
+   *                             scheduled to start.
+   * @param startMillis          specifies the epoch milliseconds when the iteration or request
+   *                             actually started. When it is before the scheduled start, lag is
+   *                             recorded as 0.
+   */
+  public static void record(JMeterVariables vars, long scheduledStartMillis, long startMillis) {
+    vars.put(SCHEDULED_START_VAR, String.valueOf(scheduledStartMillis));
+    vars.put(START_LAG_VAR, String.valueOf(Math.max(0, startMillis - scheduledStartMillis)));
+  }
+
+  /**
+   * Removes from given variables any previously recorded scheduled start and start lag.
+   * <p>
+   * This is required when current iteration or request has no scheduled start, to avoid reusing
+   * the start lag recorded for a previous one.
+   *
+   * @param vars specifies the variables to remove the information from.
+   */
+  public static void clear(JMeterVariables vars) {
+    vars.remove(SCHEDULED_START_VAR);
+    vars.remove(START_LAG_VAR);
+  }
+
+  /**
+   * Gets the start lag recorded in current thread variables.
+   * <p>
+   * This must be invoked in the JMeter thread which generated the sample, which is not the case
+   * when sample results are collected from remote engines.
+   *
+   * @return the start lag in milliseconds, or 0 if no start lag has been recorded.
+   */
+  public static long current() {
+    JMeterVariables vars = JMeterContextService.getContext().getVariables();
+    String lag = vars != null ? vars.get(START_LAG_VAR) : null;
+    return lag != null ? Long.parseLong(lag) : 0;
+  }
+
+}
@@ -19,6 +19,23 @@ public interface StatsSummary {
    */
   void add(SampleResult result);
 
+  /**
+   * Adds all statistics collected by another summary into this one.
+   * <p>
+   * This is useful when statistics are collected in separate summaries (eg: one per thread or per
+   * engine) and a combined view is required.
+   *
+   * @param other specifies the summary to get statistics from. Must be of the same type as this
+   *              one.
+   * @throws UnsupportedOperationException if the implementation does not support merging
+   *                                       summaries.
+   * @since 1.4
+   */
+  default void merge(StatsSummary other) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support merging summaries");
+  }
+
   /**
    * Gets the instant when the first sample started.
    * <p>
@@ -92,4 +109,19 @@ public interface StatsSummary {
    */
   CountMetricSummary sentBytes();
 
+  /**
+   * Gets statistics split in fixed width time buckets.
+   * <p>
+   * This is useful to check how metrics evolved while the test plan run (eg: to detect response
+   * times degradation).
+   *
+   * @return the timeline, or null if timeline collection was not enabled. Check
+   * {@link us.abstracta.jmeter.javadsl.core.engines.EmbeddedJmeterEngine#timeline(Duration, int)}
+   * for enabling it.
+   * @since 1.4
+   */
+  default StatsTimeline timeline() {
+    return null;
+  }
+
 }
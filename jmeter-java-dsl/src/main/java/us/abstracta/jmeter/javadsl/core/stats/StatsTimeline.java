@@ -0,0 +1,257 @@
+package us.abstracta.jmeter.javadsl.core.stats;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Contains statistics of a group of sample results split in fixed width time buckets.
+ * <p>
+ * This allows analyzing how metrics evolved while the test plan run (eg: to detect response times
+ * degradation) without having to write and later process a JTL file.
+ * <p>
+ * Buckets are stored in ring arrays with a fixed maximum number of buckets, so memory usage only
+ * depends on such number and not on the number of collected samples. When a sample for a bucket
+ * beyond the last one arrives and there is no more room, oldest buckets are discarded. Sample
+ * results are assigned to buckets by their start time, and samples older than the oldest kept
+ * bucket are only kept if there is room for their bucket (otherwise they are ignored).
+ * <p>
+ * Sample times in each bucket are kept in a {@link HistogramTimeMetricSummary} with
+ * {@link #BUCKET_TIME_SIGNIFICANT_DIGITS} significant digits, to keep each bucket compact.
+ * <p>
+ * This class is not thread safe. Updates should be externally synchronized.
+ *
+ * @since 1.4
+ */
+public class StatsTimeline {
+
+  /**
+   * Number of significant digits used by sample time histograms of each bucket.
+   */
+  public static final int BUCKET_TIME_SIGNIFICANT_DIGITS = 1;
+
+  private final long bucketWidthMillis;
+  private final int maxBuckets;
+  private final long[] samples;
+  private final long[] errors;
+  private final long[] receivedBytes;
+  private final long[] sentBytes;
+  private final HistogramTimeMetricSummary[] sampleTimes;
+  // absolute index (time / bucket width) of the oldest and newest buckets
+  private long firstBucket = -1;
+  private long lastBucket = -1;
+
+  /**
+   * Creates an empty timeline.
+   *
+   * @param bucketWidth specifies the duration of each bucket. It must be at least 1 millisecond.
+   * @param maxBuckets  specifies the maximum number of buckets to keep. When more buckets are
+   *                    required, oldest ones are discarded.
+   */
+  public StatsTimeline(Duration bucketWidth, int maxBuckets) {
+    if (bucketWidth.toMillis() < 1) {
+      throw new IllegalArgumentException(
+          "Bucket width must be at least 1 millisecond, but " + bucketWidth + " was used");
+    }
+    if (maxBuckets < 1) {
+      throw new IllegalArgumentException(
+          "Max buckets must be at least 1, but " + maxBuckets + " was used");
+    }
+    this.bucketWidthMillis = bucketWidth.toMillis();
+    this.maxBuckets = maxBuckets;
+    samples = new long[maxBuckets];
+    errors = new long[maxBuckets];
+    receivedBytes = new long[maxBuckets];
+    sentBytes = new long[maxBuckets];
+    sampleTimes = new HistogramTimeMetricSummary[maxBuckets];
+  }
+
+  /**
+   * Adds given sample result data to the bucket associated to its start time.
+   *
+   * @param result contains data to include in the timeline.
+   */
+  public void add(SampleResult result) {
+    int slot = slotFor(result.getStartTime() / bucketWidthMillis);
+    if (slot < 0) {
+      return;
+    }
+    samples[slot]++;
+    if (!result.isSuccessful()) {
+      errors[slot]++;
+    }
+    receivedBytes[slot] += result.getBytesAsLong();
+    sentBytes[slot] += result.getSentBytes();
+    sampleTimes[slot].add(result.getTime());
+  }
+
+  private int slotFor(long bucket) {
+    if (firstBucket < 0) {
+      firstBucket = bucket;
+      lastBucket = bucket;
+      return initSlot(bucket);
+    } else if (bucket < firstBucket) {
+      if (lastBucket - bucket >= maxBuckets) {
+        return -1;
+      }
+      while (firstBucket > bucket) {
+        firstBucket--;
+        initSlot(firstBucket);
+      }
+      return slotIndex(bucket);
+    }
+    if (bucket - lastBucket > maxBuckets) {
+      // avoid iterating over buckets which would be discarded anyway
+      lastBucket = bucket - maxBuckets;
+      firstBucket = lastBucket;
+    }
+    while (bucket > lastBucket) {
+      lastBucket++;
+      if (lastBucket - firstBucket >= maxBuckets) {
+        firstBucket++;
+      }
+      initSlot(lastBucket);
+    }
+    return slotIndex(bucket);
+  }
+
+  private int initSlot(long bucket) {
+    int slot = slotIndex(bucket);
+    samples[slot] = 0;
+    errors[slot] = 0;
+    receivedBytes[slot] = 0;
+    sentBytes[slot] = 0;
+    sampleTimes[slot] = new HistogramTimeMetricSummary(BUCKET_TIME_SIGNIFICANT_DIGITS);
+    return slot;
+  }
+
+  private int slotIndex(long bucket) {
+    return (int) (bucket % maxBuckets);
+  }
+
+  /**
+   * Adds all buckets of another timeline into this one.
+   * <p>
+   * Buckets are matched by their time, so both timelines must have the same bucket width. Buckets
+   * which don't fit in this timeline are handled as when adding samples for them.
+   *
+   * @param other specifies the timeline to get statistics from.
+   */
+  public void merge(StatsTimeline other) {
+    if (other.bucketWidthMillis != bucketWidthMillis) {
+      throw new IllegalArgumentException("Can't merge timelines with different bucket widths: "
+          + bucketWidthMillis + "ms and " + other.bucketWidthMillis + "ms");
+    }
+    if (other.firstBucket < 0) {
+      return;
+    }
+    for (long bucket = other.firstBucket; bucket <= other.lastBucket; bucket++) {
+      int otherSlot = other.slotIndex(bucket);
+      int slot = slotFor(bucket);
+      if (slot < 0) {
+        continue;
+      }
+      samples[slot] += other.samples[otherSlot];
+      errors[slot] += other.errors[otherSlot];
+      receivedBytes[slot] += other.receivedBytes[otherSlot];
+      sentBytes[slot] += other.sentBytes[otherSlot];
+      sampleTimes[slot].merge(other.sampleTimes[otherSlot]);
+    }
+  }
+
+  /**
+   * Gets the duration of each bucket.
+   */
+  public Duration bucketWidth() {
+    return Duration.ofMillis(bucketWidthMillis);
+  }
+
+  /**
+   * Gets the kept buckets, ordered by time, from the oldest to the newest one.
+   * <p>
+   * Buckets with no samples between the oldest and newest ones are included as well, so each
+   * bucket start is always separated by {@link #bucketWidth()} from the previous one.
+   */
+  public List<Bucket> buckets() {
+    if (firstBucket < 0) {
+      return Collections.emptyList();
+    }
+    List<Bucket> ret = new ArrayList<>((int) (lastBucket - firstBucket + 1));
+    for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+      int slot = slotIndex(bucket);
+      ret.add(new Bucket(Instant.ofEpochMilli(bucket * bucketWidthMillis), samples[slot],
+          errors[slot], receivedBytes[slot], sentBytes[slot], sampleTimes[slot]));
+    }
+    return ret;
+  }
+
+  /**
+   * Contains statistics of samples started in a given time bucket.
+   */
+  public static class Bucket {
+
+    private final Instant start;
+    private final long samples;
+    private final long errors;
+    private final long receivedBytes;
+    private final long sentBytes;
+    private final TimeMetricSummary sampleTime;
+
+    private Bucket(Instant start, long samples, long errors, long receivedBytes, long sentBytes,
+        TimeMetricSummary sampleTime) {
+      this.start = start;
+      this.samples = samples;
+      this.errors = errors;
+      this.receivedBytes = receivedBytes;
+      this.sentBytes = sentBytes;
+      this.sampleTime = sampleTime;
+    }
+
+    /**
+     * Gets the instant when the bucket starts.
+     */
+    public Instant start() {
+      return start;
+    }
+
+    /**
+     * Gets the number of samples, both failing and passing, started in the bucket.
+     */
+    public long samples() {
+      return samples;
+    }
+
+    /**
+     * Gets the number of failing samples started in the bucket.
+     */
+    public long errors() {
+      return errors;
+    }
+
+    /**
+     * Gets the number of bytes received by samples started in the bucket.
+     */
+    public long receivedBytes() {
+      return receivedBytes;
+    }
+
+    /**
+     * Gets the number of bytes sent by samples started in the bucket.
+     */
+    public long sentBytes() {
+      return sentBytes;
+    }
+
+    /**
+     * Gets metrics for time spent in samples started in the bucket.
+     */
+    public TimeMetricSummary sampleTime() {
+      return sampleTime;
+    }
+
+  }
+
+}
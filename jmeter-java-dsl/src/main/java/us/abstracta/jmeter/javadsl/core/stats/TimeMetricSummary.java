@@ -55,4 +55,55 @@ public interface TimeMetricSummary {
    */
   Duration perc99();
 
+  /**
+   * Gets the given percentile of samples times.
+   * <p>
+   * The given percent of samples took less or equal to the returned value. For example,
+   * <pre>percentile(99.9)</pre> returns the value for which 99.9% of samples took less or equal
+   * time.
+   * <p>
+   * Implementations which don't keep the distribution of collected values (eg: summaries provided
+   * by remote services) only support 50, 90, 95 and 99 percentiles.
+   *
+   * @param percentile specifies the percentile to get, from 0 to 100.
+   * @return the requested percentile.
+   * @throws UnsupportedOperationException when the implementation does not support the requested
+   *                                       percentile.
+   * @since 1.4
+   */
+  default Duration percentile(double percentile) {
+    if (percentile == 50) {
+      return median();
+    } else if (percentile == 90) {
+      return perc90();
+    } else if (percentile == 95) {
+      return perc95();
+    } else if (percentile == 99) {
+      return perc99();
+    } else {
+      throw new UnsupportedOperationException(
+          "Percentile " + percentile + " is not supported by " + getClass().getSimpleName());
+    }
+  }
+
+  /**
+   * Gets metrics for the same values corrected for coordinated omission.
+   * <p>
+   * When load is paced according to a schedule (eg: with an arrivals or RPS thread group) and the
+   * service under test stalls, requests that should have been sent during the stall are delayed,
+   * and their raw times don't include such delay. Corrected values add to each raw value the time
+   * elapsed between the instant the iteration or request was scheduled to start and the instant
+   * it actually started, reflecting the latency that users arriving at the intended instants would
+   * experience.
+   *
+   * @return the corrected metrics, or null if correction was not enabled or is not supported by the
+   * implementation.
+   * @see us.abstracta.jmeter.javadsl.core.engines.EmbeddedJmeterEngine#correctCoordinatedOmission()
+   * @see StartLag
+   * @since 1.4
+   */
+  default TimeMetricSummary corrected() {
+    return null;
+  }
+
 }
@@ -12,11 +12,13 @@ import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.apache.jmeter.util.JSR223TestElement;
+import org.apache.jorphan.collections.HashTree;
 import org.slf4j.Logger;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCall;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallContext;
 import us.abstracta.jmeter.javadsl.codegeneration.SingleTestElementCallBuilder;
 import us.abstracta.jmeter.javadsl.codegeneration.TestElementParamBuilder;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
 import us.abstracta.jmeter.javadsl.core.util.DslScriptBuilder;
 import us.abstracta.jmeter.javadsl.core.util.DslScriptBuilder.DslScript;
 import us.abstracta.jmeter.javadsl.core.util.DslScriptBuilder.DslScriptVars;
@@ -32,6 +34,7 @@ public abstract class DslJsr223TestElement<T extends DslJsr223TestElement<T>> ex
   protected static final String DEFAULT_LANGUAGE = "groovy";
 
   protected DslScriptBuilder scriptBuilder;
+  protected Jsr223Script<?> lambdaScript;
   protected String language = DEFAULT_LANGUAGE;
 
   public DslJsr223TestElement(String name, String defaultName, String script) {
@@ -42,6 +45,7 @@ public abstract class DslJsr223TestElement<T extends DslJsr223TestElement<T>> ex
   public DslJsr223TestElement(String name, String defaultName, Jsr223Script<?> script,
       Class<?> varsClass, Map<String, String> varsNameMapping) {
     super(name != null ? name : defaultName, TestBeanGUI.class);
+    this.lambdaScript = script;
     this.scriptBuilder = new DslScriptBuilder(script, varsClass,
         mapWithEntry("label", "Label", varsNameMapping));
   }
@@ -57,6 +61,35 @@ public abstract class DslJsr223TestElement<T extends DslJsr223TestElement<T>> ex
     return (T) this;
   }
 
+  @Override
+  public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
+    /*
+     when running in current JVM we can directly invoke the lambda, avoiding the overhead of
+     running it through groovy script engine.
+     */
+    if (lambdaScript != null && context.isLocalExecution()) {
+      LambdaScriptTestElement<?> lambdaElement = buildLambdaTestElement();
+      if (lambdaElement != null) {
+        return parent.add(configureTestElement(lambdaElement, name, null));
+      }
+    }
+    return super.buildTreeUnder(parent, context);
+  }
+
+  /**
+   * Builds a test element which directly invokes the Java lambda specified as script.
+   * <p>
+   * This is only used when the test plan runs in current JVM and the script has been specified as
+   * Java lambda.
+   *
+   * @return the test element to use or null if this element does not support directly invoking
+   * the lambda, in which case the lambda is run through a groovy script.
+   * @since 1.4
+   */
+  protected LambdaScriptTestElement<?> buildLambdaTestElement() {
+    return null;
+  }
+
   @Override
   protected TestElement buildTestElement() {
     JSR223TestElement ret = buildJsr223TestElement();
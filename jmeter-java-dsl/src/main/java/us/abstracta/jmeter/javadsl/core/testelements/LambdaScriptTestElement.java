@@ -0,0 +1,84 @@
+package us.abstracta.jmeter.javadsl.core.testelements;
+
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import us.abstracta.jmeter.javadsl.core.util.DslScriptBuilder.DslScript;
+import us.abstracta.jmeter.javadsl.core.util.DslScriptBuilder.DslScriptVars;
+
+/**
+ * Test element which directly invokes a Java lambda, instead of running it through a JSR223
+ * script engine.
+ * <p>
+ * This is used by JSR223 DSL elements defined with Java lambdas when the test plan runs in current
+ * JVM, avoiding the script engine, JMeter property lookup and reflective vars instantiation of the
+ * groovy script generated by {@link us.abstracta.jmeter.javadsl.core.util.DslScriptBuilder}.
+ * <p>
+ * The lambda is not stored as a JMeter property, so these test elements can't be saved or executed
+ * in a different JVM.
+ *
+ * @param <V> is the type of the variables provided to the lambda.
+ * @since 1.4
+ */
+public abstract class LambdaScriptTestElement<V extends DslScriptVars> extends
+    AbstractTestElement {
+
+  private transient DslScript<V, ?> script;
+  private transient Logger log;
+
+  public DslScript<V, ?> getScript() {
+    return script;
+  }
+
+  public void setScript(DslScript<V, ?> script) {
+    this.script = script;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Object clone() {
+    LambdaScriptTestElement<V> ret = (LambdaScriptTestElement<V>) super.clone();
+    ret.script = script;
+    return ret;
+  }
+
+  /**
+   * Gets the logger provided to the lambda.
+   * <p>
+   * The logger uses same name as the one provided by equivalent JSR223 element, to keep same log
+   * configuration and output.
+   *
+   * @return the logger to provide to the lambda.
+   */
+  protected Logger getScriptLogger() {
+    if (log == null) {
+      log = LoggerFactory.getLogger(getJsr223ClassName() + "." + getName());
+    }
+    return log;
+  }
+
+  /**
+   * Gets the name of the JSR223 test element class which this element replaces.
+   *
+   * @return the JSR223 test element class name.
+   */
+  protected abstract String getJsr223ClassName();
+
+  protected Object runScript(V vars) throws Exception {
+    return script.run(vars);
+  }
+
+  /**
+   * Runs the script logging any exception, as JSR223 pre and post processors do.
+   *
+   * @param vars specifies the variables to provide to the lambda.
+   */
+  protected void runScriptLoggingErrors(V vars) {
+    try {
+      runScript(vars);
+    } catch (Exception e) {
+      getScriptLogger().error("Problem in JSR223 script, {}", getName(), e);
+    }
+  }
+
+}
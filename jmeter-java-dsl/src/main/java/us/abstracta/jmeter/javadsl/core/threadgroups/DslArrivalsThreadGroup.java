@@ -0,0 +1,215 @@
+package us.abstracta.jmeter.javadsl.core.threadgroups;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.apache.jmeter.testelement.property.TestElementProperty;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.openmodel.OpenModelThreadGroup;
+import org.apache.jmeter.threads.openmodel.OpenModelThreadGroupController;
+import org.apache.jmeter.threads.openmodel.gui.OpenModelThreadGroupGui;
+import org.apache.jorphan.collections.HashTree;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
+import us.abstracta.jmeter.javadsl.core.threadgroups.arrivalsthreadgroup.ArrivalsSchedule;
+import us.abstracta.jmeter.javadsl.core.threadgroups.arrivalsthreadgroup.ArrivalsSchedule.Ramp;
+import us.abstracta.jmeter.javadsl.core.threadgroups.arrivalsthreadgroup.LocalArrivalsThreadGroup;
+import us.abstracta.jmeter.javadsl.core.util.SingleSeriesTimelinePanel;
+
+/**
+ * Configures a thread group which starts iterations at a given rate (arrivals per second),
+ * independently of how long previous iterations take (open model).
+ * <p>
+ * Unlike {@link RpsThreadGroup}, which adapts number of threads and pauses to reach a given
+ * throughput (and so reduces the load when the service under test slows down), this thread group
+ * starts each iteration at a precomputed instant, evenly distributed according to configured rate.
+ * Each iteration runs in a new JMeter thread (virtual user) taken from a pool of threads.
+ * <p>
+ * When the test plan runs in current JVM (eg: with
+ * {@link us.abstracta.jmeter.javadsl.core.engines.EmbeddedJmeterEngine}), each iteration gets the
+ * {@link LocalArrivalsThreadGroup#SCHEDULED_START_VAR} and
+ * {@link LocalArrivalsThreadGroup#START_LAG_VAR} variables, with the instant the iteration was
+ * scheduled to start and how many milliseconds it started after that instant. Check
+ * {@link LocalArrivalsThreadGroup} for more details. In other cases (like when saving test plan to
+ * JMX or running it in a remote engine), JMeter Open Model Thread Group is used, which does not
+ * support {@link #maxThreads(int)} nor provides these variables.
+ *
+ * @since 1.4
+ */
+public class DslArrivalsThreadGroup extends BaseThreadGroup<DslArrivalsThreadGroup> {
+
+  protected final List<Ramp> ramps = new ArrayList<>();
+  protected double lastRps = 0;
+  protected int maxThreads = Integer.MAX_VALUE;
+
+  public DslArrivalsThreadGroup(String name) {
+    super(name != null ? name : "Arrivals Thread Group", OpenModelThreadGroupGui.class,
+        Collections.emptyList());
+  }
+
+  /**
+   * Allows ramping up or down arrivals rate with a given duration.
+   * <p>
+   * The thread group starts with a rate of 0 arrivals per second, and linearly changes the rate to
+   * reach the given one at the end of the given duration.
+   * <p>
+   * You can use this method multiple times in a thread group and in conjunction with
+   * {@link #holdFor(Duration)} and {@link #rampToAndHold(double, Duration, Duration)} to elaborate
+   * complex test plan profiles.
+   * <p>
+   * Eg:
+   * <pre>{@code
+   *  arrivalsThreadGroup()
+   *    .maxThreads(500)
+   *    .rampTo(10, Duration.ofSeconds(10))
+   *    .rampToAndHold(20, Duration.ofSeconds(5), Duration.ofSeconds(10))
+   *    .rampTo(0, Duration.ofSeconds(5))
+   *    .children(...)
+   * }</pre>
+   *
+   * @param rps      specifies the arrivals (iterations) per second to reach after the given
+   *                 period. Has to be a finite number >=0.
+   * @param duration duration taken to reach the given rate and move to the next stage or end the
+   *                 test plan. Has to be >=0.
+   * @return the thread group for further configuration and usage.
+   */
+  public DslArrivalsThreadGroup rampTo(double rps, Duration duration) {
+    if (rps < 0 || !Double.isFinite(rps)) {
+      throw new IllegalArgumentException("RPS must be >=0");
+    }
+    validateDuration(duration);
+    if (!Duration.ZERO.equals(duration)) {
+      ramps.add(new Ramp(lastRps, rps, duration));
+    }
+    lastRps = rps;
+    return this;
+  }
+
+  /**
+   * Specifies to keep current arrivals rate for a given duration.
+   * <p>
+   * This method is usually used in combination with {@link #rampTo(double, Duration)} to define the
+   * profile of the test plan.
+   *
+   * @param duration duration to hold the current rate until moving to next stage or ending the test
+   *                 plan. Has to be >=0.
+   * @return the thread group for further configuration and usage.
+   * @see #rampTo(double, Duration)
+   */
+  public DslArrivalsThreadGroup holdFor(Duration duration) {
+    validateDuration(duration);
+    if (!Duration.ZERO.equals(duration)) {
+      ramps.add(new Ramp(lastRps, lastRps, duration));
+    }
+    return this;
+  }
+
+  private static void validateDuration(Duration duration) {
+    if (duration == null || duration.isNegative()) {
+      throw new IllegalArgumentException("Duration must be >=0");
+    }
+  }
+
+  /**
+   * Simply combines {@link #rampTo(double, Duration)} and {@link #holdFor(Duration)} which are
+   * usually used in combination.
+   *
+   * @param rps          target arrivals (iterations) per second to ramp up/down to.
+   * @param rampDuration duration taken to reach the given rate.
+   * @param holdDuration duration to hold the given rate after the ramp, until moving to next stage
+   *                     or ending the test plan.
+   * @return the thread group for further configuration and usage.
+   * @see #rampTo(double, Duration)
+   * @see #holdFor(Duration)
+   */
+  public DslArrivalsThreadGroup rampToAndHold(double rps, Duration rampDuration,
+      Duration holdDuration) {
+    return rampTo(rps, rampDuration)
+        .holdFor(holdDuration);
+  }
+
+  /**
+   * Specifies the maximum number of iterations to run concurrently.
+   * <p>
+   * When all threads are busy, new arrivals wait for a thread to be released. Scheduled instants of
+   * following arrivals are not affected, and the time each arrival waited is reported in
+   * {@link LocalArrivalsThreadGroup#START_LAG_VAR} variable. If you have iterations that take R
+   * seconds and need to reach T arrivals per second, then you should set this value to at least
+   * R*T.
+   * <p>
+   * This setting is only supported when the test plan runs in current JVM. Otherwise, it is
+   * ignored.
+   *
+   * @param maxThreads specifies the maximum number of threads to use by the thread group. By
+   *                   default, is unbounded.
+   * @return the thread group for further configuration and usage.
+   */
+  public DslArrivalsThreadGroup maxThreads(int maxThreads) {
+    if (maxThreads <= 0) {
+      throw new IllegalArgumentException("Max threads must be >0");
+    }
+    this.maxThreads = maxThreads;
+    return this;
+  }
+
+  @Override
+  public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
+    if (!context.isLocalExecution()) {
+      return super.buildTreeUnder(parent, context);
+    }
+    HashTree ret = parent.add(new LocalArrivalsThreadGroup(
+        (AbstractThreadGroup) buildConfiguredTestElement(), new ArrivalsSchedule(ramps),
+        maxThreads));
+    children.forEach(c -> context.buildChild(c, ret));
+    return ret;
+  }
+
+  @Override
+  protected AbstractThreadGroup buildThreadGroup() {
+    OpenModelThreadGroup ret = new OpenModelThreadGroup();
+    ret.setScheduleString(buildScheduleString());
+    ret.setProperty(
+        new TestElementProperty(AbstractThreadGroup.MAIN_CONTROLLER,
+            new OpenModelThreadGroupController()));
+    return ret;
+  }
+
+  private String buildScheduleString() {
+    StringBuilder ret = new StringBuilder();
+    ramps.forEach(r -> {
+      if (ret.length() == 0) {
+        ret.append(buildRate(r.fromRps));
+      }
+      ret.append(" even_arrivals(")
+          .append(r.duration.toMillis())
+          .append(" ms) ")
+          .append(buildRate(r.toRps));
+    });
+    return ret.toString();
+  }
+
+  private String buildRate(double rps) {
+    return String.format(Locale.US, "rate(%s/sec)", rps);
+  }
+
+  /**
+   * Shows a graph with a timeline of planned arrivals rate for this thread group.
+   * <p>
+   * The graph will be displayed in a popup window.
+   * <p>
+   * This method is provided mainly to ease test plan designing when working with complex arrivals
+   * profiles (several ramps and holds).
+   *
+   * @since 1.4
+   */
+  public void showTimeline() {
+    SingleSeriesTimelinePanel chart = new SingleSeriesTimelinePanel("Arrivals per second");
+    if (!ramps.isEmpty()) {
+      chart.add(0, ramps.get(0).fromRps);
+      ramps.forEach(r -> chart.add(r.duration.toMillis(), r.toRps));
+    }
+    showAndWaitFrameWith(chart, name + " timeline", 800, 300);
+  }
+
+}
@@ -7,16 +7,23 @@ import java.util.Collections;
 import java.util.List;
 import kg.apc.jmeter.threads.UltimateThreadGroup;
 import kg.apc.jmeter.threads.UltimateThreadGroupGui;
+import org.apache.jmeter.control.LoopController;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.StringProperty;
 import org.apache.jmeter.threads.AbstractThreadGroup;
 import org.apache.jmeter.threads.ThreadGroup;
 import org.apache.jmeter.threads.gui.ThreadGroupGui;
+import org.apache.jorphan.collections.HashTree;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCall;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallBuilder;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallContext;
 import us.abstracta.jmeter.javadsl.codegeneration.TestElementParamBuilder;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
+import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.LocalDefaultThreadGroup;
 import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.SimpleThreadGroupHelper;
 import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.Stage;
+import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.ThreadsPool;
+import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.ThreadsSchedule;
 import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.UltimateThreadGroupHelper;
 import us.abstracta.jmeter.javadsl.core.util.SingleSeriesTimelinePanel;
 
@@ -33,6 +40,8 @@ public class DslDefaultThreadGroup extends BaseThreadGroup<DslDefaultThreadGroup
 
   private static final Integer ZERO = 0;
   protected final List<Stage> stages = new ArrayList<>();
+  protected boolean virtualThreads;
+  protected boolean precomputedSchedule;
 
   public DslDefaultThreadGroup(String name, int threads, int iterations,
       List<ThreadGroupChild> children) {
@@ -337,6 +346,93 @@ public class DslDefaultThreadGroup extends BaseThreadGroup<DslDefaultThreadGroup
         .holdFor(holdDuration);
   }
 
+  /**
+   * Specifies to run each thread of the thread group in a Java virtual thread.
+   * <p>
+   * Virtual threads are much cheaper than platform threads in memory and context switching, which
+   * allows running a bigger number of threads (virtual users) in a single JVM when samplers spend
+   * most of their time blocked waiting for responses (eg: HTTP or JDBC samplers).
+   * <p>
+   * Virtual threads require Java 21 or later. When running in a previous Java version, platform
+   * threads are used instead and a warning is logged. Take into consideration as well that some
+   * JMeter elements (and used libraries) use synchronized blocks or native calls, which may pin
+   * virtual threads to platform threads, limiting the benefits of virtual threads.
+   * <p>
+   * Virtual threads are only used when the test plan runs in current JVM (eg: with {@link
+   * us.abstracta.jmeter.javadsl.core.engines.EmbeddedJmeterEngine}). In other cases (like when
+   * saving test plan to JMX or running it in a remote engine), a JMeter default thread group is
+   * used.
+   *
+   * @return the thread group for further configuration or usage.
+   * @throws UnsupportedOperationException when the test plan is built and the thread group
+   *                                       defines a profile which can't be mapped to JMeter
+   *                                       default thread group (eg: several ramps), unless
+   *                                       {@link #precomputedSchedule()} is enabled.
+   * @since 1.4
+   */
+  public DslDefaultThreadGroup virtualThreads() {
+    return virtualThreads(true);
+  }
+
+  /**
+   * Same as {@link #virtualThreads()} but allowing to enable or disable it.
+   * <p>
+   * This is helpful when usage of virtual threads depends on some condition (eg: a property).
+   *
+   * @param enable specifies to enable or disable virtual threads usage. By default, it is disabled.
+   * @return the thread group for further configuration or usage.
+   * @see #virtualThreads()
+   * @since 1.4
+   */
+  public DslDefaultThreadGroup virtualThreads(boolean enable) {
+    virtualThreads = enable;
+    return this;
+  }
+
+  /**
+   * Specifies to precompute start and stop instants of every thread and start them from a single
+   * scheduler thread, instead of relying on JMeter thread groups per thread delays.
+   * <p>
+   * JMeter thread groups (and Ultimate Thread Group plugin used for complex profiles) round times
+   * to seconds and make each thread sleep until its start instant after creating it. With a big
+   * number of threads, thread creation (which clones all thread group children) competes with
+   * running threads and ramps drift from the planned profile. With this option, start instants
+   * keep milliseconds precision, threads are created in a background thread ahead of their start
+   * instants, and a single scheduler thread starts them at their planned instants. Ramp downs stop
+   * last started threads first, as Ultimate Thread Group does.
+   * <p>
+   * This option can be combined with {@link #virtualThreads()}, which in such case supports any
+   * thread group profile.
+   * <p>
+   * Precomputed schedules are only used when the test plan runs in current JVM (eg: with {@link
+   * us.abstracta.jmeter.javadsl.core.engines.EmbeddedJmeterEngine}). In other cases (like when
+   * saving test plan to JMX or running it in a remote engine), JMeter default thread group or
+   * Ultimate Thread Group is used.
+   *
+   * @return the thread group for further configuration or usage.
+   * @throws UnsupportedOperationException when the test plan is built and the thread group uses
+   *                                       JMeter expressions for threads, durations or iterations.
+   * @see ThreadsSchedule
+   * @since 1.4
+   */
+  public DslDefaultThreadGroup precomputedSchedule() {
+    return precomputedSchedule(true);
+  }
+
+  /**
+   * Same as {@link #precomputedSchedule()} but allowing to enable or disable it.
+   *
+   * @param enable specifies to enable or disable precomputed schedule usage. By default, it is
+   *               disabled.
+   * @return the thread group for further configuration or usage.
+   * @see #precomputedSchedule()
+   * @since 1.4
+   */
+  public DslDefaultThreadGroup precomputedSchedule(boolean enable) {
+    precomputedSchedule = enable;
+    return this;
+  }
+
   /**
    * Allows specifying thread group children elements (samplers, listeners, post processors, etc.).
    * <p>
@@ -354,6 +450,56 @@ public class DslDefaultThreadGroup extends BaseThreadGroup<DslDefaultThreadGroup
     return super.children(children);
   }
 
+  @Override
+  public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
+    ThreadsPool threadsPool = context.isLocalExecution()
+        ? (ThreadsPool) context.getRoot().getEntry(ThreadsPool.class.getName())
+        : null;
+    if (!virtualThreads && !precomputedSchedule && threadsPool == null
+        || !context.isLocalExecution()) {
+      return super.buildTreeUnder(parent, context);
+    }
+    LocalDefaultThreadGroup threadGroup =
+        precomputedSchedule || threadsPool != null && !isSimpleThreadGroup()
+            ? buildScheduledThreadGroup()
+            : buildSimpleLocalThreadGroup();
+    if (threadsPool != null && !virtualThreads) {
+      threadGroup.setThreadsPool(threadsPool);
+    }
+    HashTree ret = parent.add(threadGroup);
+    children.forEach(c -> context.buildChild(c, ret));
+    return ret;
+  }
+
+  private LocalDefaultThreadGroup buildSimpleLocalThreadGroup() {
+    // threads pool uses a precomputed schedule for other profiles, so only virtual threads get here
+    if (!isSimpleThreadGroup()) {
+      throw new UnsupportedOperationException(
+          "Virtual threads are only supported in thread groups with a single ramp and hold, "
+              + "unless precomputedSchedule() is used. "
+              + "If you need this please create an issue in Github repository.");
+    }
+    return new LocalDefaultThreadGroup((ThreadGroup) buildConfiguredTestElement());
+  }
+
+  private LocalDefaultThreadGroup buildScheduledThreadGroup() {
+    ThreadsSchedule schedule = new ThreadsSchedule(stages);
+    LocalDefaultThreadGroup ret = new LocalDefaultThreadGroup(schedule, virtualThreads);
+    LoopController loopController = new LoopController();
+    if (schedule.iterations() != null) {
+      loopController.setLoops(schedule.iterations());
+    } else {
+      loopController.setLoops(-1);
+      loopController.setContinueForever(true);
+    }
+    ret.setSamplerController(loopController);
+    ret.setIsSameUserOnNextIteration(false);
+    ret.setProperty(
+        new StringProperty(AbstractThreadGroup.ON_SAMPLE_ERROR, sampleErrorAction.propertyValue()));
+    configureTestElement(ret, name, ThreadGroupGui.class);
+    return ret;
+  }
+
   @Override
   public AbstractThreadGroup buildThreadGroup() {
     if (isSimpleThreadGroup()) {
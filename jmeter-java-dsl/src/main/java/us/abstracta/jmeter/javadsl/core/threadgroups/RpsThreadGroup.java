@@ -18,6 +18,7 @@ import org.apache.jmeter.testelement.property.CollectionProperty;
 import org.apache.jmeter.threads.AbstractThreadGroup;
 import org.apache.jorphan.collections.HashTree;
 import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
+import us.abstracta.jmeter.javadsl.core.threadgroups.rpsthreadgroup.LocalVariableThroughputTimer;
 import us.abstracta.jmeter.javadsl.core.util.JmeterFunction;
 import us.abstracta.jmeter.javadsl.core.util.SingleSeriesTimelinePanel;
 
@@ -37,6 +38,11 @@ import us.abstracta.jmeter.javadsl.core.util.SingleSeriesTimelinePanel;
  * <p>
  * By default, the thread group will control the number of requests per second, but this can be
  * changed to iterations per second with {@link #counting(EventType)}.
+ * <p>
+ * When the test plan runs in current JVM, each request (or iteration) gets the instant it was
+ * intended to start according to configured profile, and how late it actually started, in
+ * {@link us.abstracta.jmeter.javadsl.core.stats.StartLag} variables. This allows correcting
+ * collected statistics for coordinated omission. Check {@link LocalVariableThroughputTimer}.
  *
  * @since 0.26
  */
@@ -243,7 +249,7 @@ public class RpsThreadGroup extends BaseThreadGroup<RpsThreadGroup> {
   public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
     HashTree ret = parent.add(buildConfiguredTestElement());
     HashTree timerParent = counting == EventType.ITERATIONS ? ret.add(buildTestAction()) : ret;
-    timerParent.add(buildTimer());
+    timerParent.add(buildTimer(context.isLocalExecution()));
     children.forEach(c -> context.buildChild(c, ret));
     return ret;
   }
@@ -256,8 +262,10 @@ public class RpsThreadGroup extends BaseThreadGroup<RpsThreadGroup> {
     return ret;
   }
 
-  private TestElement buildTimer() {
-    VariableThroughputTimer ret = new VariableThroughputTimer();
+  private TestElement buildTimer(boolean localExecution) {
+    VariableThroughputTimer ret = localExecution
+        ? new LocalVariableThroughputTimer()
+        : new VariableThroughputTimer();
     ret.setData(buildTimerSchedulesData());
     configureTestElement(ret, buildTimerName(timerId++), VariableThroughputTimerGui.class);
     return ret;
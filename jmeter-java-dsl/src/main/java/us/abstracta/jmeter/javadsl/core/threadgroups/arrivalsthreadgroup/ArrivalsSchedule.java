@@ -0,0 +1,139 @@
+package us.abstracta.jmeter.javadsl.core.threadgroups.arrivalsthreadgroup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Specifies the instants at which iterations of an arrivals thread group should start.
+ * <p>
+ * The schedule is defined by a list of ramps, each one linearly changing the arrivals rate from a
+ * given value to another in a given duration. Arrivals are evenly distributed according to the
+ * rate, this is, the k-th arrival (starting from 0) happens at the instant when the accumulated
+ * number of expected arrivals (the integral of the rate) reaches k + 0.5.
+ * <p>
+ * Since instants are computed from the schedule start and not from previous arrivals, any delay in
+ * processing one arrival does not affect following ones.
+ *
+ * @since 1.4
+ */
+public class ArrivalsSchedule {
+
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final List<Ramp> ramps;
+
+  public ArrivalsSchedule(List<Ramp> ramps) {
+    this.ramps = Collections.unmodifiableList(new ArrayList<>(ramps));
+  }
+
+  /**
+   * Specifies a linear change in arrivals rate over a given duration.
+   */
+  public static class Ramp {
+
+    public final double fromRps;
+    public final double toRps;
+    public final Duration duration;
+
+    public Ramp(double fromRps, double toRps, Duration duration) {
+      this.fromRps = fromRps;
+      this.toRps = toRps;
+      this.duration = duration;
+    }
+
+    private double durationSeconds() {
+      return duration.toNanos() / NANOS_PER_SECOND;
+    }
+
+    private double arrivals() {
+      return (fromRps + toRps) / 2 * durationSeconds();
+    }
+
+    /*
+     Solves fromRps * t + (toRps - fromRps) / (2 * duration) * t^2 = arrivals for t. This form of
+     the quadratic formula avoids dividing by the acceleration, which may be 0.
+     */
+    private double secondsToReach(double arrivals) {
+      double acceleration = (toRps - fromRps) / (2 * durationSeconds());
+      return 2 * arrivals / (fromRps + Math.sqrt(
+          Math.max(0, fromRps * fromRps + 4 * acceleration * arrivals)));
+    }
+
+  }
+
+  public List<Ramp> ramps() {
+    return ramps;
+  }
+
+  public Duration duration() {
+    return ramps.stream()
+        .map(r -> r.duration)
+        .reduce(Duration.ZERO, Duration::plus);
+  }
+
+  /**
+   * Gets the total number of arrivals generated by the schedule.
+   *
+   * @return the number of arrivals.
+   */
+  public long arrivalsCount() {
+    return Math.round(ramps.stream().mapToDouble(Ramp::arrivals).sum());
+  }
+
+  /**
+   * Provides the instants of all arrivals, in order, as nanoseconds from the schedule start.
+   *
+   * @return an iterator over the arrivals instants.
+   */
+  public PrimitiveIterator.OfLong arrivalOffsetsNanos() {
+    return new ArrivalsIterator();
+  }
+
+  private class ArrivalsIterator implements PrimitiveIterator.OfLong {
+
+    private int rampIndex;
+    private double rampStartArrivals;
+    private long rampStartNanos;
+    private long arrival;
+    private long nextOffsetNanos = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (nextOffsetNanos >= 0) {
+        return true;
+      }
+      double target = arrival + 0.5;
+      while (rampIndex < ramps.size()) {
+        Ramp ramp = ramps.get(rampIndex);
+        double rampArrivals = ramp.arrivals();
+        if (target <= rampStartArrivals + rampArrivals) {
+          double seconds = ramp.secondsToReach(target - rampStartArrivals);
+          nextOffsetNanos = rampStartNanos
+              + Math.min(Math.round(seconds * NANOS_PER_SECOND), ramp.duration.toNanos());
+          return true;
+        }
+        rampStartArrivals += rampArrivals;
+        rampStartNanos += ramp.duration.toNanos();
+        rampIndex++;
+      }
+      return false;
+    }
+
+    @Override
+    public long nextLong() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      long ret = nextOffsetNanos;
+      nextOffsetNanos = -1;
+      arrival++;
+      return ret;
+    }
+
+  }
+
+}
@@ -0,0 +1,317 @@
+package us.abstracta.jmeter.javadsl.core.threadgroups.arrivalsthreadgroup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterThread;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.ListenerNotifier;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import us.abstracta.jmeter.javadsl.core.stats.StartLag;
+
+/**
+ * JMeter thread group which starts iterations at the instants specified by an
+ * {@link ArrivalsSchedule}, independently of how long previous iterations take (open model).
+ * <p>
+ * A single scheduler thread waits for each arrival instant and hands the iteration to a pool of
+ * threads, which runs it in a new JMeter thread (virtual user) executing a single iteration of the
+ * thread group children. When the pool reaches its maximum number of threads, arrivals wait for a
+ * thread to be released, but their scheduled instants are kept. This way, following arrivals are
+ * not delayed by previous ones, and the difference between scheduled and actual start instants of
+ * each iteration can be reported.
+ * <p>
+ * Each iteration gets the {@link #SCHEDULED_START_VAR} and {@link #START_LAG_VAR} JMeter variables
+ * with the instant (in epoch milliseconds) the iteration was scheduled to start, and the
+ * milliseconds it started after that instant (excluding the time spent creating the JMeter thread,
+ * which clones the thread group tree). This allows including them in every sample of the
+ * iteration (eg: with {@link us.abstracta.jmeter.javadsl.core.listeners.JtlWriter#withVariables})
+ * to correct latency for coordinated omission. Check {@link StartLag} for more details.
+ * <p>
+ * Schedule and maximum number of threads are kept when the thread group is cloned.
+ * <p>
+ * This test element can only be used in test plans running in current JVM, since it is not
+ * included in JMeter distributions.
+ *
+ * @since 1.4
+ */
+public class LocalArrivalsThreadGroup extends AbstractThreadGroup {
+
+  /**
+   * Name of the JMeter variable which contains the instant, in epoch milliseconds, when current
+   * iteration was scheduled to start.
+   *
+   * @see StartLag#SCHEDULED_START_VAR
+   */
+  public static final String SCHEDULED_START_VAR = StartLag.SCHEDULED_START_VAR;
+  /**
+   * Name of the JMeter variable which contains the milliseconds elapsed between the instant current
+   * iteration was scheduled to start and the instant it actually started.
+   *
+   * @see StartLag#START_LAG_VAR
+   */
+  public static final String START_LAG_VAR = StartLag.START_LAG_VAR;
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalArrivalsThreadGroup.class);
+  private static final int WAIT_TO_DIE = JMeterUtils.getPropDefault("jmeterengine.threadstop.wait",
+      5 * 1000);
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private transient ArrivalsSchedule schedule;
+  private transient int maxThreads;
+  private final transient Map<JMeterThread, Thread> activeThreads = new ConcurrentHashMap<>();
+  private transient volatile boolean running;
+  private transient Thread scheduler;
+  private transient ThreadPoolExecutor executor;
+  private transient Semaphore availableThreads;
+
+  public LocalArrivalsThreadGroup() {
+    this(new ArrivalsSchedule(Collections.emptyList()), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a thread group with given schedule and maximum number of threads.
+   *
+   * @param schedule   specifies the instants to start iterations at.
+   * @param maxThreads specifies the maximum number of iterations to run concurrently.
+   */
+  public LocalArrivalsThreadGroup(ArrivalsSchedule schedule, int maxThreads) {
+    this.schedule = schedule;
+    this.maxThreads = maxThreads;
+  }
+
+  /**
+   * Creates a thread group with same configuration as the given thread group and given schedule
+   * and maximum number of threads.
+   * <p>
+   * The sampler controller is replaced by one running a single iteration, since each arrival runs
+   * in a new JMeter thread.
+   *
+   * @param threadGroup specifies the thread group to copy properties from.
+   * @param schedule    specifies the instants to start iterations at.
+   * @param maxThreads  specifies the maximum number of iterations to run concurrently.
+   */
+  public LocalArrivalsThreadGroup(AbstractThreadGroup threadGroup, ArrivalsSchedule schedule,
+      int maxThreads) {
+    this(schedule, maxThreads);
+    PropertyIterator it = threadGroup.propertyIterator();
+    while (it.hasNext()) {
+      setProperty(it.next());
+    }
+    LoopController controller = new LoopController();
+    controller.setLoops(1);
+    setSamplerController(controller);
+  }
+
+  @Override
+  public Object clone() {
+    LocalArrivalsThreadGroup ret = (LocalArrivalsThreadGroup) super.clone();
+    // schedule is immutable, so it can be shared
+    ret.schedule = schedule;
+    ret.maxThreads = maxThreads;
+    return ret;
+  }
+
+  @Override
+  public void start(int groupNum, ListenerNotifier notifier, ListedHashTree threadGroupTree,
+      StandardJMeterEngine engine) {
+    running = true;
+    AtomicInteger threadNumber = new AtomicInteger();
+    availableThreads = new Semaphore(maxThreads);
+    executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), r -> {
+      Thread ret = new Thread(r, getName() + " " + groupNum + "-pool-"
+          + threadNumber.incrementAndGet());
+      ret.setDaemon(true);
+      return ret;
+    });
+    JMeterVariables variables = JMeterContextService.getContext().getVariables();
+    LOG.info("Starting {} arrivals for group {} in {}.", schedule.arrivalsCount(), getName(),
+        schedule.duration());
+    scheduler = new Thread(
+        () -> scheduleArrivals(groupNum, notifier, threadGroupTree, engine, variables),
+        getName() + " " + groupNum + "-scheduler");
+    scheduler.setDaemon(true);
+    scheduler.start();
+    LOG.info("Started thread group number {}", groupNum);
+  }
+
+  private void scheduleArrivals(int groupNum, ListenerNotifier notifier,
+      ListedHashTree threadGroupTree, StandardJMeterEngine engine, JMeterVariables variables) {
+    long startNanos = System.nanoTime();
+    long startMillis = System.currentTimeMillis();
+    PrimitiveIterator.OfLong arrivals = schedule.arrivalOffsetsNanos();
+    int arrivalNum = 0;
+    while (running && arrivals.hasNext()) {
+      long offsetNanos = arrivals.nextLong();
+      if (!awaitArrival(startNanos + offsetNanos)) {
+        break;
+      }
+      if (!acquireThread()) {
+        break;
+      }
+      long scheduledMillis = startMillis + TimeUnit.NANOSECONDS.toMillis(offsetNanos);
+      int threadNum = arrivalNum++;
+      executor.execute(() -> {
+        // start is taken before cloning the tree, so cloning cost is not reported as start lag
+        long arrivalStartMillis = System.currentTimeMillis();
+        try {
+          runArrival(makeThread(engine, this, notifier, groupNum, threadNum,
+              cloneTree(threadGroupTree), variables), scheduledMillis, arrivalStartMillis);
+        } finally {
+          availableThreads.release();
+        }
+      });
+    }
+    executor.shutdown();
+  }
+
+  private boolean awaitArrival(long arrivalNanos) {
+    long waitNanos;
+    while (running && (waitNanos = arrivalNanos - System.nanoTime()) > 0) {
+      // we park in bounded intervals to react in time to stop requests
+      LockSupport.parkNanos(Math.min(waitNanos, MAX_PARK_NANOS));
+    }
+    return running;
+  }
+
+  /*
+   when all threads are busy we wait for one to be released, without changing the scheduled instant
+   of the arrival, so the delay is reported as start lag.
+   */
+  private boolean acquireThread() {
+    try {
+      while (running) {
+        if (availableThreads.tryAcquire(MAX_PARK_NANOS, TimeUnit.NANOSECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  private void runArrival(JMeterThread jmThread, long scheduledMillis, long startMillis) {
+    if (!running) {
+      return;
+    }
+    JMeterVariables arrivalVars = new JMeterVariables();
+    StartLag.record(arrivalVars, scheduledMillis, startMillis);
+    jmThread.putVariables(arrivalVars);
+    activeThreads.put(jmThread, Thread.currentThread());
+    try {
+      jmThread.run();
+    } finally {
+      activeThreads.remove(jmThread);
+    }
+  }
+
+  @Override
+  public JMeterThread addNewThread(int delay, StandardJMeterEngine engine) {
+    throw new UnsupportedOperationException(
+        "Arrivals thread group does not support adding threads");
+  }
+
+  @Override
+  public boolean stopThread(String threadName, boolean now) {
+    for (Map.Entry<JMeterThread, Thread> entry : activeThreads.entrySet()) {
+      if (entry.getKey().getThreadName().equals(threadName)) {
+        stopThread(entry.getKey(), entry.getValue(), now);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void stopThread(JMeterThread jmThread, Thread thread, boolean interrupt) {
+    jmThread.stop();
+    jmThread.interrupt();
+    if (interrupt && thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  @Override
+  public void threadFinished(JMeterThread thread) {
+    activeThreads.remove(thread);
+  }
+
+  @Override
+  public void tellThreadsToStop() {
+    running = false;
+    activeThreads.forEach((jmThread, thread) -> stopThread(jmThread, thread, true));
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    activeThreads.keySet().forEach(JMeterThread::stop);
+  }
+
+  @Override
+  public int numberOfActiveThreads() {
+    return activeThreads.size();
+  }
+
+  @Override
+  public boolean verifyThreadsStopped() {
+    joinScheduler(WAIT_TO_DIE);
+    if (scheduler != null && scheduler.isAlive()) {
+      LOG.warn("Thread won't exit: {}", scheduler.getName());
+      return false;
+    }
+    if (!awaitExecutorTermination(WAIT_TO_DIE)) {
+      LOG.warn("Threads won't exit in thread group: {}", getName());
+      return false;
+    }
+    return true;
+  }
+
+  private void joinScheduler(long millis) {
+    if (scheduler == null) {
+      return;
+    }
+    try {
+      scheduler.join(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean awaitExecutorTermination(long millis) {
+    try {
+      return executor == null || executor.awaitTermination(millis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @Override
+  public void waitThreadsStopped() {
+    while (scheduler != null && scheduler.isAlive()) {
+      joinScheduler(WAIT_TO_DIE);
+    }
+    while (!awaitExecutorTermination(WAIT_TO_DIE)) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,476 @@
+package us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterThread;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.ListenerNotifier;
+import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.apache.jorphan.util.JMeterStopTestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.ThreadsPool.PooledThread;
+import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.ThreadsSchedule.ThreadSlot;
+
+/**
+ * JMeter thread group which reimplements JMeter default thread group, taking care of starting
+ * its own threads.
+ * <p>
+ * This allows running each thread group thread (virtual user) in a Java virtual thread, which
+ * JMeter default thread group does not support. Virtual threads are much cheaper than platform
+ * threads in memory and context switching, which allows running a bigger number of virtual users
+ * in a single JVM when samplers spend most of their time blocked (eg: waiting for HTTP responses).
+ * <p>
+ * This thread group supports same settings as JMeter default thread group (threads, ramp-up,
+ * iterations, duration, delay and delayed thread creation). Since this project is compiled for
+ * Java 8, virtual threads are created through reflection. When running in a JVM which does not
+ * support virtual threads (Java versions before 21), this thread group uses platform threads
+ * instead.
+ * <p>
+ * Additionally, this thread group can run a {@link ThreadsSchedule}, which contains precomputed
+ * start and end instants of every thread for complex profiles (several ramps and holds). In such
+ * case, a background thread creates JMeter threads (cloning the thread group tree) some time ahead
+ * of their start instants, and a single scheduler thread waits for each start instant and starts
+ * the already created thread. This keeps thread creation cost out of the starting path, and keeps
+ * starts aligned to precomputed instants with milliseconds precision, even with a big number of
+ * threads.
+ * <p>
+ * Finally, this thread group can run its threads in platform threads taken from a
+ * {@link ThreadsPool}, which allows reusing already started threads across thread groups.
+ * <p>
+ * Schedule, virtual threads and threads pool settings are kept when the thread group is cloned.
+ * <p>
+ * This test element can only be used in test plans running in current JVM, since it is not
+ * included in JMeter distributions.
+ *
+ * @since 1.4
+ */
+public class LocalDefaultThreadGroup extends ThreadGroup {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalDefaultThreadGroup.class);
+  private static final int WAIT_TO_DIE = JMeterUtils.getPropDefault("jmeterengine.threadstop.wait",
+      5 * 1000);
+  private static final NamedThreadFactory THREAD_FACTORY = buildNamedThreadFactory();
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long CREATION_LEAD_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final transient ConcurrentHashMap<JMeterThread, Thread> allThreads =
+      new ConcurrentHashMap<>();
+  private transient ThreadsSchedule schedule;
+  private transient boolean virtualThreads = true;
+  private transient ThreadsPool threadsPool;
+  private transient volatile boolean running;
+  private transient int groupNumber;
+  private transient ListenerNotifier notifier;
+  private transient ListedHashTree threadGroupTree;
+  private transient Thread creator;
+  private transient Thread scheduler;
+
+  public LocalDefaultThreadGroup() {
+  }
+
+  /**
+   * Creates a thread group with same configuration as the given thread group.
+   *
+   * @param threadGroup specifies the thread group to copy properties from.
+   */
+  public LocalDefaultThreadGroup(ThreadGroup threadGroup) {
+    PropertyIterator it = threadGroup.propertyIterator();
+    while (it.hasNext()) {
+      setProperty(it.next());
+    }
+  }
+
+  /**
+   * Creates a thread group which starts and stops threads according to the given schedule.
+   * <p>
+   * Thread group settings related to threads, ramp-up, duration and delay are ignored in favor of
+   * the schedule, but the sampler controller (iterations) and the rest of settings still apply.
+   *
+   * @param schedule       specifies the precomputed instants to start and stop each thread at.
+   * @param virtualThreads specifies to run threads in virtual threads when supported by the JVM,
+   *                       or in platform threads otherwise.
+   * @since 1.4
+   */
+  public LocalDefaultThreadGroup(ThreadsSchedule schedule, boolean virtualThreads) {
+    this.schedule = schedule;
+    this.virtualThreads = virtualThreads;
+    setNumThreads(schedule.threads().size());
+  }
+
+  /**
+   * Specifies to run threads in platform threads taken from the given pool, instead of creating
+   * new threads.
+   * <p>
+   * When set, virtual threads are not used. Required threads are reserved in the pool when the
+   * thread group starts.
+   *
+   * @param threadsPool specifies the pool to take threads from.
+   * @since 1.4
+   */
+  public void setThreadsPool(ThreadsPool threadsPool) {
+    this.threadsPool = threadsPool;
+  }
+
+  @Override
+  public Object clone() {
+    LocalDefaultThreadGroup ret = (LocalDefaultThreadGroup) super.clone();
+    // schedule and pool are shared since schedule is immutable and pool is a test plan element
+    ret.schedule = schedule;
+    ret.virtualThreads = virtualThreads;
+    ret.threadsPool = threadsPool;
+    return ret;
+  }
+
+  private static NamedThreadFactory buildNamedThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Method nameMethod = builderClass.getMethod("name", String.class);
+      Method unstartedMethod = builderClass.getMethod("unstarted", Runnable.class);
+      return (runnable, name) -> {
+        try {
+          return (Thread) unstartedMethod.invoke(nameMethod.invoke(builder, name), runnable);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+          throw new IllegalStateException("Could not create virtual thread", e);
+        }
+      };
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Checks if current JVM supports virtual threads.
+   *
+   * @return true if virtual threads are supported, false otherwise.
+   */
+  public static boolean isVirtualThreadsSupported() {
+    return THREAD_FACTORY != null;
+  }
+
+  @Override
+  public void start(int groupNum, ListenerNotifier notifier, ListedHashTree threadGroupTree,
+      StandardJMeterEngine engine) {
+    running = true;
+    groupNumber = groupNum;
+    this.notifier = notifier;
+    this.threadGroupTree = threadGroupTree;
+    int numThreads = getNumThreads();
+    if (threadsPool != null) {
+      threadsPool.reserve(numThreads);
+    } else if (virtualThreads && !isVirtualThreadsSupported()) {
+      LOG.warn("Virtual threads are not supported by current JVM (requires Java 21 or later). "
+          + "Using platform threads for thread group {}.", getName());
+    }
+    if (schedule != null) {
+      startSchedule(engine);
+      return;
+    }
+    LOG.info("Starting {} threads for group {}. Ramp up = {}.", numThreads, getName(),
+        getRampUp());
+    JMeterVariables variables = JMeterContextService.getContext().getVariables();
+    if (getPropertyAsBoolean(DELAYED_START)) {
+      // as JMeter default thread group does, threads are created at their start instants
+      creator = new Thread(() -> startThreads(engine, variables, true),
+          getName() + " " + groupNumber + "-creator");
+      creator.setDaemon(true);
+      creator.start();
+    } else {
+      startThreads(engine, variables, false);
+    }
+    LOG.info("Started thread group number {}", groupNumber);
+  }
+
+  private void startThreads(StandardJMeterEngine engine, JMeterVariables variables,
+      boolean delayedStartup) {
+    int numThreads = getNumThreads();
+    float perThreadDelayMillis = (float) getRampUp() * 1000 / numThreads;
+    long startNanos = System.nanoTime();
+    long startMillis = System.currentTimeMillis();
+    long groupDelayMillis = getScheduler() ? getDelay() * 1000 : 0;
+    for (int threadNum = 0; running && threadNum < numThreads; threadNum++) {
+      long threadDelayMillis = Math.round(threadNum * perThreadDelayMillis);
+      if (delayedStartup && !awaitInstant(
+          startNanos + TimeUnit.MILLISECONDS.toNanos(groupDelayMillis + threadDelayMillis))) {
+        break;
+      }
+      // we consider elapsed time to keep ramp-up aligned with wall clock
+      long delayMillis = delayedStartup
+          ? 0
+          : threadDelayMillis - (System.currentTimeMillis() - startMillis);
+      startNewThread(engine, threadNum, variables, startMillis, (int) Math.max(0, delayMillis));
+    }
+  }
+
+  private JMeterThread startNewThread(StandardJMeterEngine engine, int threadNum,
+      JMeterVariables variables, long startMillis, int delayMillis) {
+    JMeterThread jmThread = makeThread(engine, this, notifier, groupNumber, threadNum,
+        cloneTree(threadGroupTree), variables);
+    scheduleThread(jmThread, startMillis);
+    jmThread.setInitialDelay(delayMillis);
+    startThread(jmThread, newThread(jmThread));
+    return jmThread;
+  }
+
+  private Thread newThread(JMeterThread jmThread) {
+    if (threadsPool != null) {
+      return threadsPool.acquire();
+    }
+    return virtualThreads && THREAD_FACTORY != null
+        ? THREAD_FACTORY.newThread(jmThread, jmThread.getThreadName())
+        : new Thread(jmThread, jmThread.getThreadName());
+  }
+
+  private void startThread(JMeterThread jmThread, Thread thread) {
+    allThreads.put(jmThread, thread);
+    if (thread instanceof PooledThread) {
+      ((PooledThread) thread).execute(jmThread, jmThread.getThreadName());
+    } else {
+      thread.start();
+    }
+  }
+
+  private void startSchedule(StandardJMeterEngine engine) {
+    LOG.info("Starting {} threads for group {} with precomputed schedule.", getNumThreads(),
+        getName());
+    JMeterVariables variables = JMeterContextService.getContext().getVariables();
+    long startNanos = System.nanoTime();
+    long startMillis = System.currentTimeMillis();
+    BlockingQueue<ScheduledThread> createdThreads = new LinkedBlockingQueue<>();
+    creator = new Thread(
+        () -> createScheduledThreads(engine, variables, startNanos, startMillis, createdThreads),
+        getName() + " " + groupNumber + "-creator");
+    creator.setDaemon(true);
+    scheduler = new Thread(() -> startScheduledThreads(startNanos, createdThreads),
+        getName() + " " + groupNumber + "-scheduler");
+    scheduler.setDaemon(true);
+    creator.start();
+    scheduler.start();
+    LOG.info("Started thread group number {}", groupNumber);
+  }
+
+  private void createScheduledThreads(StandardJMeterEngine engine, JMeterVariables variables,
+      long startNanos, long startMillis, BlockingQueue<ScheduledThread> createdThreads) {
+    Iterator<ThreadSlot> slots = schedule.threads().iterator();
+    for (int threadNum = 0; running && slots.hasNext(); threadNum++) {
+      ThreadSlot slot = slots.next();
+      long slotStartNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(slot.startMillis());
+      // threads are created ahead of time to keep creation cost out of start instants
+      if (!awaitInstant(slotStartNanos - CREATION_LEAD_NANOS)) {
+        break;
+      }
+      JMeterThread jmThread = makeThread(engine, this, notifier, groupNumber, threadNum,
+          cloneTree(threadGroupTree), variables);
+      if (slot.endMillis() != ThreadsSchedule.NO_END) {
+        jmThread.setStartTime(startMillis + slot.startMillis());
+        jmThread.setEndTime(startMillis + slot.endMillis());
+        jmThread.setScheduled(true);
+      }
+      createdThreads.add(new ScheduledThread(slotStartNanos, jmThread, newThread(jmThread)));
+    }
+  }
+
+  private boolean awaitInstant(long instantNanos) {
+    long waitNanos;
+    while (running && (waitNanos = instantNanos - System.nanoTime()) > 0) {
+      // we park in bounded intervals to react in time to stop requests
+      LockSupport.parkNanos(Math.min(waitNanos, MAX_PARK_NANOS));
+    }
+    return running;
+  }
+
+  private void startScheduledThreads(long startNanos, BlockingQueue<ScheduledThread> threads) {
+    int pendingThreads = getNumThreads();
+    try {
+      while (running && pendingThreads > 0) {
+        ScheduledThread next = threads.poll(MAX_PARK_NANOS, TimeUnit.NANOSECONDS);
+        if (next == null) {
+          if (!creator.isAlive() && threads.isEmpty()) {
+            break;
+          }
+          continue;
+        }
+        if (!awaitInstant(next.startNanos)) {
+          break;
+        }
+        startThread(next.jmThread, next.thread);
+        pendingThreads--;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    LOG.debug("Started {} scheduled threads in {} ms for group {}",
+        getNumThreads() - pendingThreads,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), getName());
+  }
+
+  private void scheduleThread(JMeterThread thread, long startMillis) {
+    if (!getScheduler()) {
+      return;
+    }
+    if (getDelay() < 0) {
+      throw new JMeterStopTestException(
+          "Invalid delay " + getDelay() + " set in Thread Group: " + getName());
+    }
+    thread.setStartTime(getDelay() * 1000 + startMillis);
+    if (getDuration() <= 0) {
+      throw new JMeterStopTestException(
+          "Invalid duration " + getDuration() + " set in Thread Group: " + getName());
+    }
+    thread.setEndTime(getDuration() * 1000 + thread.getStartTime());
+    thread.setScheduled(true);
+  }
+
+  @Override
+  public JMeterThread addNewThread(int delay, StandardJMeterEngine engine) {
+    int numThreads;
+    synchronized (allThreads) {
+      numThreads = getNumThreads();
+      setNumThreads(numThreads + 1);
+    }
+    JMeterThread ret = startNewThread(engine, numThreads,
+        JMeterContextService.getContext().getVariables(), System.currentTimeMillis(), delay);
+    JMeterContextService.addTotalThreads(1);
+    return ret;
+  }
+
+  @Override
+  public boolean stopThread(String threadName, boolean now) {
+    for (Map.Entry<JMeterThread, Thread> entry : allThreads.entrySet()) {
+      if (entry.getKey().getThreadName().equals(threadName)) {
+        stopThread(entry.getKey(), entry.getValue(), now);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void stopThread(JMeterThread jmThread, Thread thread, boolean interrupt) {
+    jmThread.stop();
+    // interrupt current sampler if possible
+    jmThread.interrupt();
+    if (interrupt && thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  @Override
+  public void threadFinished(JMeterThread thread) {
+    allThreads.remove(thread);
+  }
+
+  @Override
+  public void tellThreadsToStop(boolean now) {
+    running = false;
+    allThreads.forEach((jmThread, thread) -> stopThread(jmThread, thread, now));
+  }
+
+  @Override
+  public void tellThreadsToStop() {
+    tellThreadsToStop(true);
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    allThreads.keySet().forEach(JMeterThread::stop);
+  }
+
+  @Override
+  public int numberOfActiveThreads() {
+    return allThreads.size();
+  }
+
+  @Override
+  public boolean verifyThreadsStopped() {
+    boolean ret = true;
+    for (Thread thread : new Thread[]{creator, scheduler}) {
+      if (thread != null) {
+        ret &= verifyThreadStopped(thread);
+      }
+    }
+    for (Thread thread : allThreads.values()) {
+      ret &= verifyThreadStopped(thread);
+    }
+    return ret;
+  }
+
+  private boolean verifyThreadStopped(Thread thread) {
+    if (isThreadRunning(thread)) {
+      joinThread(thread);
+      if (isThreadRunning(thread)) {
+        LOG.warn("Thread won't exit: {}", thread.getName());
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isThreadRunning(Thread thread) {
+    // pooled threads are kept alive after running the JMeter thread, so we check their task instead
+    return thread instanceof PooledThread ? ((PooledThread) thread).isBusy() : thread.isAlive();
+  }
+
+  private void joinThread(Thread thread) {
+    try {
+      if (thread instanceof PooledThread) {
+        ((PooledThread) thread).awaitIdle(WAIT_TO_DIE);
+      } else {
+        thread.join(WAIT_TO_DIE);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void waitThreadsStopped() {
+    // scheduler might still have threads to start, so we need to wait for it first
+    for (Thread thread : new Thread[]{creator, scheduler}) {
+      while (thread != null && thread.isAlive()) {
+        joinThread(thread);
+      }
+    }
+    while (!allThreads.isEmpty()) {
+      for (Thread thread : allThreads.values()) {
+        while (isThreadRunning(thread)) {
+          joinThread(thread);
+        }
+      }
+    }
+  }
+
+  private static class ScheduledThread {
+
+    private final long startNanos;
+    private final JMeterThread jmThread;
+    private final Thread thread;
+
+    private ScheduledThread(long startNanos, JMeterThread jmThread, Thread thread) {
+      this.startNanos = startNanos;
+      this.jmThread = jmThread;
+      this.thread = thread;
+    }
+
+  }
+
+  private interface NamedThreadFactory {
+
+    Thread newThread(Runnable runnable, String name);
+
+  }
+
+}
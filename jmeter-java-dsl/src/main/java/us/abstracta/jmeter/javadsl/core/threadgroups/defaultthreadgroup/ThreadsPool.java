@@ -0,0 +1,229 @@
+package us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup;
+
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.apache.jmeter.testelement.TestStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of platform threads which are created when thread groups start and reused by
+ * {@link LocalDefaultThreadGroup}s to run their JMeter threads (virtual users).
+ * <p>
+ * This avoids creating and destroying platform threads for every thread group in test plans with
+ * several thread groups, which is particularly relevant in test plans with sequential thread groups
+ * (eg: warmup, then steady load, then spike) where each thread group would otherwise spawn all its
+ * threads again. Each thread group reserves its threads when it starts, which pre-starts only the
+ * threads required to have enough idle threads for all the running thread groups, so the pool ends
+ * up with as many threads as the biggest thread group (or the sum of all thread groups, when thread
+ * groups run in parallel). Threads are stopped when the test plan ends.
+ * <p>
+ * Take into consideration that JMeter HTTP samplers close the connections of each JMeter thread
+ * when it ends, so connections are not reused across thread groups even if their platform threads
+ * are. Use {@link us.abstracta.jmeter.javadsl.http.DslHttpDefaults#sharedConnectionPool(int, int)}
+ * when connections need to be kept (eg: to avoid TLS handshakes of all threads on each phase).
+ * <p>
+ * This test element can only be used in test plans running in current JVM, since it is not
+ * included in JMeter distributions.
+ *
+ * @since 1.4
+ */
+public class ThreadsPool extends AbstractTestElement implements TestStateListener, NoThreadClone {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ThreadsPool.class);
+
+  private final transient Deque<PooledThread> idleThreads = new ConcurrentLinkedDeque<>();
+  private final transient Queue<PooledThread> allThreads = new ConcurrentLinkedQueue<>();
+  private final transient AtomicInteger threadNumber = new AtomicInteger();
+  private final transient AtomicInteger reservedThreads = new AtomicInteger();
+  private transient volatile boolean running = true;
+
+  /**
+   * Reserves threads for a starting thread group, pre-starting the ones which are not available in
+   * the pool.
+   * <p>
+   * Threads released by finished thread groups are reused, so sequential thread groups only
+   * pre-start threads when they require more threads than previous ones.
+   *
+   * @param threads specifies the number of threads used by the thread group.
+   */
+  public synchronized void reserve(int threads) {
+    int missingThreads = reservedThreads.addAndGet(threads) - idleThreads.size();
+    for (int i = 0; i < missingThreads; i++) {
+      idleThreads.addLast(startThread());
+    }
+    if (missingThreads > 0) {
+      LOG.info("Started {} pooled threads", missingThreads);
+    }
+  }
+
+  /**
+   * Gets an idle thread from the pool, or creates a new one if there is no idle thread.
+   * <p>
+   * The returned thread is not returned to the pool until a task is executed in it through
+   * {@link PooledThread#execute(Runnable, String)}.
+   *
+   * @return the thread to run a task in.
+   */
+  public PooledThread acquire() {
+    reservedThreads.updateAndGet(r -> Math.max(0, r - 1));
+    PooledThread ret = idleThreads.pollFirst();
+    return ret != null ? ret : startThread();
+  }
+
+  private PooledThread startThread() {
+    PooledThread ret = new PooledThread(this, "pool-" + threadNumber.incrementAndGet());
+    ret.setDaemon(true);
+    allThreads.add(ret);
+    ret.start();
+    return ret;
+  }
+
+  private void release(PooledThread thread) {
+    /*
+     we add last to rotate through idle threads, otherwise a short-lived JMeter thread could return
+     its thread to the pool before the next one is started, leaving reserved threads unused.
+     */
+    idleThreads.addLast(thread);
+  }
+
+  @Override
+  public void testStarted() {
+    running = true;
+  }
+
+  @Override
+  public void testStarted(String host) {
+    testStarted();
+  }
+
+  @Override
+  public void testEnded() {
+    running = false;
+    reservedThreads.set(0);
+    allThreads.forEach(PooledThread::wakeUp);
+    allThreads.clear();
+    idleThreads.clear();
+  }
+
+  @Override
+  public void testEnded(String host) {
+    testEnded();
+  }
+
+  /**
+   * Thread of a {@link ThreadsPool} which runs tasks one after the other.
+   */
+  public static class PooledThread extends Thread {
+
+    private final ThreadsPool pool;
+    private final String poolName;
+    private final Object lock = new Object();
+    private Runnable task;
+    private String taskName;
+    private boolean busy;
+
+    private PooledThread(ThreadsPool pool, String name) {
+      super(name);
+      this.pool = pool;
+      this.poolName = name;
+    }
+
+    /**
+     * Runs the given task in this thread.
+     *
+     * @param task specifies the task to run.
+     * @param name specifies the name to use for the thread while running the task.
+     */
+    public void execute(Runnable task, String name) {
+      synchronized (lock) {
+        this.task = task;
+        this.taskName = name;
+        busy = true;
+        lock.notifyAll();
+      }
+    }
+
+    /**
+     * Allows checking if the thread has been given a task which has not yet finished.
+     *
+     * @return true if the thread is running a task, false otherwise.
+     */
+    public boolean isBusy() {
+      synchronized (lock) {
+        return busy;
+      }
+    }
+
+    /**
+     * Waits for current task, if any, to finish.
+     *
+     * @param millis maximum number of milliseconds to wait.
+     * @throws InterruptedException if current thread is interrupted while waiting.
+     */
+    public void awaitIdle(long millis) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + millis;
+      synchronized (lock) {
+        long remaining;
+        while (busy && (remaining = deadline - System.currentTimeMillis()) > 0) {
+          lock.wait(remaining);
+        }
+      }
+    }
+
+    private void wakeUp() {
+      synchronized (lock) {
+        lock.notifyAll();
+      }
+    }
+
+    @Override
+    public void run() {
+      Runnable current;
+      while ((current = awaitTask()) != null) {
+        setName(taskName);
+        try {
+          current.run();
+        } catch (Throwable e) {
+          LOG.error("Problem running task in pooled thread {}", taskName, e);
+        } finally {
+          // clear any interruption set while stopping the task
+          Thread.interrupted();
+          setName(poolName);
+          synchronized (lock) {
+            task = null;
+            /*
+             thread is released before marking it as idle, so next thread group (which starts when
+             all threads are idle) finds it in the pool.
+             */
+            if (pool.running) {
+              pool.release(this);
+            }
+            busy = false;
+            lock.notifyAll();
+          }
+        }
+      }
+    }
+
+    private Runnable awaitTask() {
+      synchronized (lock) {
+        while (task == null && pool.running) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            // interruptions are only expected while stopping tasks, so we just keep waiting
+          }
+        }
+        return task;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,120 @@
+package us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Contains the precomputed start and end instants of every thread required to run a thread group
+ * profile defined by a list of {@link Stage}s.
+ * <p>
+ * On each ramp up, thread starts are evenly distributed in the ramp duration (first thread starting
+ * at the beginning of the ramp), and on each ramp down, thread ends are evenly distributed in the
+ * ramp duration (last thread ending at the end of the ramp). As JMeter Ultimate Thread Group does,
+ * ramp downs stop the last started threads first. Instants keep milliseconds precision, instead of
+ * seconds used by JMeter thread groups.
+ *
+ * @since 1.4
+ */
+public class ThreadsSchedule {
+
+  /**
+   * Used as end offset of threads which run until they complete their iterations.
+   */
+  public static final long NO_END = -1;
+
+  private final List<ThreadSlot> threads;
+  private final Integer iterations;
+
+  /**
+   * Start and end of a given thread, in milliseconds since the thread group start.
+   */
+  public static class ThreadSlot {
+
+    private final long startMillis;
+    private long endMillis = NO_END;
+
+    private ThreadSlot(long startMillis) {
+      this.startMillis = startMillis;
+    }
+
+    public long startMillis() {
+      return startMillis;
+    }
+
+    public long endMillis() {
+      return endMillis;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + startMillis + ", " + endMillis + "]";
+    }
+
+  }
+
+  /**
+   * Computes the schedule for the given stages.
+   *
+   * @param stages specifies the stages of the thread group profile. All stages must have fixed
+   *               values (no JMeter expressions) and only the last one may specify iterations
+   *               instead of a duration.
+   * @throws UnsupportedOperationException when some stage uses JMeter expressions.
+   */
+  public ThreadsSchedule(List<Stage> stages) {
+    List<ThreadSlot> slots = new ArrayList<>();
+    Deque<ThreadSlot> running = new ArrayDeque<>();
+    long offsetMillis = 0;
+    Integer stagesIterations = null;
+    for (Stage stage : stages) {
+      if (!stage.isFixedStage()) {
+        throw new UnsupportedOperationException(
+            "Precomputed schedules are not supported for thread groups using JMeter expressions "
+                + "in thread counts, durations or iterations.");
+      }
+      int stageThreads = (int) stage.threadCount();
+      long durationMillis = stage.duration() != null
+          ? ((Duration) stage.duration()).toMillis()
+          : 0;
+      int diff = stageThreads - running.size();
+      for (int i = 0; i < diff; i++) {
+        ThreadSlot slot = new ThreadSlot(offsetMillis + durationMillis * i / diff);
+        slots.add(slot);
+        running.push(slot);
+      }
+      for (int i = 1; i <= -diff; i++) {
+        running.pop().endMillis = offsetMillis + durationMillis * i / -diff;
+      }
+      offsetMillis += durationMillis;
+      if (stage.iterations() != null) {
+        stagesIterations = (Integer) stage.iterations();
+      }
+    }
+    if (stagesIterations == null) {
+      for (ThreadSlot slot : running) {
+        slot.endMillis = offsetMillis;
+      }
+    }
+    threads = Collections.unmodifiableList(slots);
+    iterations = stagesIterations;
+  }
+
+  /**
+   * Gets the threads to run, ordered by start instant.
+   */
+  public List<ThreadSlot> threads() {
+    return threads;
+  }
+
+  /**
+   * Gets the number of iterations each thread runs, or null if threads iterate until their end
+   * instant.
+   */
+  public Integer iterations() {
+    return iterations;
+  }
+
+}
@@ -0,0 +1,72 @@
+package us.abstracta.jmeter.javadsl.core.threadgroups.rpsthreadgroup;
+
+import java.lang.reflect.Field;
+import kg.apc.jmeter.timers.VariableThroughputTimer;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import us.abstracta.jmeter.javadsl.core.stats.StartLag;
+
+/**
+ * Throughput Shaping Timer which additionally records, for each timed event (request or
+ * iteration), the instant it was intended to start according to the configured RPS schedule, and
+ * how late it actually started.
+ * <p>
+ * Throughput Shaping Timer releases, in each second, events at evenly spaced slots according to
+ * the RPS of the second, and drops the slots it was not able to fill when the second ends (instead
+ * of catching up in following seconds). So, each timed event is intended to start at the slot it
+ * fills: the start of the second plus the slot offset in the second. When threads are not enough
+ * to keep up with the schedule (eg: due to a stall in the service under test), events start later
+ * than intended, and the lag is recorded in {@link StartLag} variables of the thread which runs
+ * the event, so collected statistics can be corrected for coordinated omission. When no slot
+ * applies to a timed event (eg: the timer is stopping the test), any previously recorded start
+ * lag is removed.
+ * <p>
+ * This test element can only be used in test plans running in current JVM, since it is not
+ * included in JMeter distributions.
+ *
+ * @since 1.4
+ */
+public class LocalVariableThroughputTimer extends VariableThroughputTimer {
+
+  // Throughput Shaping Timer does not expose its slots, so they are got from its private state
+  private static final Field SECOND_START_MILLIS = findTimerField("time");
+  private static final Field SECOND_SENT_COUNT = findTimerField("cntSent");
+  private static final Field SLOT_MILLIS = findTimerField("msecPerReq");
+  private static final Field STOPPING = findTimerField("stopping");
+
+  private static Field findTimerField(String name) {
+    try {
+      Field ret = VariableThroughputTimer.class.getDeclaredField(name);
+      ret.setAccessible(true);
+      return ret;
+    } catch (NoSuchFieldException e) {
+      throw new IllegalStateException("Unsupported Throughput Shaping Timer version", e);
+    }
+  }
+
+  @Override
+  public synchronized long delay() {
+    long ret = super.delay();
+    /*
+     since this method holds the timer monitor, timer state still reflects the slot filled by
+     this event, which is the last one counted in the second.
+     */
+    JMeterVariables vars = JMeterContextService.getContext().getVariables();
+    try {
+      double secondStartMillis = SECOND_START_MILLIS.getDouble(this);
+      long sentCount = SECOND_SENT_COUNT.getLong(this);
+      double slotMillis = SLOT_MILLIS.getDouble(this);
+      if (STOPPING.getBoolean(this) || secondStartMillis <= 0 || sentCount <= 0
+          || Double.isNaN(slotMillis) || Double.isInfinite(slotMillis)) {
+        StartLag.clear(vars);
+      } else {
+        StartLag.record(vars, (long) (secondStartMillis + (sentCount - 1) * slotMillis),
+            System.currentTimeMillis() + ret);
+      }
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+    return ret;
+  }
+
+}
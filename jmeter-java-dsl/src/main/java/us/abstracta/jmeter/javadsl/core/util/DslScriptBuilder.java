@@ -2,11 +2,17 @@ package us.abstracta.jmeter.javadsl.core.util;
 
 import java.lang.reflect.Field;
 import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
@@ -92,6 +98,15 @@ public class DslScriptBuilder {
 
   public abstract static class DslScriptVars {
 
+    private static final String PARENT_KEY = "parent";
+    private static final String[] PREV_MAP_KEYS = {"label", "timestamp", "successful",
+        "threadName", "threadsCount", "threadGroupSize", "sampleMillis", "connectionMillis",
+        "latencyMillis", "sentBytes", "receivedBytes", "request", "response"};
+    private static final String[] PREV_MAP_WITH_PARENT_KEYS = {"label", "timestamp", PARENT_KEY,
+        "successful", "threadName", "threadsCount", "threadGroupSize", "sampleMillis",
+        "connectionMillis", "latencyMillis", "sentBytes", "receivedBytes", "request",
+        "response"};
+
     public final SampleResult prev;
     public final JMeterContext ctx;
     public final JMeterVariables vars;
@@ -112,15 +127,53 @@ public class DslScriptBuilder {
 
     /**
      * Builds a map from last sample result to ease visualization and debugging.
+     * <p>
+     * The map contains same entries as {@link #prevMetadata()}, {@link #prevMetrics()}, and
+     * {@code request} and {@code response} entries with {@link #prevRequest()} and
+     * {@link #prevResponse()} values. Each value is only calculated when first accessed, so
+     * building the map is cheap even when it is barely used or the last sample result has big
+     * request or response bodies. The map is unmodifiable.
      *
      * @return map from last sample result.
      */
     public Map<String, Object> prevMap() {
-      Map<String, Object> ret = prevMetadata();
-      ret.putAll(prevMetrics());
-      ret.put("request", prevRequest());
-      ret.put("response", prevResponse());
-      return ret;
+      return new LazyMap(prev.getParent() != null ? PREV_MAP_WITH_PARENT_KEYS : PREV_MAP_KEYS,
+          this::prevValue);
+    }
+
+    private Object prevValue(String key) {
+      switch (key) {
+        case "label":
+          return prev.getSampleLabel();
+        case "timestamp":
+          return Instant.ofEpochMilli(prev.getTimeStamp());
+        case PARENT_KEY:
+          return prev.getParent().getSampleLabel();
+        case "successful":
+          return prev.isSuccessful();
+        case "threadName":
+          return prev.getThreadName();
+        case "threadsCount":
+          return prev.getAllThreads();
+        case "threadGroupSize":
+          return prev.getGroupThreads();
+        case "sampleMillis":
+          return prev.getTime();
+        case "connectionMillis":
+          return prev.getConnectTime();
+        case "latencyMillis":
+          return prev.getLatency();
+        case "sentBytes":
+          return prev.getSentBytes();
+        case "receivedBytes":
+          return prev.getBytesAsLong();
+        case "request":
+          return prevRequest();
+        case "response":
+          return prevResponse();
+        default:
+          return null;
+      }
     }
 
     /**
@@ -135,7 +188,7 @@ public class DslScriptBuilder {
       ret.put("timestamp", Instant.ofEpochMilli(prev.getTimeStamp()));
       SampleResult parent = prev.getParent();
       if (parent != null) {
-        ret.put("parent", parent.getSampleLabel());
+        ret.put(PARENT_KEY, parent.getSampleLabel());
       }
       ret.put("successful", prev.isSuccessful());
       ret.put("threadName", prev.getThreadName());
@@ -193,11 +246,128 @@ public class DslScriptBuilder {
     /**
      * Gets a map from current JMeter variables, making them easier to visualize, mainly while
      * debugging.
+     * <p>
+     * The map is an unmodifiable view of JMeter variables, so no variables are copied when
+     * invoking this method, and variables changed afterwards are reflected in the map.
      *
-     * @return map created from JMeter variables.
+     * @return map view of JMeter variables.
      */
     public Map<String, Object> varsMap() {
-      return vars.entrySet().stream().collect(Collectors.toMap(Entry::getKey, Entry::getValue));
+      return new VarsMap(vars);
+    }
+
+  }
+
+  /*
+   Map with a fixed set of keys, which calculates each value only when first accessed.
+   */
+  private static final class LazyMap extends AbstractMap<String, Object> {
+
+    private static final Object NOT_CALCULATED = new Object();
+
+    private final String[] keys;
+    private final Function<String, Object> valueCalculator;
+    private final Object[] values;
+
+    private LazyMap(String[] keys, Function<String, Object> valueCalculator) {
+      this.keys = keys;
+      this.valueCalculator = valueCalculator;
+      this.values = new Object[keys.length];
+      Arrays.fill(values, NOT_CALCULATED);
+    }
+
+    @Override
+    public Object get(Object key) {
+      int index = indexOf(key);
+      return index >= 0 ? valueAt(index) : null;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i].equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private Object valueAt(int index) {
+      if (values[index] == NOT_CALCULATED) {
+        values[index] = valueCalculator.apply(keys[index]);
+      }
+      return values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<Entry<String, Object>>() {
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          return new Iterator<Entry<String, Object>>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+              return index < keys.length;
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              Entry<String, Object> ret = new SimpleImmutableEntry<>(keys[index],
+                  valueAt(index));
+              index++;
+              return ret;
+            }
+
+          };
+        }
+
+        @Override
+        public int size() {
+          return keys.length;
+        }
+
+      };
+    }
+
+  }
+
+  private static final class VarsMap extends AbstractMap<String, Object> {
+
+    private final JMeterVariables vars;
+
+    private VarsMap(JMeterVariables vars) {
+      this.vars = vars;
+    }
+
+    @Override
+    public Object get(Object key) {
+      return key instanceof String ? vars.getObject((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return vars.entrySet();
     }
 
   }
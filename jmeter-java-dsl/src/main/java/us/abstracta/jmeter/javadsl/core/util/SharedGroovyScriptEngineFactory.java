@@ -0,0 +1,263 @@
+package us.abstracta.jmeter.javadsl.core.util;
+
+import groovy.lang.GroovyClassLoader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.groovy.jsr223.GroovyCompiledScript;
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+/**
+ * Groovy script engine factory which creates engines sharing compiled script classes.
+ * <p>
+ * By default, each JSR223 element and each {@code __groovy} function gets its own groovy engine,
+ * with its own class loader and compiled classes. JMeter JSR223 elements share a cache of
+ * compiled scripts, but {@code __groovy} functions (used by {@link PropertyScriptBuilder}) don't,
+ * which means that a script repeated in hundreds of elements is compiled hundreds of times, using
+ * additional metaspace and increasing test plan startup time.
+ * <p>
+ * Engines created by this factory are independent groovy engines (so, for example, methods
+ * defined by a script evaluated in one engine are not visible to scripts evaluated in other
+ * engines), but all of them compile scripts with a single class loader and share compiled classes
+ * keyed by script contents, so identical scripts share the same compiled class. At most {@link
+ * #MAX_CACHED_SCRIPTS} compiled classes are kept, evicting least recently used ones when the limit
+ * is exceeded, so they can be collected by the JVM.
+ *
+ * @since 1.4
+ */
+public class SharedGroovyScriptEngineFactory implements ScriptEngineFactory {
+
+  public static final String GROOVY_ENGINE_NAME = "groovy";
+  public static final int MAX_CACHED_SCRIPTS = 1000;
+
+  // managers are usually JVM wide, so registrations are tracked to support parallel test plans
+  private static final Map<ScriptEngineManager, Registration> REGISTRATIONS = new WeakHashMap<>();
+
+  private final ScriptEngineFactory groovyFactory;
+  private final ScriptClassLoader classLoader;
+  private final Map<String, Class<?>> scriptClasses = new LinkedHashMap<String, Class<?>>(16,
+      0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Class<?>> eldest) {
+      if (size() <= MAX_CACHED_SCRIPTS) {
+        return false;
+      }
+      classLoader.release(eldest.getValue());
+      return true;
+    }
+  };
+  private int scriptsCount;
+
+  private SharedGroovyScriptEngineFactory(GroovyScriptEngineImpl engine) {
+    groovyFactory = engine.getFactory();
+    classLoader = new ScriptClassLoader(engine.getClassLoader().getParent());
+  }
+
+  /**
+   * Registers a shared factory in the given manager, to be used for groovy scripts.
+   * <p>
+   * Registrations are counted for each manager, so if several test plans register a factory in the
+   * same manager (eg: when running test plans in parallel), all of them share the same factory,
+   * and the manager is only restored to its previous state when all of them invoke
+   * {@link #unregister(ScriptEngineManager)}.
+   * <p>
+   * The manager is not modified if no groovy engine is available in it.
+   *
+   * @param manager specifies the manager to register the factory in. Usually {@link
+   *                org.apache.jmeter.util.JSR223TestElement#getInstance()}.
+   */
+  public static synchronized void register(ScriptEngineManager manager) {
+    Registration registration = REGISTRATIONS.get(manager);
+    if (registration == null) {
+      ScriptEngine engine = manager.getEngineByName(GROOVY_ENGINE_NAME);
+      ScriptEngineFactory previousFactory = null;
+      if (engine instanceof GroovyScriptEngineImpl) {
+        previousFactory = engine.getFactory();
+        manager.registerEngineName(GROOVY_ENGINE_NAME,
+            new SharedGroovyScriptEngineFactory((GroovyScriptEngineImpl) engine));
+      }
+      registration = new Registration(previousFactory);
+      REGISTRATIONS.put(manager, registration);
+    }
+    registration.count++;
+  }
+
+  /**
+   * Releases a registration made with {@link #register(ScriptEngineManager)}.
+   * <p>
+   * When all registrations for the manager are released, the factory previously used by the
+   * manager for groovy scripts is restored, releasing the compiled classes of the shared factory.
+   *
+   * @param manager specifies the manager to release the registration for.
+   */
+  public static synchronized void unregister(ScriptEngineManager manager) {
+    Registration registration = REGISTRATIONS.get(manager);
+    if (registration == null || --registration.count > 0) {
+      return;
+    }
+    REGISTRATIONS.remove(manager);
+    if (registration.previousFactory != null) {
+      manager.registerEngineName(GROOVY_ENGINE_NAME, registration.previousFactory);
+    }
+  }
+
+  private static class Registration {
+
+    private final ScriptEngineFactory previousFactory;
+    private int count;
+
+    private Registration(ScriptEngineFactory previousFactory) {
+      this.previousFactory = previousFactory;
+    }
+
+  }
+
+  @Override
+  public String getEngineName() {
+    return groovyFactory.getEngineName();
+  }
+
+  @Override
+  public String getEngineVersion() {
+    return groovyFactory.getEngineVersion();
+  }
+
+  @Override
+  public List<String> getExtensions() {
+    return groovyFactory.getExtensions();
+  }
+
+  @Override
+  public List<String> getMimeTypes() {
+    return groovyFactory.getMimeTypes();
+  }
+
+  @Override
+  public List<String> getNames() {
+    return groovyFactory.getNames();
+  }
+
+  @Override
+  public String getLanguageName() {
+    return groovyFactory.getLanguageName();
+  }
+
+  @Override
+  public String getLanguageVersion() {
+    return groovyFactory.getLanguageVersion();
+  }
+
+  @Override
+  public Object getParameter(String key) {
+    return groovyFactory.getParameter(key);
+  }
+
+  @Override
+  public String getMethodCallSyntax(String obj, String m, String... args) {
+    return groovyFactory.getMethodCallSyntax(obj, m, args);
+  }
+
+  @Override
+  public String getOutputStatement(String toDisplay) {
+    return groovyFactory.getOutputStatement(toDisplay);
+  }
+
+  @Override
+  public String getProgram(String... statements) {
+    return groovyFactory.getProgram(statements);
+  }
+
+  @Override
+  public ScriptEngine getScriptEngine() {
+    return new SharedGroovyScriptEngine(new GroovyScriptEngineImpl(classLoader));
+  }
+
+  private synchronized Class<?> getScriptClass(String script) {
+    /*
+     compilation is done while holding the lock, to avoid compiling the same script several times
+     when many threads start at the same time.
+     */
+    return scriptClasses.computeIfAbsent(script,
+        s -> classLoader.parseClass(s, "Script" + ++scriptsCount + ".groovy"));
+  }
+
+  private static class ScriptClassLoader extends GroovyClassLoader {
+
+    private ScriptClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    private void release(Class<?> scriptClass) {
+      removeClassCacheEntry(scriptClass.getName());
+      InvokerHelper.removeClass(scriptClass);
+    }
+
+  }
+
+  private class SharedGroovyScriptEngine extends AbstractScriptEngine implements Compilable {
+
+    private final GroovyScriptEngineImpl engine;
+
+    private SharedGroovyScriptEngine(GroovyScriptEngineImpl engine) {
+      this.engine = engine;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+      return compile(script).eval(context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+      return eval(readScript(reader), context);
+    }
+
+    private String readScript(Reader reader) throws ScriptException {
+      try {
+        return IOUtils.toString(reader);
+      } catch (IOException e) {
+        throw new ScriptException(e);
+      }
+    }
+
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+      try {
+        return new GroovyCompiledScript(engine, getScriptClass(script));
+      } catch (RuntimeException e) {
+        throw new ScriptException(e);
+      }
+    }
+
+    @Override
+    public CompiledScript compile(Reader reader) throws ScriptException {
+      return compile(readScript(reader));
+    }
+
+    @Override
+    public Bindings createBindings() {
+      return engine.createBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+      return SharedGroovyScriptEngineFactory.this;
+    }
+
+  }
+
+}
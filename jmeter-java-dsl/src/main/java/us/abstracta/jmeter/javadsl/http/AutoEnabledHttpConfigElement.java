@@ -70,12 +70,12 @@ public abstract class AutoEnabledHttpConfigElement extends BaseConfigElement {
     if (contextEntry.hasDisabledChild) {
       addConfigToPendingResolutionChildren(contextEntry);
     } else if (contextEntry.enabled == null || contextEntry.enabled) {
-      super.buildTreeUnder(tree, context);
+      buildEnabledTreeUnder(tree, context);
     }
   }
 
   private void addConfigToPendingResolutionChildren(BuildContextEntry contextEntry) {
-    contextEntry.pendingResolution.forEach(super::buildTreeUnder);
+    contextEntry.pendingResolution.forEach(this::buildEnabledTreeUnder);
   }
 
   private void endUnsolvedElement(BuildTreeContext context, HashTree tree,
@@ -94,7 +94,7 @@ public abstract class AutoEnabledHttpConfigElement extends BaseConfigElement {
     if (entry.hasDisabledChild) {
       addConfigToPendingResolutionChildren(entry);
     } else {
-      super.buildTreeUnder(tree, context);
+      buildEnabledTreeUnder(tree, context);
     }
   }
 
@@ -104,6 +104,16 @@ public abstract class AutoEnabledHttpConfigElement extends BaseConfigElement {
     registerEndListener(parent, parentEntry);
   }
 
+  /**
+   * Adds the config element to the given tree, once it has been resolved that the element applies
+   * to it.
+   * <p>
+   * Subclasses may overwrite this method if the built test element depends on the context.
+   */
+  protected HashTree buildEnabledTreeUnder(HashTree parent, BuildTreeContext context) {
+    return super.buildTreeUnder(parent, context);
+  }
+
   @Override
   public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
     BuildTreeContext parentContext = context.getParent();
@@ -5,12 +5,15 @@ import java.util.List;
 import org.apache.jmeter.protocol.http.control.CacheManager;
 import org.apache.jmeter.protocol.http.gui.CacheManagerGui;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jorphan.collections.HashTree;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
 
 /**
  * Allows configuring caching behavior used by HTTP samplers.
  * <p>
- * This element can only be added as child of test plan, and currently allows only to disable HTTP
- * caching which is enabled by default (emulating browser behavior).
+ * This element can only be added as child of test plan, and allows to disable HTTP caching which is
+ * enabled by default (emulating browser behavior), or to share cached public resources among
+ * threads.
  * <p>
  * This element has to be added before any http sampler to be considered, and if you add multiple
  * instances of cache manager to a test plan, only the first one will be considered.
@@ -19,6 +22,8 @@ import org.apache.jmeter.testelement.TestElement;
  */
 public class DslCacheManager extends AutoEnabledHttpConfigElement {
 
+  protected Integer sharedMaxEntries;
+
   public DslCacheManager() {
     super("HTTP Cache Manager", CacheManagerGui.class);
   }
@@ -33,9 +38,58 @@ public class DslCacheManager extends AutoEnabledHttpConfigElement {
     return this;
   }
 
+  /**
+   * Allows sharing cache entries of public and immutable responses among all threads of the test
+   * plan, instead of keeping them once per thread.
+   * <p>
+   * JMeter keeps a cache per thread, which, when many threads request the same static resources,
+   * implies keeping the same cache entries once per thread. With this option, responses with
+   * {@code public} or {@code immutable} {@code Cache-Control} directive (and without {@code
+   * private} or {@code no-store} directives) are kept only once in a concurrent cache, which evicts
+   * least recently used entries when it exceeds the given maximum number of entries. Shared entries
+   * are only used by requests with same values for headers listed in the {@code Vary} response
+   * header. The rest of responses are still cached per thread, and cleared on each
+   * iteration.
+   * <p>
+   * Shared entries behave as if a proxy or CDN cache would be used by all users, so they are not
+   * cleared on each iteration and are only discarded when they are evicted or replaced by new
+   * responses.
+   * <p>
+   * Hits, misses, evictions and memory used by the shared cache can be checked in test plan stats
+   * with {@code stats.component(SharedCacheStats.class)}.
+   * <p>
+   * This option only applies when running test plans in current JVM. When running test plans in
+   * other engines (like BlazeMeter or remote JMeter servers), regular JMeter cache is used.
+   *
+   * @param maxEntries specifies the maximum number of entries to keep in the shared cache.
+   * @return the cache manager for further configuration or usage.
+   * @throws IllegalArgumentException if maxEntries is not positive.
+   * @see SharedCacheStats
+   * @since 1.4
+   */
+  public DslCacheManager sharedPublicEntries(int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("Max entries must be >0");
+    }
+    sharedMaxEntries = maxEntries;
+    return this;
+  }
+
+  @Override
+  protected HashTree buildEnabledTreeUnder(HashTree parent, BuildTreeContext context) {
+    if (sharedMaxEntries == null || !context.isLocalExecution()) {
+      return super.buildEnabledTreeUnder(parent, context);
+    }
+    return parent.add(configureTestElement(
+        configureCacheManager(new SharedCacheManager(sharedMaxEntries)), name, guiClass));
+  }
+
   @Override
   protected TestElement buildTestElement() {
-    CacheManager ret = new CacheManager();
+    return configureCacheManager(new CacheManager());
+  }
+
+  private static CacheManager configureCacheManager(CacheManager ret) {
     ret.setUseExpires(true);
     ret.setClearEachIteration(true);
     return ret;
@@ -10,14 +10,17 @@ import org.apache.jmeter.protocol.http.config.gui.HttpDefaultsGui;
 import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.property.TestElementProperty;
+import org.apache.jorphan.collections.HashTree;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCall;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallContext;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodParam;
 import us.abstracta.jmeter.javadsl.codegeneration.SingleGuiClassCallBuilder;
 import us.abstracta.jmeter.javadsl.codegeneration.TestElementParamBuilder;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
 import us.abstracta.jmeter.javadsl.core.configs.BaseConfigElement;
 import us.abstracta.jmeter.javadsl.http.DslBaseHttpSampler.BaseHttpSamplerCodeBuilder;
 import us.abstracta.jmeter.javadsl.http.DslHttpSampler.HttpClientImpl;
+import us.abstracta.jmeter.javadsl.http.async.AsyncHttpSampler;
 
 /**
  * Allows configuring default values for common properties of HTTP samplers.
@@ -42,7 +45,16 @@ public class DslHttpDefaults extends BaseConfigElement {
   protected boolean downloadEmbeddedResources;
   protected String embeddedResourcesMatchRegex;
   protected String embeddedResourcesNotMatchRegex;
+  protected Integer embeddedResourcesMaxParallel;
+  protected Integer embeddedResourcesMaxPerHost;
+  protected boolean discardResponseBody;
+  protected Integer responseBodyKeptBytes;
   protected HttpClientImpl clientImpl;
+  protected String http2;
+  protected Integer http2MaxConnections;
+  protected Integer http2MaxStreams;
+  protected Integer poolMaxPerRoute;
+  protected Integer poolMaxTotal;
 
   public DslHttpDefaults() {
     super("HTTP Request Defaults", HttpDefaultsGui.class);
@@ -238,6 +250,95 @@ public class DslHttpDefaults extends BaseConfigElement {
     return this;
   }
 
+  /**
+   * Same as {@link #downloadEmbeddedResources()} but allowing to specify how many embedded
+   * resources to download at the same time, in total and from each host, as browsers do.
+   * <p>
+   * Embedded resources are requested through the same non-blocking client as the page, and their
+   * URLs are parsed only once for pages with same URL and ETag (instead of in each iteration) by
+   * threads of the same thread group. When HTTP/2 is forced (with
+   * {@link #http2()} or {@link #h2c()}), requests to each host are multiplexed in HTTP/2
+   * connections, so they are only limited by the total number of parallel downloads and HTTP/2
+   * streams limits.
+   * <p>
+   * This method sets {@link HttpClientImpl#ASYNC} client implementation, so same limitations apply.
+   * When the test plan runs in other JVM, only the total number of parallel downloads is used.
+   *
+   * @param maxParallel specifies the maximum number of embedded resources to download at the same
+   *                    time. By default, 6.
+   * @param maxPerHost  specifies the maximum number of embedded resources to download at the same
+   *                    time from each host. Browsers usually use 6.
+   * @return the config element for further configuration or usage.
+   * @throws IllegalArgumentException if any of the limits is not positive.
+   * @see DslHttpSampler#embeddedResourcesConcurrency(int, int)
+   * @since 1.4
+   */
+  public DslHttpDefaults embeddedResourcesConcurrency(int maxParallel, int maxPerHost) {
+    if (maxParallel <= 0) {
+      throw new IllegalArgumentException("Max parallel downloads must be >0");
+    }
+    if (maxPerHost <= 0) {
+      throw new IllegalArgumentException("Max parallel downloads per host must be >0");
+    }
+    this.downloadEmbeddedResources = true;
+    this.embeddedResourcesMaxParallel = maxParallel;
+    this.embeddedResourcesMaxPerHost = maxPerHost;
+    this.clientImpl = HttpClientImpl.ASYNC;
+    return this;
+  }
+
+  /**
+   * Specifies to discard response bodies by default, only counting their bytes.
+   * <p>
+   * This can be overwritten by {@link DslHttpSampler#discardResponseBody(boolean)}.
+   *
+   * @return the config element for further configuration or usage.
+   * @see DslHttpSampler#discardResponseBody()
+   * @since 1.4
+   */
+  public DslHttpDefaults discardResponseBody() {
+    return discardResponseBody(true);
+  }
+
+  /**
+   * Same as {@link #discardResponseBody()} but allowing to enable and disable the setting.
+   * <p>
+   * This is helpful when the resolution is taken at runtime.
+   *
+   * @param enable specifies to enable or disable the setting. By default, it is set to false.
+   * @return the config element for further configuration or usage.
+   * @see #discardResponseBody()
+   * @since 1.4
+   */
+  public DslHttpDefaults discardResponseBody(boolean enable) {
+    this.discardResponseBody = enable;
+    return this;
+  }
+
+  /**
+   * Same as {@link #discardResponseBody()} but keeping the first bytes of response bodies, so
+   * extractors and assertions can still be used on them.
+   * <p>
+   * This is only supported by {@link HttpClientImpl#ASYNC}, and this method does not change the
+   * HTTP client implementation, so you need to specify it with {@link #clientImpl(HttpClientImpl)}
+   * (or in each sampler). Other implementations just discard whole response bodies as with
+   * {@link #discardResponseBody()}.
+   *
+   * @param kilobytes specifies the number of kilobytes to keep from the beginning of response
+   *                  bodies. Has to be >=0. Values bigger than 2 GB are treated as 2 GB.
+   * @return the config element for further configuration or usage.
+   * @see DslHttpSampler#discardResponseBodyExceptFirst(int)
+   * @since 1.4
+   */
+  public DslHttpDefaults discardResponseBodyExceptFirst(int kilobytes) {
+    if (kilobytes < 0) {
+      throw new IllegalArgumentException("Kept kilobytes must be >=0");
+    }
+    this.discardResponseBody = true;
+    this.responseBodyKeptBytes = (int) Math.min(Integer.MAX_VALUE, kilobytes * 1024L);
+    return this;
+  }
+
   /**
    * Allows specifying a proxy through which all http requests will be sent to their final
    * destination.
@@ -288,6 +389,125 @@ public class DslHttpDefaults extends BaseConfigElement {
     return this;
   }
 
+  /**
+   * Specifies to send requests of all threads through a shared and bounded connections pool.
+   * <p>
+   * By default, each JMeter thread has its own connections, which properly emulates independent
+   * users (like browsers). But when testing services consumed by other services (like API
+   * gateways), many logical users share the connections pool of a few clients. This method allows
+   * emulating such scenario, where requests wait for a connection to be available when all pool
+   * connections are in use.
+   * <p>
+   * The time spent waiting for a connection is reported as pool wait time in generated
+   * {@link us.abstracta.jmeter.javadsl.http.async.AsyncHttpSampleResult}s, and is also included in
+   * connect time.
+   * <p>
+   * This method sets {@link HttpClientImpl#ASYNC} client implementation, since JMeter HTTP
+   * implementations keep connections per thread, so same limitations apply: it only works when
+   * test plan runs in current JVM.
+   *
+   * @param maxPerRoute specifies the maximum number of connections to each host.
+   * @param maxTotal    specifies the maximum number of connections to all hosts.
+   * @return the config element for further configuration or usage.
+   * @throws IllegalArgumentException if any of the limits is not positive, or maxPerRoute is
+   *                                  greater than maxTotal.
+   * @since 1.4
+   */
+  public DslHttpDefaults sharedConnectionPool(int maxPerRoute, int maxTotal) {
+    if (maxPerRoute <= 0) {
+      throw new IllegalArgumentException("Max connections per route must be >0");
+    }
+    if (maxTotal < maxPerRoute) {
+      throw new IllegalArgumentException(
+          "Max total connections must be >= max connections per route");
+    }
+    this.poolMaxPerRoute = maxPerRoute;
+    this.poolMaxTotal = maxTotal;
+    this.clientImpl = HttpClientImpl.ASYNC;
+    return this;
+  }
+
+  /**
+   * Specifies to use HTTP/2 on TLS (https) connections.
+   * <p>
+   * Requests of all threads are multiplexed as streams over a bounded number of connections to
+   * each host (by default 1 connection with up to 100 concurrent streams), as browsers and
+   * service-to-service HTTP/2 clients do. This allows properly emulating connections counts and
+   * head-of-line blocking of HTTP/2 only services. Check {@link #http2Connections(int, int)} to
+   * tune connections and streams limits.
+   * <p>
+   * Requests to cleartext (http) URLs keep using HTTP/1.1. Use {@link #h2c()} to also use HTTP/2
+   * on them.
+   * <p>
+   * This method sets {@link HttpClientImpl#ASYNC} client implementation, since HTTP/2 is only
+   * supported by it, so same limitations apply: it only works when test plan runs in current JVM,
+   * and is ignored when proxies are used.
+   * <p>
+   * Statistics of HTTP/2 connections can be retrieved from test plan statistics with
+   * {@code stats.component(Http2Stats.class)}.
+   *
+   * @return the config element for further configuration or usage.
+   * @see us.abstracta.jmeter.javadsl.http.async.Http2Stats
+   * @since 1.4
+   */
+  public DslHttpDefaults http2() {
+    return http2(AsyncHttpSampler.H2);
+  }
+
+  private DslHttpDefaults http2(String http2) {
+    this.http2 = http2;
+    this.clientImpl = HttpClientImpl.ASYNC;
+    return this;
+  }
+
+  /**
+   * Same as {@link #http2()} but also using HTTP/2 on cleartext (http) connections (aka h2c).
+   * <p>
+   * Cleartext connections use HTTP/2 with prior knowledge, i.e. they don't try to upgrade from
+   * HTTP/1.1, so the server under test must support h2c with prior knowledge.
+   *
+   * @return the config element for further configuration or usage.
+   * @see #http2()
+   * @since 1.4
+   */
+  public DslHttpDefaults h2c() {
+    return http2(AsyncHttpSampler.H2C);
+  }
+
+  /**
+   * Specifies limits for HTTP/2 connections used when {@link #http2()} or {@link #h2c()} is
+   * enabled.
+   * <p>
+   * Streams are assigned to the first connection with available streams, so a new connection is
+   * only established when all existing ones reach the streams limit. When all connections to a
+   * host reach the limit, requests wait until a stream is released. Waiting time is included in
+   * connect time of requests.
+   * <p>
+   * Take into consideration that the server may impose a lower concurrent streams limit, in which
+   * case requests exceeding it will wait in the connection.
+   *
+   * @param maxConnectionsPerHost   specifies the maximum number of connections to each host. By
+   *                                default, 1.
+   * @param maxStreamsPerConnection specifies the maximum number of concurrent streams (requests)
+   *                                on each connection. By default, 100.
+   * @return the config element for further configuration or usage.
+   * @throws IllegalArgumentException if any of the limits is not positive.
+   * @see #http2()
+   * @since 1.4
+   */
+  public DslHttpDefaults http2Connections(int maxConnectionsPerHost,
+      int maxStreamsPerConnection) {
+    if (maxConnectionsPerHost <= 0) {
+      throw new IllegalArgumentException("Max connections per host must be >0");
+    }
+    if (maxStreamsPerConnection <= 0) {
+      throw new IllegalArgumentException("Max streams per connection must be >0");
+    }
+    this.http2MaxConnections = maxConnectionsPerHost;
+    this.http2MaxStreams = maxStreamsPerConnection;
+    return this;
+  }
+
   /**
    * Specifies to reset (drop and recreate) connections on each thread group iteration.
    * <p>
@@ -303,6 +523,11 @@ public class DslHttpDefaults extends BaseConfigElement {
    * <p>
    * <b>Warning:</b> This setting is applied at JVM level, which means that it will affect the
    * entire test plan and potentially other test plans running in the same JVM instance.
+   * <p>
+   * This setting is ignored by {@link HttpClientImpl#ASYNC} client implementation (used by
+   * {@link #sharedConnectionPool(int, int)}, {@link #http2()} and {@link #h2c()}), since its
+   * connections are shared by all threads of the test plan and are only closed when the test plan
+   * ends.
    *
    * @return the config element for further configuration or usage.
    * @since 1.0
@@ -384,10 +609,44 @@ public class DslHttpDefaults extends BaseConfigElement {
       if (embeddedResourcesNotMatchRegex != null) {
         ret.setProperty(HTTPSamplerBase.EMBEDDED_URL_EXCLUDE_RE, embeddedResourcesNotMatchRegex);
       }
+      if (embeddedResourcesMaxParallel != null) {
+        ret.setProperty(HTTPSamplerBase.CONCURRENT_POOL,
+            String.valueOf(embeddedResourcesMaxParallel));
+        ret.setProperty(AsyncHttpSampler.EMBEDDED_RESOURCES_MAX_PER_HOST,
+            embeddedResourcesMaxPerHost);
+      }
+    }
+    if (discardResponseBody) {
+      ret.setProperty(HTTPSamplerBase.MD5, true);
+      if (responseBodyKeptBytes != null) {
+        ret.setProperty(AsyncHttpSampler.RESPONSE_BODY_MAX_KEPT_BYTES, responseBodyKeptBytes);
+      }
     }
     if (clientImpl != null) {
       ret.setProperty(HTTPSamplerBase.IMPLEMENTATION, clientImpl.propertyValue);
     }
+    if (http2 != null) {
+      ret.setProperty(AsyncHttpSampler.HTTP2, http2);
+    }
+    if (http2MaxConnections != null) {
+      ret.setProperty(AsyncHttpSampler.HTTP2_MAX_CONNECTIONS, http2MaxConnections);
+    }
+    if (http2MaxStreams != null) {
+      ret.setProperty(AsyncHttpSampler.HTTP2_MAX_STREAMS, http2MaxStreams);
+    }
+    if (poolMaxPerRoute != null) {
+      ret.setProperty(AsyncHttpSampler.POOL_MAX_PER_ROUTE, poolMaxPerRoute);
+      ret.setProperty(AsyncHttpSampler.POOL_MAX_TOTAL, poolMaxTotal);
+    }
+    return ret;
+  }
+
+  @Override
+  public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
+    HashTree ret = super.buildTreeUnder(parent, context);
+    if (clientImpl == HttpClientImpl.ASYNC) {
+      AsyncHttpSampler.registerTreeResolution(context);
+    }
     return ret;
   }
 
@@ -419,6 +678,7 @@ public class DslHttpDefaults extends BaseConfigElement {
       ret.chain("encoding", paramBuilder.encodingParam(HTTPSamplerBase.CONTENT_ENCODING, null))
           .chain("downloadEmbeddedResources",
               paramBuilder.boolParam(HTTPSamplerBase.IMAGE_PARSER, false))
+          .chain("discardResponseBody", paramBuilder.boolParam(HTTPSamplerBase.MD5, false))
           .chain("clientImpl",
               paramBuilder.enumParam(HTTPSamplerBase.IMPLEMENTATION, HttpClientImpl.HTTP_CLIENT));
       return ret;
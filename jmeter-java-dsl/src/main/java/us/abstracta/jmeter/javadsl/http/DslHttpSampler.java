@@ -22,6 +22,7 @@ import org.apache.jmeter.protocol.http.util.HTTPConstants;
 import org.apache.jmeter.protocol.http.util.HTTPConstantsInterface;
 import org.apache.jmeter.protocol.http.util.HTTPFileArg;
 import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jorphan.collections.HashTree;
 import us.abstracta.jmeter.javadsl.JmeterDsl;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCall;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallContext;
@@ -30,9 +31,11 @@ import us.abstracta.jmeter.javadsl.codegeneration.TestElementParamBuilder;
 import us.abstracta.jmeter.javadsl.codegeneration.params.BoolParam;
 import us.abstracta.jmeter.javadsl.codegeneration.params.EnumParam.EnumPropertyValue;
 import us.abstracta.jmeter.javadsl.codegeneration.params.StringParam;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
 import us.abstracta.jmeter.javadsl.core.preprocessors.DslJsr223PreProcessor.PreProcessorScript;
 import us.abstracta.jmeter.javadsl.core.preprocessors.DslJsr223PreProcessor.PreProcessorVars;
 import us.abstracta.jmeter.javadsl.core.util.JmeterFunction;
+import us.abstracta.jmeter.javadsl.http.async.AsyncHttpSampler;
 
 /**
  * Allows to configure a JMeter HTTP sampler to make HTTP requests in a test plan.
@@ -53,6 +56,10 @@ public class DslHttpSampler extends DslBaseHttpSampler<DslHttpSampler> {
   protected boolean downloadEmbeddedResources;
   protected String embeddedResourcesMatchRegex;
   protected String embeddedResourcesNotMatchRegex;
+  protected Integer embeddedResourcesMaxParallel;
+  protected Integer embeddedResourcesMaxPerHost;
+  protected Boolean discardResponseBody;
+  protected Integer responseBodyKeptBytes;
   protected HttpClientImpl clientImpl;
 
   public DslHttpSampler(String name, String url) {
@@ -351,6 +358,105 @@ public class DslHttpSampler extends DslBaseHttpSampler<DslHttpSampler> {
     return this;
   }
 
+  /**
+   * Same as {@link #downloadEmbeddedResources()} but allowing to specify how many embedded
+   * resources to download at the same time, in total and from each host, as browsers do.
+   * <p>
+   * Embedded resources are requested through the same non-blocking client as the page, and their
+   * URLs are parsed only once for pages with same URL and ETag (instead of in each iteration) by
+   * threads of the same thread group. When HTTP/2 is forced (with
+   * {@link DslHttpDefaults#http2()} or {@link DslHttpDefaults#h2c()}), requests to each host are
+   * multiplexed in HTTP/2 connections, so they are only limited by the total number of parallel
+   * downloads and HTTP/2 streams limits.
+   * <p>
+   * This method sets {@link HttpClientImpl#ASYNC} client implementation, so same limitations apply.
+   * When the test plan runs in other JVM, only the total number of parallel downloads is used.
+   *
+   * @param maxParallel specifies the maximum number of embedded resources to download at the same
+   *                    time. By default, 6.
+   * @param maxPerHost  specifies the maximum number of embedded resources to download at the same
+   *                    time from each host. Browsers usually use 6.
+   * @return the sampler for further configuration or usage.
+   * @throws IllegalArgumentException if any of the limits is not positive.
+   * @see #downloadEmbeddedResources()
+   * @since 1.4
+   */
+  public DslHttpSampler embeddedResourcesConcurrency(int maxParallel, int maxPerHost) {
+    if (maxParallel <= 0) {
+      throw new IllegalArgumentException("Max parallel downloads must be >0");
+    }
+    if (maxPerHost <= 0) {
+      throw new IllegalArgumentException("Max parallel downloads per host must be >0");
+    }
+    this.downloadEmbeddedResources = true;
+    this.embeddedResourcesMaxParallel = maxParallel;
+    this.embeddedResourcesMaxPerHost = maxPerHost;
+    this.clientImpl = HttpClientImpl.ASYNC;
+    return this;
+  }
+
+  /**
+   * Specifies to discard the response body, avoiding keeping it in memory.
+   * <p>
+   * The response body is still fully received, and its size is properly reported in received
+   * bytes, but it is not stored in the sample result. This is helpful when downloading big files
+   * (or many concurrent responses) whose contents are not relevant for the test, since otherwise
+   * the whole body is kept in memory, which may cause memory issues or garbage collection pauses
+   * affecting the test results.
+   * <p>
+   * Take into consideration that extractors and assertions on the response body will not get the
+   * actual contents. Check {@link #discardResponseBodyExceptFirst(int)} if you need them.
+   * <p>
+   * With JMeter HTTP implementations, this uses JMeter option to save the response as MD5 hash,
+   * which is what is stored as response body.
+   *
+   * @return the sampler for further configuration or usage.
+   * @since 1.4
+   */
+  public DslHttpSampler discardResponseBody() {
+    return discardResponseBody(true);
+  }
+
+  /**
+   * Same as {@link #discardResponseBody()} but allowing to enable or disable the setting.
+   * <p>
+   * This is helpful when the resolution is taken at runtime, or to keep the response body in a
+   * particular sampler when discarding is enabled in {@link DslHttpDefaults}.
+   *
+   * @param enable specifies to enable or disable the setting. By default, it is set to false.
+   * @return the sampler for further configuration or usage.
+   * @see #discardResponseBody()
+   * @since 1.4
+   */
+  public DslHttpSampler discardResponseBody(boolean enable) {
+    this.discardResponseBody = enable;
+    return this;
+  }
+
+  /**
+   * Same as {@link #discardResponseBody()} but keeping the first bytes of the response body, so
+   * extractors and assertions can still be used on them.
+   * <p>
+   * This is only supported by {@link HttpClientImpl#ASYNC}, and this method does not change the
+   * HTTP client implementation used by the sampler, so you need to specify it with
+   * {@link #clientImpl(HttpClientImpl)} (or in {@link DslHttpDefaults}). Other implementations just
+   * discard the whole response body as with {@link #discardResponseBody()}.
+   *
+   * @param kilobytes specifies the number of kilobytes to keep from the beginning of the response
+   *                  body. Has to be >=0. Values bigger than 2 GB are treated as 2 GB.
+   * @return the sampler for further configuration or usage.
+   * @see #discardResponseBody()
+   * @since 1.4
+   */
+  public DslHttpSampler discardResponseBodyExceptFirst(int kilobytes) {
+    if (kilobytes < 0) {
+      throw new IllegalArgumentException("Kept kilobytes must be >=0");
+    }
+    this.discardResponseBody = true;
+    this.responseBodyKeptBytes = (int) Math.min(Integer.MAX_VALUE, kilobytes * 1024L);
+    return this;
+  }
+
   /**
    * Allows specifying the HTTP client implementation to use for this particular sampler.
    * <p>
@@ -359,6 +465,9 @@ public class DslHttpSampler extends DslBaseHttpSampler<DslHttpSampler> {
    * (connection time, memory, cpu usage). But, Java implementation has its own limitations, check
    * <a href="https://jmeter.apache.org/usermanual/component_reference.html#HTTP_Request">JMeter
    * documentation</a> for more details.
+   * <p>
+   * {@link DslHttpSampler.HttpClientImpl#ASYNC} allows sustaining many concurrent requests with
+   * few threads when running the test plan in current JVM. Check its documentation for details.
    *
    * @param clientImpl the HTTP client implementation to use. If none is specified, then
    *                   {@link DslHttpSampler.HttpClientImpl#HTTP_CLIENT} is used.
@@ -398,6 +507,18 @@ public class DslHttpSampler extends DslBaseHttpSampler<DslHttpSampler> {
       if (embeddedResourcesNotMatchRegex != null) {
         elem.setEmbeddedUrlExcludeRE(embeddedResourcesNotMatchRegex);
       }
+      if (embeddedResourcesMaxParallel != null) {
+        elem.setConcurrentPool(String.valueOf(embeddedResourcesMaxParallel));
+        elem.setProperty(AsyncHttpSampler.EMBEDDED_RESOURCES_MAX_PER_HOST,
+            embeddedResourcesMaxPerHost);
+      }
+    }
+    // boolean property is set even when false, to avoid using the value set in defaults
+    if (discardResponseBody != null) {
+      elem.setProperty(HTTPSamplerBase.MD5, discardResponseBody);
+    }
+    if (responseBodyKeptBytes != null) {
+      elem.setProperty(AsyncHttpSampler.RESPONSE_BODY_MAX_KEPT_BYTES, responseBodyKeptBytes);
     }
     if (clientImpl != null) {
       elem.setImplementation(clientImpl.propertyValue);
@@ -405,6 +526,15 @@ public class DslHttpSampler extends DslBaseHttpSampler<DslHttpSampler> {
     return elem;
   }
 
+  @Override
+  public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
+    HashTree ret = super.buildTreeUnder(parent, context);
+    if (clientImpl == HttpClientImpl.ASYNC) {
+      AsyncHttpSampler.registerTreeResolution(context);
+    }
+    return ret;
+  }
+
   private Arguments buildArguments() {
     Arguments args = new Arguments();
     if (body != null) {
@@ -432,7 +562,29 @@ public class DslHttpSampler extends DslBaseHttpSampler<DslHttpSampler> {
      * Specifies to use the Apache HttpClient implementation. This is the default one and usually
      * the preferred one.
      */
-    HTTP_CLIENT("HttpClient4");
+    HTTP_CLIENT("HttpClient4"),
+    /**
+     * Specifies to use a non-blocking implementation, based on Apache HttpClient 5, which shares
+     * connections among all threads and completes samples through callbacks.
+     * <p>
+     * Threads don't hold connections or sockets while waiting for responses, and HTTP/2
+     * connections multiplex requests of several threads, which allows a few platform threads (or
+     * many virtual threads) to sustain a big number of concurrent requests. Consider using it in
+     * combination with virtual threads.
+     * <p>
+     * This implementation is only used when the test plan runs in current JVM (eg: with
+     * {@link us.abstracta.jmeter.javadsl.core.engines.EmbeddedJmeterEngine}), since it is not
+     * included in JMeter distributions. When the test plan is saved as JMX or runs in other JVM,
+     * {@link #HTTP_CLIENT} is used instead.
+     * <p>
+     * Since connections are shared among all threads, they are not reset between iterations, even
+     * when {@link DslHttpDefaults#resetConnectionsBetweenIterations()} is used.
+     *
+     * @see us.abstracta.jmeter.javadsl.core.threadgroups.DslDefaultThreadGroup#virtualThreads()
+     * @see us.abstracta.jmeter.javadsl.http.async.AsyncHttpImpl
+     * @since 1.4
+     */
+    ASYNC("Async");
 
     public final String propertyValue;
 
@@ -465,6 +617,7 @@ public class DslHttpSampler extends DslBaseHttpSampler<DslHttpSampler> {
           .chain("followRedirects", buildFollowRedirectsParam(paramBuilder))
           .chain("downloadEmbeddedResources",
               paramBuilder.boolParam(HTTPSamplerBase.IMAGE_PARSER, false))
+          .chain("discardResponseBody", paramBuilder.boolParam(HTTPSamplerBase.MD5, false))
           .chain("clientImpl",
               paramBuilder.enumParam(HTTPSamplerBase.IMPLEMENTATION, HttpClientImpl.HTTP_CLIENT));
     }
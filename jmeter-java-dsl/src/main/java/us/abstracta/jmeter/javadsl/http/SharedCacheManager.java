@@ -0,0 +1,482 @@
+package us.abstracta.jmeter.javadsl.http;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.jmeter.protocol.http.control.CacheManager;
+import org.apache.jmeter.protocol.http.control.Header;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import us.abstracta.jmeter.javadsl.core.stats.ComponentStatsProvider;
+
+/**
+ * Cache manager which shares entries of public and immutable responses among all threads of the
+ * test plan, in a concurrent and size-bounded cache, while keeping JMeter per thread cache for the
+ * rest of responses.
+ * <p>
+ * JMeter cache manager keeps a cache per thread, which, when many threads request the same static
+ * resources, implies keeping the same entries once per thread. This cache manager instead keeps
+ * only one entry for responses with {@code public} or {@code immutable} cache control directive
+ * (and without {@code private} or {@code no-store} directives), as a shared cache (like a CDN or
+ * proxy) would do. Shared entries are only used by requests with same values as the original
+ * request for headers specified in the {@code Vary} response header. When the shared cache exceeds
+ * its maximum number of entries, least recently used entries are (approximately) evicted.
+ * <p>
+ * Shared entries are not cleared on each iteration, since they are not associated to a particular
+ * user.
+ * <p>
+ * Shared cache usage is available in {@link SharedCacheStats}.
+ * <p>
+ * This test element can only be used in test plans running in current JVM, since it is not
+ * included in JMeter distributions.
+ *
+ * @see DslCacheManager#sharedPublicEntries(int)
+ * @since 1.4
+ */
+public class SharedCacheManager extends CacheManager implements ComponentStatsProvider {
+
+  private static final long ONE_YEAR_MS = 365L * 24 * 60 * 60 * 1000;
+
+  private transient SharedCache cache;
+  // per thread cache used by proxies created for parallel download of embedded resources
+  private transient CacheManager userCache;
+
+  public SharedCacheManager() {
+  }
+
+  public SharedCacheManager(int maxEntries) {
+    this.cache = new SharedCache(maxEntries);
+  }
+
+  @Override
+  public void saveDetails(HttpResponse response, HTTPSampleResult res) {
+    if (!saveSharedDetails(res, name -> {
+      org.apache.http.Header header = response.getLastHeader(name);
+      return header != null ? header.getValue() : null;
+    })) {
+      if (userCache != null) {
+        userCache.saveDetails(response, res);
+      } else {
+        super.saveDetails(response, res);
+      }
+    }
+  }
+
+  @Override
+  public void saveDetails(URLConnection conn, HTTPSampleResult res) {
+    if (!saveSharedDetails(res, conn::getHeaderField)) {
+      if (userCache != null) {
+        userCache.saveDetails(conn, res);
+      } else {
+        super.saveDetails(conn, res);
+      }
+    }
+  }
+
+  private boolean saveSharedDetails(HTTPSampleResult res, HeaderValueProvider headers) {
+    if (!HTTPConstants.GET.equalsIgnoreCase(res.getHTTPMethod())) {
+      return false;
+    }
+    String url = res.getUrlAsString();
+    HeaderValueProvider requestHeaders = name -> findHeader(res.getRequestHeaders(), name);
+    int code = parseResponseCode(res.getResponseCode());
+    String cacheControl = headers.get(HTTPConstants.CACHE_CONTROL);
+    if (code == HttpStatus.SC_NOT_MODIFIED) {
+      // revalidated shared entries are refreshed with new expiration
+      SharedEntry entry = findEntry(url, requestHeaders);
+      if (entry == null) {
+        return false;
+      }
+      cache.put(url, entry.refresh(computeExpires(cacheControl, headers)));
+      return true;
+    }
+    if (code < HttpStatus.SC_OK || code >= HttpStatus.SC_MULTIPLE_CHOICES) {
+      return false;
+    }
+    String vary = headers.get(HTTPConstants.VARY);
+    if (!isSharedResponse(cacheControl, vary)) {
+      // avoids keeping a shared entry when the resource is no longer public
+      cache.remove(url);
+      return false;
+    }
+    /*
+     lookups without a shared entry are not counted, since their responses may not be shareable,
+     so we count them here once we know they are.
+     */
+    if (findEntry(url, requestHeaders) == null) {
+      cache.stats.registerMiss();
+    }
+    cache.put(url, new SharedEntry(headers.get(HTTPConstants.LAST_MODIFIED),
+        headers.get(HTTPConstants.ETAG), computeExpires(cacheControl, headers),
+        buildVaryHeaders(vary, requestHeaders)));
+    return true;
+  }
+
+  private SharedEntry findEntry(String url, HeaderValueProvider requestHeaders) {
+    SharedEntry ret = cache.get(url);
+    return ret != null && ret.matches(requestHeaders) ? ret : null;
+  }
+
+  private interface HeaderValueProvider {
+
+    String get(String name);
+
+  }
+
+  private static int parseResponseCode(String code) {
+    try {
+      return Integer.parseInt(code);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static String findHeader(String headers, String name) {
+    String prefix = name + ":";
+    for (String line : headers.split("\n")) {
+      if (line.regionMatches(true, 0, prefix, 0, prefix.length())) {
+        return line.substring(prefix.length()).trim();
+      }
+    }
+    return null;
+  }
+
+  private static String findHeader(org.apache.http.Header[] headers, String name) {
+    if (headers != null) {
+      for (org.apache.http.Header header : headers) {
+        if (header.getName().equalsIgnoreCase(name)) {
+          return header.getValue();
+        }
+      }
+    }
+    return null;
+  }
+
+  private static String findHeader(Header[] headers, String name) {
+    if (headers != null) {
+      for (Header header : headers) {
+        if (header.getName().equalsIgnoreCase(name)) {
+          return header.getValue();
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean isSharedResponse(String cacheControl, String vary) {
+    if (cacheControl == null || vary != null && "*".equals(vary.trim())) {
+      return false;
+    }
+    String directives = cacheControl.toLowerCase(Locale.US);
+    return (hasDirective(directives, "public") || hasDirective(directives, "immutable"))
+        && !hasDirective(directives, "private") && !hasDirective(directives, "no-store");
+  }
+
+  private static boolean hasDirective(String directives, String name) {
+    return findDirective(directives, name) != null;
+  }
+
+  private static String findDirective(String directives, String name) {
+    for (String directive : directives.split(",")) {
+      String[] parts = directive.trim().split("=", 2);
+      if (parts[0].trim().equals(name)) {
+        return parts.length > 1 ? parts[1].trim().replace("\"", "") : "";
+      }
+    }
+    return null;
+  }
+
+  private static Map<String, String> buildVaryHeaders(String vary,
+      HeaderValueProvider requestHeaders) {
+    if (vary == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, String> ret = new LinkedHashMap<>();
+    for (String header : vary.split(",")) {
+      String name = header.trim();
+      if (!name.isEmpty()) {
+        ret.put(name, requestHeaders.get(name));
+      }
+    }
+    return ret;
+  }
+
+  // same logic as JMeter cache manager, but preferring s-maxage, as shared caches do
+  private static long computeExpires(String cacheControl, HeaderValueProvider headers) {
+    String directives = cacheControl != null ? cacheControl.toLowerCase(Locale.US) : "";
+    if (hasDirective(directives, "no-cache")) {
+      return 0;
+    }
+    long now = System.currentTimeMillis();
+    String maxAge = findDirective(directives, "s-maxage");
+    if (maxAge == null) {
+      maxAge = findDirective(directives, "max-age");
+    }
+    if (maxAge != null) {
+      try {
+        return now + Long.parseLong(maxAge) * 1000;
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+    Date expires = parseDate(headers.get(HTTPConstants.EXPIRES));
+    if (expires != null) {
+      return expires.getTime();
+    }
+    if (hasDirective(directives, "immutable")) {
+      return now + ONE_YEAR_MS;
+    }
+    Date lastModified = parseDate(headers.get(HTTPConstants.LAST_MODIFIED));
+    Date date = parseDate(headers.get(HTTPConstants.DATE));
+    if (lastModified != null && date != null) {
+      return now + Math.round((date.getTime() - lastModified.getTime()) * 0.1);
+    }
+    return 0;
+  }
+
+  private static Date parseDate(String value) {
+    return value != null ? DateUtils.parseDate(value) : null;
+  }
+
+  @Override
+  public void setHeaders(URL url, HttpRequestBase request) {
+    SharedEntry entry = findEntry(url.toString(),
+        name -> findHeader(request.getAllHeaders(), name));
+    if (entry != null) {
+      entry.setConditionalHeaders(request::setHeader);
+    } else if (userCache != null) {
+      userCache.setHeaders(url, request);
+    } else {
+      super.setHeaders(url, request);
+    }
+  }
+
+  @Override
+  public void setHeaders(HttpURLConnection conn, Header[] headers, URL url) {
+    SharedEntry entry = findEntry(url.toString(), name -> findHeader(headers, name));
+    if (entry != null) {
+      entry.setConditionalHeaders(conn::addRequestProperty);
+    } else if (userCache != null) {
+      userCache.setHeaders(conn, headers, url);
+    } else {
+      super.setHeaders(conn, headers, url);
+    }
+  }
+
+  @Override
+  public boolean inCache(URL url, org.apache.http.Header[] headers) {
+    Boolean ret = inSharedCache(url, name -> findHeader(headers, name));
+    if (ret != null) {
+      return ret;
+    }
+    return userCache != null ? userCache.inCache(url, headers) : super.inCache(url, headers);
+  }
+
+  @Override
+  public boolean inCache(URL url, Header[] headers) {
+    Boolean ret = inSharedCache(url, name -> findHeader(headers, name));
+    if (ret != null) {
+      return ret;
+    }
+    return userCache != null ? userCache.inCache(url, headers) : super.inCache(url, headers);
+  }
+
+  /*
+   returns null when there is no shared entry for the url and request headers, in which case the
+   thread cache has to be used.
+   */
+  private Boolean inSharedCache(URL url, HeaderValueProvider requestHeaders) {
+    SharedEntry entry = findEntry(url.toString(), requestHeaders);
+    if (entry == null) {
+      return null;
+    }
+    boolean hit = getUseExpires() && entry.expires > System.currentTimeMillis();
+    if (hit) {
+      cache.stats.registerHit();
+    } else {
+      cache.stats.registerMiss();
+    }
+    return hit;
+  }
+
+  @Override
+  public CacheManager createCacheManagerProxy() {
+    SharedCacheManager ret = new SharedCacheManager();
+    ret.cache = cache;
+    ret.userCache = userCache != null ? userCache : super.createCacheManagerProxy();
+    ret.setUseExpires(getUseExpires());
+    return ret;
+  }
+
+  @Override
+  public Object clone() {
+    SharedCacheManager ret = (SharedCacheManager) super.clone();
+    ret.cache = cache;
+    ret.userCache = userCache;
+    return ret;
+  }
+
+  @Override
+  public Object componentStats() {
+    return cache.stats;
+  }
+
+  private static class SharedEntry {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final String lastModified;
+    private final String etag;
+    private final long expires;
+    private final Map<String, String> varyHeaders;
+    private volatile long lastAccess;
+
+    private SharedEntry(String lastModified, String etag, long expires,
+        Map<String, String> varyHeaders) {
+      this.lastModified = lastModified;
+      this.etag = etag;
+      this.expires = expires;
+      this.varyHeaders = varyHeaders;
+    }
+
+    private SharedEntry refresh(long expires) {
+      return new SharedEntry(lastModified, etag, expires, varyHeaders);
+    }
+
+    private boolean matches(HeaderValueProvider requestHeaders) {
+      return varyHeaders.entrySet().stream()
+          .allMatch(h -> Objects.equals(h.getValue(), requestHeaders.get(h.getKey())));
+    }
+
+    private void setConditionalHeaders(HeaderSetter setter) {
+      if (lastModified != null) {
+        setter.set(HTTPConstants.IF_MODIFIED_SINCE, lastModified);
+      }
+      if (etag != null) {
+        setter.set(HTTPConstants.IF_NONE_MATCH, etag);
+      }
+    }
+
+    private long estimateBytes(String url) {
+      long chars = url.length() + length(lastModified) + length(etag);
+      for (Map.Entry<String, String> header : varyHeaders.entrySet()) {
+        chars += header.getKey().length() + length(header.getValue());
+      }
+      return ENTRY_OVERHEAD_BYTES + 2L * chars;
+    }
+
+    private static int length(String value) {
+      return value != null ? value.length() : 0;
+    }
+
+  }
+
+  private interface HeaderSetter {
+
+    void set(String name, String value);
+
+  }
+
+  /*
+   Lookups don't require any lock, and only register the access time of the entry, at most once per
+   ACCESS_RESOLUTION_NANOS to avoid contention on frequently used entries. When the maximum number
+   of entries is exceeded, an approximate LRU eviction is done under a separate lock: the least
+   recently used entry among a sample of entries is evicted. Samples are taken by a hand which
+   cycles through the entries, so all entries are eventually considered for eviction.
+   */
+  private static class SharedCache {
+
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+    private static final long ACCESS_RESOLUTION_NANOS = 1_000_000;
+
+    private final int maxEntries;
+    private final Map<String, SharedEntry> entries = new ConcurrentHashMap<>();
+    private final SharedCacheStats stats = new SharedCacheStats();
+    private final Object evictionLock = new Object();
+    // guarded by evictionLock
+    private Iterator<Map.Entry<String, SharedEntry>> evictionHand;
+
+    private SharedCache(int maxEntries) {
+      this.maxEntries = maxEntries;
+    }
+
+    private SharedEntry get(String url) {
+      SharedEntry ret = entries.get(url);
+      if (ret != null) {
+        long now = System.nanoTime();
+        if (now - ret.lastAccess > ACCESS_RESOLUTION_NANOS) {
+          ret.lastAccess = now;
+        }
+      }
+      return ret;
+    }
+
+    private void put(String url, SharedEntry entry) {
+      entry.lastAccess = System.nanoTime();
+      SharedEntry previous = entries.put(url, entry);
+      if (previous != null) {
+        stats.registerEntryRemoved(previous.estimateBytes(url), false);
+      }
+      stats.registerEntryAdded(entry.estimateBytes(url));
+      if (entries.size() > maxEntries) {
+        evict();
+      }
+    }
+
+    private void remove(String url) {
+      SharedEntry previous = entries.remove(url);
+      if (previous != null) {
+        stats.registerEntryRemoved(previous.estimateBytes(url), false);
+      }
+    }
+
+    private void evict() {
+      synchronized (evictionLock) {
+        while (entries.size() > maxEntries) {
+          Map.Entry<String, SharedEntry> eldest = null;
+          int sampleSize = Math.min(EVICTION_SAMPLE_SIZE, entries.size());
+          for (int i = 0; i < sampleSize; i++) {
+            Map.Entry<String, SharedEntry> candidate = nextEvictionCandidate();
+            if (candidate == null) {
+              break;
+            }
+            if (eldest == null
+                || candidate.getValue().lastAccess - eldest.getValue().lastAccess < 0) {
+              eldest = candidate;
+            }
+          }
+          if (eldest == null) {
+            return;
+          }
+          if (entries.remove(eldest.getKey(), eldest.getValue())) {
+            stats.registerEntryRemoved(eldest.getValue().estimateBytes(eldest.getKey()), true);
+          }
+        }
+      }
+    }
+
+    private Map.Entry<String, SharedEntry> nextEvictionCandidate() {
+      if (evictionHand == null || !evictionHand.hasNext()) {
+        evictionHand = entries.entrySet().iterator();
+        if (!evictionHand.hasNext()) {
+          return null;
+        }
+      }
+      return evictionHand.next();
+    }
+
+  }
+
+}
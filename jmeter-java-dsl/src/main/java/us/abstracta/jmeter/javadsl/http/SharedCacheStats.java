@@ -0,0 +1,98 @@
+package us.abstracta.jmeter.javadsl.http;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+
+/**
+ * Contains statistics of the HTTP cache shared by all threads of a test plan.
+ * <p>
+ * Get it from test plan statistics with {@link TestPlanStats#component(Class)}. For example:
+ * <pre>{@code
+ * stats.component(SharedCacheStats.class).hits()
+ * }</pre>
+ *
+ * @see DslCacheManager#sharedPublicEntries(int)
+ * @since 1.4
+ */
+public class SharedCacheStats {
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final AtomicInteger entries = new AtomicInteger();
+  private final AtomicLong memoryBytes = new AtomicLong();
+
+  protected void registerHit() {
+    hits.increment();
+  }
+
+  protected void registerMiss() {
+    misses.increment();
+  }
+
+  protected void registerEntryAdded(long entryBytes) {
+    entries.incrementAndGet();
+    memoryBytes.addAndGet(entryBytes);
+  }
+
+  protected void registerEntryRemoved(long entryBytes, boolean evicted) {
+    entries.decrementAndGet();
+    memoryBytes.addAndGet(-entryBytes);
+    if (evicted) {
+      evictions.increment();
+    }
+  }
+
+  /**
+   * Provides the number of requests that were not sent, since their responses were fresh in the
+   * shared cache.
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Provides the number of requests to shared resources that were not found, or were expired, in
+   * the shared cache.
+   * <p>
+   * Requests to resources without a shared entry are only counted when their responses are
+   * shareable (public or immutable), so requests to private resources, which are cached by each
+   * thread, are not included.
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Provides the number of entries removed from the shared cache to keep it within its maximum
+   * size.
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Provides the current number of entries in the shared cache.
+   */
+  public int entries() {
+    return entries.get();
+  }
+
+  /**
+   * Provides an estimation of the heap memory, in bytes, currently used by shared cache entries.
+   */
+  public long memoryBytes() {
+    return memoryBytes.get();
+  }
+
+  /**
+   * Provides the ratio of hits over the total number of shared cache lookups.
+   */
+  public double hitRatio() {
+    long total = hits() + misses();
+    return total == 0 ? 0 : (double) hits() / total;
+  }
+
+}
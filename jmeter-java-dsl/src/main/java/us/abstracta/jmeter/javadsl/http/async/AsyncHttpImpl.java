@@ -0,0 +1,797 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.hc.client5.http.auth.AuthScope;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.jmeter.protocol.http.control.CacheManager;
+import org.apache.jmeter.protocol.http.control.CookieManager;
+import org.apache.jmeter.protocol.http.control.HeaderManager;
+import org.apache.jmeter.protocol.http.sampler.HTTPAbstractImpl;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
+import org.apache.jmeter.protocol.http.util.ConversionUtils;
+import org.apache.jmeter.protocol.http.util.HTTPArgument;
+import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.apache.jmeter.protocol.http.util.HTTPFileArg;
+import org.apache.jmeter.services.FileServer;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+
+/**
+ * JMeter HTTP implementation which sends requests through a non-blocking client shared by all
+ * JMeter threads of a test plan.
+ * <p>
+ * Requests are sent, and responses are read, by the client IO threads, and each sample is completed
+ * through a callback, so JMeter threads only wait for the callback. This way JMeter threads don't
+ * hold any connection or socket, and waiting is cheap when they are virtual threads. Additionally,
+ * connections are shared by all JMeter threads, and HTTP/2 connections multiplex requests of
+ * several JMeter threads. When HTTP/2 is forced (with {@link AsyncHttpSampler#HTTP2} property),
+ * requests are sent through a {@link Http2ConnectionPool} which bounds the number of connections
+ * and concurrent streams.
+ * <p>
+ * The resulting {@link HTTPSampleResult} contains same information as the one generated by JMeter
+ * HTTP implementations (response code, headers, body, cookies, etc), so extractors, assertions and
+ * listeners work as usual. Response bodies are decoded according to their Content-Encoding header
+ * (gzip, deflate or br) as they are received, with a {@link ResponseBodyDecoder}, while body size
+ * reports the received (encoded) bytes. HTTP headers, cookies and cache managers are also
+ * supported. Redirects are handled by JMeter, as with the rest of implementations, while embedded
+ * resources are requested by {@link AsyncHttpSampler} through
+ * {@link #sampleResources(List, int, int, int)}.
+ * <p>
+ * Generated results are {@link AsyncHttpSampleResult}s, which additionally contain the time spent
+ * waiting for a connection from the shared pool.
+ * <p>
+ * Authorization managers, client certificates and source IP settings are not supported.
+ *
+ * @since 1.4
+ */
+public class AsyncHttpImpl extends HTTPAbstractImpl {
+
+  private static final Set<String> QUERY_PARAMS_METHODS = new HashSet<>(Arrays.asList(
+      HTTPConstants.GET, HTTPConstants.DELETE, HTTPConstants.OPTIONS));
+  private static final String FILE_CONTENT_PLACEHOLDER = "<actual file content, not shown here>";
+  private static final String CRLF = "\r\n";
+  private static final Set<String> IGNORED_HEADERS = new HashSet<>(Arrays.asList(
+      HTTPConstants.HEADER_CONTENT_LENGTH.toLowerCase(Locale.US), "transfer-encoding"));
+
+  private final SharedAsyncHttpClient client;
+  private final Set<Future<?>> currentRequests = ConcurrentHashMap.newKeySet();
+
+  public AsyncHttpImpl(HTTPSamplerBase testElement, SharedAsyncHttpClient client) {
+    super(testElement);
+    this.client = client;
+  }
+
+  @Override
+  protected HTTPSampleResult sample(URL url, String method, boolean areFollowingRedirect,
+      int frameDepth) {
+    return completeSample(startSample(url, method, null), areFollowingRedirect, frameDepth);
+  }
+
+  /*
+   http2Stream is a stream already reserved for the request, or null if the request should wait
+   for one when required.
+   */
+  private PendingSample startSample(URL url, String method,
+      Http2ConnectionPool.Stream http2Stream) {
+    AsyncHttpSampleResult res = new AsyncHttpSampleResult();
+    configureSampleLabel(res, url);
+    res.setHTTPMethod(method);
+    res.setURL(url);
+    res.sampleStart();
+    PendingSample ret = new PendingSample(res);
+    ret.http2Stream = http2Stream;
+    try {
+      org.apache.jmeter.protocol.http.control.Header[] jmeterHeaders = getJmeterHeaders();
+      CacheManager cacheManager = getCacheManager();
+      if (cacheManager != null && HTTPConstants.GET.equalsIgnoreCase(method)
+          && cacheManager.inCache(url, jmeterHeaders)) {
+        ret.result = updateSampleResultForResourceInCache(res);
+        ret.release();
+        return ret;
+      }
+      HttpRequest request = new BasicHttpRequest(method, ConversionUtils.sanitizeUrl(url));
+      for (org.apache.jmeter.protocol.http.control.Header header : jmeterHeaders) {
+        if (!IGNORED_HEADERS.contains(header.getName().toLowerCase(Locale.US))) {
+          request.addHeader(header.getName(), header.getValue());
+        }
+      }
+      CookieManager cookieManager = getCookieManager();
+      if (cookieManager != null) {
+        String cookies = cookieManager.getCookieHeaderForURL(url);
+        if (cookies != null) {
+          request.addHeader(HTTPConstants.HEADER_COOKIE, cookies);
+          res.setCookies(cookies);
+        }
+      }
+      if (cacheManager != null) {
+        buildCacheHeaders(cacheManager, url, jmeterHeaders)
+            .forEach((name, values) -> values.forEach(v -> request.addHeader(name, v)));
+      }
+      RequestBody body = buildRequestBody(method, res);
+      String requestHeaders = buildHeadersString(null, request.getHeaders());
+      res.setRequestHeaders(requestHeaders);
+      res.setSentBytes(requestHeaders.length() + (body != null ? body.length : 0));
+      ret.context = buildContext();
+      ret.responseConsumer = new SampleResponseConsumer(res,
+          testElement.useMD5()
+              ? testElement.getPropertyAsInt(AsyncHttpSampler.RESPONSE_BODY_MAX_KEPT_BYTES, 0)
+              : Integer.MAX_VALUE);
+      long poolWaitStart = System.currentTimeMillis();
+      if (ret.http2Stream == null) {
+        ret.http2Stream = openHttp2Stream(url);
+      }
+      CloseableHttpAsyncClient httpClient;
+      if (ret.http2Stream != null) {
+        res.setPoolWaitTime(System.currentTimeMillis() - poolWaitStart);
+        httpClient = ret.http2Stream.client();
+        ret.context.setAttribute(SharedAsyncHttpClient.CONNECTED_LISTENER_ATTRIBUTE,
+            (Runnable) res::connectEnd);
+      } else {
+        httpClient = client.getClient(
+            testElement.getPropertyAsInt(AsyncHttpSampler.POOL_MAX_PER_ROUTE, Integer.MAX_VALUE),
+            testElement.getPropertyAsInt(AsyncHttpSampler.POOL_MAX_TOTAL, Integer.MAX_VALUE));
+        HttpClientContext context = ret.context;
+        context.setAttribute(SharedAsyncHttpClient.CONNECTED_LISTENER_ATTRIBUTE,
+            (Runnable) () -> registerPooledConnection(res, context, poolWaitStart));
+      }
+      CompletableFuture<HttpResponse> response = ret.response;
+      /*
+       HTTP/2 streams are released as soon as responses are received, so threads waiting for a
+       stream don't depend on the thread which sent the request to process the response.
+       */
+      Http2ConnectionPool.Stream stream = ret.http2Stream;
+      ret.request = httpClient.execute(
+          new BasicRequestProducer(request, body != null ? body.producer : null),
+          ret.responseConsumer, ret.context, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse result) {
+              closeStream();
+              response.complete(result);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+              closeStream();
+              response.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+              closeStream();
+              response.cancel(false);
+            }
+
+            private void closeStream() {
+              if (stream != null) {
+                stream.close();
+              }
+            }
+          });
+      currentRequests.add(ret.request);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      ret.fail(buildErrorResult(e, res));
+    } catch (Exception e) {
+      ret.fail(buildErrorResult(e, res));
+    }
+    return ret;
+  }
+
+  private HTTPSampleResult completeSample(PendingSample sample, boolean areFollowingRedirect,
+      int frameDepth) {
+    if (sample.result != null) {
+      return sample.result;
+    }
+    AsyncHttpSampleResult res = sample.res;
+    try {
+      /*
+       CompletableFuture, in contrast to the future returned by the client, parks the thread while
+       waiting, which avoids pinning the carrier thread when JMeter threads are virtual threads.
+       */
+      processResponse(sample.response.get(), sample.responseConsumer.getBody(),
+          sample.responseConsumer.getBodySize(), sample.res.getURL(), sample.context, res);
+      return resultProcessing(areFollowingRedirect, frameDepth, res);
+    } catch (InterruptedException e) {
+      cancelCurrentRequests();
+      Thread.currentThread().interrupt();
+      return buildErrorResult(e, res);
+    } catch (ExecutionException e) {
+      return buildErrorResult(e.getCause(), res);
+    } catch (Exception e) {
+      return buildErrorResult(e, res);
+    } finally {
+      sample.release();
+    }
+  }
+
+  /**
+   * Samples the given embedded resources with GET requests, sending several requests at the same
+   * time, as browsers do.
+   * <p>
+   * Requests are sent and their responses processed by the calling JMeter thread, so cookies,
+   * cache, and the rest of the thread state are properly handled, while responses are received by
+   * the client IO threads. Each time a response is received, the calling thread processes it and
+   * sends the next resource request that does not exceed the given limits. Requests sent through
+   * forced HTTP/2 connections are not limited per host, since they are multiplexed as streams
+   * bounded by the {@link Http2ConnectionPool}. When no stream is available and other requests are
+   * in progress, the calling thread processes their responses instead of waiting for a stream.
+   *
+   * @param urls           specifies the URLs of the resources to sample.
+   * @param frameDepth     specifies the depth of the resources in the page.
+   * @param maxConcurrency specifies the maximum number of requests to send at the same time.
+   * @param maxPerHost     specifies the maximum number of requests to send at the same time to
+   *                       each host.
+   * @return the results of sampling the resources, in same order as given URLs.
+   * @throws InterruptedException when the thread is interrupted while waiting for responses, in
+   *                              which case pending requests are cancelled.
+   */
+  public List<HTTPSampleResult> sampleResources(List<URL> urls, int frameDepth,
+      int maxConcurrency, int maxPerHost) throws InterruptedException {
+    List<HTTPSampleResult> ret = new ArrayList<>(Collections.nCopies(urls.size(), null));
+    List<Integer> queued = new LinkedList<>();
+    for (int i = 0; i < urls.size(); i++) {
+      queued.add(i);
+    }
+    Map<Integer, PendingSample> inFlight = new HashMap<>();
+    Map<String, Integer> hostsRequests = new HashMap<>();
+    BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+    try {
+      while (!queued.isEmpty() || !inFlight.isEmpty()) {
+        Iterator<Integer> it = queued.iterator();
+        while (inFlight.size() < maxConcurrency && it.hasNext()) {
+          int index = it.next();
+          URL url = urls.get(index);
+          String host = buildHostKey(url);
+          Http2ConnectionPool.Stream http2Stream = null;
+          if (usesHttp2Pool(url)) {
+            if (!inFlight.isEmpty()) {
+              http2Stream = getHttp2Pool().tryOpenStream(host);
+              if (http2Stream == null) {
+                continue;
+              }
+            }
+          } else if (hostsRequests.getOrDefault(host, 0) >= maxPerHost) {
+            continue;
+          }
+          it.remove();
+          PendingSample sample = startSample(url, HTTPConstants.GET, http2Stream);
+          if (sample.result != null) {
+            ret.set(index, sample.result);
+            continue;
+          }
+          hostsRequests.merge(host, 1, Integer::sum);
+          inFlight.put(index, sample);
+          sample.response.whenComplete((r, e) -> completed.add(index));
+        }
+        if (inFlight.isEmpty()) {
+          continue;
+        }
+        int index = completed.take();
+        PendingSample sample = inFlight.remove(index);
+        hostsRequests.merge(buildHostKey(sample.res.getURL()), -1, Integer::sum);
+        ret.set(index, completeSample(sample, false, frameDepth));
+      }
+      return ret;
+    } catch (InterruptedException e) {
+      inFlight.values().forEach(PendingSample::release);
+      cancelCurrentRequests();
+      throw e;
+    }
+  }
+
+  /*
+   Pool wait time is the time until a new connection started to be established, or a pooled one was
+   reused.
+   */
+  private static void registerPooledConnection(AsyncHttpSampleResult res, HttpContext context,
+      long poolWaitStart) {
+    res.connectEnd();
+    Long connectStart = (Long) context.getAttribute(SharedAsyncHttpClient.CONNECT_START_ATTRIBUTE);
+    res.setPoolWaitTime(
+        (connectStart != null ? connectStart : System.currentTimeMillis()) - poolWaitStart);
+  }
+
+  private Http2ConnectionPool.Stream openHttp2Stream(URL url) throws InterruptedException {
+    return usesHttp2Pool(url) ? getHttp2Pool().openStream(buildHostKey(url)) : null;
+  }
+
+  private Http2ConnectionPool getHttp2Pool() {
+    int maxConnections = testElement.getPropertyAsInt(AsyncHttpSampler.HTTP2_MAX_CONNECTIONS,
+        AsyncHttpSampler.DEFAULT_HTTP2_MAX_CONNECTIONS);
+    int maxStreams = testElement.getPropertyAsInt(AsyncHttpSampler.HTTP2_MAX_STREAMS,
+        AsyncHttpSampler.DEFAULT_HTTP2_MAX_STREAMS);
+    return client.getHttp2Pool(maxConnections, maxStreams);
+  }
+
+  private boolean usesHttp2Pool(URL url) {
+    String http2 = testElement.getPropertyAsString(AsyncHttpSampler.HTTP2);
+    boolean secure = HTTPConstants.PROTOCOL_HTTPS.equalsIgnoreCase(url.getProtocol());
+    // HTTP/2 only clients don't support proxies, so the negotiating client is used in such case
+    return (AsyncHttpSampler.H2C.equals(http2) || AsyncHttpSampler.H2.equals(http2) && secure)
+        && getProxyHost().isEmpty();
+  }
+
+  private static String buildHostKey(URL url) {
+    int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+    return url.getProtocol() + "://" + url.getHost() + ":" + port;
+  }
+
+  private org.apache.jmeter.protocol.http.control.Header[] getJmeterHeaders() {
+    HeaderManager headerManager = getHeaderManager();
+    if (headerManager == null) {
+      return new org.apache.jmeter.protocol.http.control.Header[0];
+    }
+    org.apache.jmeter.protocol.http.control.Header[] ret =
+        new org.apache.jmeter.protocol.http.control.Header[headerManager.size()];
+    for (int i = 0; i < ret.length; i++) {
+      ret[i] = headerManager.get(i);
+    }
+    return ret;
+  }
+
+  /*
+   JMeter cache manager only provides methods to set conditional request headers in JMeter HTTP
+   implementations requests, so we use a connection which is never connected to collect them.
+   */
+  private Map<String, List<String>> buildCacheHeaders(CacheManager cacheManager, URL url,
+      org.apache.jmeter.protocol.http.control.Header[] headers) {
+    HttpURLConnection conn = new HttpURLConnection(url) {
+
+      @Override
+      public void disconnect() {
+      }
+
+      @Override
+      public boolean usingProxy() {
+        return false;
+      }
+
+      @Override
+      public void connect() {
+      }
+
+    };
+    cacheManager.setHeaders(conn, headers, url);
+    return conn.getRequestProperties();
+  }
+
+  private RequestBody buildRequestBody(String method, HTTPSampleResult res) throws IOException {
+    Charset charset = getContentCharset();
+    if (getSendFileAsPostBody()) {
+      HTTPFileArg fileArg = getHTTPFiles()[0];
+      File file = FileServer.getFileServer().getResolvedFile(fileArg.getPath());
+      res.setQueryString(FILE_CONTENT_PLACEHOLDER);
+      return buildBuffersBody(parseContentType(fileArg.getMimeType(), null),
+          client.getFileBodyCache().getContents(file));
+    } else if (getUseMultipart()) {
+      return buildMultipartBody(charset, res);
+    } else if (getSendParameterValuesAsPostBody()) {
+      StringBuilder body = new StringBuilder();
+      for (JMeterProperty prop : getArguments()) {
+        body.append(((HTTPArgument) prop.getObjectValue()).getEncodedValue(charset.name()));
+      }
+      res.setQueryString(body.toString());
+      return buildBytesBody(body.toString().getBytes(charset), null);
+    } else if (hasArguments() && !QUERY_PARAMS_METHODS.contains(method)) {
+      String body = testElement.getQueryString(charset.name());
+      res.setQueryString(body);
+      return buildBytesBody(body.getBytes(charset),
+          ContentType.APPLICATION_FORM_URLENCODED.withCharset(charset));
+    } else {
+      return null;
+    }
+  }
+
+  private Charset getContentCharset() {
+    String encoding = getContentEncoding();
+    return encoding == null || encoding.isEmpty() ? StandardCharsets.UTF_8
+        : Charset.forName(encoding);
+  }
+
+  private static ContentType parseContentType(String contentType, Charset charset) {
+    if (contentType == null || contentType.isEmpty()) {
+      return null;
+    }
+    ContentType ret = ContentType.parse(contentType);
+    return charset != null && ret.getCharset() == null ? ret.withCharset(charset) : ret;
+  }
+
+  /*
+   Multipart body is built as a sequence of buffers, instead of using HttpClient multipart support,
+   to avoid loading files contents in the heap.
+   */
+  private RequestBody buildMultipartBody(Charset charset, HTTPSampleResult res)
+      throws IOException {
+    String boundary = UUID.randomUUID().toString().replace("-", "");
+    List<ByteBuffer> buffers = new ArrayList<>();
+    StringBuilder queryString = new StringBuilder();
+    StringBuilder part = new StringBuilder();
+    for (JMeterProperty prop : getArguments()) {
+      HTTPArgument arg = (HTTPArgument) prop.getObjectValue();
+      if (!arg.isSkippable(arg.getName())) {
+        ContentType contentType = parseContentType(arg.getContentType(), charset);
+        appendPartHeaders(part, boundary, arg.getName(), null,
+            contentType != null ? contentType : ContentType.TEXT_PLAIN.withCharset(charset),
+            "8bit");
+        part.append(arg.getValue())
+            .append(CRLF);
+      }
+    }
+    for (HTTPFileArg fileArg : getHTTPFiles()) {
+      File file = FileServer.getFileServer().getResolvedFile(fileArg.getPath());
+      ContentType contentType = parseContentType(fileArg.getMimeType(), null);
+      appendPartHeaders(part, boundary, fileArg.getParamName(), file.getName(),
+          contentType != null ? contentType : ContentType.APPLICATION_OCTET_STREAM, "binary");
+      addMultipartChunk(part, charset, buffers, queryString);
+      buffers.addAll(Arrays.asList(client.getFileBodyCache().getContents(file)));
+      queryString.append(FILE_CONTENT_PLACEHOLDER);
+      part.append(CRLF);
+    }
+    part.append("--")
+        .append(boundary)
+        .append("--")
+        .append(CRLF);
+    addMultipartChunk(part, charset, buffers, queryString);
+    res.setQueryString(queryString.toString());
+    return buildBuffersBody(ContentType.create(ContentType.MULTIPART_FORM_DATA.getMimeType(),
+            new BasicNameValuePair("boundary", boundary)),
+        buffers.toArray(new ByteBuffer[0]));
+  }
+
+  // same format as the one used by JMeter HttpClient 4 implementation
+  private static void appendPartHeaders(StringBuilder part, String boundary, String name,
+      String fileName, ContentType contentType, String transferEncoding) {
+    part.append("--")
+        .append(boundary)
+        .append(CRLF)
+        .append("Content-Disposition: form-data; name=\"")
+        .append(escapeQuotes(name))
+        .append('"');
+    if (fileName != null) {
+      part.append("; filename=\"")
+          .append(escapeQuotes(fileName))
+          .append('"');
+    }
+    part.append(CRLF)
+        .append(HTTPConstants.HEADER_CONTENT_TYPE)
+        .append(": ")
+        .append(contentType)
+        .append(CRLF)
+        .append("Content-Transfer-Encoding: ")
+        .append(transferEncoding)
+        .append(CRLF)
+        .append(CRLF);
+  }
+
+  private static String escapeQuotes(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  private static void addMultipartChunk(StringBuilder chunk, Charset charset,
+      List<ByteBuffer> buffers, StringBuilder queryString) {
+    buffers.add(ByteBuffer.wrap(chunk.toString().getBytes(charset)));
+    queryString.append(chunk);
+    chunk.setLength(0);
+  }
+
+  private RequestBody buildBuffersBody(ContentType contentType, ByteBuffer... buffers) {
+    ByteBuffersEntityProducer producer = new ByteBuffersEntityProducer(contentType, buffers);
+    return new RequestBody(producer, producer.getContentLength());
+  }
+
+  private RequestBody buildBytesBody(byte[] body, ContentType contentType) {
+    return new RequestBody(AsyncEntityProducers.create(body, contentType), body.length);
+  }
+
+  private HttpClientContext buildContext() {
+    HttpClientContext ret = HttpClientContext.create();
+    RequestConfig.Builder config = RequestConfig.custom();
+    int connectTimeout = getConnectTimeout();
+    if (connectTimeout > 0) {
+      config.setConnectTimeout(Timeout.ofMilliseconds(connectTimeout));
+    }
+    int responseTimeout = getResponseTimeout();
+    if (responseTimeout > 0) {
+      config.setResponseTimeout(Timeout.ofMilliseconds(responseTimeout));
+    }
+    String proxyHost = getProxyHost();
+    if (!proxyHost.isEmpty()) {
+      String proxyScheme = getProxyScheme();
+      int proxyPort = getProxyPortInt();
+      HttpHost proxy = new HttpHost(proxyScheme.isEmpty() ? null : proxyScheme, proxyHost,
+          proxyPort > 0 ? proxyPort : -1);
+      config.setProxy(proxy);
+      String proxyUser = getProxyUser();
+      if (!proxyUser.isEmpty()) {
+        BasicCredentialsProvider credentials = new BasicCredentialsProvider();
+        credentials.setCredentials(new AuthScope(proxy),
+            new UsernamePasswordCredentials(proxyUser, getProxyPass().toCharArray()));
+        ret.setCredentialsProvider(credentials);
+      }
+    }
+    ret.setRequestConfig(config.build());
+    return ret;
+  }
+
+  private void processResponse(HttpResponse response, byte[] body, long bodySize, URL url,
+      HttpClientContext context, HTTPSampleResult res) {
+    int code = response.getCode();
+    String reason = response.getReasonPhrase() != null ? response.getReasonPhrase()
+        : EnglishReasonPhraseCatalog.INSTANCE.getReason(code, Locale.ENGLISH);
+    res.setResponseCode(String.valueOf(code));
+    res.setResponseMessage(reason);
+    res.setSuccessful(isSuccessCode(code));
+    ProtocolVersion version = response.getVersion() != null ? response.getVersion()
+        : context.getProtocolVersion();
+    String responseHeaders = buildHeadersString(version + " " + code + " " + reason,
+        response.getHeaders());
+    res.setResponseHeaders(responseHeaders);
+    Header contentType = response.getLastHeader(HTTPConstants.HEADER_CONTENT_TYPE);
+    if (contentType != null) {
+      res.setContentType(contentType.getValue());
+      res.setEncodingAndType(contentType.getValue());
+    }
+    res.setResponseData(body);
+    res.setHeadersSize(responseHeaders.length());
+    res.setBodySize(bodySize);
+    if (res.isRedirect()) {
+      Header location = response.getLastHeader(HTTPConstants.HEADER_LOCATION);
+      if (location == null) {
+        throw new IllegalArgumentException(
+            "Missing location header in redirect for " + res.getHTTPMethod() + " " + url);
+      }
+      res.setRedirectLocation(location.getValue());
+    }
+    CookieManager cookieManager = getCookieManager();
+    if (cookieManager != null) {
+      for (Header header : response.getHeaders(HTTPConstants.HEADER_SET_COOKIE)) {
+        cookieManager.addCookieFromHeader(header.getValue(), url);
+      }
+    }
+    CacheManager cacheManager = getCacheManager();
+    if (cacheManager != null) {
+      cacheManager.saveDetails(buildHttpClient4Response(response, reason), res);
+    }
+  }
+
+  private static String buildHeadersString(String firstLine, Header[] headers) {
+    StringBuilder ret = new StringBuilder();
+    if (firstLine != null) {
+      ret.append(firstLine)
+          .append('\n');
+    }
+    for (Header header : headers) {
+      ret.append(header.getName())
+          .append(": ")
+          .append(header.getValue())
+          .append('\n');
+    }
+    return ret.toString();
+  }
+
+  // JMeter cache manager only supports HttpClient 4 responses
+  private static org.apache.http.HttpResponse buildHttpClient4Response(HttpResponse response,
+      String reason) {
+    org.apache.http.HttpResponse ret = new org.apache.http.message.BasicHttpResponse(
+        org.apache.http.HttpVersion.HTTP_1_1, response.getCode(), reason);
+    for (Header header : response.getHeaders()) {
+      ret.addHeader(header.getName(), header.getValue());
+    }
+    return ret;
+  }
+
+  private HTTPSampleResult buildErrorResult(Throwable e, HTTPSampleResult res) {
+    if (res.getEndTime() == 0) {
+      res.sampleEnd();
+    }
+    return errorResult(e, res);
+  }
+
+  @Override
+  public boolean interrupt() {
+    return cancelCurrentRequests();
+  }
+
+  private boolean cancelCurrentRequests() {
+    boolean ret = false;
+    for (Future<?> request : currentRequests) {
+      ret |= request.cancel(true);
+    }
+    return ret;
+  }
+
+  private class PendingSample {
+
+    private final AsyncHttpSampleResult res;
+    private final CompletableFuture<HttpResponse> response = new CompletableFuture<>();
+    private HttpClientContext context;
+    private SampleResponseConsumer responseConsumer;
+    private Http2ConnectionPool.Stream http2Stream;
+    private Future<?> request;
+    private HTTPSampleResult result;
+
+    private PendingSample(AsyncHttpSampleResult res) {
+      this.res = res;
+    }
+
+    private void fail(HTTPSampleResult result) {
+      this.result = result;
+      release();
+    }
+
+    private void release() {
+      if (request != null) {
+        currentRequests.remove(request);
+        request = null;
+      }
+      if (http2Stream != null) {
+        http2Stream.close();
+        http2Stream = null;
+      }
+    }
+
+  }
+
+  private static class RequestBody {
+
+    private final AsyncEntityProducer producer;
+    private final long length;
+
+    private RequestBody(AsyncEntityProducer producer, long length) {
+      this.producer = producer;
+      this.length = length;
+    }
+
+  }
+
+  /*
+   Response consumer which collects the response body and registers latency and end time as soon as
+   the response head and the response body are received, in the client IO threads, to avoid
+   including in sample times the time required to wake up the JMeter thread.
+
+   When response body is discarded, only its bytes and up to the given maximum number of bytes are
+   kept, avoiding allocating heap memory for the whole body.
+   */
+  private static class SampleResponseConsumer implements AsyncResponseConsumer<HttpResponse> {
+
+    private final HTTPSampleResult result;
+    private final int maxKeptBytes;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private long bodySize;
+    private ResponseBodyDecoder decoder;
+    private HttpResponse response;
+    private FutureCallback<HttpResponse> callback;
+
+    private SampleResponseConsumer(HTTPSampleResult result, int maxKeptBytes) {
+      this.result = result;
+      this.maxKeptBytes = maxKeptBytes;
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse response, EntityDetails entityDetails,
+        HttpContext context, FutureCallback<HttpResponse> resultCallback) {
+      result.latencyEnd();
+      this.response = response;
+      this.callback = resultCallback;
+      Header encoding = response.getFirstHeader(HTTPConstants.HEADER_CONTENT_ENCODING);
+      if (encoding != null && maxKeptBytes > 0) {
+        decoder = ResponseBodyDecoder.forEncoding(
+            encoding.getValue().trim().toLowerCase(Locale.ROOT), maxKeptBytes);
+      }
+      if (entityDetails == null) {
+        complete();
+      }
+    }
+
+    @Override
+    public void informationResponse(HttpResponse response, HttpContext context) {
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+      capacityChannel.update(Integer.MAX_VALUE);
+    }
+
+    // buffer is accessed as Buffer when required to avoid NoSuchMethodError when running in Java 8
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+      int length = src.remaining();
+      bodySize += length;
+      if (decoder != null) {
+        decoder.consume(src);
+        return;
+      }
+      int keptLength = (int) Math.min(length, maxKeptBytes - (long) body.size());
+      if (keptLength <= 0) {
+        ((Buffer) src).position(src.limit());
+      } else if (src.hasArray()) {
+        body.write(src.array(), src.arrayOffset() + src.position(), keptLength);
+        ((Buffer) src).position(src.limit());
+      } else {
+        byte[] chunk = new byte[keptLength];
+        src.get(chunk);
+        body.write(chunk, 0, chunk.length);
+        ((Buffer) src).position(src.limit());
+      }
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) {
+      complete();
+    }
+
+    private void complete() {
+      result.sampleEnd();
+      callback.completed(response);
+    }
+
+    @Override
+    public void failed(Exception cause) {
+    }
+
+    @Override
+    public void releaseResources() {
+      if (decoder != null) {
+        decoder.release();
+      }
+    }
+
+    private byte[] getBody() throws IOException {
+      return decoder != null ? decoder.finish() : body.toByteArray();
+    }
+
+    private long getBodySize() {
+      return bodySize;
+    }
+
+  }
+
+}
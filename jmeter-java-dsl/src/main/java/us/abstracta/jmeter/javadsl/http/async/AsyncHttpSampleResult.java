@@ -0,0 +1,35 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+
+/**
+ * HTTP sample result generated by {@link AsyncHttpImpl}, which additionally contains the time spent
+ * waiting for a connection (or an HTTP/2 stream) from the pool shared by all threads.
+ * <p>
+ * You can get it, for example, in a JSR223 post processor with
+ * {@code ((AsyncHttpSampleResult) prev).getPoolWaitTime()}.
+ *
+ * @since 1.4
+ */
+public class AsyncHttpSampleResult extends HTTPSampleResult {
+
+  private long poolWaitTime;
+
+  /**
+   * Gets the time spent waiting for a connection, or an HTTP/2 stream, to be available in the
+   * shared pool.
+   * <p>
+   * This time is also included in connect time, which additionally includes the time establishing
+   * a new connection, if one is established.
+   *
+   * @return the time in milliseconds.
+   */
+  public long getPoolWaitTime() {
+    return poolWaitTime;
+  }
+
+  public void setPoolWaitTime(long poolWaitTime) {
+    this.poolWaitTime = poolWaitTime;
+  }
+
+}
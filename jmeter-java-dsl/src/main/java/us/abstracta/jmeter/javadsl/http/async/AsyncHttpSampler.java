@@ -0,0 +1,301 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.protocol.http.parser.LinkExtractorParseException;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.apache.jmeter.protocol.http.util.ConversionUtils;
+import org.apache.jmeter.samplers.Interruptible;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
+import us.abstracta.jmeter.javadsl.http.DslHttpSampler.HttpClientImpl;
+
+/**
+ * HTTP sampler which sends requests with {@link AsyncHttpImpl} through a client shared by all
+ * threads of the test plan.
+ * <p>
+ * This is used instead of JMeter HTTP sampler for HTTP samplers using {@link HttpClientImpl#ASYNC}
+ * when the test plan runs in current JVM, since JMeter HTTP sampler does not support additional
+ * HTTP implementations. When the test plan is saved or runs in other JVM, such samplers just use
+ * {@link HttpClientImpl#HTTP_CLIENT} instead.
+ * <p>
+ * Embedded resources are downloaded through the same non-blocking client, with a limit of
+ * concurrent downloads per host (as browsers do) when {@link #EMBEDDED_RESOURCES_MAX_PER_HOST} is
+ * set, and their URLs are parsed with an {@link EmbeddedResourcesParser}.
+ *
+ * @since 1.4
+ */
+public class AsyncHttpSampler extends HTTPSamplerBase implements Interruptible {
+
+  /**
+   * Property specifying to force HTTP/2 with {@link #H2} or {@link #H2C} values.
+   * <p>
+   * When not set, HTTP/2 is only used when negotiated through TLS ALPN.
+   */
+  public static final String HTTP2 = "AsyncHttpSampler.http2";
+  /**
+   * Value of {@link #HTTP2} property to force HTTP/2 on TLS (https) connections, while keeping
+   * HTTP/1.1 on cleartext (http) ones.
+   */
+  public static final String H2 = "h2";
+  /**
+   * Value of {@link #HTTP2} property to force HTTP/2 on all connections, using prior knowledge
+   * HTTP/2 for cleartext (http) ones.
+   */
+  public static final String H2C = "h2c";
+  /**
+   * Property specifying the maximum number of HTTP/2 connections to each host.
+   */
+  public static final String HTTP2_MAX_CONNECTIONS = "AsyncHttpSampler.http2MaxConnections";
+  public static final int DEFAULT_HTTP2_MAX_CONNECTIONS = 1;
+  /**
+   * Property specifying the maximum number of concurrent streams on each HTTP/2 connection.
+   */
+  public static final String HTTP2_MAX_STREAMS = "AsyncHttpSampler.http2MaxStreams";
+  public static final int DEFAULT_HTTP2_MAX_STREAMS = 100;
+
+  /**
+   * Property specifying the maximum number of connections to each host in the shared pool.
+   * <p>
+   * When not set, connections are only limited by the load.
+   */
+  public static final String POOL_MAX_PER_ROUTE = "AsyncHttpSampler.poolMaxPerRoute";
+  /**
+   * Property specifying the maximum number of connections to all hosts in the shared pool.
+   * <p>
+   * When not set, connections are only limited by the load.
+   */
+  public static final String POOL_MAX_TOTAL = "AsyncHttpSampler.poolMaxTotal";
+
+  /**
+   * Property specifying the maximum number of bytes to keep from response bodies when they are
+   * discarded (saved as MD5 hash in JMeter HTTP implementations).
+   * <p>
+   * When not set, no bytes are kept.
+   */
+  public static final String RESPONSE_BODY_MAX_KEPT_BYTES =
+      "AsyncHttpSampler.responseBodyMaxKeptBytes";
+
+  /**
+   * Property specifying the maximum number of embedded resources to download at the same time from
+   * each host.
+   * <p>
+   * When not set, embedded resources downloads are only limited by
+   * {@link HTTPSamplerBase#CONCURRENT_POOL}.
+   */
+  public static final String EMBEDDED_RESOURCES_MAX_PER_HOST =
+      "AsyncHttpSampler.embeddedResourcesMaxPerHost";
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncHttpSampler.class);
+  private static final String TREE_RESOLUTION_ENTRY = AsyncHttpSampler.class.getName();
+
+  private transient SharedAsyncHttpClient client;
+  private transient AsyncHttpImpl impl;
+
+  public AsyncHttpSampler() {
+  }
+
+  /**
+   * Creates a sampler with same configuration as the given sampler.
+   *
+   * @param sampler specifies the sampler to copy properties from.
+   * @param client  specifies the client to send requests with.
+   */
+  public AsyncHttpSampler(HTTPSamplerBase sampler, SharedAsyncHttpClient client) {
+    PropertyIterator it = sampler.propertyIterator();
+    while (it.hasNext()) {
+      setProperty(it.next());
+    }
+    setProperty(TestElement.TEST_CLASS, AsyncHttpSampler.class.getName());
+    this.client = client;
+  }
+
+  /**
+   * Registers, if not already registered, a listener which resolves HTTP samplers using
+   * {@link HttpClientImpl#ASYNC} once the test plan tree is built.
+   * <p>
+   * When the test plan runs in current JVM, such samplers are replaced by {@link AsyncHttpSampler}s
+   * sharing a {@link SharedAsyncHttpClient}, otherwise they are set to use
+   * {@link HttpClientImpl#HTTP_CLIENT}.
+   *
+   * @param context specifies the context of the element using {@link HttpClientImpl#ASYNC}.
+   */
+  public static void registerTreeResolution(BuildTreeContext context) {
+    BuildTreeContext root = context.getRoot();
+    if (root.getEntry(TREE_RESOLUTION_ENTRY) != null) {
+      return;
+    }
+    root.setEntry(TREE_RESOLUTION_ENTRY, true);
+    root.addEndListener((ctx, tree) -> {
+      SharedAsyncHttpClient client = ctx.isLocalExecution() ? new SharedAsyncHttpClient() : null;
+      if (resolveAsyncSamplers(tree, false, client) && client != null) {
+        tree.add(client);
+      }
+    });
+  }
+
+  private static boolean resolveAsyncSamplers(HashTree tree, boolean inheritedAsync,
+      SharedAsyncHttpClient client) {
+    boolean async = inheritedAsync;
+    for (Object elem : tree.list()) {
+      if (elem instanceof ConfigTestElement) {
+        ConfigTestElement config = (ConfigTestElement) elem;
+        String impl = config.getPropertyAsString(HTTPSamplerBase.IMPLEMENTATION);
+        if (!impl.isEmpty()) {
+          async = HttpClientImpl.ASYNC.propertyValue().equals(impl);
+          if (async) {
+            config.setProperty(HTTPSamplerBase.IMPLEMENTATION,
+                HttpClientImpl.HTTP_CLIENT.propertyValue());
+          }
+        }
+      }
+    }
+    boolean ret = false;
+    for (Object elem : new ArrayList<>(tree.list())) {
+      HashTree children = tree.getTree(elem);
+      if (elem instanceof HTTPSamplerProxy) {
+        HTTPSamplerProxy sampler = (HTTPSamplerProxy) elem;
+        String impl = sampler.getPropertyAsString(HTTPSamplerBase.IMPLEMENTATION);
+        if (impl.isEmpty() ? async : HttpClientImpl.ASYNC.propertyValue().equals(impl)) {
+          ret = true;
+          if (client != null) {
+            tree.replaceKey(sampler, new AsyncHttpSampler(sampler, client));
+          } else if (!impl.isEmpty()) {
+            sampler.setImplementation(HttpClientImpl.HTTP_CLIENT.propertyValue());
+          }
+        }
+      }
+      ret |= resolveAsyncSamplers(children, async, client);
+    }
+    return ret;
+  }
+
+  @Override
+  protected HTTPSampleResult sample(URL url, String method, boolean areFollowingRedirect,
+      int frameDepth) {
+    if (impl == null) {
+      impl = new AsyncHttpImpl(this, client);
+    }
+    return impl.sample(url, method, areFollowingRedirect, frameDepth);
+  }
+
+  /*
+   Embedded resources are parsed with a cache shared by threads of the thread group, and are
+   requested by the JMeter thread through the non-blocking client, instead of using a pool of
+   threads as JMeter does.
+   */
+  @Override
+  protected HTTPSampleResult downloadPageResources(HTTPSampleResult res,
+      HTTPSampleResult container, int frameDepth) {
+    List<URL> urls;
+    try {
+      urls = client.getEmbeddedResourcesParser(getThreadContext().getThreadGroup()).parse(res);
+    } catch (LinkExtractorParseException e) {
+      res.addSubResult(errorResult(e, new HTTPSampleResult(res)));
+      setParentSampleSuccess(res, false);
+      return res;
+    }
+    Pattern allowPattern = buildUrlPattern(getEmbeddedUrlRE());
+    Pattern excludePattern = buildUrlPattern(getEmbededUrlExcludeRE());
+    List<URL> resourceUrls = new ArrayList<>();
+    for (URL url : urls) {
+      String urlString = url.toString();
+      if (allowPattern != null && !allowPattern.matcher(urlString).matches()
+          || excludePattern != null && excludePattern.matcher(urlString).matches()) {
+        continue;
+      }
+      try {
+        resourceUrls.add("file".equals(url.getProtocol()) ? url
+            : ConversionUtils.sanitizeUrl(url).normalize().toURL());
+      } catch (Exception e) {
+        res.addSubResult(errorResult(new Exception(url + " is not a correct URI", e),
+            new HTTPSampleResult(res)));
+        setParentSampleSuccess(res, false);
+      }
+    }
+    if (resourceUrls.isEmpty()) {
+      return res;
+    }
+    int maxConcurrency = isConcurrentDwn() ? getConcurrentPoolSize() : 1;
+    try {
+      for (HTTPSampleResult resourceRes : impl.sampleResources(resourceUrls, frameDepth + 1,
+          maxConcurrency, getPropertyAsInt(EMBEDDED_RESOURCES_MAX_PER_HOST, maxConcurrency))) {
+        res.addSubResult(resourceRes);
+        setParentSampleSuccess(res, res.isSuccessful() && resourceRes.isSuccessful());
+      }
+    } catch (InterruptedException e) {
+      LOG.warn("Interrupted fetching embedded resources", e);
+      Thread.currentThread().interrupt();
+    }
+    return res;
+  }
+
+  private static Pattern buildUrlPattern(String regex) {
+    if (regex.isEmpty()) {
+      return null;
+    }
+    try {
+      return Pattern.compile(regex);
+    } catch (PatternSyntaxException e) {
+      LOG.warn("Ignoring embedded URL regex: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private int getConcurrentPoolSize() {
+    try {
+      return Integer.parseInt(getConcurrentPool());
+    } catch (NumberFormatException e) {
+      LOG.warn("Invalid embedded resources concurrent pool size. Using default value.");
+      return CONCURRENT_POOL_SIZE;
+    }
+  }
+
+  // same logic as JMeter HTTP sampler, which does not expose it
+  private static void setParentSampleSuccess(HTTPSampleResult res, boolean successful) {
+    if (JMeterUtils.getPropDefault("httpsampler.ignore_failed_embedded_resources", false)) {
+      return;
+    }
+    res.setSuccessful(successful);
+    if (!successful) {
+      StringBuilder message = new StringBuilder("Embedded resource download error:");
+      for (SampleResult subResult : res.getSubResults()) {
+        HTTPSampleResult httpSubResult = (HTTPSampleResult) subResult;
+        if (!httpSubResult.isSuccessful()) {
+          message.append(httpSubResult.getURL())
+              .append(" code:")
+              .append(httpSubResult.getResponseCode())
+              .append(" message:")
+              .append(httpSubResult.getResponseMessage())
+              .append(", ");
+        }
+      }
+      res.setResponseMessage(message.toString());
+    }
+  }
+
+  @Override
+  public boolean interrupt() {
+    return impl != null && impl.interrupt();
+  }
+
+  @Override
+  public Object clone() {
+    AsyncHttpSampler ret = (AsyncHttpSampler) super.clone();
+    ret.client = client;
+    return ret;
+  }
+
+}
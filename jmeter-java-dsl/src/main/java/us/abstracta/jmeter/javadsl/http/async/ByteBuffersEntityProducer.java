@@ -0,0 +1,120 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+/**
+ * Produces a request body from a sequence of buffers, writing them directly to the connection.
+ * <p>
+ * This allows sending off-heap buffers (like the ones provided by {@link FileBodyCache}) without
+ * copying them to the heap, and combining them with small heap buffers (eg: multipart headers).
+ *
+ * @since 1.4
+ */
+public class ByteBuffersEntityProducer implements AsyncEntityProducer {
+
+  private final ByteBuffer[] buffers;
+  private final ContentType contentType;
+  private final long length;
+  private ByteBuffer[] pending;
+  private int current;
+
+  /**
+   * Creates a producer for the given buffers.
+   *
+   * @param contentType specifies the content type of the body. When null, no content type is
+   *                    sent.
+   * @param buffers     specifies the buffers to send, from their positions to their limits. They
+   *                    are not modified, so they can be shared by several producers.
+   */
+  public ByteBuffersEntityProducer(ContentType contentType, ByteBuffer... buffers) {
+    this.buffers = buffers;
+    this.contentType = contentType;
+    long len = 0;
+    for (ByteBuffer buffer : buffers) {
+      len += buffer.remaining();
+    }
+    this.length = len;
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
+  @Override
+  public String getContentType() {
+    return contentType != null ? contentType.toString() : null;
+  }
+
+  @Override
+  public long getContentLength() {
+    return length;
+  }
+
+  @Override
+  public String getContentEncoding() {
+    return null;
+  }
+
+  @Override
+  public boolean isChunked() {
+    return false;
+  }
+
+  @Override
+  public Set<String> getTrailerNames() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public synchronized int available() {
+    long ret = pending == null ? length : remaining();
+    return (int) Math.min(Integer.MAX_VALUE, ret);
+  }
+
+  private long remaining() {
+    long ret = 0;
+    for (int i = current; i < pending.length; i++) {
+      ret += pending[i].remaining();
+    }
+    return ret;
+  }
+
+  @Override
+  public synchronized void produce(DataStreamChannel channel) throws IOException {
+    if (pending == null) {
+      pending = new ByteBuffer[buffers.length];
+      for (int i = 0; i < buffers.length; i++) {
+        pending[i] = buffers[i].duplicate();
+      }
+      current = 0;
+    }
+    while (current < pending.length) {
+      ByteBuffer buffer = pending[current];
+      if (buffer.hasRemaining() && channel.write(buffer) == 0) {
+        // connection can't take more data by now, it will ask for more once it can
+        return;
+      }
+      if (!buffer.hasRemaining()) {
+        current++;
+      }
+    }
+    channel.endStream();
+  }
+
+  @Override
+  public void failed(Exception cause) {
+  }
+
+  @Override
+  public synchronized void releaseResources() {
+    pending = null;
+  }
+
+}
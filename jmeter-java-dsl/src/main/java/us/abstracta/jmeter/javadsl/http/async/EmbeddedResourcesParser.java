@@ -0,0 +1,117 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.jmeter.protocol.http.parser.BaseParser;
+import org.apache.jmeter.protocol.http.parser.LinkExtractorParseException;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Parses the URLs of resources embedded in HTTP responses with same parsers used by JMeter, caching
+ * them by page URL and ETag.
+ * <p>
+ * Responses with same URL and ETag have the same content, so they don't need to be parsed again in
+ * each iteration, which avoids spending most of the CPU in parsing identical HTML pages when
+ * running page load tests. Responses without ETag are parsed each time.
+ * <p>
+ * The cache is bounded to the most recently used pages, and {@link SharedAsyncHttpClient} keeps one
+ * parser per thread group.
+ *
+ * @since 1.4
+ */
+public class EmbeddedResourcesParser {
+
+  private static final int MAX_CACHED_PAGES = 1000;
+  private static final String USER_AGENT_HEADER = "User-Agent";
+
+  private static Map<String, String> parsersForContentType;
+
+  private final Map<String, List<URL>> cache = Collections.synchronizedMap(
+      new LinkedHashMap<String, List<URL>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<URL>> eldest) {
+          return size() > MAX_CACHED_PAGES;
+        }
+      });
+
+  /**
+   * Gets the URLs of resources embedded in the given response.
+   *
+   * @param res specifies the response to get the embedded resources from.
+   * @return the URLs of embedded resources, in the order they appear in the response. When there
+   * is no parser for the response media type, an empty list is returned.
+   * @throws LinkExtractorParseException when the response can't be parsed.
+   */
+  public List<URL> parse(HTTPSampleResult res) throws LinkExtractorParseException {
+    String parserClassName = getParsersForContentType().get(res.getMediaType());
+    if (parserClassName == null || res.getResponseData().length == 0) {
+      return Collections.emptyList();
+    }
+    String etag = findHeader(res.getResponseHeaders(), HTTPConstants.ETAG);
+    if (etag == null) {
+      return parseUrls(parserClassName, res);
+    }
+    String key = res.getURL() + " " + etag;
+    List<URL> ret = cache.get(key);
+    if (ret == null) {
+      ret = parseUrls(parserClassName, res);
+      cache.put(key, ret);
+    }
+    return ret;
+  }
+
+  // same logic as JMeter HTTP sampler, which does not expose it
+  private static synchronized Map<String, String> getParsersForContentType() {
+    if (parsersForContentType == null) {
+      Map<String, String> ret = new HashMap<>();
+      for (String parser : splitProperty("HTTPResponse.parsers")) {
+        String className = JMeterUtils.getProperty(parser + ".className");
+        if (className != null) {
+          for (String type : splitProperty(parser + ".types")) {
+            ret.put(type, className);
+          }
+        }
+      }
+      parsersForContentType = ret;
+    }
+    return parsersForContentType;
+  }
+
+  private static String[] splitProperty(String name) {
+    String value = JMeterUtils.getPropDefault(name, "").trim();
+    return value.isEmpty() ? new String[0] : value.split("\\s+");
+  }
+
+  private static List<URL> parseUrls(String parserClassName, HTTPSampleResult res)
+      throws LinkExtractorParseException {
+    List<URL> ret = new ArrayList<>();
+    BaseParser.getParser(parserClassName)
+        .getEmbeddedResourceURLs(findHeader(res.getRequestHeaders(), USER_AGENT_HEADER),
+            res.getResponseData(), res.getURL(), res.getDataEncodingWithDefault())
+        .forEachRemaining(url -> {
+          // JMeter parsers may return null URLs for invalid ones
+          if (url != null) {
+            ret.add(url);
+          }
+        });
+    return Collections.unmodifiableList(ret);
+  }
+
+  private static String findHeader(String headers, String name) {
+    String prefix = name + ":";
+    for (String line : headers.split("\n")) {
+      if (line.regionMatches(true, 0, prefix, 0, prefix.length())) {
+        return line.substring(prefix.length()).trim();
+      }
+    }
+    return null;
+  }
+
+}
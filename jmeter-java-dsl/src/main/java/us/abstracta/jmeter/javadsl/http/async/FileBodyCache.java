@@ -0,0 +1,133 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provides the contents of files sent in requests bodies as off-heap buffers, so requests send
+ * them without loading them in the heap.
+ * <p>
+ * Small files (up to {@link #MAX_CACHED_FILE_SIZE}) are loaded once in direct memory and shared by
+ * all requests of the test plan, up to {@link #MAX_CACHE_SIZE} in total. The rest of the files are
+ * memory mapped on each request, so the OS streams them from its page cache. This way, memory used
+ * by each concurrent upload does not depend on the size of the file.
+ * <p>
+ * Cached files are reloaded when their size or last modification time changes.
+ *
+ * @since 1.4
+ */
+public class FileBodyCache {
+
+  /**
+   * Maximum size, in bytes, of files kept in the cache.
+   */
+  public static final int MAX_CACHED_FILE_SIZE = 1024 * 1024;
+  /**
+   * Maximum size, in bytes, of all files kept in the cache.
+   */
+  public static final long MAX_CACHE_SIZE = 64L * 1024 * 1024;
+
+  private final Map<String, CachedFile> files = new ConcurrentHashMap<>();
+  private final AtomicLong size = new AtomicLong();
+
+  /**
+   * Gets the contents of the given file.
+   *
+   * @param file specifies the file to get contents for.
+   * @return read only buffers with the contents of the file, which are exclusive to the caller (so
+   * their positions can be freely changed). More than one buffer is returned when the file is
+   * bigger than maximum buffer size.
+   * @throws IOException if there is some problem reading the file.
+   */
+  public ByteBuffer[] getContents(File file) throws IOException {
+    long length = file.length();
+    long lastModified = file.lastModified();
+    if (length > MAX_CACHED_FILE_SIZE) {
+      return map(file, length);
+    }
+    try {
+      CachedFile cached = files.compute(file.getAbsolutePath(), (path, prev) -> {
+        if (prev != null && prev.matches(length, lastModified)) {
+          return prev;
+        }
+        long prevLength = prev != null ? prev.contents.capacity() : 0;
+        if (size.addAndGet(length - prevLength) > MAX_CACHE_SIZE) {
+          size.addAndGet(prevLength - length);
+          return prev;
+        }
+        return new CachedFile(load(file, (int) length), length, lastModified);
+      });
+      return cached != null && cached.matches(length, lastModified)
+          ? new ByteBuffer[]{cached.contents.duplicate()}
+          : map(file, length);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static ByteBuffer load(File file, int length) {
+    ByteBuffer ret = ByteBuffer.allocateDirect(length);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      int read;
+      do {
+        read = channel.read(ret);
+      } while (read >= 0 && ret.hasRemaining());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    // accessed as Buffer to avoid NoSuchMethodError when running in Java 8
+    ((Buffer) ret).flip();
+    return ret.asReadOnlyBuffer();
+  }
+
+  private static ByteBuffer[] map(File file, long length) throws IOException {
+    List<ByteBuffer> ret = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long position = 0;
+      do {
+        long chunkSize = Math.min(Integer.MAX_VALUE, length - position);
+        ret.add(channel.map(MapMode.READ_ONLY, position, chunkSize));
+        position += chunkSize;
+      } while (position < length);
+    }
+    return ret.toArray(new ByteBuffer[0]);
+  }
+
+  /**
+   * Releases all cached files.
+   */
+  public void clear() {
+    files.clear();
+    size.set(0);
+  }
+
+  private static class CachedFile {
+
+    private final ByteBuffer contents;
+    private final long length;
+    private final long lastModified;
+
+    private CachedFile(ByteBuffer contents, long length, long lastModified) {
+      this.contents = contents;
+      this.length = length;
+      this.lastModified = lastModified;
+    }
+
+    private boolean matches(long length, long lastModified) {
+      return this.length == length && this.lastModified == lastModified;
+    }
+
+  }
+
+}
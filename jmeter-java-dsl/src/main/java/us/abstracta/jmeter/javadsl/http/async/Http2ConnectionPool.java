@@ -0,0 +1,197 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.io.CloseMode;
+import us.abstracta.jmeter.javadsl.http.async.Http2Stats.ConnectionStats;
+
+/**
+ * Multiplexes requests of all JMeter threads over a bounded number of HTTP/2 connections per host,
+ * limiting the number of concurrent streams (requests) on each connection.
+ * <p>
+ * Each connection slot is backed by its own HTTP/2 only client, which keeps a single connection
+ * per host. Streams are assigned to the first connection with available streams, so a new
+ * connection is only established when existing ones reach the streams limit, as browsers and most
+ * HTTP/2 clients do. When all connections of a host reach the limit, requests wait for a stream to
+ * be released. {@link AsyncHttpImpl} releases streams as soon as their responses are received, from
+ * client IO threads, so JMeter threads waiting for a stream never wait for other JMeter threads (or
+ * themselves) to process responses.
+ *
+ * @since 1.4
+ */
+public class Http2ConnectionPool {
+
+  private static final long RESERVE_RETRY_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final int maxConnections;
+  private final int maxStreams;
+  private final AtomicReferenceArray<CloseableHttpAsyncClient> clients;
+  private final Supplier<CloseableHttpAsyncClient> clientBuilder;
+  private final Http2Stats stats;
+  private final Map<String, HostConnections> hosts = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a pool with given limits.
+   *
+   * @param maxConnections specifies the maximum number of connections to each host.
+   * @param maxStreams     specifies the maximum number of concurrent streams on each connection.
+   * @param clientBuilder  specifies the supplier of HTTP/2 clients used by each connection slot.
+   * @param stats          specifies where to collect connections statistics.
+   */
+  public Http2ConnectionPool(int maxConnections, int maxStreams,
+      Supplier<CloseableHttpAsyncClient> clientBuilder, Http2Stats stats) {
+    this.maxConnections = maxConnections;
+    this.maxStreams = maxStreams;
+    this.clients = new AtomicReferenceArray<>(maxConnections);
+    this.clientBuilder = clientBuilder;
+    this.stats = stats;
+  }
+
+  /**
+   * Reserves a stream in a connection to the given host, waiting for one to be available if all
+   * connections to the host reached the streams limit.
+   *
+   * @param host specifies the host, including scheme and port, to reserve the stream for.
+   * @return the reserved stream, which must be closed once the request completes.
+   * @throws InterruptedException if the thread is interrupted while waiting for a stream.
+   */
+  public Stream openStream(String host) throws InterruptedException {
+    HostConnections connections = hosts.computeIfAbsent(host, HostConnections::new);
+    connections.availableStreams.acquire();
+    return connections.reserveStream();
+  }
+
+  /**
+   * Same as {@link #openStream(String)} but without waiting when all connections to the host
+   * reached the streams limit.
+   * <p>
+   * This is useful when the caller already has requests in progress, in which case it should
+   * rather process them than wait for a stream.
+   *
+   * @param host specifies the host, including scheme and port, to reserve the stream for.
+   * @return the reserved stream, which must be closed once the request completes, or null if no
+   * stream is currently available.
+   */
+  public Stream tryOpenStream(String host) {
+    HostConnections connections = hosts.computeIfAbsent(host, HostConnections::new);
+    return connections.availableStreams.tryAcquire() ? connections.reserveStream() : null;
+  }
+
+  private CloseableHttpAsyncClient getClient(int index) {
+    CloseableHttpAsyncClient ret = clients.get(index);
+    if (ret == null) {
+      synchronized (this) {
+        ret = clients.get(index);
+        if (ret == null) {
+          ret = clientBuilder.get();
+          ret.start();
+          clients.set(index, ret);
+        }
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Closes all connections of the pool.
+   */
+  public synchronized void close() {
+    for (int i = 0; i < clients.length(); i++) {
+      CloseableHttpAsyncClient client = clients.getAndSet(i, null);
+      if (client != null) {
+        client.close(CloseMode.GRACEFUL);
+      }
+    }
+  }
+
+  private class HostConnections {
+
+    private final String host;
+    private final Semaphore availableStreams = new Semaphore(maxConnections * maxStreams, true);
+    private final AtomicReferenceArray<ConnectionStats> connections =
+        new AtomicReferenceArray<>(maxConnections);
+
+    private HostConnections(String host) {
+      this.host = host;
+    }
+
+    private Stream reserveStream() {
+      /*
+       acquired permit guarantees some connection has an available stream, but it may be
+       concurrently taken while iterating, in which case we retry after parking for a short time,
+       to avoid busy spinning while other threads open and close streams.
+       */
+      while (true) {
+        for (int i = 0; i < connections.length(); i++) {
+          ConnectionStats connection = getConnection(i);
+          if (connection.tryOpenStream(maxStreams)) {
+            return new Stream(getClient(i), connection, availableStreams);
+          }
+        }
+        LockSupport.parkNanos(RESERVE_RETRY_WAIT_NANOS);
+      }
+    }
+
+    private ConnectionStats getConnection(int index) {
+      ConnectionStats ret = connections.get(index);
+      if (ret == null) {
+        synchronized (this) {
+          ret = connections.get(index);
+          if (ret == null) {
+            ret = stats.addConnection(host);
+            connections.set(index, ret);
+          }
+        }
+      }
+      return ret;
+    }
+
+  }
+
+  /**
+   * A stream reserved in a connection.
+   */
+  public static class Stream {
+
+    private final CloseableHttpAsyncClient client;
+    private final ConnectionStats connection;
+    private final Semaphore availableStreams;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private Stream(CloseableHttpAsyncClient client, ConnectionStats connection,
+        Semaphore availableStreams) {
+      this.client = client;
+      this.connection = connection;
+      this.availableStreams = availableStreams;
+    }
+
+    /**
+     * Gets the client to send the stream request through.
+     */
+    public CloseableHttpAsyncClient client() {
+      return client;
+    }
+
+    /**
+     * Releases the stream so other requests can use it.
+     * <p>
+     * This method can be invoked several times, and from any thread, but only the first invocation
+     * releases the stream.
+     */
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        connection.closeStream();
+        availableStreams.release();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,126 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+
+/**
+ * Contains statistics of HTTP/2 connections used by a test plan.
+ * <p>
+ * Get it from test plan statistics with {@link TestPlanStats#component(Class)}. For example:
+ * <pre>{@code
+ * stats.component(Http2Stats.class).maxConcurrentStreams()
+ * }</pre>
+ * <p>
+ * Each connection is a slot of the bounded set of connections to a host configured with
+ * {@link us.abstracta.jmeter.javadsl.http.DslHttpDefaults#http2Connections(int, int)}. If the
+ * server closes a connection, a new one is transparently established in the same slot.
+ *
+ * @since 1.4
+ */
+public class Http2Stats {
+
+  private final Queue<ConnectionStats> connections = new ConcurrentLinkedQueue<>();
+
+  protected ConnectionStats addConnection(String host) {
+    ConnectionStats ret = new ConnectionStats(host);
+    connections.add(ret);
+    return ret;
+  }
+
+  /**
+   * Provides statistics of each HTTP/2 connection used in the test plan.
+   */
+  public List<ConnectionStats> connections() {
+    return new ArrayList<>(connections);
+  }
+
+  /**
+   * Provides the total number of streams (requests) sent through HTTP/2 connections.
+   */
+  public long streams() {
+    return connections.stream()
+        .mapToLong(ConnectionStats::streams)
+        .sum();
+  }
+
+  /**
+   * Provides the maximum number of concurrent streams observed in any HTTP/2 connection.
+   */
+  public int maxConcurrentStreams() {
+    return connections.stream()
+        .mapToInt(ConnectionStats::maxConcurrentStreams)
+        .max()
+        .orElse(0);
+  }
+
+  /**
+   * Provides the average number of streams (requests) sent per HTTP/2 connection.
+   */
+  public double streamsPerConnection() {
+    int count = connections.size();
+    return count == 0 ? 0 : (double) streams() / count;
+  }
+
+  /**
+   * Contains statistics of a particular HTTP/2 connection.
+   */
+  public static class ConnectionStats {
+
+    private final String host;
+    private final AtomicLong streams = new AtomicLong();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicInteger maxConcurrentStreams = new AtomicInteger();
+
+    private ConnectionStats(String host) {
+      this.host = host;
+    }
+
+    protected boolean tryOpenStream(int maxStreams) {
+      int active = activeStreams.get();
+      if (active >= maxStreams || !activeStreams.compareAndSet(active, active + 1)) {
+        return false;
+      }
+      streams.incrementAndGet();
+      maxConcurrentStreams.accumulateAndGet(active + 1, Math::max);
+      return true;
+    }
+
+    protected void closeStream() {
+      activeStreams.decrementAndGet();
+    }
+
+    /**
+     * Provides the host (including scheme and port) the connection is established to.
+     */
+    public String host() {
+      return host;
+    }
+
+    /**
+     * Provides the number of streams (requests) sent through the connection.
+     */
+    public long streams() {
+      return streams.get();
+    }
+
+    /**
+     * Provides the maximum number of streams concurrently sent through the connection.
+     */
+    public int maxConcurrentStreams() {
+      return maxConcurrentStreams.get();
+    }
+
+    @Override
+    public String toString() {
+      return "ConnectionStats{host=" + host + ", streams=" + streams + ", maxConcurrentStreams="
+          + maxConcurrentStreams + "}";
+    }
+
+  }
+
+}
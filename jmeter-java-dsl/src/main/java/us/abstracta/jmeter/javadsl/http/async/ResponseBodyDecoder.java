@@ -0,0 +1,323 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.brotli.dec.BrotliInputStream;
+
+/**
+ * Decodes response bodies, according to their Content-Encoding, while they are received, keeping
+ * only up to a given number of decoded bytes.
+ * <p>
+ * gzip and deflate bodies are decoded as data is received, so no encoded data is kept, and once
+ * the given number of decoded bytes is reached the rest of the body is discarded. br bodies are
+ * decoded with the decoder included in JMeter, which can only pull data from a stream, so they are
+ * kept encoded until enough data is received to decode the kept bytes, and decoding is retried
+ * each time the kept encoded data doubles its size.
+ *
+ * @since 1.4
+ */
+public abstract class ResponseBodyDecoder {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  protected final int maxKeptBytes;
+  protected final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+  protected boolean received;
+
+  protected ResponseBodyDecoder(int maxKeptBytes) {
+    this.maxKeptBytes = maxKeptBytes;
+  }
+
+  /**
+   * Builds a decoder for the given Content-Encoding.
+   *
+   * @param encoding     specifies the Content-Encoding header value of the response.
+   * @param maxKeptBytes specifies the maximum number of decoded bytes to keep.
+   * @return the decoder, or null if the encoding is not supported.
+   */
+  public static ResponseBodyDecoder forEncoding(String encoding, int maxKeptBytes) {
+    switch (encoding) {
+      case HTTPConstants.ENCODING_GZIP:
+        return new GzipDecoder(maxKeptBytes);
+      case HTTPConstants.ENCODING_DEFLATE:
+        return new DeflateDecoder(maxKeptBytes);
+      case HTTPConstants.ENCODING_BROTLI:
+        return new BrotliDecoder(maxKeptBytes);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Decodes the given received data, consuming all of it.
+   *
+   * @param src specifies the received data.
+   * @throws IOException if the data is not properly encoded.
+   */
+  // buffer is accessed as Buffer when required to avoid NoSuchMethodError when running in Java 8
+  public void consume(ByteBuffer src) throws IOException {
+    int length = src.remaining();
+    if (length == 0) {
+      return;
+    }
+    received = true;
+    if (isComplete()) {
+      ((Buffer) src).position(src.limit());
+    } else if (src.hasArray()) {
+      consume(src.array(), src.arrayOffset() + src.position(), length);
+      ((Buffer) src).position(src.limit());
+    } else {
+      byte[] chunk = new byte[length];
+      src.get(chunk);
+      consume(chunk, 0, length);
+    }
+  }
+
+  protected abstract void consume(byte[] data, int offset, int length) throws IOException;
+
+  protected boolean isComplete() {
+    return decoded.size() >= maxKeptBytes;
+  }
+
+  protected int remainingKeptBytes() {
+    return Math.min(BUFFER_SIZE, maxKeptBytes - decoded.size());
+  }
+
+  /**
+   * Gets the decoded bytes once the whole body has been received.
+   *
+   * @return the decoded bytes, up to the maximum number of kept bytes.
+   * @throws IOException if the body is not properly encoded or is truncated.
+   */
+  public abstract byte[] finish() throws IOException;
+
+  /**
+   * Releases any resources held by the decoder, which is invoked once no more data is received.
+   * <p>
+   * {@link #finish()} can still be invoked after this method.
+   */
+  public void release() {
+  }
+
+  private abstract static class InflaterDecoder extends ResponseBodyDecoder {
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private byte[] header = new byte[0];
+    private Inflater inflater;
+    private boolean finished;
+    private boolean released;
+
+    private InflaterDecoder(int maxKeptBytes) {
+      super(maxKeptBytes);
+    }
+
+    @Override
+    protected void consume(byte[] data, int offset, int length) throws IOException {
+      if (finished || released) {
+        return;
+      }
+      if (inflater == null) {
+        byte[] pending = new byte[header.length + length];
+        System.arraycopy(header, 0, pending, 0, header.length);
+        System.arraycopy(data, offset, pending, header.length, length);
+        int headerLength = parseHeaderLength(pending);
+        if (headerLength < 0) {
+          header = pending;
+          return;
+        }
+        inflater = buildInflater(pending);
+        header = null;
+        data = pending;
+        offset = headerLength;
+        length = pending.length - headerLength;
+      }
+      inflater.setInput(data, offset, length);
+      try {
+        int count;
+        while (!isComplete() && (count = inflater.inflate(buffer, 0, remainingKeptBytes())) > 0) {
+          decoded.write(buffer, 0, count);
+        }
+      } catch (DataFormatException e) {
+        throw new ZipException(e.getMessage());
+      }
+      if (inflater.needsDictionary()) {
+        throw new ZipException("Unsupported deflate preset dictionary");
+      }
+      // trailing data (like gzip trailer) and data exceeding kept bytes is just discarded
+      if (isComplete() || inflater.finished()) {
+        finished = true;
+        release();
+      }
+    }
+
+    // returns -1 when more data is required to find the header length
+    protected abstract int parseHeaderLength(byte[] data) throws ZipException;
+
+    protected abstract Inflater buildInflater(byte[] data);
+
+    @Override
+    public byte[] finish() throws IOException {
+      release();
+      if (received && !finished) {
+        throw new EOFException("Unexpected end of encoded response body");
+      }
+      return decoded.toByteArray();
+    }
+
+    @Override
+    public void release() {
+      released = true;
+      if (inflater != null) {
+        inflater.end();
+        inflater = null;
+      }
+    }
+
+  }
+
+  private static class GzipDecoder extends InflaterDecoder {
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private GzipDecoder(int maxKeptBytes) {
+      super(maxKeptBytes);
+    }
+
+    @Override
+    protected int parseHeaderLength(byte[] data) throws ZipException {
+      if (data.length < 10) {
+        return -1;
+      }
+      if ((data[0] & 0xFF) != 0x1F || (data[1] & 0xFF) != 0x8B) {
+        throw new ZipException("Not in GZIP format");
+      }
+      if (data[2] != 8) {
+        throw new ZipException("Unsupported compression method");
+      }
+      int flags = data[3] & 0xFF;
+      int ret = 10;
+      if ((flags & FEXTRA) != 0) {
+        if (data.length < ret + 2) {
+          return -1;
+        }
+        ret += 2 + ((data[ret] & 0xFF) | (data[ret + 1] & 0xFF) << 8);
+      }
+      if ((flags & FNAME) != 0) {
+        ret = skipZeroTerminated(data, ret);
+      }
+      if ((flags & FCOMMENT) != 0) {
+        ret = skipZeroTerminated(data, ret);
+      }
+      if ((flags & FHCRC) != 0 && ret >= 0) {
+        ret += 2;
+      }
+      return ret <= data.length ? ret : -1;
+    }
+
+    private static int skipZeroTerminated(byte[] data, int offset) {
+      if (offset < 0) {
+        return -1;
+      }
+      for (int i = offset; i < data.length; i++) {
+        if (data[i] == 0) {
+          return i + 1;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    protected Inflater buildInflater(byte[] data) {
+      return new Inflater(true);
+    }
+
+  }
+
+  private static class DeflateDecoder extends InflaterDecoder {
+
+    private DeflateDecoder(int maxKeptBytes) {
+      super(maxKeptBytes);
+    }
+
+    @Override
+    protected int parseHeaderLength(byte[] data) {
+      // the zlib header is parsed by the inflater, we only need it to check if there is one
+      return data.length < 2 ? -1 : 0;
+    }
+
+    @Override
+    protected Inflater buildInflater(byte[] data) {
+      // some servers send raw deflate data instead of zlib wrapped one
+      int cmf = data[0] & 0xFF;
+      int flg = data[1] & 0xFF;
+      boolean zlibWrapped = (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+      return new Inflater(!zlibWrapped);
+    }
+
+  }
+
+  private static class BrotliDecoder extends ResponseBodyDecoder {
+
+    private ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    private int nextDecodeSize = BUFFER_SIZE;
+
+    private BrotliDecoder(int maxKeptBytes) {
+      super(maxKeptBytes);
+    }
+
+    @Override
+    protected void consume(byte[] data, int offset, int length) {
+      encoded.write(data, offset, length);
+      if (maxKeptBytes == Integer.MAX_VALUE || encoded.size() < nextDecodeSize) {
+        return;
+      }
+      nextDecodeSize = (int) Math.min(Integer.MAX_VALUE, encoded.size() * 2L);
+      try {
+        decode();
+      } catch (IOException | RuntimeException e) {
+        // received data may not be enough to decode kept bytes, so we just wait for more
+      }
+    }
+
+    private void decode() throws IOException {
+      decoded.reset();
+      byte[] buffer = new byte[BUFFER_SIZE];
+      try (InputStream in = new BrotliInputStream(
+          new ByteArrayInputStream(encoded.toByteArray()))) {
+        int count;
+        while (!isComplete() && (count = in.read(buffer, 0, remainingKeptBytes())) != -1) {
+          decoded.write(buffer, 0, count);
+        }
+      }
+      if (isComplete()) {
+        encoded = null;
+      }
+    }
+
+    @Override
+    public byte[] finish() throws IOException {
+      if (encoded != null && encoded.size() > 0) {
+        try {
+          decode();
+        } catch (RuntimeException e) {
+          throw new IOException("Error decoding brotli response body", e);
+        }
+      }
+      return decoded.toByteArray();
+    }
+
+  }
+
+}
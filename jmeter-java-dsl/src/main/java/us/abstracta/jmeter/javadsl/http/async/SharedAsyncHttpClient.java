@@ -0,0 +1,262 @@
+package us.abstracta.jmeter.javadsl.http.async;
+
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import javax.net.ssl.SSLContext;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.nio.AsyncConnectionEndpoint;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.client5.http.ssl.TrustAllStrategy;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.config.Lookup;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import us.abstracta.jmeter.javadsl.core.stats.ComponentStatsProvider;
+
+/**
+ * Keeps the non-blocking HTTP client shared by all {@link AsyncHttpSampler}s of a test plan.
+ * <p>
+ * The client uses a few IO threads (one per CPU core) to send requests and process responses of
+ * all JMeter threads, negotiating HTTP/2 through TLS ALPN when the server supports it. As with the
+ * rest of JMeter HTTP implementations, server certificates are not verified.
+ * <p>
+ * Connections are only limited by the load by default, as with JMeter per thread connections, but
+ * a bounded pool can be used for samplers configured with
+ * {@link us.abstracta.jmeter.javadsl.http.DslHttpDefaults#sharedConnectionPool(int, int)}, in which
+ * case a separate client is kept for each set of pool limits.
+ * <p>
+ * Files sent in requests bodies are shared through a {@link FileBodyCache}, and parsed embedded
+ * resources are cached per thread group through {@link EmbeddedResourcesParser}s.
+ * <p>
+ * Additionally, it keeps the HTTP/2 connection pools used by samplers configured with
+ * {@link us.abstracta.jmeter.javadsl.http.DslHttpDefaults#http2()} or
+ * {@link us.abstracta.jmeter.javadsl.http.DslHttpDefaults#h2c()}, and provides their
+ * {@link Http2Stats}.
+ * <p>
+ * Clients are started with their first request and closed when the test plan ends.
+ * <p>
+ * This test element can only be used in test plans running in current JVM, since it is not
+ * included in JMeter distributions.
+ *
+ * @since 1.4
+ */
+public class SharedAsyncHttpClient extends AbstractTestElement implements TestStateListener,
+    NoThreadClone, ComponentStatsProvider {
+
+  /**
+   * Request context attribute which contains the instant (in epoch milliseconds) when a new
+   * connection started to be established for the request.
+   * <p>
+   * This allows distinguishing the time waiting for a connection from the pool from the time
+   * establishing it.
+   */
+  public static final String CONNECT_START_ATTRIBUTE = "jmeterDsl.connectStart";
+  /**
+   * Request context attribute which may contain a {@link Runnable} to be notified when a connection
+   * is ready to send the request through it.
+   */
+  public static final String CONNECTED_LISTENER_ATTRIBUTE = "jmeterDsl.connectedListener";
+
+  /*
+   Clients produce the request before acquiring a connection for it, so we need an interceptor in
+   the execution chain to know when the connection is ready and the request is about to be sent.
+   */
+  private static final AsyncExecChainHandler CONNECTED_NOTIFIER =
+      (request, entityProducer, scope, chain, callback) -> {
+        Object listener = scope.clientContext.getAttribute(CONNECTED_LISTENER_ATTRIBUTE);
+        if (listener instanceof Runnable) {
+          ((Runnable) listener).run();
+        }
+        chain.proceed(request, entityProducer, scope, callback);
+      };
+  private static final String CONNECTED_NOTIFIER_NAME = "jmeterDslConnectedNotifier";
+
+  private final transient Map<String, CloseableHttpAsyncClient> clients =
+      new ConcurrentHashMap<>();
+  private final transient Map<String, Http2ConnectionPool> http2Pools = new ConcurrentHashMap<>();
+  private final transient Http2Stats http2Stats = new Http2Stats();
+  private final transient FileBodyCache fileBodyCache = new FileBodyCache();
+  private final transient Map<AbstractThreadGroup, EmbeddedResourcesParser>
+      embeddedResourcesParsers = new ConcurrentHashMap<>();
+
+  /**
+   * Gets the client with unbounded connections pool, starting it if it has not yet been started.
+   *
+   * @return the started client.
+   */
+  public CloseableHttpAsyncClient getClient() {
+    return getClient(Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gets the client with given connections pool limits, starting it if it has not yet been
+   * started.
+   *
+   * @param maxPerRoute specifies the maximum number of connections to each host.
+   * @param maxTotal    specifies the maximum number of connections to all hosts.
+   * @return the started client.
+   * @since 1.4
+   */
+  public CloseableHttpAsyncClient getClient(int maxPerRoute, int maxTotal) {
+    return clients.computeIfAbsent(maxPerRoute + "/" + maxTotal, k -> {
+      CloseableHttpAsyncClient ret = buildClient(maxPerRoute, maxTotal);
+      ret.start();
+      return ret;
+    });
+  }
+
+  protected CloseableHttpAsyncClient buildClient(int maxPerRoute, int maxTotal) {
+    PoolingAsyncClientConnectionManager connectionManager = new TimedConnectionManager(
+        RegistryBuilder.<TlsStrategy>create()
+            .register(URIScheme.HTTPS.getId(), buildTlsStrategy())
+            .build());
+    connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+    connectionManager.setMaxTotal(maxTotal);
+    return HttpAsyncClients.custom()
+        .setConnectionManager(connectionManager)
+        .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+        .addExecInterceptorBefore(ChainElement.MAIN_TRANSPORT.name(), CONNECTED_NOTIFIER_NAME,
+            CONNECTED_NOTIFIER)
+        // redirects, cookies and retries are handled by JMeter, as with other implementations
+        .disableRedirectHandling()
+        .disableCookieManagement()
+        .disableAutomaticRetries()
+        .build();
+  }
+
+  /**
+   * Gets the cache of files sent in requests bodies, shared by all samplers in the test plan.
+   *
+   * @return the cache.
+   */
+  public FileBodyCache getFileBodyCache() {
+    return fileBodyCache;
+  }
+
+  /**
+   * Gets the parser of embedded resources for the given thread group, creating it if it does not
+   * yet exist.
+   *
+   * @param threadGroup specifies the thread group which threads share the parser cache.
+   * @return the parser.
+   */
+  public EmbeddedResourcesParser getEmbeddedResourcesParser(AbstractThreadGroup threadGroup) {
+    return embeddedResourcesParsers.computeIfAbsent(threadGroup,
+        k -> new EmbeddedResourcesParser());
+  }
+
+  /**
+   * Gets the HTTP/2 connection pool with given limits, creating it if it does not yet exist.
+   *
+   * @param maxConnections specifies the maximum number of connections to each host.
+   * @param maxStreams     specifies the maximum number of concurrent streams on each connection.
+   * @return the connection pool.
+   */
+  public Http2ConnectionPool getHttp2Pool(int maxConnections, int maxStreams) {
+    return http2Pools.computeIfAbsent(maxConnections + "/" + maxStreams,
+        k -> new Http2ConnectionPool(maxConnections, maxStreams, this::buildHttp2Client,
+            http2Stats));
+  }
+
+  protected CloseableHttpAsyncClient buildHttp2Client() {
+    // H2 only clients use prior knowledge for cleartext connections (h2c) and ALPN for TLS ones
+    return HttpAsyncClients.customHttp2()
+        .setTlsStrategy(buildTlsStrategy())
+        // each client keeps only one connection per host, so one IO thread is enough
+        .setIOReactorConfig(IOReactorConfig.custom()
+            .setIoThreadCount(1)
+            .build())
+        .addExecInterceptorBefore(ChainElement.MAIN_TRANSPORT.name(), CONNECTED_NOTIFIER_NAME,
+            CONNECTED_NOTIFIER)
+        .disableRedirectHandling()
+        .disableCookieManagement()
+        .disableAutomaticRetries()
+        .build();
+  }
+
+  private static TlsStrategy buildTlsStrategy() {
+    return ClientTlsStrategyBuilder.create()
+        .setSslContext(buildTrustAllSslContext())
+        .setHostnameVerifier(NoopHostnameVerifier.INSTANCE)
+        .build();
+  }
+
+  /*
+   Connection manager which registers when a new connection starts to be established, since the
+   client does not provide other means to get the time spent waiting for a pooled connection.
+   */
+  private static class TimedConnectionManager extends PoolingAsyncClientConnectionManager {
+
+    private TimedConnectionManager(Lookup<TlsStrategy> tlsStrategyLookup) {
+      super(tlsStrategyLookup);
+    }
+
+    @Override
+    public Future<AsyncConnectionEndpoint> connect(AsyncConnectionEndpoint endpoint,
+        ConnectionInitiator connectionInitiator, Timeout timeout, Object attachment,
+        HttpContext context, FutureCallback<AsyncConnectionEndpoint> callback) {
+      context.setAttribute(CONNECT_START_ATTRIBUTE, System.currentTimeMillis());
+      return super.connect(endpoint, connectionInitiator, timeout, attachment, context, callback);
+    }
+
+  }
+
+  private static SSLContext buildTrustAllSslContext() {
+    try {
+      return SSLContexts.custom()
+          .loadTrustMaterial(TrustAllStrategy.INSTANCE)
+          .build();
+    } catch (GeneralSecurityException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public Object componentStats() {
+    return http2Stats;
+  }
+
+  @Override
+  public void testStarted() {
+  }
+
+  @Override
+  public void testStarted(String host) {
+    testStarted();
+  }
+
+  @Override
+  public synchronized void testEnded() {
+    clients.values().forEach(c -> c.close(CloseMode.GRACEFUL));
+    clients.clear();
+    http2Pools.values().forEach(Http2ConnectionPool::close);
+    http2Pools.clear();
+    fileBodyCache.clear();
+    embeddedResourcesParsers.clear();
+  }
+
+  @Override
+  public void testEnded(String host) {
+    testEnded();
+  }
+
+}
@@ -6,11 +6,18 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.config.gui.SimpleConfigGui;
+import org.apache.jmeter.engine.util.ConfigMergabilityIndicator;
 import org.apache.jmeter.protocol.java.sampler.JSR223Sampler;
+import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.util.JSR223TestElement;
 import org.apache.jorphan.collections.HashTree;
 import org.slf4j.Logger;
@@ -18,6 +25,7 @@ import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
 import us.abstracta.jmeter.javadsl.core.samplers.BaseSampler.SamplerChild;
 import us.abstracta.jmeter.javadsl.core.samplers.DslSampler;
 import us.abstracta.jmeter.javadsl.core.testelements.DslJsr223TestElement;
+import us.abstracta.jmeter.javadsl.core.testelements.LambdaScriptTestElement;
 
 /**
  * Allows sampling java APIs and custom logic.
@@ -70,6 +78,13 @@ public class DslJsr223Sampler extends DslJsr223TestElement<DslJsr223Sampler> imp
     return ret;
   }
 
+  @Override
+  protected LambdaScriptTestElement<?> buildLambdaTestElement() {
+    LambdaSampler ret = new LambdaSampler();
+    ret.setScript((SamplerScript) lambdaScript);
+    return ret;
+  }
+
   /**
    * Allows to use any java code as script.
    *
@@ -91,6 +106,56 @@ public class DslJsr223Sampler extends DslJsr223TestElement<DslJsr223Sampler> imp
 
   }
 
+  /**
+   * Sampler which directly invokes the Java lambda, instead of using a JSR223 script engine.
+   *
+   * @since 1.4
+   */
+  public static class LambdaSampler extends LambdaScriptTestElement<SamplerVars> implements
+      Sampler, ConfigMergabilityIndicator {
+
+    @Override
+    protected String getJsr223ClassName() {
+      return JSR223Sampler.class.getName();
+    }
+
+    @Override
+    public SampleResult sample(Entry e) {
+      // this logic replicates JSR223Sampler behavior
+      SampleResult ret = new SampleResult();
+      ret.setSampleLabel(getName());
+      ret.setResponseCodeOK();
+      ret.setResponseMessageOK();
+      ret.setSuccessful(true);
+      ret.setDataType(SampleResult.TEXT);
+      ret.sampleStart();
+      JMeterContext ctx = JMeterContextService.getContext();
+      try {
+        Object response = runScript(new SamplerVars(ret, getName(), ctx.getPreviousResult(), ctx,
+            ctx.getVariables(), JMeterUtils.getJMeterProperties(), ctx.getCurrentSampler(),
+            getScriptLogger()));
+        if (response != null && ret.getResponseData().length == 0) {
+          ret.setResponseData(response.toString(), null);
+        }
+      } catch (Exception ex) {
+        getScriptLogger().error("Problem in JSR223 script {}, message: {}", getName(), ex, ex);
+        ret.setSuccessful(false);
+        ret.setResponseCode("500");
+        ret.setResponseMessage(ex.toString());
+      }
+      ret.sampleEnd();
+      return ret;
+    }
+
+    @Override
+    public boolean applies(ConfigTestElement configElement) {
+      // as in JSR223Sampler, only simple config elements apply
+      return SimpleConfigGui.class.getName()
+          .equals(configElement.getProperty(TestElement.GUI_CLASS).getStringValue());
+    }
+
+  }
+
   public static class CodeBuilder extends Jsr223TestElementCallBuilder<JSR223Sampler> {
 
     public CodeBuilder(List<Method> builderMethods) {
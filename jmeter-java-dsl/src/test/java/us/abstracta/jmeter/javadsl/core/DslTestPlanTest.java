@@ -1,12 +1,16 @@
 package us.abstracta.jmeter.javadsl.core;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.swing.timing.Pause.pause;
 import static org.assertj.swing.timing.Timeout.timeout;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.ifController;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.jsr223Sampler;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.swing.JFrame;
 import org.assertj.swing.edt.GuiActionRunner;
@@ -54,6 +58,25 @@ public class DslTestPlanTest extends DslVisualizerTest {
     }
   }
 
+  @Test
+  public void shouldReuseThreadsWhenSequentialThreadGroupsWithReuseThreads() throws Exception {
+    Set<Long> firstGroupThreadIds = ConcurrentHashMap.newKeySet();
+    Set<Long> secondGroupThreadIds = ConcurrentHashMap.newKeySet();
+    TestPlanStats stats = testPlan()
+        .sequentialThreadGroups()
+        .reuseThreads()
+        .children(
+            threadGroup(2, 3,
+                jsr223Sampler(s -> firstGroupThreadIds.add(Thread.currentThread().getId()))
+            ),
+            threadGroup(2, 3,
+                jsr223Sampler(s -> secondGroupThreadIds.add(Thread.currentThread().getId()))
+            )
+        ).run();
+    assertThat(stats.overall().samplesCount()).isEqualTo(12);
+    assertThat(secondGroupThreadIds).isEqualTo(firstGroupThreadIds);
+  }
+
   @SuppressWarnings("unused")
   @Nested
   public class CodeBuilderTest extends MethodCallBuilderTest {
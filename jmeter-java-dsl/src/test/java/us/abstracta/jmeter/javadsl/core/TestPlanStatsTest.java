@@ -0,0 +1,60 @@
+package us.abstracta.jmeter.javadsl.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.Test;
+import us.abstracta.jmeter.javadsl.core.engines.EmbeddedStatsSummary;
+import us.abstracta.jmeter.javadsl.core.stats.StatsSummary;
+
+public class TestPlanStatsTest {
+
+  private static final String LABEL = "label";
+
+  @Test
+  public void shouldReuseMergedSummaryWhenStripedStatsWithoutNewSampleResults() {
+    TestPlanStats stats = new TestPlanStats(EmbeddedStatsSummary::new, true);
+    stats.addSampleResult(buildResult());
+    StatsSummary overall = stats.overall();
+    assertThat(stats.overall()).isSameAs(overall);
+  }
+
+  private SampleResult buildResult() {
+    SampleResult ret = new SampleResult();
+    ret.setSampleLabel(LABEL);
+    ret.setStampAndTime(System.currentTimeMillis(), 10);
+    ret.setSuccessful(true);
+    return ret;
+  }
+
+  @Test
+  public void shouldIncludeNewSampleResultsWhenStripedStatsAfterRead() {
+    TestPlanStats stats = new TestPlanStats(EmbeddedStatsSummary::new, true);
+    stats.addSampleResult(buildResult());
+    stats.overall();
+    stats.addSampleResult(buildResult());
+    assertThat(stats.byLabel(LABEL).samplesCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldKeepSampleResultsOfFinishedThreadsWhenStripedStats() throws Exception {
+    TestPlanStats stats = new TestPlanStats(EmbeddedStatsSummary::new, true);
+    Thread thread = new Thread(() -> stats.addSampleResult(buildResult()));
+    thread.start();
+    thread.join();
+    stats.overall();
+    stats.addSampleResult(buildResult());
+    assertThat(stats.overall().samplesCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldKeepSampleResultsAddedAfterEndWhenStripedStats() {
+    TestPlanStats stats = new TestPlanStats(EmbeddedStatsSummary::new, true);
+    stats.addSampleResult(buildResult());
+    stats.setEnd(Instant.now());
+    stats.addSampleResult(buildResult());
+    assertThat(stats.overall().samplesCount()).isEqualTo(2);
+  }
+
+}
@@ -1,6 +1,7 @@
 package us.abstracta.jmeter.javadsl.core.engines;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.testResource;
@@ -38,6 +39,12 @@ public class DistributedJmeterEngineTest extends JmeterDslTest {
     }
   }
 
+  @Test
+  public void shouldThrowUnsupportedOperationExceptionWhenCorrectCoordinatedOmission() {
+    assertThrows(UnsupportedOperationException.class,
+        () -> new DistributedJmeterEngine("localhost").correctCoordinatedOmission());
+  }
+
   private static class TempFileCopy implements Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(TempFileCopy.class);
@@ -1,13 +1,25 @@
 package us.abstracta.jmeter.javadsl.core.engines;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.arrivalsThreadGroup;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.dummySampler;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.jsr223PreProcessor;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.rpsThreadGroup;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.junit.jupiter.api.Test;
 import us.abstracta.jmeter.javadsl.JmeterDslTest;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.core.stats.StatsTimeline.Bucket;
+import us.abstracta.jmeter.javadsl.core.stats.TimeMetricSummary;
 import us.abstracta.jmeter.javadsl.util.TestResource;
 
 public class EmbeddedJmeterEngineTest extends JmeterDslTest {
@@ -38,4 +50,145 @@ public class EmbeddedJmeterEngineTest extends JmeterDslTest {
     verify(WireMock.getRequestedFor(WireMock.urlEqualTo("/MY_VAL")));
   }
 
+  @Test
+  public void shouldSolveGroovyScriptsWhenEngineWithSharedGroovyScripts() throws Exception {
+    int threads = 2;
+    testPlan(
+        threadGroup(threads, 1,
+            httpSampler(wiremockUri + "/${__groovy('MY_' + 'VAL')}/${MY_VAR}")
+                .children(
+                    jsr223PreProcessor("vars.put('MY_VAR', 'VAR_' + ctx.getThreadNum())")
+                ),
+            httpSampler(wiremockUri + "/${__groovy('MY_' + 'VAL')}")
+        )
+    ).runIn(new EmbeddedJmeterEngine()
+        .sharedGroovyScripts());
+    for (int i = 0; i < threads; i++) {
+      verify(WireMock.getRequestedFor(WireMock.urlEqualTo("/MY_VAL/VAR_" + i)));
+    }
+    verify(threads, WireMock.getRequestedFor(WireMock.urlEqualTo("/MY_VAL")));
+  }
+
+  @Test
+  public void shouldGetLabeledAndOverallRequestsCountWhenRunPlanWithStripedStats()
+      throws Exception {
+    int threads = 5;
+    TestPlanStats stats = testPlan(
+        threadGroup(threads, TEST_ITERATIONS,
+            httpSampler(SAMPLE_1_LABEL, wiremockUri),
+            httpSampler(SAMPLE_2_LABEL, wiremockUri)
+        )
+    ).runIn(new EmbeddedJmeterEngine()
+        .stripedStats());
+    assertThat(stats.overall().samplesCount()).isEqualTo(2L * threads * TEST_ITERATIONS);
+    assertThat(stats.byLabel(SAMPLE_1_LABEL).samplesCount())
+        .isEqualTo((long) threads * TEST_ITERATIONS);
+  }
+
+  @Test
+  public void shouldGetAllSamplesInIntervalStatsWhenEngineWithIntervalStats() throws Exception {
+    List<TestPlanStats> intervals = new CopyOnWriteArrayList<>();
+    TestPlanStats stats = testPlan(
+        threadGroup(2, Duration.ofSeconds(3),
+            httpSampler(SAMPLE_1_LABEL, wiremockUri)
+        )
+    ).runIn(new EmbeddedJmeterEngine()
+        .intervalStats(Duration.ofSeconds(1), intervals::add));
+    assertThat(intervals).hasSizeGreaterThan(1);
+    assertThat(intervals.stream()
+        .mapToLong(s -> s.overall().samplesCount())
+        .sum())
+        .isEqualTo(stats.overall().samplesCount());
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenIntervalStatsWithZeroInterval() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new EmbeddedJmeterEngine().intervalStats(Duration.ZERO, s -> {
+        }));
+  }
+
+  @Test
+  public void shouldGetAllSamplesInTimelineWhenEngineWithTimeline() throws Exception {
+    TestPlanStats stats = testPlan(
+        threadGroup(2, Duration.ofSeconds(3),
+            httpSampler(SAMPLE_1_LABEL, wiremockUri)
+        )
+    ).runIn(new EmbeddedJmeterEngine()
+        .timeline(Duration.ofSeconds(1), 60));
+    List<Bucket> buckets = stats.byLabel(SAMPLE_1_LABEL).timeline().buckets();
+    assertThat(buckets).hasSizeGreaterThan(1);
+    assertThat(buckets.stream()
+        .mapToLong(Bucket::samples)
+        .sum())
+        .isEqualTo(stats.byLabel(SAMPLE_1_LABEL).samplesCount());
+  }
+
+  @Test
+  public void shouldGetCorrectedSampleTimesIncludingStartLagWhenArrivalsWaitForThreads()
+      throws Exception {
+    TestPlanStats stats = testPlan(
+        arrivalsThreadGroup()
+            .rampToAndHold(10, Duration.ZERO, Duration.ofSeconds(1))
+            .maxThreads(1)
+            .children(
+                dummySampler("OK")
+                    .responseTime(Duration.ofMillis(200))
+                    .simulateResponseTime(true)
+            )
+    ).runIn(new EmbeddedJmeterEngine()
+        .correctCoordinatedOmission());
+    TimeMetricSummary sampleTime = stats.overall().sampleTime();
+    // last arrivals wait for several previous iterations, so they get a start lag of many samples
+    assertThat(sampleTime.corrected().max()).isGreaterThan(sampleTime.max().multipliedBy(2));
+  }
+
+  @Test
+  public void shouldGetCorrectedSampleTimesWithStartLagWithinSecondWhenRpsWaitsForThreads()
+      throws Exception {
+    Duration responseTime = Duration.ofMillis(300);
+    TestPlanStats stats = testPlan(
+        rpsThreadGroup()
+            .maxThreads(1)
+            .rampToAndHold(10, Duration.ZERO, Duration.ofSeconds(3))
+            .children(
+                dummySampler("OK")
+                    .responseTime(responseTime)
+                    .simulateResponseTime(true)
+            )
+    ).runIn(new EmbeddedJmeterEngine()
+        .correctCoordinatedOmission());
+    TimeMetricSummary sampleTime = stats.overall().sampleTime();
+    /*
+     requests which can't be sent in a second are dropped by the timer, so start lag does not
+     accumulate across seconds
+     */
+    assertThat(sampleTime.corrected().max()).isGreaterThan(sampleTime.max())
+        .isLessThan(sampleTime.max().plus(Duration.ofSeconds(1)).plus(responseTime));
+  }
+
+  @Test
+  public void shouldGetSameCorrectedAndRawSampleTimesWhenThreadGroupWithoutSchedule()
+      throws Exception {
+    TestPlanStats stats = testPlan(
+        threadGroup(2, TEST_ITERATIONS,
+            httpSampler(wiremockUri)
+        )
+    ).runIn(new EmbeddedJmeterEngine()
+        .correctCoordinatedOmission());
+    TimeMetricSummary sampleTime = stats.overall().sampleTime();
+    assertThat(sampleTime.corrected().perc99()).isEqualTo(sampleTime.perc99());
+  }
+
+  @Test
+  public void shouldNotGetCorrectedSampleTimesWhenEngineWithoutCoordinatedOmissionCorrection()
+      throws Exception {
+    TestPlanStats stats = testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri)
+        )
+    ).run();
+    assertThat(stats.overall().sampleTime().corrected()).isNull();
+  }
+
 }
@@ -0,0 +1,44 @@
+package us.abstracta.jmeter.javadsl.core.listeners;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.autoStop;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
+import static us.abstracta.jmeter.javadsl.core.listeners.AutoStopCondition.errors;
+import static us.abstracta.jmeter.javadsl.core.listeners.AutoStopCondition.samples;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import us.abstracta.jmeter.javadsl.JmeterDslTest;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+
+public class DslAutoStopTest extends JmeterDslTest {
+
+  private static final Duration TEST_DURATION = Duration.ofSeconds(30);
+
+  @Test
+  public void shouldStopTestPlanWhenAutoStopConditionIsMet() throws Exception {
+    TestPlanStats stats = testPlan(
+        threadGroup(1, TEST_DURATION,
+            httpSampler(wiremockUri)
+        ),
+        autoStop()
+            .when(samples().total().greaterThan(0))
+    ).run();
+    assertThat(stats.duration()).isLessThan(TEST_DURATION.dividedBy(2));
+  }
+
+  @Test
+  public void shouldNotStopTestPlanWhenAutoStopConditionIsNotMet() throws Exception {
+    TestPlanStats stats = testPlan(
+        threadGroup(1, TEST_ITERATIONS,
+            httpSampler(wiremockUri)
+        ),
+        autoStop()
+            .when(errors().total().greaterThan(0).forLast(Duration.ofSeconds(1)))
+    ).run();
+    assertThat(stats.overall().samplesCount()).isEqualTo(TEST_ITERATIONS);
+  }
+
+}
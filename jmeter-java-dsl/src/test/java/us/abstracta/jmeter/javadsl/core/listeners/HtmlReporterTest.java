@@ -13,6 +13,8 @@ import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.regex.Matcher;
@@ -102,4 +104,25 @@ public class HtmlReporterTest extends JmeterDslTest {
     assertThat(extractApdex(reportDir, "items")).isEqualTo(0.0);
   }
 
+  @Test
+  public void shouldWriteIncrementalReportWithoutJtlWhenIncrementalHtmlReporter(
+      @TempDir Path reportDir) throws Exception {
+    Duration threshold = Duration.ofMillis(10);
+    stubFor(any(anyUrl())
+        .willReturn(aResponse().withFixedDelay((int) threshold.multipliedBy(2).toMillis())));
+    testPlan(
+        threadGroup(1, TEST_ITERATIONS,
+            httpSampler(SAMPLE_1_LABEL, wiremockUri)),
+        buildHtmlReporter(reportDir)
+            .incremental()
+            .apdexThresholds(threshold, threshold))
+        .run();
+    assertDirectoryContainsReportIndex(reportDir);
+    assertThat(reportDir.resolve("report.jtl")).doesNotExist();
+    assertThat(new String(Files.readAllBytes(reportDir.resolve("index.html")),
+        StandardCharsets.UTF_8))
+        .contains("<td>" + SAMPLE_1_LABEL + "</td><td>" + TEST_ITERATIONS + "</td><td>0</td>"
+            + "<td>0.00</td><td>0.00</td>");
+  }
+
 }
@@ -1,6 +1,7 @@
 package us.abstracta.jmeter.javadsl.core.listeners;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.jsr223PostProcessor;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.jtlWriter;
@@ -11,6 +12,7 @@ import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import org.apache.http.entity.ContentType;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -19,6 +21,10 @@ import us.abstracta.jmeter.javadsl.JmeterDslTest;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallBuilderTest;
 import us.abstracta.jmeter.javadsl.core.DslTestPlan;
 import us.abstracta.jmeter.javadsl.core.StringTemplateAssert;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.AsyncResultCollector.BackPressurePolicy;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.BinaryJtlReader;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.JtlFiles;
 
 public class JtlWriterTest extends JmeterDslTest {
 
@@ -158,6 +164,137 @@ public class JtlWriterTest extends JmeterDslTest {
     assertFileMatchesTemplate(resultsFilePath, "jtls/jtl-with-custom-variable.template.csv");
   }
 
+  @Test
+  public void shouldReadSameResultsWhenBinaryJtlWriter(@TempDir Path tempDir) throws IOException {
+    Path resultsFilePath = tempDir.resolve(RESULTS_JTL);
+    TestPlanStats stats = testPlan(
+        threadGroup(2, TEST_ITERATIONS,
+            httpSampler(wiremockUri)
+        ),
+        buildJtlWriter(resultsFilePath)
+            .binary()
+    ).run();
+    try (BinaryJtlReader reader = new BinaryJtlReader(resultsFilePath)) {
+      assertThat(reader.readStats().overall().samplesCount())
+          .isEqualTo(stats.overall().samplesCount());
+    }
+  }
+
+  @Test
+  public void shouldWriteCsvJtlWhenConvertBinaryJtl(@TempDir Path tempDir) throws IOException {
+    Path resultsFilePath = tempDir.resolve(RESULTS_JTL);
+    testPlan(
+        threadGroup(1, TEST_ITERATIONS,
+            httpSampler(wiremockUri)
+        ),
+        buildJtlWriter(resultsFilePath)
+            .binary()
+    ).run();
+    Path csvFilePath = tempDir.resolve("results.csv");
+    BinaryJtlReader.convertToCsv(resultsFilePath, csvFilePath);
+    assertResultsFileResultsCount(csvFilePath, TEST_ITERATIONS);
+  }
+
+  @Test
+  public void shouldWriteAllResultsWhenAsyncJtlWriterWithSpillPolicy(@TempDir Path tempDir)
+      throws IOException {
+    Path resultsFilePath = tempDir.resolve(RESULTS_JTL);
+    testPlan(
+        threadGroup(2, TEST_ITERATIONS,
+            httpSampler(wiremockUri)
+        ),
+        buildJtlWriter(resultsFilePath)
+            .async(1, BackPressurePolicy.SPILL)
+    ).run();
+    assertResultsFileResultsCount(resultsFilePath, 2 * TEST_ITERATIONS);
+  }
+
+  @Test
+  public void shouldWriteAllResultsWhenAsyncJtlWriterWithBlockPolicy(@TempDir Path tempDir)
+      throws IOException {
+    Path resultsFilePath = tempDir.resolve(RESULTS_JTL);
+    testPlan(
+        threadGroup(2, TEST_ITERATIONS,
+            httpSampler(wiremockUri)
+        ),
+        buildJtlWriter(resultsFilePath)
+            .async(1, BackPressurePolicy.BLOCK)
+    ).run();
+    assertResultsFileResultsCount(resultsFilePath, 2 * TEST_ITERATIONS);
+  }
+
+  @Test
+  public void shouldWriteNonDroppedResultsWhenAsyncBinaryJtlWriterWithDropPolicy(
+      @TempDir Path tempDir) throws IOException {
+    Path resultsFilePath = tempDir.resolve(RESULTS_JTL);
+    JtlWriter jtlWriter = buildJtlWriter(resultsFilePath)
+        .binary()
+        .async(1, BackPressurePolicy.DROP);
+    TestPlanStats stats = testPlan(
+        threadGroup(2, TEST_ITERATIONS,
+            httpSampler(wiremockUri)
+        ),
+        jtlWriter
+    ).run();
+    try (BinaryJtlReader reader = new BinaryJtlReader(resultsFilePath)) {
+      assertThat(reader.readStats().overall().samplesCount()
+          + jtlWriter.asyncMetrics().droppedSamples())
+          .isEqualTo(stats.overall().samplesCount());
+    }
+  }
+
+  @Test
+  public void shouldWriteAllResultsWhenCompressedJtlWriterRollingBySize(@TempDir Path tempDir)
+      throws IOException {
+    Path resultsFilePath = tempDir.resolve(RESULTS_JTL);
+    testPlan(
+        threadGroup(2, TEST_ITERATIONS,
+            httpSampler(wiremockUri)
+        ),
+        buildJtlWriter(resultsFilePath)
+            .compressed()
+            .rollBySize(1)
+    ).run();
+    assertThat(JtlFiles.findSegments(resultsFilePath)).hasSizeGreaterThan(1);
+    Path csvFilePath = tempDir.resolve("results.csv");
+    JtlFiles.toCsv(resultsFilePath, csvFilePath);
+    assertResultsFileResultsCount(csvFilePath, 2 * TEST_ITERATIONS);
+  }
+
+  @Test
+  public void shouldReadAllResultsWhenCompressedBinaryJtlWriterRollingBySize(
+      @TempDir Path tempDir) throws IOException {
+    Path resultsFilePath = tempDir.resolve(RESULTS_JTL);
+    TestPlanStats stats = testPlan(
+        threadGroup(2, TEST_ITERATIONS,
+            httpSampler(wiremockUri)
+        ),
+        buildJtlWriter(resultsFilePath)
+            .binary()
+            .compressed()
+            .rollBySize(1)
+    ).run();
+    assertThat(JtlFiles.findSegments(resultsFilePath)).hasSizeGreaterThan(1);
+    try (BinaryJtlReader reader = new BinaryJtlReader(resultsFilePath)) {
+      assertThat(reader.readStats().overall().samplesCount())
+          .isEqualTo(stats.overall().samplesCount());
+    }
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenRollBySizeWithNonPositiveSize() {
+    assertThrows(IllegalArgumentException.class, () -> jtlWriter("target").rollBySize(0));
+    assertThrows(IllegalArgumentException.class, () -> jtlWriter("target").rollBySize(-1));
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenRollByTimeWithNonPositivePeriod() {
+    assertThrows(IllegalArgumentException.class,
+        () -> jtlWriter("target").rollByTime(Duration.ZERO));
+    assertThrows(IllegalArgumentException.class,
+        () -> jtlWriter("target").rollByTime(Duration.ofSeconds(-1)));
+  }
+
   @SuppressWarnings("unused")
   @Nested
   public class CodeBuilderTest extends MethodCallBuilderTest {
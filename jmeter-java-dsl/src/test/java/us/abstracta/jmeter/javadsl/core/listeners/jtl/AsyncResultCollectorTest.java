@@ -0,0 +1,176 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import us.abstracta.jmeter.javadsl.core.engines.JmeterEnvironment;
+import us.abstracta.jmeter.javadsl.core.listeners.jtl.AsyncResultCollector.BackPressurePolicy;
+
+public class AsyncResultCollectorTest {
+
+  private static final int PRODUCERS = 8;
+  private static final int SAMPLES_PER_PRODUCER = 2000;
+  private static final int TOTAL_SAMPLES = PRODUCERS * SAMPLES_PER_PRODUCER;
+  private static final int QUEUE_CAPACITY = 16;
+  private static final String HOST = "local";
+
+  @BeforeAll
+  public static void setup() throws IOException {
+    // required by result collectors to load sample save configuration
+    new JmeterEnvironment();
+  }
+
+  @Test
+  public void shouldWriteAllSamplesWhenConcurrentProducersWithBlockPolicy()
+      throws InterruptedException {
+    CountingCollector collector = buildCollector(BackPressurePolicy.BLOCK);
+    runProducers(collector);
+    collector.testEnded(HOST);
+    assertThat(collector.written.get()).isEqualTo(TOTAL_SAMPLES);
+  }
+
+  private CountingCollector buildCollector(BackPressurePolicy policy) {
+    return buildCollector(policy, QUEUE_CAPACITY);
+  }
+
+  private CountingCollector buildCollector(BackPressurePolicy policy, int queueCapacity) {
+    return buildCollector(new CountingCollector(), policy, queueCapacity);
+  }
+
+  private CountingCollector buildCollector(CountingCollector ret, BackPressurePolicy policy,
+      int queueCapacity) {
+    ret.setName("test");
+    ret.setQueueCapacity(queueCapacity);
+    ret.setBackPressurePolicy(policy);
+    ret.testStarted(HOST);
+    return ret;
+  }
+
+  private void runProducers(AsyncResultCollector collector) throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> producers = new ArrayList<>();
+    for (int i = 0; i < PRODUCERS; i++) {
+      String label = "sample" + i;
+      Thread producer = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        JMeterVariables vars = new JMeterVariables();
+        for (int j = 0; j < SAMPLES_PER_PRODUCER; j++) {
+          SampleResult result = new SampleResult();
+          result.setSampleLabel(label);
+          collector.sampleOccurred(new SampleEvent(result, "", vars));
+        }
+      });
+      producer.start();
+      producers.add(producer);
+    }
+    start.countDown();
+    for (Thread producer : producers) {
+      producer.join(TimeUnit.MINUTES.toMillis(1));
+    }
+  }
+
+  @Test
+  public void shouldWriteAllSamplesWhenConcurrentProducersWithSingleElementQueue()
+      throws InterruptedException {
+    CountingCollector collector = buildCollector(BackPressurePolicy.BLOCK, 1);
+    runProducers(collector);
+    collector.testEnded(HOST);
+    assertThat(collector.written.get()).isEqualTo(TOTAL_SAMPLES);
+  }
+
+  @Test
+  public void shouldWriteAllSamplesWhenConcurrentProducersWithSpillPolicy()
+      throws InterruptedException {
+    CountingCollector collector = buildCollector(BackPressurePolicy.SPILL);
+    runProducers(collector);
+    collector.testEnded(HOST);
+    assertThat(collector.written.get()).isEqualTo(TOTAL_SAMPLES);
+    assertThat(collector.getMetrics().spilledSamples()).isGreaterThan(0);
+  }
+
+  @Test
+  public void shouldWriteNonDroppedSamplesWhenConcurrentProducersWithDropPolicy()
+      throws InterruptedException {
+    CountingCollector collector = buildCollector(BackPressurePolicy.DROP);
+    runProducers(collector);
+    collector.testEnded(HOST);
+    assertThat(collector.written.get() + collector.getMetrics().droppedSamples())
+        .isEqualTo(TOTAL_SAMPLES);
+    assertThat(collector.getMetrics().droppedSamples()).isGreaterThan(0);
+  }
+
+  @Test
+  public void shouldWriteAllSamplesWhenTestEndsWhileProducersAreRunning()
+      throws InterruptedException {
+    CountingCollector collector = buildCollector(BackPressurePolicy.BLOCK);
+    Thread producers = new Thread(() -> {
+      try {
+        runProducers(collector);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producers.start();
+    while (collector.written.get() == 0) {
+      Thread.yield();
+    }
+    collector.testEnded(HOST);
+    producers.join();
+    assertThat(collector.written.get()).isEqualTo(TOTAL_SAMPLES);
+  }
+
+  @Test
+  public void shouldWriteSamplesInProducersWhenWriterThreadFails() throws InterruptedException {
+    CountingCollector collector = buildCollector(new FailingWriterCollector(),
+        BackPressurePolicy.BLOCK, QUEUE_CAPACITY);
+    runProducers(collector);
+    collector.testEnded(HOST);
+    // only sample events taken by the writer thread when it failed are lost
+    assertThat(collector.written.get()).isGreaterThanOrEqualTo(TOTAL_SAMPLES - QUEUE_CAPACITY);
+  }
+
+  private static class CountingCollector extends AsyncResultCollector {
+
+    private final AtomicLong written = new AtomicLong();
+
+    @Override
+    protected void writeSample(SampleEvent event) {
+      // slow writes make the queue fill up and back pressure policy to be applied
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      written.incrementAndGet();
+    }
+
+  }
+
+  private static class FailingWriterCollector extends CountingCollector {
+
+    private volatile boolean failed;
+
+    @Override
+    protected void writeSample(SampleEvent event) {
+      if (!failed) {
+        failed = true;
+        throw new OutOfMemoryError("Simulated writer failure");
+      }
+      super.writeSample(event);
+    }
+
+  }
+
+}
@@ -0,0 +1,111 @@
+package us.abstracta.jmeter.javadsl.core.listeners.jtl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BinaryJtlReaderTest {
+
+  private static final long START_TIME = 1_600_000_000_000L;
+
+  @Test
+  public void shouldReadSameResultsWhenReadWrittenBinaryJtl(@TempDir Path tempDir)
+      throws IOException {
+    Path jtl = tempDir.resolve("results.jtl");
+    // we use more results than block size to verify multiple blocks and dictionary updates
+    int resultsCount = BinaryJtlWriter.BLOCK_SIZE * 2 + 10;
+    List<SampleResult> written = new ArrayList<>();
+    try (BinaryJtlWriter writer = new BinaryJtlWriter(jtl)) {
+      for (int i = 0; i < resultsCount; i++) {
+        SampleResult result = buildResult(i);
+        writer.write(result);
+        written.add(result);
+      }
+    }
+    List<SampleResult> read = new ArrayList<>();
+    try (BinaryJtlReader reader = new BinaryJtlReader(jtl)) {
+      reader.forEach(read::add);
+    }
+    assertThat(read)
+        .usingElementComparator((r1, r2) -> describe(r1).compareTo(describe(r2)))
+        .containsExactlyElementsOf(written);
+  }
+
+  @Test
+  public void shouldReadSameResultsWhenReadWrittenBinaryJtlWithMoreDistinctValuesThanDictionary(
+      @TempDir Path tempDir) throws IOException {
+    Path jtl = tempDir.resolve("results.jtl");
+    int resultsCount = BinaryJtlWriter.MAX_DICTIONARY_ENTRIES + 10;
+    List<SampleResult> written = new ArrayList<>();
+    try (BinaryJtlWriter writer = new BinaryJtlWriter(jtl)) {
+      for (int i = 0; i < resultsCount; i++) {
+        SampleResult result = buildResult(i);
+        result.setURL(new URL("http://localhost/?id=" + i));
+        result.setResponseMessage(buildLongMessage(i));
+        writer.write(result);
+        written.add(result);
+      }
+    }
+    List<SampleResult> read = new ArrayList<>();
+    try (BinaryJtlReader reader = new BinaryJtlReader(jtl)) {
+      reader.forEach(read::add);
+    }
+    assertThat(read)
+        .usingElementComparator((r1, r2) -> describe(r1).compareTo(describe(r2)))
+        .containsExactlyElementsOf(written);
+  }
+
+  private String buildLongMessage(int index) {
+    StringBuilder ret = new StringBuilder();
+    while (ret.length() <= BinaryJtlWriter.MAX_DICTIONARY_VALUE_LENGTH) {
+      ret.append("message ").append(index % 2).append(' ');
+    }
+    return ret.toString();
+  }
+
+  private SampleResult buildResult(int index) throws IOException {
+    SampleResult ret = new SampleResult(START_TIME + index * 7L % 1000, index % 500);
+    ret.setSampleLabel("label" + index % 3);
+    ret.setThreadName("thread " + index % 10);
+    boolean success = index % 5 != 0;
+    ret.setSuccessful(success);
+    ret.setResponseCode(success ? "200" : "500");
+    ret.setResponseMessage(success ? "OK" : "Internal Server Error");
+    ret.setDataType(SampleResult.TEXT);
+    if (!success) {
+      AssertionResult assertion = new AssertionResult("assertion");
+      assertion.setFailure(true);
+      assertion.setFailureMessage("failure " + index);
+      ret.addAssertionResult(assertion);
+    }
+    ret.setBytes((long) index * 1000);
+    ret.setSentBytes(index);
+    ret.setAllThreads(index % 10);
+    ret.setGroupThreads(index % 5);
+    ret.setURL(new URL("http://localhost/" + index % 3));
+    ret.setLatency(index % 100);
+    ret.setConnectTime(index % 20);
+    return ret;
+  }
+
+  private String describe(SampleResult result) {
+    return String.join(",", String.valueOf(result.getStartTime()),
+        String.valueOf(result.getTime()), result.getSampleLabel(), result.getThreadName(),
+        String.valueOf(result.isSuccessful()), result.getResponseCode(),
+        result.getResponseMessage(), result.getDataType(),
+        String.valueOf(result.getFirstAssertionFailureMessage()),
+        String.valueOf(result.getBytesAsLong()), String.valueOf(result.getSentBytes()),
+        String.valueOf(result.getAllThreads()), String.valueOf(result.getGroupThreads()),
+        result.getUrlAsString(), String.valueOf(result.getLatency()),
+        String.valueOf(result.getConnectTime()));
+  }
+
+}
@@ -0,0 +1,69 @@
+package us.abstracta.jmeter.javadsl.core.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.assertj.core.data.Percentage;
+import org.junit.jupiter.api.Test;
+
+public class HistogramTimeMetricSummaryTest {
+
+  private static final int VALUES_COUNT = 100000;
+
+  @Test
+  public void shouldGetExactPercentilesWhenValuesWithinSingleUnitResolution() {
+    HistogramTimeMetricSummary summary = new HistogramTimeMetricSummary();
+    for (int i = 1; i <= 100; i++) {
+      summary.add(i);
+    }
+    assertThat(new Duration[]{summary.min(), summary.median(), summary.perc90(), summary.perc99(),
+        summary.max(), summary.mean()})
+        .containsExactly(Duration.ofMillis(1), Duration.ofMillis(50), Duration.ofMillis(90),
+            Duration.ofMillis(99), Duration.ofMillis(100), Duration.ofMillis(51));
+  }
+
+  @Test
+  public void shouldGetApproximatePercentilesWhenHighPercentileOfLargeValues() {
+    HistogramTimeMetricSummary summary = new HistogramTimeMetricSummary();
+    for (int i = 1; i <= VALUES_COUNT; i++) {
+      summary.add(i);
+    }
+    assertThat(summary.percentile(99.9).toMillis())
+        .isCloseTo(99900L, Percentage.withPercentage(1));
+    assertThat(summary.percentile(99.99).toMillis())
+        .isCloseTo(99990L, Percentage.withPercentage(1));
+  }
+
+  @Test
+  public void shouldGetSamePercentilesWhenMergeHistograms() {
+    HistogramTimeMetricSummary merged = new HistogramTimeMetricSummary();
+    HistogramTimeMetricSummary other = new HistogramTimeMetricSummary();
+    HistogramTimeMetricSummary all = new HistogramTimeMetricSummary();
+    for (int i = 1; i <= VALUES_COUNT; i++) {
+      (i % 2 == 0 ? merged : other).add(i);
+      all.add(i);
+    }
+    merged.merge(other);
+    assertThat(new Duration[]{merged.min(), merged.median(), merged.percentile(99.9),
+        merged.max(), merged.mean()})
+        .containsExactly(all.min(), all.median(), all.percentile(99.9), all.max(), all.mean());
+  }
+
+  @Test
+  public void shouldGetRemainingValuesStatsWhenSubtractHistogram() {
+    HistogramTimeMetricSummary window = new HistogramTimeMetricSummary();
+    HistogramTimeMetricSummary expired = new HistogramTimeMetricSummary();
+    HistogramTimeMetricSummary remaining = new HistogramTimeMetricSummary();
+    for (int i = 1; i <= 200; i++) {
+      (i <= 100 ? expired : remaining).add(i);
+    }
+    window.merge(expired);
+    window.merge(remaining);
+    window.subtract(expired);
+    assertThat(new Duration[]{window.min(), window.median(), window.perc99(), window.max(),
+        window.mean()})
+        .containsExactly(remaining.min(), remaining.median(), remaining.perc99(), remaining.max(),
+            remaining.mean());
+  }
+
+}
@@ -0,0 +1,92 @@
+package us.abstracta.jmeter.javadsl.core.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.jmeter.samplers.SampleResult;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+import us.abstracta.jmeter.javadsl.core.stats.StatsTimeline.Bucket;
+
+public class StatsTimelineTest {
+
+  private static final Duration BUCKET_WIDTH = Duration.ofSeconds(1);
+  private static final long START_TIME = 1_000_000;
+
+  @Test
+  public void shouldGetSamplesInEachBucketWhenAddSamplesInDifferentBuckets() {
+    StatsTimeline timeline = new StatsTimeline(BUCKET_WIDTH, 10);
+    timeline.add(buildResult(START_TIME, 100, true));
+    timeline.add(buildResult(START_TIME + 500, 200, false));
+    timeline.add(buildResult(START_TIME + 2000, 300, true));
+    List<Bucket> buckets = timeline.buckets();
+    assertThat(buckets).extracting(Bucket::start, Bucket::samples, Bucket::errors)
+        .containsExactly(
+            bucketStats(START_TIME, 2, 1),
+            bucketStats(START_TIME + 1000, 0, 0),
+            bucketStats(START_TIME + 2000, 1, 0));
+  }
+
+  private SampleResult buildResult(long startTime, long elapsed, boolean successful) {
+    SampleResult ret = new SampleResult();
+    // by default JMeter uses sample end time as timestamp
+    ret.setStampAndTime(startTime + elapsed, elapsed);
+    ret.setSuccessful(successful);
+    return ret;
+  }
+
+  private Tuple bucketStats(long start, long samples, long errors) {
+    return tuple(Instant.ofEpochMilli(start), samples, errors);
+  }
+
+  @Test
+  public void shouldKeepOnlyLatestBucketsWhenAddSamplesBeyondMaxBuckets() {
+    int maxBuckets = 3;
+    StatsTimeline timeline = new StatsTimeline(BUCKET_WIDTH, maxBuckets);
+    for (int i = 0; i < 10; i++) {
+      timeline.add(buildResult(START_TIME + i * 1000L, 100, true));
+    }
+    assertThat(timeline.buckets())
+        .extracting(Bucket::start)
+        .containsExactly(Instant.ofEpochMilli(START_TIME + 7000),
+            Instant.ofEpochMilli(START_TIME + 8000), Instant.ofEpochMilli(START_TIME + 9000));
+  }
+
+  @Test
+  public void shouldGetSameBucketsWhenMergeTimelines() {
+    StatsTimeline merged = new StatsTimeline(BUCKET_WIDTH, 10);
+    StatsTimeline other = new StatsTimeline(BUCKET_WIDTH, 10);
+    StatsTimeline expected = new StatsTimeline(BUCKET_WIDTH, 10);
+    for (int i = 0; i < 10; i++) {
+      SampleResult result = buildResult(START_TIME + i * 300L, i * 10L, i % 3 != 0);
+      (i % 2 == 0 ? merged : other).add(result);
+      expected.add(result);
+    }
+    merged.merge(other);
+    assertThat(merged.buckets())
+        .extracting(Bucket::start, Bucket::samples, Bucket::errors, b -> b.sampleTime().max())
+        .isEqualTo(expected.buckets().stream()
+            .map(b -> tuple(b.start(), b.samples(), b.errors(),
+                b.sampleTime().max()))
+            .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void shouldIncludeOlderBucketsWhenMergeTimelineStartingEarlier() {
+    StatsTimeline merged = new StatsTimeline(BUCKET_WIDTH, 10);
+    merged.add(buildResult(START_TIME + 2000, 100, true));
+    StatsTimeline other = new StatsTimeline(BUCKET_WIDTH, 10);
+    other.add(buildResult(START_TIME, 100, false));
+    merged.merge(other);
+    assertThat(merged.buckets()).extracting(Bucket::start, Bucket::samples, Bucket::errors)
+        .containsExactly(
+            bucketStats(START_TIME, 1, 1),
+            bucketStats(START_TIME + 1000, 0, 0),
+            bucketStats(START_TIME + 2000, 1, 0));
+  }
+
+}
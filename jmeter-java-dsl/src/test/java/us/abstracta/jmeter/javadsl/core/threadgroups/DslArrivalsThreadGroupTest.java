@@ -0,0 +1,166 @@
+package us.abstracta.jmeter.javadsl.core.threadgroups;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.arrivalsThreadGroup;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.dummySampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.jsr223Sampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.openmodel.OpenModelThreadGroup;
+import org.apache.jmeter.threads.openmodel.ScheduleParser;
+import org.apache.jorphan.collections.HashTree;
+import org.junit.jupiter.api.Test;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.core.threadgroups.arrivalsthreadgroup.ArrivalsSchedule;
+import us.abstracta.jmeter.javadsl.core.threadgroups.arrivalsthreadgroup.LocalArrivalsThreadGroup;
+
+public class DslArrivalsThreadGroupTest {
+
+  private static final Duration STAGE_DURATION = Duration.ofSeconds(2);
+  private static final int RPS = 10;
+
+  @Test
+  public void shouldGetExpectedIterationsWhenTestPlanWithArrivalsThreadGroup() throws Exception {
+    TestPlanStats stats = testPlan(
+        arrivalsThreadGroup()
+            .rampToAndHold(RPS, STAGE_DURATION, STAGE_DURATION)
+            .children(
+                dummySampler("OK"),
+                dummySampler("OK")
+            )
+    ).run();
+    long expectedIterations = RPS * STAGE_DURATION.getSeconds() / 2
+        + RPS * STAGE_DURATION.getSeconds();
+    assertThat(stats.overall().samplesCount()).isEqualTo(expectedIterations * 2);
+  }
+
+  @Test
+  public void shouldKeepArrivalsRateWhenIterationsTakeLongerThanArrivalsInterval()
+      throws Exception {
+    Duration responseTime = Duration.ofSeconds(1);
+    TestPlanStats stats = testPlan(
+        arrivalsThreadGroup()
+            .rampToAndHold(RPS, Duration.ZERO, STAGE_DURATION)
+            .children(
+                dummySampler("OK")
+                    .responseTime(responseTime)
+                    .simulateResponseTime(true)
+            )
+    ).run();
+    assertThat(stats.overall().samplesCount()).isEqualTo(RPS * STAGE_DURATION.getSeconds());
+    // if arrivals waited for previous iterations, it would take RPS times longer
+    assertThat(Duration.between(stats.overall().firstTime(), stats.overall().endTime()))
+        .isLessThan(STAGE_DURATION.multipliedBy(2).plus(responseTime));
+  }
+
+  @Test
+  public void shouldReportStartLagWhenArrivalsWaitForAvailableThreads() throws Exception {
+    Queue<Long> lags = new ConcurrentLinkedQueue<>();
+    testPlan(
+        arrivalsThreadGroup()
+            .rampToAndHold(RPS, Duration.ZERO, Duration.ofSeconds(1))
+            .maxThreads(1)
+            .children(
+                jsr223Sampler(s -> {
+                  lags.add(Long.valueOf(s.vars.get(LocalArrivalsThreadGroup.START_LAG_VAR)));
+                  Thread.sleep(200);
+                })
+            )
+    ).run();
+    assertThat(lags)
+        .hasSize(RPS)
+        .anyMatch(l -> l >= 200);
+  }
+
+  @Test
+  public void shouldGetExpectedIterationsWhenClonedArrivalsThreadGroup() throws Exception {
+    TestPlanStats stats = testPlan(
+        new ClonedArrivalsThreadGroup()
+            .rampToAndHold(RPS, Duration.ZERO, STAGE_DURATION)
+            .maxThreads(1)
+            .children(
+                dummySampler("OK")
+            )
+    ).run();
+    assertThat(stats.overall().samplesCount()).isEqualTo(RPS * STAGE_DURATION.getSeconds());
+  }
+
+  private static class ClonedArrivalsThreadGroup extends DslArrivalsThreadGroup {
+
+    private ClonedArrivalsThreadGroup() {
+      super(null);
+    }
+
+    @Override
+    public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
+      HashTree ret = super.buildTreeUnder(parent, context);
+      TestElement threadGroup = (TestElement) parent.getArray()[parent.size() - 1];
+      parent.replaceKey(threadGroup, threadGroup.clone());
+      return ret;
+    }
+
+  }
+
+  @Test
+  public void shouldGetEvenlyDistributedArrivalsWhenScheduleWithConstantRate() {
+    ArrivalsSchedule schedule = new ArrivalsSchedule(arrivalsThreadGroup()
+        .rampToAndHold(4, Duration.ZERO, Duration.ofSeconds(1))
+        .ramps);
+    assertThat(collectArrivalsMillis(schedule)).containsExactly(125L, 375L, 625L, 875L);
+  }
+
+  private List<Long> collectArrivalsMillis(ArrivalsSchedule schedule) {
+    List<Long> ret = new ArrayList<>();
+    PrimitiveIterator.OfLong it = schedule.arrivalOffsetsNanos();
+    while (it.hasNext()) {
+      ret.add(TimeUnit.NANOSECONDS.toMillis(it.nextLong()));
+    }
+    return ret;
+  }
+
+  @Test
+  public void shouldGetArrivalsFollowingRampWhenScheduleWithRamp() {
+    ArrivalsSchedule schedule = new ArrivalsSchedule(arrivalsThreadGroup()
+        .rampTo(2, Duration.ofSeconds(2))
+        .ramps);
+    // accumulated arrivals at t seconds are t^2 / 2, so arrival k happens at sqrt(2 * (k + 0.5))
+    assertThat(collectArrivalsMillis(schedule)).containsExactly(1000L, 1732L);
+  }
+
+  @Test
+  public void shouldBuildValidOpenModelScheduleWhenBuildThreadGroup() {
+    OpenModelThreadGroup threadGroup = (OpenModelThreadGroup) arrivalsThreadGroup()
+        .rampToAndHold(1.5, Duration.ofMillis(1500), Duration.ofSeconds(10))
+        .buildThreadGroup();
+    assertThat(new ScheduleParser(threadGroup.getScheduleString()).parse().getTotalDuration())
+        .isEqualTo(11.5);
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenRampToWithNegativeRps() {
+    assertThrows(IllegalArgumentException.class,
+        () -> arrivalsThreadGroup().rampTo(-1, Duration.ofSeconds(1)));
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenRampToWithNegativeDuration() {
+    assertThrows(IllegalArgumentException.class,
+        () -> arrivalsThreadGroup().rampTo(1, Duration.ofSeconds(-1)));
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenHoldForWithNullDuration() {
+    assertThrows(IllegalArgumentException.class, () -> arrivalsThreadGroup().holdFor(null));
+  }
+
+}
@@ -1,14 +1,21 @@
 package us.abstracta.jmeter.javadsl.core.threadgroups;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.dummySampler;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.jsr223Sampler;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
 
 import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import kg.apc.jmeter.JMeterPluginsUtils;
@@ -19,14 +26,19 @@ import org.apache.jmeter.gui.util.PowerTableModel;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jorphan.collections.HashTree;
 import org.assertj.core.api.AbstractAssert;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallBuilderTest;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
 import us.abstracta.jmeter.javadsl.core.DslTestPlan;
 import us.abstracta.jmeter.javadsl.core.TestPlanStats;
 import us.abstracta.jmeter.javadsl.core.threadgroups.BaseThreadGroup.SampleErrorAction;
+import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.LocalDefaultThreadGroup;
+import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.ThreadsSchedule;
+import us.abstracta.jmeter.javadsl.core.threadgroups.defaultthreadgroup.ThreadsSchedule.ThreadSlot;
 
 public class DslDefaultThreadGroupTest {
 
@@ -364,6 +376,173 @@ public class DslDefaultThreadGroupTest {
     assertThat(stats.overall().samplesCount()).isEqualTo(THREAD_COUNT);
   }
 
+  @Test
+  public void shouldRunAllIterationsWhenThreadGroupWithVirtualThreads() throws Exception {
+    TestPlanStats stats = testPlan(
+        threadGroup(THREAD_COUNT, ITERATIONS)
+            .virtualThreads()
+            .children(
+                dummySampler("OK")
+            )
+    ).run();
+    assertThat(stats.overall().samplesCount()).isEqualTo(THREAD_COUNT * ITERATIONS);
+  }
+
+  @Test
+  public void shouldRunSamplesInVirtualThreadsWhenThreadGroupWithVirtualThreadsInJava21()
+      throws Exception {
+    assumeTrue(LocalDefaultThreadGroup.isVirtualThreadsSupported(),
+        "Virtual threads require Java 21 or later");
+    Queue<Boolean> virtualThreads = new ConcurrentLinkedQueue<>();
+    testPlan(
+        threadGroup(THREAD_COUNT, ITERATIONS)
+            .virtualThreads()
+            .children(
+                jsr223Sampler(s -> virtualThreads.add((Boolean) Thread.class.getMethod("isVirtual")
+                    .invoke(Thread.currentThread())))
+            )
+    ).run();
+    assertThat(virtualThreads)
+        .hasSize(THREAD_COUNT * ITERATIONS)
+        .containsOnly(true);
+  }
+
+  @Test
+  public void shouldStopIteratingWhenThreadGroupWithVirtualThreadsAndStopThreadOnError()
+      throws Exception {
+    TestPlanStats stats = testPlan(
+        threadGroup(THREAD_COUNT, ITERATIONS)
+            .virtualThreads()
+            .sampleErrorAction(SampleErrorAction.STOP_THREAD)
+            .children(
+                httpSampler("http://myservice")
+            )
+    ).run();
+    assertThat(stats.overall().samplesCount()).isEqualTo(THREAD_COUNT);
+  }
+
+  @Test
+  public void shouldRunAllIterationsWithRampUpWhenClonedThreadGroupWithVirtualThreadsAndDelayedStartup()
+      throws Exception {
+    TestPlanStats stats = testPlan(
+        new ModifiedThreadGroup(t -> {
+          LocalDefaultThreadGroup ret = (LocalDefaultThreadGroup) t.clone();
+          ret.setProperty(ThreadGroup.DELAYED_START, true);
+          return ret;
+        })
+            .rampTo(THREAD_COUNT, Duration.ofSeconds(1))
+            .holdIterating(ITERATIONS)
+            .virtualThreads()
+            .children(
+                dummySampler("OK")
+            )
+    ).run();
+    assertThat(stats.overall().samplesCount()).isEqualTo(THREAD_COUNT * ITERATIONS);
+    assertThat(Duration.between(stats.overall().firstTime(), stats.overall().endTime()))
+        .isGreaterThan(Duration.ofMillis(500));
+  }
+
+  /*
+   Allows replacing the thread group built by DslDefaultThreadGroup, to verify JMeter behaviors
+   which the DSL does not use directly (like cloning, or delayed startup).
+   */
+  private static class ModifiedThreadGroup extends DslDefaultThreadGroup {
+
+    private final UnaryOperator<LocalDefaultThreadGroup> modifier;
+
+    private ModifiedThreadGroup(UnaryOperator<LocalDefaultThreadGroup> modifier) {
+      super(null);
+      this.modifier = modifier;
+    }
+
+    @Override
+    public HashTree buildTreeUnder(HashTree parent, BuildTreeContext context) {
+      HashTree ret = super.buildTreeUnder(parent, context);
+      LocalDefaultThreadGroup threadGroup = (LocalDefaultThreadGroup) parent.getArray()[
+          parent.size() - 1];
+      parent.replaceKey(threadGroup, modifier.apply(threadGroup));
+      return ret;
+    }
+
+  }
+
+  @Test
+  public void shouldThrowUnsupportedOperationExceptionWhenVirtualThreadsInNonSimpleThreadGroup() {
+    assertThrows(UnsupportedOperationException.class, () -> testPlan(
+        threadGroup()
+            .rampTo(THREAD_COUNT, Duration.ofSeconds(DURATION1_SECONDS))
+            .rampTo(0, Duration.ofSeconds(DURATION2_SECONDS))
+            .virtualThreads()
+            .children(
+                dummySampler("OK")
+            )
+    ).run());
+  }
+
+  @Test
+  public void shouldGetMillisecondsPrecisionInstantsWhenThreadsScheduleWithRampUpAndDown() {
+    ThreadsSchedule schedule = new ThreadsSchedule(threadGroup()
+        .rampTo(4, Duration.ofSeconds(2))
+        .holdFor(Duration.ofSeconds(1))
+        .rampTo(2, Duration.ofSeconds(1))
+        .stages);
+    assertThat(schedule.threads())
+        .extracting(ThreadSlot::startMillis, ThreadSlot::endMillis)
+        .containsExactly(tuple(0L, 4000L), tuple(500L, 4000L), tuple(1000L, 4000L),
+            tuple(1500L, 3500L));
+  }
+
+  @Test
+  public void shouldRunAllIterationsWhenThreadGroupWithPrecomputedSchedule() throws Exception {
+    TestPlanStats stats = testPlan(
+        threadGroup()
+            .rampTo(THREAD_COUNT, Duration.ofSeconds(1))
+            .holdIterating(ITERATIONS)
+            .precomputedSchedule()
+            .children(
+                dummySampler("OK")
+            )
+    ).run();
+    assertThat(stats.overall().samplesCount()).isEqualTo(THREAD_COUNT * ITERATIONS);
+  }
+
+  @Test
+  public void shouldStartThreadsWithScheduleWhenClonedThreadGroupWithPrecomputedSchedule()
+      throws Exception {
+    TestPlanStats stats = testPlan(
+        new ModifiedThreadGroup(t -> (LocalDefaultThreadGroup) t.clone())
+            .rampTo(THREAD_COUNT, Duration.ofSeconds(1))
+            .holdIterating(1)
+            .precomputedSchedule()
+            .children(
+                dummySampler("OK")
+            )
+    ).run();
+    assertThat(stats.overall().samplesCount()).isEqualTo(THREAD_COUNT);
+    assertThat(Duration.between(stats.overall().firstTime(), stats.overall().endTime()))
+        .isGreaterThan(Duration.ofMillis(500));
+  }
+
+  @Test
+  public void shouldStartAllThreadsWhenNonSimpleThreadGroupWithVirtualThreadsAndPrecomputedSchedule()
+      throws Exception {
+    Queue<String> threadNames = new ConcurrentLinkedQueue<>();
+    testPlan(
+        threadGroup()
+            .rampTo(THREAD_COUNT, Duration.ofMillis(500))
+            .rampTo(0, Duration.ofMillis(500))
+            .virtualThreads()
+            .precomputedSchedule()
+            .children(
+                jsr223Sampler(s -> {
+                  threadNames.add(Thread.currentThread().getName());
+                  Thread.sleep(50);
+                })
+            )
+    ).run();
+    assertThat(threadNames.stream().distinct().count()).isEqualTo(THREAD_COUNT);
+  }
+
   @SuppressWarnings("unused")
   @Nested
   public class CodeBuilderTest extends MethodCallBuilderTest {
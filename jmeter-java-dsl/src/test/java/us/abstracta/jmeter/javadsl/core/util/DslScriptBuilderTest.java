@@ -0,0 +1,48 @@
+package us.abstracta.jmeter.javadsl.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.jupiter.api.Test;
+import us.abstracta.jmeter.javadsl.core.postprocessors.DslJsr223PostProcessor.PostProcessorVars;
+
+public class DslScriptBuilderTest {
+
+  private static final String VAR_NAME = "myVar";
+  private static final String ORIGINAL_VALUE = "original";
+  private static final String NEW_VALUE = "new";
+
+  @Test
+  public void shouldGetUpdatedValueWhenVarsMapAndVariableUpdatedAfterwards() {
+    JMeterVariables vars = new JMeterVariables();
+    vars.put(VAR_NAME, ORIGINAL_VALUE);
+    PostProcessorVars scriptVars = buildScriptVars(null, vars);
+    Map<String, Object> varsMap = scriptVars.varsMap();
+    vars.put(VAR_NAME, NEW_VALUE);
+    assertThat(varsMap).containsEntry(VAR_NAME, NEW_VALUE);
+  }
+
+  private static PostProcessorVars buildScriptVars(SampleResult prev, JMeterVariables vars) {
+    return new PostProcessorVars("test", prev, null, vars, null, null, null);
+  }
+
+  @Test
+  public void shouldGetMetadataMetricsRequestAndResponseWhenPrevMap() {
+    SampleResult prev = new SampleResult();
+    prev.setSampleLabel("label");
+    prev.setStampAndTime(1000, 10);
+    prev.setSuccessful(true);
+    prev.setResponseCode("200");
+    prev.setResponseData("body", null);
+    PostProcessorVars scriptVars = buildScriptVars(prev, new JMeterVariables());
+    Map<String, Object> expected = new LinkedHashMap<>(scriptVars.prevMetadata());
+    expected.putAll(scriptVars.prevMetrics());
+    expected.put("request", scriptVars.prevRequest());
+    expected.put("response", scriptVars.prevResponse());
+    assertThat(scriptVars.prevMap()).containsExactlyEntriesOf(expected);
+  }
+
+}
@@ -0,0 +1,118 @@
+package us.abstracta.jmeter.javadsl.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.script.Bindings;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class SharedGroovyScriptEngineFactoryTest {
+
+  private static final String SCRIPT = "value + 1";
+  private static final String SCRIPT_CLASS = "this.getClass()";
+
+  private final List<ScriptEngineManager> registeredManagers = new ArrayList<>();
+
+  @AfterEach
+  public void teardown() {
+    registeredManagers.forEach(SharedGroovyScriptEngineFactory::unregister);
+  }
+
+  private ScriptEngineManager buildManager() {
+    ScriptEngineManager ret = new ScriptEngineManager();
+    SharedGroovyScriptEngineFactory.register(ret);
+    registeredManagers.add(ret);
+    return ret;
+  }
+
+  private ScriptEngine buildEngine(ScriptEngineManager manager) {
+    return manager.getEngineByName(SharedGroovyScriptEngineFactory.GROOVY_ENGINE_NAME);
+  }
+
+  @Test
+  public void shouldShareCompiledClassWhenSameScriptInDifferentEngines() throws ScriptException {
+    ScriptEngineManager manager = buildManager();
+    assertThat(buildEngine(manager).eval(SCRIPT_CLASS))
+        .isSameAs(buildEngine(manager).eval(SCRIPT_CLASS));
+  }
+
+  @Test
+  public void shouldCompileNewClassWhenDifferentScript() throws ScriptException {
+    ScriptEngineManager manager = buildManager();
+    assertThat(buildEngine(manager).eval(SCRIPT_CLASS))
+        .isNotSameAs(buildEngine(manager).eval(SCRIPT_CLASS + "\n"));
+  }
+
+  @Test
+  public void shouldCompileNewClassWhenSameScriptInDifferentRegistrations()
+      throws ScriptException {
+    assertThat(buildEngine(buildManager()).eval(SCRIPT_CLASS))
+        .isNotSameAs(buildEngine(buildManager()).eval(SCRIPT_CLASS));
+  }
+
+  @Test
+  public void shouldNotFindMethodOfOtherEngineWhenEvalScriptUsingIt() throws ScriptException {
+    ScriptEngineManager manager = buildManager();
+    buildEngine(manager).eval("def myMethod() { 1 }\nmyMethod()");
+    assertThatThrownBy(() -> buildEngine(manager).eval("myMethod()"))
+        .isInstanceOf(ScriptException.class);
+  }
+
+  @Test
+  public void shouldCompileNewClassWhenScriptEvictedFromCache() throws ScriptException {
+    ScriptEngineManager manager = buildManager();
+    ScriptEngine engine = buildEngine(manager);
+    Object scriptClass = engine.eval(SCRIPT_CLASS);
+    for (int i = 0; i < SharedGroovyScriptEngineFactory.MAX_CACHED_SCRIPTS; i++) {
+      engine.eval(String.valueOf(i));
+    }
+    assertThat(engine.eval(SCRIPT_CLASS)).isNotSameAs(scriptClass);
+  }
+
+  @Test
+  public void shouldGetScriptResultWhenEvalWithBindings() throws ScriptException {
+    ScriptEngine engine = buildEngine(buildManager());
+    Bindings bindings = engine.createBindings();
+    bindings.put("value", 1);
+    assertThat(engine.eval(SCRIPT, bindings)).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldUsePreviousFactoryWhenUnregister() {
+    ScriptEngineManager manager = new ScriptEngineManager();
+    ScriptEngineFactory previous = buildEngine(manager).getFactory();
+    SharedGroovyScriptEngineFactory.register(manager);
+    SharedGroovyScriptEngineFactory.unregister(manager);
+    assertThat(buildEngine(manager).getFactory()).isSameAs(previous);
+  }
+
+  @Test
+  public void shouldKeepSharedFactoryWhenRegisteredTwiceAndUnregisteredOnce() {
+    ScriptEngineManager manager = new ScriptEngineManager();
+    SharedGroovyScriptEngineFactory.register(manager);
+    SharedGroovyScriptEngineFactory.register(manager);
+    SharedGroovyScriptEngineFactory.unregister(manager);
+    assertThat(buildEngine(manager).getFactory())
+        .isInstanceOf(SharedGroovyScriptEngineFactory.class);
+    SharedGroovyScriptEngineFactory.unregister(manager);
+  }
+
+  @Test
+  public void shouldUsePreviousFactoryWhenRegisteredTwiceAndUnregisteredTwice() {
+    ScriptEngineManager manager = new ScriptEngineManager();
+    ScriptEngineFactory previous = buildEngine(manager).getFactory();
+    SharedGroovyScriptEngineFactory.register(manager);
+    SharedGroovyScriptEngineFactory.register(manager);
+    SharedGroovyScriptEngineFactory.unregister(manager);
+    SharedGroovyScriptEngineFactory.unregister(manager);
+    assertThat(buildEngine(manager).getFactory()).isSameAs(previous);
+  }
+
+}
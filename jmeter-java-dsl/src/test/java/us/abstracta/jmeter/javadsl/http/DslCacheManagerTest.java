@@ -1,5 +1,6 @@
 package us.abstracta.jmeter.javadsl.http;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpCache;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
@@ -7,11 +8,17 @@ import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.transaction;
 
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallBuilderTest;
 import us.abstracta.jmeter.javadsl.core.DslTestPlan;
 
 public class DslCacheManagerTest {
 
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenSharedPublicEntriesWithNonPositiveMax() {
+    assertThrows(IllegalArgumentException.class, () -> httpCache().sharedPublicEntries(0));
+  }
+
   @SuppressWarnings("unused")
   @Nested
   public class CodeBuilderTest extends MethodCallBuilderTest {
@@ -1,5 +1,7 @@
 package us.abstracta.jmeter.javadsl.http;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
 import static com.github.tomakehurst.wiremock.client.WireMock.exactly;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
@@ -7,21 +9,30 @@ import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpDefaults;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.jsr223PostProcessor;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 import javax.swing.JFrame;
+import org.apache.jmeter.testelement.TestElement;
 import org.assertj.swing.core.BasicRobot;
 import org.assertj.swing.core.Robot;
 import org.assertj.swing.finder.WindowFinder;
 import org.assertj.swing.fixture.FrameFixture;
 import org.junit.jupiter.api.Test;
 import us.abstracta.jmeter.javadsl.JmeterDslTest;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
+import us.abstracta.jmeter.javadsl.http.async.AsyncHttpSampleResult;
+import us.abstracta.jmeter.javadsl.http.async.AsyncHttpSampler;
+import us.abstracta.jmeter.javadsl.http.async.Http2Stats;
 
 public class DslHttpDefaultsTest extends JmeterDslTest {
 
@@ -176,6 +187,150 @@ public class DslHttpDefaultsTest extends JmeterDslTest {
     verify(getRequestedFor(urlPathEqualTo(resource1Url)));
   }
 
+  @Test
+  public void shouldDiscardResponseBodyUnlessOverwrittenWhenHttpDefaultWithDiscardResponseBody()
+      throws Exception {
+    String body = "response body";
+    stubFor(get(anyUrl()).willReturn(aResponse().withBody(body)));
+    TestPlanStats stats = testPlan(
+        httpDefaults()
+            .discardResponseBody(),
+        threadGroup(1, 1,
+            httpSampler(wiremockUri)
+                .children(
+                    jsr223PostProcessor(s -> s.prev.setSuccessful(
+                        !body.equals(s.prev.getResponseDataAsString())))
+                ),
+            httpSampler(wiremockUri)
+                .discardResponseBody(false)
+                .children(
+                    jsr223PostProcessor(s -> s.prev.setSuccessful(
+                        body.equals(s.prev.getResponseDataAsString())))
+                )
+        )
+    ).run();
+    assertThat(stats.overall().errorsCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldReportPoolWaitTimeWhenHttpDefaultWithExhaustedSharedConnectionPool()
+      throws Exception {
+    int responseDelayMillis = 300;
+    stubFor(get(anyUrl()).willReturn(aResponse().withFixedDelay(responseDelayMillis)));
+    AtomicLong maxPoolWaitTime = new AtomicLong();
+    testPlan(
+        httpDefaults()
+            .sharedConnectionPool(1, 1),
+        threadGroup(3, 1,
+            httpSampler(wiremockUri)
+                .children(
+                    jsr223PostProcessor(s -> maxPoolWaitTime.accumulateAndGet(
+                        ((AsyncHttpSampleResult) s.prev).getPoolWaitTime(), Math::max))
+                )
+        )
+    ).run();
+    assertThat(maxPoolWaitTime.get()).isGreaterThanOrEqualTo(responseDelayMillis * 2 - 100);
+  }
+
+  @Test
+  public void shouldMultiplexRequestsInOneConnectionWhenHttpDefaultWithH2c() throws Exception {
+    TestPlanStats stats = testPlan(
+        httpDefaults()
+            .h2c(),
+        threadGroup(5, 4,
+            httpSampler(wiremockUri)
+        )
+    ).run();
+    Http2Stats http2Stats = stats.component(Http2Stats.class);
+    assertThat(new long[]{stats.overall().errorsCount(), http2Stats.connections().size(),
+        http2Stats.streams()}).isEqualTo(new long[]{0, 1, 20});
+  }
+
+  @Test
+  public void shouldLimitStreamsPerConnectionWhenHttpDefaultWithHttp2Connections()
+      throws Exception {
+    stubFor(get(anyUrl()).willReturn(aResponse().withFixedDelay(200)));
+    int maxStreams = 2;
+    TestPlanStats stats = testPlan(
+        httpDefaults()
+            .h2c()
+            .http2Connections(2, maxStreams),
+        threadGroup(6, 1,
+            httpSampler(wiremockUri)
+        )
+    ).run();
+    Http2Stats http2Stats = stats.component(Http2Stats.class);
+    assertThat(http2Stats.connections())
+        .hasSize(2)
+        .allMatch(c -> c.maxConcurrentStreams() <= maxStreams);
+  }
+
+  @Test
+  public void shouldDownloadAllResourcesWhenHttp2StreamsLessThanResourcesConcurrency()
+      throws Exception {
+    stubFor(get(anyUrl()).willReturn(aResponse().withFixedDelay(100)));
+    String primaryUrl = "/primary";
+    String[] resources = IntStream.range(0, 8)
+        .mapToObj(i -> "/resource" + i)
+        .toArray(String[]::new);
+    stubFor(get(primaryUrl)
+        .willReturn(HttpResponseBuilder.buildEmbeddedResourcesResponse(resources)));
+    int threads = 2;
+    TestPlanStats stats = testPlan(
+        httpDefaults()
+            .h2c()
+            .http2Connections(1, 4),
+        threadGroup(threads, 1,
+            httpSampler(wiremockUri + primaryUrl)
+                .embeddedResourcesConcurrency(6, 6)
+        )
+    ).run();
+    assertThat(stats.overall().errorsCount()).isEqualTo(0);
+    for (String resource : resources) {
+      verify(exactly(threads), getRequestedFor(urlPathEqualTo(resource)));
+    }
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenSharedConnectionPoolWithNonPositiveLimits() {
+    assertThrows(IllegalArgumentException.class, () -> httpDefaults().sharedConnectionPool(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> httpDefaults().sharedConnectionPool(1, 0));
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenSharedConnectionPoolWithPerRouteOverTotal() {
+    assertThrows(IllegalArgumentException.class, () -> httpDefaults().sharedConnectionPool(3, 2));
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenHttp2ConnectionsWithNonPositiveLimits() {
+    assertThrows(IllegalArgumentException.class, () -> httpDefaults().http2Connections(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> httpDefaults().http2Connections(1, -1));
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenEmbeddedResourcesConcurrencyNonPositive() {
+    assertThrows(IllegalArgumentException.class,
+        () -> httpDefaults().embeddedResourcesConcurrency(0, 1));
+    assertThrows(IllegalArgumentException.class,
+        () -> httpDefaults().embeddedResourcesConcurrency(1, 0));
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenDiscardResponseBodyExceptNegativeKilobytes() {
+    assertThrows(IllegalArgumentException.class,
+        () -> httpDefaults().discardResponseBodyExceptFirst(-1));
+  }
+
+  @Test
+  public void shouldKeepMaxIntBytesWhenDiscardResponseBodyExceptFirstWithOverflowingKilobytes() {
+    TestElement defaults = httpDefaults()
+        .discardResponseBodyExceptFirst(Integer.MAX_VALUE)
+        .buildTestElement();
+    assertThat(defaults.getPropertyAsInt(AsyncHttpSampler.RESPONSE_BODY_MAX_KEPT_BYTES))
+        .isEqualTo(Integer.MAX_VALUE);
+  }
+
   @Test
   public void shouldShowInGuiWhenShowInGui() {
     Robot robot = BasicRobot.robotWithNewAwtHierarchy();
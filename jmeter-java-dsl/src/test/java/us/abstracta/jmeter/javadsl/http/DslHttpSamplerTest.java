@@ -14,34 +14,46 @@ import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpCache;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpCookies;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpHeaders;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.httpSampler;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.jsr223PostProcessor;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.jsr223PreProcessor;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.regexExtractor;
+import static us.abstracta.jmeter.javadsl.JmeterDsl.responseAssertion;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.testPlan;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.testResource;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
 import static us.abstracta.jmeter.javadsl.JmeterDsl.transaction;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.apache.http.entity.ContentType;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import us.abstracta.jmeter.javadsl.JmeterDslTest;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallBuilderTest;
 import us.abstracta.jmeter.javadsl.core.DslTestPlan;
 import us.abstracta.jmeter.javadsl.core.TestPlanStats;
 import us.abstracta.jmeter.javadsl.http.DslHttpSampler.HttpClientImpl;
+import us.abstracta.jmeter.javadsl.http.async.AsyncHttpSampler;
 import us.abstracta.jmeter.javadsl.util.TestResource;
 
 public class DslHttpSamplerTest extends JmeterDslTest {
@@ -276,6 +288,61 @@ public class DslHttpSamplerTest extends JmeterDslTest {
     verify(2, getRequestedFor(anyUrl()));
   }
 
+  @Test
+  public void shouldKeepPublicCachedResponseBetweenIterationsWhenSharedPublicEntries()
+      throws Exception {
+    stubFor(get(anyUrl())
+        .willReturn(aResponse().withHeader("Cache-Control", "public, max-age=600")));
+    TestPlanStats stats = testPlan(
+        httpCache().sharedPublicEntries(10),
+        buildHeadersToFixHttpCaching(),
+        threadGroup(1, 3,
+            httpSampler(wiremockUri)
+        )
+    ).run();
+    verify(1, getRequestedFor(anyUrl()));
+    SharedCacheStats cacheStats = stats.component(SharedCacheStats.class);
+    assertThat(new long[]{cacheStats.hits(), cacheStats.misses()}).isEqualTo(new long[]{2, 1});
+  }
+
+  @Test
+  public void shouldResetPrivateCachedResponseBetweenIterationsWhenSharedPublicEntries()
+      throws Exception {
+    stubFor(get(anyUrl())
+        .willReturn(aResponse().withHeader("Cache-Control", "private, max-age=600")));
+    TestPlanStats stats = testPlan(
+        httpCache().sharedPublicEntries(10),
+        buildHeadersToFixHttpCaching(),
+        threadGroup(1, 2,
+            httpSampler(wiremockUri),
+            httpSampler(wiremockUri)
+        )
+    ).run();
+    verify(2, getRequestedFor(anyUrl()));
+    SharedCacheStats cacheStats = stats.component(SharedCacheStats.class);
+    assertThat(new long[]{cacheStats.entries(), cacheStats.misses()}).isEqualTo(new long[]{0, 0});
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedEntriesWhenSharedPublicEntriesExceedMax()
+      throws Exception {
+    stubFor(get(anyUrl())
+        .willReturn(aResponse().withHeader("Cache-Control", "public, max-age=600")));
+    TestPlanStats stats = testPlan(
+        httpCache().sharedPublicEntries(1),
+        buildHeadersToFixHttpCaching(),
+        threadGroup(1, 1,
+            httpSampler(wiremockUri + "/1"),
+            httpSampler(wiremockUri + "/2"),
+            httpSampler(wiremockUri + "/1")
+        )
+    ).run();
+    verify(3, getRequestedFor(anyUrl()));
+    SharedCacheStats cacheStats = stats.component(SharedCacheStats.class);
+    assertThat(new long[]{cacheStats.evictions(), cacheStats.entries()})
+        .isEqualTo(new long[]{2, 1});
+  }
+
   @Test
   public void shouldNotKeepCookiesWhenDisabled() throws Exception {
     setupHttpResponseWithCookie();
@@ -374,6 +441,55 @@ public class DslHttpSamplerTest extends JmeterDslTest {
     verify(getRequestedFor(urlPathEqualTo(resource1Url)));
   }
 
+  @Test
+  public void shouldLimitParallelDownloadsPerHostWhenEmbeddedResourcesConcurrency()
+      throws Exception {
+    stubFor(get(anyUrl())
+        .willReturn(aResponse().withFixedDelay(500)));
+    String primaryUrl = "/primary";
+    stubFor(get(primaryUrl)
+        .willReturn(HttpResponseBuilder.buildEmbeddedResourcesResponse("/resource1", "/resource2",
+            "/resource3", "/resource4")));
+    TestPlanStats stats = testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri + primaryUrl)
+                .embeddedResourcesConcurrency(4, 2)
+                .children(
+                    jsr223PostProcessor(s -> {
+                      SampleResult[] resources = s.prev.getSubResults();
+                      long firstEnd = Arrays.stream(resources)
+                          .mapToLong(SampleResult::getEndTime)
+                          .min()
+                          .orElse(0);
+                      long lastStart = Arrays.stream(resources)
+                          .mapToLong(SampleResult::getStartTime)
+                          .max()
+                          .orElse(0);
+                      s.prev.setSuccessful(resources.length == 4 && lastStart >= firstEnd);
+                    })
+                )
+        )
+    ).run();
+    assertThat(stats.overall().errorsCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldReuseParsedEmbeddedResourcesWhenEmbeddedResourcesConcurrencyAndETag()
+      throws Exception {
+    String primaryUrl = "/primary";
+    String resourceUrl = "/resource";
+    stubFor(get(primaryUrl)
+        .willReturn(HttpResponseBuilder.buildEmbeddedResourcesResponse(resourceUrl)
+            .withHeader(HTTPConstants.ETAG, "\"v1\"")));
+    testPlan(
+        threadGroup(2, 2,
+            httpSampler(wiremockUri + primaryUrl)
+                .embeddedResourcesConcurrency(6, 6)
+        )
+    ).run();
+    verify(exactly(4), getRequestedFor(urlPathEqualTo(resourceUrl)));
+  }
+
   @Test
   public void shouldSendQueryParametersWhenGetRequestWithParameters() throws Exception {
     testPlan(
@@ -442,6 +558,48 @@ public class DslHttpSamplerTest extends JmeterDslTest {
                 part2Resource, part2Encoding))));
   }
 
+  @Test
+  public void shouldSendMultiPartFormWhenAsyncClientImplAndBodyParts() throws Exception {
+    String part1Name = "part1";
+    String part1Value = "value1";
+    ContentType part1Encoding = ContentType.TEXT_PLAIN.withCharset(StandardCharsets.US_ASCII);
+    String part2Name = "part2";
+    TestResource part2Resource = testResource("jtls/custom-sample-jtl.xml");
+    ContentType part2Encoding = ContentType.TEXT_XML;
+
+    testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri)
+                .method(HTTPConstants.POST)
+                .bodyPart(part1Name, part1Value, part1Encoding)
+                .bodyFilePart(part2Name, part2Resource.filePath(), part2Encoding)
+                .clientImpl(HttpClientImpl.ASYNC)
+        )
+    ).run();
+    verify(postRequestedFor(anyUrl())
+        .withHeader(HTTPConstants.HEADER_CONTENT_TYPE,
+            matching(ContentType.MULTIPART_FORM_DATA.withCharset((String) null) + "; boundary="
+                + MULTIPART_BOUNDARY_PATTERN))
+        .withRequestBody(matching(
+            buildMultiPartBodyPattern(part1Name, part1Value, part1Encoding, part2Name,
+                part2Resource, part2Encoding))));
+  }
+
+  @Test
+  public void shouldSendFileContentsWhenAsyncClientImplAndBodyFile() throws Exception {
+    TestResource resource = testResource("jtls/custom-sample-jtl.xml");
+    testPlan(
+        threadGroup(1, 2,
+            httpSampler(wiremockUri)
+                .method(HTTPConstants.POST)
+                .bodyFile(resource.filePath())
+                .clientImpl(HttpClientImpl.ASYNC)
+        )
+    ).run();
+    verify(exactly(2), postRequestedFor(anyUrl())
+        .withRequestBody(equalTo(resource.contents() + "\n")));
+  }
+
   private String buildMultiPartBodyPattern(String part1Name, String part1Value,
       ContentType part1Encoding, String part2Name, TestResource part2Resource,
       ContentType part2Encoding) throws IOException {
@@ -504,6 +662,187 @@ public class DslHttpSamplerTest extends JmeterDslTest {
     }
   }
 
+  @Test
+  public void shouldSendRequestsWithHeadersBodyAndCookiesWhenAsyncClientImpl() throws Exception {
+    setupHttpResponseWithCookie();
+    ContentType contentType = ContentType.APPLICATION_JSON;
+    testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri)
+                .clientImpl(HttpClientImpl.ASYNC),
+            httpSampler(wiremockUri)
+                .post(JSON_BODY, contentType)
+                .header(HEADER_NAME_1, HEADER_VALUE_1)
+                .clientImpl(HttpClientImpl.ASYNC)
+        )
+    ).run();
+    verify(postRequestedFor(anyUrl())
+        .withHeader("Cookie", equalTo("MyCookie=val"))
+        .withHeader(HEADER_NAME_1, equalTo(HEADER_VALUE_1))
+        .withHeader(HTTPConstants.HEADER_CONTENT_TYPE, equalTo(contentType.toString()))
+        .withRequestBody(equalToJson(JSON_BODY)));
+  }
+
+  @Test
+  public void shouldExtractAndAssertResponsesWhenAsyncClientImpl() throws Exception {
+    String usersPath = "/users";
+    stubFor(get(usersPath)
+        .willReturn(aResponse().withBody("{\"id\":1}")));
+    TestPlanStats stats = testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri + usersPath)
+                .clientImpl(HttpClientImpl.ASYNC)
+                .children(
+                    jsr223PostProcessor(s -> s.prev.setSuccessful(
+                        s.prev.isSuccessful() && s.sampler instanceof AsyncHttpSampler)),
+                    regexExtractor("USER_ID", "\"id\":(\\d+)"),
+                    responseAssertion().containsSubstrings("\"id\"")
+                ),
+            httpSampler(wiremockUri + usersPath + "/${USER_ID}")
+                .clientImpl(HttpClientImpl.ASYNC)
+        )
+    ).run();
+    assertThat(stats.overall().errorsCount()).isEqualTo(0);
+    verify(getRequestedFor(urlPathEqualTo(usersPath + "/1")));
+  }
+
+  @Test
+  public void shouldFollowRedirectsWhenAsyncClientImpl() throws Exception {
+    setupMockedRedirectionTo(REDIRECT_PATH);
+    testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri)
+                .clientImpl(HttpClientImpl.ASYNC)
+        )
+    ).run();
+    verify(getRequestedFor(urlPathEqualTo(REDIRECT_PATH)));
+  }
+
+  @Test
+  public void shouldGetDecodedBodyWhenAsyncClientImplAndGzipEncodedResponse() throws Exception {
+    String body = "{\"id\":1}" + StringUtils.repeat('a', 5000);
+    byte[] encodedBody = gzip(body);
+    stubFor(get(anyUrl()).willReturn(aResponse()
+        .withHeader(HTTPConstants.HEADER_CONTENT_ENCODING, HTTPConstants.ENCODING_GZIP)
+        .withBody(encodedBody)));
+    TestPlanStats stats = testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri)
+                .clientImpl(HttpClientImpl.ASYNC)
+                .children(
+                    jsr223PostProcessor(s -> s.prev.setSuccessful(
+                        body.equals(s.prev.getResponseDataAsString())
+                            && s.prev.getBodySizeAsLong() == encodedBody.length))
+                )
+        )
+    ).run();
+    assertThat(stats.overall().errorsCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldKeepFirstDecodedBytesWhenDiscardResponseBodyExceptFirstAndGzipEncodedResponse()
+      throws Exception {
+    String body = StringUtils.repeat("{\"id\":1}", 100_000);
+    byte[] encodedBody = gzip(body);
+    stubFor(get(anyUrl()).willReturn(aResponse()
+        .withHeader(HTTPConstants.HEADER_CONTENT_ENCODING, HTTPConstants.ENCODING_GZIP)
+        .withBody(encodedBody)));
+    TestPlanStats stats = testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri)
+                .discardResponseBodyExceptFirst(1)
+                .clientImpl(HttpClientImpl.ASYNC)
+                .children(
+                    jsr223PostProcessor(s -> s.prev.setSuccessful(
+                        body.substring(0, 1024).equals(s.prev.getResponseDataAsString())
+                            && s.prev.getBodySizeAsLong() == encodedBody.length))
+                )
+        )
+    ).run();
+    assertThat(stats.overall().errorsCount()).isEqualTo(0);
+  }
+
+  private static byte[] gzip(String body) throws IOException {
+    ByteArrayOutputStream ret = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(ret)) {
+      gzip.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    return ret.toByteArray();
+  }
+
+  @Test
+  public void shouldOnlyCountResponseBodyBytesWhenDiscardResponseBody() throws Exception {
+    String body = StringUtils.repeat('a', 5000);
+    stubFor(get(anyUrl()).willReturn(aResponse().withBody(body)));
+    TestPlanStats stats = testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri)
+                .discardResponseBody()
+                .children(
+                    jsr223PostProcessor(s -> s.prev.setSuccessful(
+                        s.prev.getBodySizeAsLong() >= body.length()
+                            && !body.equals(s.prev.getResponseDataAsString())))
+                )
+        )
+    ).run();
+    assertThat(stats.overall().errorsCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldKeepFirstResponseBytesWhenAsyncClientImplAndDiscardResponseBodyExceptFirst()
+      throws Exception {
+    String usersPath = "/users";
+    String body = "{\"id\":1}" + StringUtils.repeat('a', 5000);
+    stubFor(get(usersPath)
+        .willReturn(aResponse().withBody(body)));
+    TestPlanStats stats = testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri + usersPath)
+                .discardResponseBodyExceptFirst(1)
+                .clientImpl(HttpClientImpl.ASYNC)
+                .children(
+                    jsr223PostProcessor(s -> s.prev.setSuccessful(
+                        s.prev.getBodySizeAsLong() == body.length()
+                            && s.prev.getResponseData().length == 1024)),
+                    regexExtractor("USER_ID", "\"id\":(\\d+)")
+                ),
+            httpSampler(wiremockUri + usersPath + "/${USER_ID}")
+                .clientImpl(HttpClientImpl.ASYNC)
+        )
+    ).run();
+    assertThat(stats.overall().errorsCount()).isEqualTo(0);
+    verify(getRequestedFor(urlPathEqualTo(usersPath + "/1")));
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenEmbeddedResourcesConcurrencyNonPositive() {
+    assertThrows(IllegalArgumentException.class,
+        () -> httpSampler(wiremockUri).embeddedResourcesConcurrency(0, 1));
+    assertThrows(IllegalArgumentException.class,
+        () -> httpSampler(wiremockUri).embeddedResourcesConcurrency(1, -1));
+  }
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenDiscardResponseBodyExceptNegativeKilobytes() {
+    assertThrows(IllegalArgumentException.class,
+        () -> httpSampler(wiremockUri).discardResponseBodyExceptFirst(-1));
+  }
+
+  @Test
+  public void shouldUseHttpClientImplWhenSaveAsJmxWithAsyncClientImpl(@TempDir Path tempDir)
+      throws IOException {
+    Path filePath = tempDir.resolve("output.jmx");
+    testPlan(
+        threadGroup(1, 1,
+            httpSampler(wiremockUri)
+                .clientImpl(HttpClientImpl.ASYNC)
+        )
+    ).saveAsJmx(filePath.toString());
+    assertThat(filePath).content()
+        .contains(HttpClientImpl.HTTP_CLIENT.propertyValue())
+        .doesNotContain(HttpClientImpl.ASYNC.propertyValue());
+  }
+
   @SuppressWarnings("unused")
   @Nested
   public class CodeBuilderTest extends MethodCallBuilderTest {
@@ -654,6 +993,15 @@ public class DslHttpSamplerTest extends JmeterDslTest {
       );
     }
 
+    public DslTestPlan testPlanWithHttpGetAndDiscardedResponseBody() {
+      return testPlan(
+          threadGroup(1, 1,
+              httpSampler("http://localhost")
+                  .discardResponseBody()
+          )
+      );
+    }
+
     public DslTestPlan testPlanWithHttpGetAndJavaClientImpl() {
       return testPlan(
           threadGroup(1, 1,
@@ -9,13 +9,19 @@ import static us.abstracta.jmeter.javadsl.JmeterDsl.threadGroup;
 
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import org.apache.jmeter.protocol.java.sampler.JSR223Sampler;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.ListedHashTree;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import us.abstracta.jmeter.javadsl.codegeneration.MethodCallBuilderTest;
+import us.abstracta.jmeter.javadsl.core.BuildTreeContext;
 import us.abstracta.jmeter.javadsl.core.DslTestPlan;
+import us.abstracta.jmeter.javadsl.core.TestPlanStats;
 import us.abstracta.jmeter.javadsl.core.listeners.JtlWriter;
+import us.abstracta.jmeter.javadsl.java.DslJsr223Sampler.LambdaSampler;
 
 public class DslJsr223SamplerTest {
 
@@ -66,6 +72,38 @@ public class DslJsr223SamplerTest {
     assertThatJtlContentIsExpectedForCustomSample(resultsFilePath);
   }
 
+  @Test
+  public void shouldGetFailedSampleResultWhenJsr223SamplerWithLambdaThrowingException()
+      throws Exception {
+    TestPlanStats stats = testPlan(
+        threadGroup(1, 1,
+            jsr223Sampler(v -> {
+              throw new IllegalStateException("test");
+            })
+        )
+    ).run();
+    assertThat(stats.overall().errorsCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldBuildLambdaSamplerWhenJsr223SamplerWithLambdaInLocalExecution() {
+    assertThat(buildTreeElement(true)).isInstanceOf(LambdaSampler.class);
+  }
+
+  private Object buildTreeElement(boolean localExecution) {
+    HashTree tree = new ListedHashTree();
+    BuildTreeContext context = new BuildTreeContext();
+    context.setLocalExecution(localExecution);
+    context.buildTreeFor(jsr223Sampler(v -> {
+    }), tree);
+    return tree.getArray()[0];
+  }
+
+  @Test
+  public void shouldBuildJsr223SamplerWhenJsr223SamplerWithLambdaInNonLocalExecution() {
+    assertThat(buildTreeElement(false)).isInstanceOf(JSR223Sampler.class);
+  }
+
   @Nested
   public class CodeBuilderTest extends MethodCallBuilderTest {
 